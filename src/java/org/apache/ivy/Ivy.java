@@ -36,6 +36,7 @@ import org.apache.ivy.core.check.CheckEngine;
 import org.apache.ivy.core.deliver.DeliverEngine;
 import org.apache.ivy.core.deliver.DeliverOptions;
 import org.apache.ivy.core.event.EventManager;
+import org.apache.ivy.core.install.BulkInstallReport;
 import org.apache.ivy.core.install.InstallEngine;
 import org.apache.ivy.core.install.InstallOptions;
 import org.apache.ivy.core.module.descriptor.ModuleDescriptor;
@@ -106,6 +107,18 @@ import org.apache.ivy.util.MessageLoggerEngine;
  *     }
  * });
  * </pre>
+ * <p>
+ * Once configured, an Ivy instance can be used by several threads at the same time: the state of
+ * each resolve is kept in its own {@link org.apache.ivy.core.resolve.ResolveData} and in the
+ * {@link IvyContext} of the thread doing it, while the settings, resolvers and caches are shared.
+ * The repository cache serializes the threads working on the same module revision, and the
+ * resolved ivy file and properties, which are stored by module revision, are replaced as a whole:
+ * when concurrent resolves of the same module save them, the last one wins. Each concurrent
+ * resolve should use its own resolve id, since the resolution reports are stored by resolve id.
+ * The problems are collected by the logger engine of the instance, so the problems summary of a
+ * resolve may include the ones of the resolves running at the same time. Configuring the instance
+ * while it is in use is not supported.
+ * </p>
  */
 public class Ivy {
     /**
@@ -213,7 +226,7 @@ public class Ivy {
      * 
      * @see bind()
      */
-    private boolean bound;
+    private volatile boolean bound;
 
     /*
      * Following are dependencies of the Ivy instance on instances of engines and manager which
@@ -525,6 +538,18 @@ public class Ivy {
         try {
             return installEngine.install(mrid, from, to, options);
         } finally {
+            searchEngine.invalidate(to);
+            popContext();
+        }
+    }
+
+    public BulkInstallReport bulkInstall(ModuleRevisionId mrid, String from, String to,
+            InstallOptions options) throws IOException {
+        pushContext();
+        try {
+            return installEngine.bulkInstall(mrid, from, to, options);
+        } finally {
+            searchEngine.invalidate(to);
             popContext();
         }
     }
@@ -599,6 +624,23 @@ public class Ivy {
         }
     }
 
+    /**
+     * Delivers several resolved modules at once, resolving the revisions of their dependencies only
+     * once.
+     * 
+     * @see DeliverEngine#deliver(Collection, String, String, DeliverOptions)
+     */
+    public Map/* <ModuleRevisionId, File> */deliver(Collection/* <ModuleRevisionId> */mrids,
+            String revision, String destIvyPattern, DeliverOptions options) throws IOException,
+            ParseException {
+        pushContext();
+        try {
+            return deliverEngine.deliver(mrids, revision, destIvyPattern, options);
+        } finally {
+            popContext();
+        }
+    }
+
     // ///////////////////////////////////////////////////////////////////////
     // PUBLISH
     // ///////////////////////////////////////////////////////////////////////
@@ -609,6 +651,7 @@ public class Ivy {
         try {
             return publishEngine.publish(mrid, srcArtifactPattern, resolverName, options);
         } finally {
+            searchEngine.invalidate(resolverName);
             popContext();
         }
     }
@@ -815,7 +858,11 @@ public class Ivy {
 
     private void assertBound() {
         if (!bound) {
-            bind();
+            synchronized (this) {
+                if (!bound) {
+                    bind();
+                }
+            }
         }
     }
 
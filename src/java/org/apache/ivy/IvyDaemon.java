@@ -0,0 +1,488 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.ivy;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.ConnectException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.ivy.util.ChecksumHelper;
+import org.apache.ivy.util.FileUtil;
+import org.apache.ivy.util.Message;
+import org.apache.ivy.util.cli.CommandLine;
+import org.apache.ivy.util.cli.CommandLineParser;
+import org.apache.ivy.util.cli.ParseException;
+
+/**
+ * A long lived process running ivy command lines on behalf of clients connecting on a local port.
+ * <p>
+ * The daemon keeps the Ivy instances it configured for previous command lines, so that settings
+ * are loaded only once and caches stay warm across invocations. An instance is reused by the
+ * command lines using the same settings file, as long as this file is not modified, and the same
+ * settings related options. Command lines sharing an instance are run one after the other, the
+ * others are run concurrently.
+ * </p>
+ * <p>
+ * The daemon only listens on the loopback interface. Relative paths given on a command line are
+ * resolved against the working directory of the client, but the system properties available as
+ * ivy variables are the ones of the daemon.
+ * </p>
+ * <p>
+ * Each daemon generates a random token when it starts, and writes it to a file in a directory
+ * only readable by the user running the daemon, <code>~/.ivy2/daemon</code> by default. The
+ * clients must send this token with each request, so that other users of the machine can neither
+ * run command lines nor stop the daemon. The credentials given on a command line are only used
+ * by this command line.
+ * </p>
+ */
+public final class IvyDaemon {
+    private static final int PROTOCOL_VERSION = 2;
+
+    private static final int STOP_REQUEST = -1;
+
+    private static final int OUTPUT = 1;
+
+    private static final int EXIT = 2;
+
+    private static final int DENIED = 3;
+
+    private static final int TOKEN_BYTES = 32;
+
+    private static final int MAX_INSTANCES = 16;
+
+    private final ServerSocket serverSocket;
+
+    private final String token;
+
+    private final File tokenFile;
+
+    private final Map/*<String,InstanceHolder>*/ instances = new LinkedHashMap(
+            MAX_INSTANCES, 0.75f, true) {
+        protected boolean removeEldestEntry(Map.Entry eldest) {
+            return size() > MAX_INSTANCES;
+        }
+    };
+
+    private volatile boolean stopped = false;
+
+    /**
+     * Creates a daemon listening on the given port of the loopback interface, writing its token in
+     * the default token directory.
+     *
+     * @param port
+     *            the port to listen on, 0 to use any free port
+     */
+    public IvyDaemon(int port) throws IOException {
+        this(port, getDefaultTokenDir());
+    }
+
+    /**
+     * Creates a daemon listening on the given port of the loopback interface.
+     *
+     * @param port
+     *            the port to listen on, 0 to use any free port
+     * @param tokenDir
+     *            the directory in which the token of the daemon is written
+     */
+    public IvyDaemon(int port, File tokenDir) throws IOException {
+        byte[] bytes = new byte[TOKEN_BYTES];
+        new SecureRandom().nextBytes(bytes);
+        token = ChecksumHelper.byteArrayToHexString(bytes);
+        serverSocket = new ServerSocket(port, 0, InetAddress.getByName(null));
+        try {
+            tokenFile = getTokenFile(tokenDir, getPort());
+            writeToken(tokenFile, token);
+        } catch (IOException e) {
+            serverSocket.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Returns the directory in which the daemons write their token by default.
+     */
+    public static File getDefaultTokenDir() {
+        return new File(System.getProperty("user.home"), ".ivy2/daemon");
+    }
+
+    /**
+     * Returns the file in which the daemon listening on the given port writes its token.
+     */
+    public static File getTokenFile(File tokenDir, int port) {
+        return new File(tokenDir, "daemon-" + port + ".token");
+    }
+
+    /**
+     * Reads the token of the daemon listening on the given port.
+     */
+    public static String readToken(File tokenDir, int port) throws IOException {
+        File file = getTokenFile(tokenDir, port);
+        if (!file.isFile()) {
+            throw new IOException("no token found for an ivy daemon on port " + port + " in "
+                    + tokenDir);
+        }
+        return FileUtil.readEntirely(file).trim();
+    }
+
+    private static void writeToken(File file, String token) throws IOException {
+        File dir = file.getParentFile();
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("can't create ivy daemon token directory " + dir);
+        }
+        // the directory is restricted first, so that nobody else can open the file in between
+        restrictToOwner(dir, true);
+        if (file.exists() && !file.delete()) {
+            throw new IOException("can't delete stale ivy daemon token file " + file);
+        }
+        if (!file.createNewFile()) {
+            throw new IOException("can't create ivy daemon token file " + file);
+        }
+        restrictToOwner(file, false);
+        OutputStream out = new FileOutputStream(file);
+        try {
+            out.write(token.getBytes("US-ASCII"));
+        } finally {
+            out.close();
+        }
+    }
+
+    private static void restrictToOwner(File file, boolean executable) throws IOException {
+        boolean restricted = file.setReadable(false, false) && file.setReadable(true, true)
+                && file.setWritable(false, false) && file.setWritable(true, true)
+                && file.setExecutable(false, false)
+                && (!executable || file.setExecutable(true, true));
+        if (!restricted && File.separatorChar == '/') {
+            // on Windows the permissions of the user profile already protect the token
+            throw new IOException("can't restrict the access to " + file + " to its owner");
+        }
+    }
+
+    /**
+     * Returns the token the clients must send to this daemon.
+     */
+    public String getToken() {
+        return token;
+    }
+
+    /**
+     * Returns the port on which this daemon listens.
+     */
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * Accepts client connections until this daemon is stopped. Each client is served in its own
+     * thread.
+     */
+    public void serve() throws IOException {
+        try {
+            while (!stopped) {
+                final Socket socket;
+                try {
+                    socket = serverSocket.accept();
+                } catch (SocketException e) {
+                    if (stopped) {
+                        break;
+                    }
+                    throw e;
+                }
+                Thread client = new Thread(new Runnable() {
+                    public void run() {
+                        handle(socket);
+                    }
+                }, "ivy daemon client " + socket.getPort());
+                client.setDaemon(true);
+                client.start();
+            }
+        } finally {
+            stop();
+        }
+    }
+
+    /**
+     * Stops accepting client connections. Command lines being run are not interrupted.
+     */
+    public void stop() {
+        stopped = true;
+        try {
+            serverSocket.close();
+        } catch (IOException e) {
+            // ignored
+        }
+        tokenFile.delete();
+    }
+
+    /**
+     * Returns the number of configured Ivy instances currently kept by this daemon.
+     */
+    public int getInstanceCount() {
+        synchronized (instances) {
+            return instances.size();
+        }
+    }
+
+    /**
+     * Returns the Ivy instance to use to run the given command line, configuring a new one if no
+     * instance has been configured with the same settings yet.
+     */
+    Ivy getIvy(CommandLine line, File baseDir, PrintStream out)
+            throws java.text.ParseException, IOException, ParseException {
+        String key = getInstanceKey(line, baseDir);
+        InstanceHolder holder;
+        synchronized (instances) {
+            holder = (InstanceHolder) instances.get(key);
+            if (holder == null) {
+                holder = new InstanceHolder();
+                instances.put(key, holder);
+            }
+        }
+        // configure outside of the instances lock, so that loading some settings does not block
+        // the clients using other ones
+        synchronized (holder) {
+            if (holder.ivy == null) {
+                holder.ivy = Main.newIvy(line, baseDir, out);
+            } else {
+                Message.debug("using ivy instance configured by a previous command line");
+            }
+            return holder.ivy;
+        }
+    }
+
+    private static String getInstanceKey(CommandLine line, File baseDir) {
+        StringBuffer key = new StringBuffer();
+        File settingsFile = Main.getSettingsFile(line, baseDir);
+        if (settingsFile != null) {
+            key.append(settingsFile.getAbsolutePath()).append('@')
+                .append(settingsFile.lastModified());
+        }
+        key.append('|').append(line.hasOption("m2compatible"));
+        key.append('|').append(line.hasOption("useOrigin"));
+        key.append('|').append(Main.resolvePath(baseDir, line.getOptionValue("cache", "")));
+        return key.toString();
+    }
+
+    private void handle(Socket socket) {
+        try {
+            DataInputStream in = new DataInputStream(
+                new BufferedInputStream(socket.getInputStream()));
+            DataOutputStream dataOut = new DataOutputStream(
+                new BufferedOutputStream(socket.getOutputStream()));
+            if (in.readInt() != PROTOCOL_VERSION) {
+                return;
+            }
+            if (!MessageDigest.isEqual(token.getBytes("US-ASCII"), 
+                    in.readUTF().getBytes("US-ASCII"))) {
+                Message.warn("ivy daemon: request with an invalid token rejected");
+                dataOut.writeByte(DENIED);
+                dataOut.flush();
+                return;
+            }
+            int argCount = in.readInt();
+            if (argCount == STOP_REQUEST) {
+                stop();
+                writeExit(dataOut, 0);
+                return;
+            }
+            File baseDir = new File(in.readUTF());
+            String[] args = new String[argCount];
+            for (int i = 0; i < args.length; i++) {
+                args[i] = in.readUTF();
+            }
+
+            PrintStream out = new PrintStream(new ClientOutputStream(dataOut), true);
+            CommandLineParser parser = Main.getParser();
+            int status;
+            try {
+                status = Main.run(parser, args, baseDir, out, this);
+            } catch (ParseException e) {
+                out.println(e.getMessage());
+                Main.usage(parser, false, out);
+                status = 1;
+            } catch (Exception e) {
+                e.printStackTrace(out);
+                status = 1;
+            }
+            out.flush();
+            writeExit(dataOut, status);
+        } catch (IOException e) {
+            Message.debug("ivy daemon client disconnected: " + e.getMessage());
+        } finally {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                // ignored
+            }
+        }
+    }
+
+    private static void writeExit(DataOutputStream dataOut, int status) throws IOException {
+        synchronized (dataOut) {
+            dataOut.writeByte(EXIT);
+            dataOut.writeInt(status);
+            dataOut.flush();
+        }
+    }
+
+    /**
+     * Runs the given command line in the daemon listening on the given port, copying its output
+     * to the given stream. The token of the daemon is read from the default token directory.
+     *
+     * @return the exit code of the command line
+     */
+    public static int send(int port, String[] args, PrintStream out) throws IOException {
+        return send(port, readToken(getDefaultTokenDir(), port), args, out);
+    }
+
+    /**
+     * Runs the given command line in the daemon listening on the given port, copying its output
+     * to the given stream.
+     *
+     * @param token
+     *            the token of the daemon
+     * @return the exit code of the command line
+     */
+    public static int send(int port, String token, String[] args, PrintStream out)
+            throws IOException {
+        Socket socket = connect(port);
+        try {
+            DataOutputStream dataOut = new DataOutputStream(
+                new BufferedOutputStream(socket.getOutputStream()));
+            dataOut.writeInt(PROTOCOL_VERSION);
+            dataOut.writeUTF(token);
+            dataOut.writeInt(args.length);
+            dataOut.writeUTF(System.getProperty("user.dir"));
+            for (int i = 0; i < args.length; i++) {
+                dataOut.writeUTF(args[i]);
+            }
+            dataOut.flush();
+            return readResponse(socket, out);
+        } finally {
+            socket.close();
+        }
+    }
+
+    /**
+     * Stops the daemon listening on the given port. The token of the daemon is read from the
+     * default token directory.
+     */
+    public static void requestStop(int port) throws IOException {
+        requestStop(port, readToken(getDefaultTokenDir(), port));
+    }
+
+    /**
+     * Stops the daemon listening on the given port.
+     *
+     * @param token
+     *            the token of the daemon
+     */
+    public static void requestStop(int port, String token) throws IOException {
+        Socket socket = connect(port);
+        try {
+            DataOutputStream dataOut = new DataOutputStream(socket.getOutputStream());
+            dataOut.writeInt(PROTOCOL_VERSION);
+            dataOut.writeUTF(token);
+            dataOut.writeInt(STOP_REQUEST);
+            dataOut.flush();
+            readResponse(socket, null);
+        } finally {
+            socket.close();
+        }
+    }
+
+    private static Socket connect(int port) throws IOException {
+        try {
+            return new Socket(InetAddress.getByName(null), port);
+        } catch (ConnectException e) {
+            IOException ioe = new IOException("no ivy daemon listening on port " + port);
+            ioe.initCause(e);
+            throw ioe;
+        }
+    }
+
+    private static int readResponse(Socket socket, PrintStream out) throws IOException {
+        DataInputStream in = new DataInputStream(
+            new BufferedInputStream(socket.getInputStream()));
+        while (true) {
+            int type = in.readByte();
+            if (type == OUTPUT) {
+                byte[] bytes = new byte[in.readInt()];
+                in.readFully(bytes);
+                if (out != null) {
+                    out.write(bytes);
+                    out.flush();
+                }
+            } else if (type == EXIT) {
+                return in.readInt();
+            } else if (type == DENIED) {
+                throw new IOException("the ivy daemon on port " + socket.getPort()
+                        + " rejected the request: invalid token");
+            } else {
+                throw new IOException("unexpected message from ivy daemon: " + type);
+            }
+        }
+    }
+
+    private static final class InstanceHolder {
+        private Ivy ivy;
+    }
+
+    /**
+     * Sends what is written to it to the client as output messages.
+     */
+    private static final class ClientOutputStream extends OutputStream {
+        private final DataOutputStream dataOut;
+
+        public ClientOutputStream(DataOutputStream dataOut) {
+            this.dataOut = dataOut;
+        }
+
+        public void write(int b) throws IOException {
+            write(new byte[] {(byte) b}, 0, 1);
+        }
+
+        public void write(byte[] b, int off, int len) throws IOException {
+            synchronized (dataOut) {
+                dataOut.writeByte(OUTPUT);
+                dataOut.writeInt(len);
+                dataOut.write(b, off, len);
+            }
+        }
+
+        public void flush() throws IOException {
+            synchronized (dataOut) {
+                dataOut.flush();
+            }
+        }
+    }
+}
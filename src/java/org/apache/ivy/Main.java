@@ -20,6 +20,7 @@ package org.apache.ivy;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.PrintStream;
 import java.io.PrintWriter;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
@@ -164,6 +165,15 @@ public final class Main {
             .addOption(new OptionBuilder("error")
                 .description("set message level to error").create())
 
+            .addCategory("daemon options")
+            .addOption(new OptionBuilder("daemon").arg("port")
+                .description("run as a daemon listening on the given local port").create())
+            .addOption(new OptionBuilder("usedaemon").arg("port")
+                .description("run the command line in the daemon listening on the given "
+                    + "local port").create())
+            .addOption(new OptionBuilder("stopdaemon").arg("port")
+                .description("stop the daemon listening on the given local port").create())
+
             .addCategory("help options")
             .addOption(new OptionBuilder("?")
                 .description("display this help").create())
@@ -176,45 +186,118 @@ public final class Main {
     public static void main(String[] args) throws Exception {
         CommandLineParser parser = getParser();
         try {
-            run(parser, args);
-            System.exit(0);
+            System.exit(run(parser, args));
         } catch (ParseException ex) {
             System.err.println(ex.getMessage());
-            usage(parser, false);
+            usage(parser, false, System.out);
             System.exit(1);
         }
     }
     
-    static void run(CommandLineParser parser, String[] args) throws Exception {
-            // parse the command line arguments
-            CommandLine line = parser.parse(args);
+    static int run(CommandLineParser parser, String[] args) throws Exception {
+        return run(parser, args, null, System.out, null);
+    }
+
+    /**
+     * Runs the given command line.
+     * 
+     * @param parser
+     *            the parser to use to parse the command line arguments
+     * @param args
+     *            the command line arguments
+     * @param baseDir
+     *            the directory against which relative paths are resolved, or <code>null</code>
+     *            to use the current working directory
+     * @param out
+     *            the stream to which messages and outputs should be written
+     * @param daemon
+     *            the daemon in which the command line is run, or <code>null</code> if ivy is run
+     *            as a standalone tool
+     * @return the exit code of the command line
+     */
+    static int run(CommandLineParser parser, String[] args, File baseDir, PrintStream out,
+            IvyDaemon daemon) throws Exception {
+        // parse the command line arguments
+        CommandLine line = parser.parse(args);
+
+        if (line.hasOption("?")) {
+            usage(parser, line.hasOption("deprecated"), out);
+            return 0;
+        }
+
+        if (line.hasOption("version")) {
+            out.println("Apache Ivy " + Ivy.getIvyVersion() + " - "
+                + Ivy.getIvyDate() + " :: " + Ivy.getIvyHomeURL());
+            return 0;
+        }
 
-            if (line.hasOption("?")) {
-                usage(parser, line.hasOption("deprecated"));
-                return;
+        if (daemon == null) {
+            if (line.hasOption("daemon")) {
+                IvyDaemon newDaemon = new IvyDaemon(getPort(line, "daemon"));
+                out.println("ivy daemon listening on port " + newDaemon.getPort());
+                newDaemon.serve();
+                return 0;
             }
-            
-            if (line.hasOption("version")) {
-                System.out.println("Apache Ivy " + Ivy.getIvyVersion() + " - "
-                    + Ivy.getIvyDate() + " :: " + Ivy.getIvyHomeURL());
-                return;
+            if (line.hasOption("stopdaemon")) {
+                IvyDaemon.requestStop(getPort(line, "stopdaemon"));
+                return 0;
+            }
+            if (line.hasOption("usedaemon")) {
+                return IvyDaemon.send(getPort(line, "usedaemon"), args, out);
             }
+        } else if (line.hasOption("main")) {
+            error("-main cannot be used with an ivy daemon");
+        }
 
+        if (daemon == null) {
+            // in a daemon, the credentials are only added for the command line being run
+            addCredentials(line, false);
+        }
+        configureURLHandler();
 
-            boolean validate = line.hasOption("novalidate") ? false : true;
+        Ivy ivy = daemon == null ? newIvy(line, baseDir, out) : daemon.getIvy(line, baseDir, out);
+        // an instance kept by a daemon can be shared by several clients
+        synchronized (ivy) {
+            return execute(line, ivy, baseDir, out, daemon != null);
+        }
+    }
 
-            Ivy ivy = Ivy.newInstance();
-            initMessage(line, ivy);
-            IvySettings settings = initSettings(line, ivy);
-            ivy.pushContext();
+    /**
+     * Creates a new Ivy instance configured with the settings related options of the given
+     * command line.
+     */
+    static Ivy newIvy(CommandLine line, File baseDir, PrintStream out) 
+            throws java.text.ParseException, IOException, ParseException {
+        Ivy ivy = Ivy.newInstance();
+        initMessage(line, ivy, out);
+        ivy.pushContext();
+        // the settings may be loaded from urls requiring the credentials of the command line,
+        // which a daemon only adds to the context of the command line
+        addCredentials(line, true);
+        try {
+            initSettings(line, ivy, baseDir);
+        } finally {
+            CredentialsStore.INSTANCE.clearContextCredentials();
+            ivy.getLoggerEngine().popLogger();
+            ivy.popContext();
+        }
+        return ivy;
+    }
 
-            File cache = new File(settings.substitute(line.getOptionValue("cache", settings
-                    .getDefaultCache().getAbsolutePath())));
+    private static int execute(CommandLine line, Ivy ivy, File baseDir, PrintStream out,
+            boolean contextCredentials) throws Exception {
+        boolean validate = line.hasOption("novalidate") ? false : true;
 
-            if (line.hasOption("cache")) {
-                //override default cache path with user supplied cache path
-                settings.setDefaultCache(cache);
-            }
+        initMessage(line, ivy, out);
+        ivy.pushContext();
+        if (contextCredentials) {
+            addCredentials(line, true);
+        }
+        File ivyfile = null;
+        boolean temporaryIvyFile = line.hasOption("dependency");
+        try {
+            IvySettings settings = ivy.getSettings();
+            File cache = settings.getDefaultCache();
 
             if (!cache.exists()) {
                 cache.mkdirs();
@@ -229,8 +312,7 @@ public final class Main {
                 confs = new String[] {"*"};
             }
 
-            File ivyfile;
-            if (line.hasOption("dependency")) {
+            if (temporaryIvyFile) {
                 String[] dep = line.getOptionValues("dependency");
                 ivyfile = File.createTempFile("ivy", ".xml");
                 ivyfile.deleteOnExit();
@@ -246,7 +328,8 @@ public final class Main {
                 XmlModuleDescriptorWriter.write(md, ivyfile);
                 confs = new String[] {"default"};
             } else {
-                ivyfile = new File(settings.substitute(line.getOptionValue("ivy", "ivy.xml")));
+                ivyfile = new File(resolvePath(baseDir, 
+                    settings.substitute(line.getOptionValue("ivy", "ivy.xml"))));
                 if (!ivyfile.exists()) {
                     error("ivy file not found: " + ivyfile);
                 } else if (ivyfile.isDirectory()) {
@@ -254,13 +337,11 @@ public final class Main {
                 }
             }
 
-            if (line.hasOption("useOrigin")) {
-                ivy.getSettings().useDeprecatedUseOrigin();
-            }
             ResolveOptions resolveOptions = new ResolveOptions().setConfs(confs)
                 .setValidate(validate)
                 .setResolveMode(line.getOptionValue("mode"))
-                .setArtifactFilter(FilterHelper.getArtifactTypeFilter(line.getOptionValues("types")));
+                .setArtifactFilter(
+                    FilterHelper.getArtifactTypeFilter(line.getOptionValues("types")));
             if (line.hasOption("notransitive")) {
                 resolveOptions.setTransitive(false);
             }
@@ -269,7 +350,7 @@ public final class Main {
             }
             ResolveReport report = ivy.resolve(ivyfile.toURI().toURL(), resolveOptions);
             if (report.hasError()) {
-                System.exit(1);
+                return 1;
             }
             ModuleDescriptor md = report.getModuleDescriptor();
 
@@ -277,43 +358,47 @@ public final class Main {
                 confs = md.getConfigurationsNames();
             }
             if (line.hasOption("retrieve")) {
-                String retrievePattern = settings.substitute(line.getOptionValue("retrieve"));
+                String retrievePattern = resolvePath(baseDir, 
+                    settings.substitute(line.getOptionValue("retrieve")));
                 if (retrievePattern.indexOf("[") == -1) {
                     retrievePattern = retrievePattern + "/lib/[conf]/[artifact].[ext]";
                 }
-                String ivyPattern = settings.substitute(line.getOptionValue("ivypattern"));
+                String ivyPattern = resolvePath(baseDir, 
+                    settings.substitute(line.getOptionValue("ivypattern")));
                 ivy.retrieve(md.getModuleRevisionId(), retrievePattern, new RetrieveOptions()
                         .setConfs(confs).setSync(line.hasOption("sync"))
                         .setUseOrigin(line.hasOption("useOrigin"))
                         .setDestIvyPattern(ivyPattern)
-                        .setArtifactFilter(FilterHelper.getArtifactTypeFilter(line.getOptionValues("types")))
+                        .setArtifactFilter(
+                            FilterHelper.getArtifactTypeFilter(line.getOptionValues("types")))
                         .setMakeSymlinks(line.hasOption("symlink")));
             }
             if (line.hasOption("cachepath")) {
-                outputCachePath(ivy, cache, md, confs, line.getOptionValue("cachepath",
-                    "ivycachepath.txt"));
+                outputCachePath(ivy, cache, md, confs, resolvePath(baseDir, 
+                    line.getOptionValue("cachepath", "ivycachepath.txt")), out);
             }
 
             if (line.hasOption("revision")) {
+                String deliverPattern = resolvePath(baseDir, 
+                    settings.substitute(line.getOptionValue("deliverto", "ivy-[revision].xml")));
                 ivy.deliver(md.getResolvedModuleRevisionId(), settings.substitute(line
-                        .getOptionValue("revision")), settings.substitute(line.getOptionValue(
-                    "deliverto", "ivy-[revision].xml")), DeliverOptions.newInstance(settings)
+                        .getOptionValue("revision")), deliverPattern, 
+                        DeliverOptions.newInstance(settings)
                         .setStatus(settings.substitute(line.getOptionValue("status", "release")))
                         .setValidate(validate));
                 if (line.hasOption("publish")) {
-                    ivy.publish(md.getResolvedModuleRevisionId(), Collections.singleton(settings
-                            .substitute(line.getOptionValue("publishpattern",
-                                "distrib/[type]s/[artifact]-[revision].[ext]"))), line
-                            .getOptionValue("publish"), new PublishOptions()
+                    ivy.publish(md.getResolvedModuleRevisionId(), Collections.singleton(
+                        resolvePath(baseDir, settings.substitute(line.getOptionValue(
+                            "publishpattern", "distrib/[type]s/[artifact]-[revision].[ext]")))),
+                            line.getOptionValue("publish"), new PublishOptions()
                             .setPubrevision(settings.substitute(line.getOptionValue("revision")))
-                            .setValidate(validate).setSrcIvyPattern(
-                                settings.substitute(line.getOptionValue("deliverto",
-                                    "ivy-[revision].xml"))).setOverwrite(line.hasOption("overwrite")));
+                            .setValidate(validate).setSrcIvyPattern(deliverPattern)
+                            .setOverwrite(line.hasOption("overwrite")));
                 }
             }
             if (line.hasOption("main")) {
                 // check if the option cp has been set
-                List fileList = getExtraClasspathFileList(line);
+                List fileList = getExtraClasspathFileList(line, baseDir);
 
                 // merge -args and left over args
                 String[] fargs = line.getOptionValues("args");
@@ -330,8 +415,17 @@ public final class Main {
                 // invoke with given main class and merged params
                 invoke(ivy, cache, md, confs, fileList, line.getOptionValue("main"), params);
             }
+            return 0;
+        } finally {
+            if (contextCredentials) {
+                CredentialsStore.INSTANCE.clearContextCredentials();
+            }
             ivy.getLoggerEngine().popLogger();
             ivy.popContext();
+            if (temporaryIvyFile && ivyfile != null) {
+                ivyfile.delete();
+            }
+        }
     }
 
     /**
@@ -343,10 +437,13 @@ public final class Main {
      * 
      * @param line
      *            the command line in which the cp option shold be parsed
+     * @param baseDir
+     *            the directory against which relative entries are resolved, or
+     *            <code>null</code> to use the current working directory
      * @return a List of files to include as extra classpath entries, or <code>null</code> if no
      *         cp option was provided.
      */
-    private static List/*<File>*/ getExtraClasspathFileList(CommandLine line) {
+    private static List/*<File>*/ getExtraClasspathFileList(CommandLine line, File baseDir) {
         List fileList = null;
         if (line.hasOption("cp")) {
             fileList = new ArrayList/*<File>*/();
@@ -356,7 +453,7 @@ public final class Main {
                     System.getProperty("path.separator"));
                 while (tokenizer.hasMoreTokens()) {
                     String token = tokenizer.nextToken();
-                    File file = new File(token);
+                    File file = new File(resolvePath(baseDir, token));
                     if (file.exists()) {
                         fileList.add(file);
                     } else {
@@ -369,7 +466,7 @@ public final class Main {
         return fileList;
     }
 
-    private static IvySettings initSettings(CommandLine line, Ivy ivy) 
+    private static void initSettings(CommandLine line, Ivy ivy, File baseDir) 
             throws java.text.ParseException, IOException, ParseException {
         IvySettings settings = ivy.getSettings();
         settings.addAllVariables(System.getProperties());
@@ -377,9 +474,33 @@ public final class Main {
             settings.setVariable("ivy.default.configuration.m2compatible", "true");
         }
 
-        configureURLHandler(line.getOptionValue("realm", null), line.getOptionValue("host",
-            null), line.getOptionValue("username", null), line.getOptionValue("passwd", null));
+        File conffile = getSettingsFile(line, baseDir);
+        if (conffile == null) {
+            ivy.configureDefault();
+        } else {
+            if (!conffile.exists()) {
+                error("ivy configuration file not found: " + conffile);
+            } else if (conffile.isDirectory()) {
+                error("ivy configuration file is not a file: " + conffile);
+            }
+            ivy.configure(conffile);
+        }
+
+        if (line.hasOption("cache")) {
+            //override default cache path with user supplied cache path
+            settings.setDefaultCache(new File(resolvePath(baseDir, 
+                settings.substitute(line.getOptionValue("cache")))));
+        }
+        if (line.hasOption("useOrigin")) {
+            settings.useDeprecatedUseOrigin();
+        }
+    }
 
+    /**
+     * Returns the settings file given on the command line, or <code>null</code> if the default
+     * settings should be used.
+     */
+    static File getSettingsFile(CommandLine line, File baseDir) {
         String settingsPath = line.getOptionValue("settings", "");
         if ("".equals(settingsPath)) {
             settingsPath = line.getOptionValue("conf", "");
@@ -388,35 +509,47 @@ public final class Main {
             }
         }
         if ("".equals(settingsPath)) {
-            ivy.configureDefault();
-        } else {
-            File conffile = new File(settingsPath);
-            if (!conffile.exists()) {
-                error("ivy configuration file not found: " + conffile);
-            } else if (conffile.isDirectory()) {
-                error("ivy configuration file is not a file: " + conffile);
-            }
-            ivy.configure(conffile);
+            return null;
         }
-        return settings;
+        return new File(resolvePath(baseDir, settingsPath));
     }
 
-    private static void initMessage(CommandLine line, Ivy ivy) {
+    /**
+     * Resolves the given path against the given base directory, unless it is absolute or no base
+     * directory is given.
+     */
+    static String resolvePath(File baseDir, String path) {
+        if (baseDir == null || path == null || new File(path).isAbsolute()) {
+            return path;
+        }
+        return new File(baseDir, path).getPath();
+    }
+
+    private static int getPort(CommandLine line, String option) throws ParseException {
+        String port = line.getOptionValue(option);
+        try {
+            return Integer.parseInt(port);
+        } catch (NumberFormatException e) {
+            throw new ParseException("invalid port for " + option + ": " + port);
+        }
+    }
+
+    private static void initMessage(CommandLine line, Ivy ivy, PrintStream out) {
         if (line.hasOption("debug")) {
-            ivy.getLoggerEngine().pushLogger(new DefaultMessageLogger(Message.MSG_DEBUG));
+            ivy.getLoggerEngine().pushLogger(new DefaultMessageLogger(Message.MSG_DEBUG, out));
         } else if (line.hasOption("verbose")) {
-            ivy.getLoggerEngine().pushLogger(new DefaultMessageLogger(Message.MSG_VERBOSE));
+            ivy.getLoggerEngine().pushLogger(new DefaultMessageLogger(Message.MSG_VERBOSE, out));
         } else if (line.hasOption("warn")) {
-            ivy.getLoggerEngine().pushLogger(new DefaultMessageLogger(Message.MSG_WARN));
+            ivy.getLoggerEngine().pushLogger(new DefaultMessageLogger(Message.MSG_WARN, out));
         } else if (line.hasOption("error")) {
-            ivy.getLoggerEngine().pushLogger(new DefaultMessageLogger(Message.MSG_ERR));
+            ivy.getLoggerEngine().pushLogger(new DefaultMessageLogger(Message.MSG_ERR, out));
         } else {
-            ivy.getLoggerEngine().pushLogger(new DefaultMessageLogger(Message.MSG_INFO));
+            ivy.getLoggerEngine().pushLogger(new DefaultMessageLogger(Message.MSG_INFO, out));
         }
     }
 
     private static void outputCachePath(Ivy ivy, File cache, ModuleDescriptor md, String[] confs,
-            String outFile) {
+            String outFile, PrintStream out) {
         try {
             String pathSeparator = System.getProperty("path.separator");
             StringBuffer buf = new StringBuffer();
@@ -443,7 +576,7 @@ public final class Main {
                 writer.println(buf.substring(0, buf.length() - pathSeparator.length()));
             }
             writer.close();
-            System.out.println("cachepath output to " + outFile);
+            out.println("cachepath output to " + outFile);
 
         } catch (Exception ex) {
             throw new RuntimeException(
@@ -514,12 +647,29 @@ public final class Main {
         }
     }
 
-    private static void configureURLHandler(String realm, String host, String username,
-            String passwd) {
-        CredentialsStore.INSTANCE.addCredentials(realm, host, username, passwd);
+    /**
+     * Adds the credentials given on the command line, either for the whole JVM, or only for the
+     * current Ivy context.
+     */
+    private static void addCredentials(CommandLine line, boolean context) {
+        String realm = line.getOptionValue("realm", null);
+        String host = line.getOptionValue("host", null);
+        String username = line.getOptionValue("username", null);
+        String passwd = line.getOptionValue("passwd", null);
+        if (context) {
+            CredentialsStore.INSTANCE.addContextCredentials(realm, host, username, passwd);
+        } else {
+            CredentialsStore.INSTANCE.addCredentials(realm, host, username, passwd);
+        }
+    }
 
-        URLHandlerDispatcher dispatcher = new URLHandlerDispatcher();
+    private static void configureURLHandler() {
         URLHandler httpHandler = URLHandlerRegistry.getDefault();
+        if (httpHandler instanceof URLHandlerDispatcher) {
+            // already configured by a previous command line run in the same JVM
+            return;
+        }
+        URLHandlerDispatcher dispatcher = new URLHandlerDispatcher();
         dispatcher.setDownloader("http", httpHandler);
         dispatcher.setDownloader("https", httpHandler);
         URLHandlerRegistry.setDefault(dispatcher);
@@ -529,9 +679,9 @@ public final class Main {
         throw new ParseException(msg);
     }
 
-    private static void usage(CommandLineParser parser, boolean showDeprecated) {
+    static void usage(CommandLineParser parser, boolean showDeprecated, PrintStream out) {
         // automatically generate the help statement
-        PrintWriter pw = new PrintWriter(System.out);
+        PrintWriter pw = new PrintWriter(out);
         parser.printHelp(pw, HELP_WIDTH, "ivy", showDeprecated);
         pw.flush();
     }
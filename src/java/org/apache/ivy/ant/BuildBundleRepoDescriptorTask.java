@@ -33,6 +33,7 @@ import org.apache.ivy.core.cache.RepositoryCacheManager;
 import org.apache.ivy.core.settings.IvySettings;
 import org.apache.ivy.osgi.obr.xml.OBRXMLWriter;
 import org.apache.ivy.osgi.repo.FSManifestIterable;
+import org.apache.ivy.osgi.repo.ManifestCache;
 import org.apache.ivy.osgi.repo.ResolverManifestIterable;
 import org.apache.ivy.plugins.resolver.BasicResolver;
 import org.apache.ivy.plugins.resolver.DependencyResolver;
@@ -57,6 +58,10 @@ public class BuildBundleRepoDescriptorTask extends IvyTask {
 
     private boolean quiet;
 
+    private int threads = Runtime.getRuntime().availableProcessors();
+
+    private File manifestCacheFile = null;
+
     public void setResolver(String resolverName) {
         this.resolverName = resolverName;
     }
@@ -85,6 +90,14 @@ public class BuildBundleRepoDescriptorTask extends IvyTask {
         this.quiet = quiet;
     }
 
+    public void setThreads(int threads) {
+        this.threads = threads;
+    }
+
+    public void setManifestCache(File manifestCacheFile) {
+        this.manifestCacheFile = manifestCacheFile;
+    }
+
     protected void prepareTask() {
         if (baseDir == null) {
             super.prepareTask();
@@ -97,6 +110,7 @@ public class BuildBundleRepoDescriptorTask extends IvyTask {
         }
 
         Iterator/* <ManifestAndLocation> */it;
+        ManifestCache manifestCache = null;
         if (resolverName != null) {
             if (baseDir != null) {
                 throw new BuildException("specify only one of 'resolver' or 'baseDir'");
@@ -122,7 +136,8 @@ public class BuildBundleRepoDescriptorTask extends IvyTask {
             if (!baseDir.isDirectory()) {
                 throw new BuildException(baseDir + " is not a directory");
             }
-            it = new FSManifestIterable(baseDir).iterator();
+            manifestCache = newManifestCache();
+            it = newFSManifestIterable(baseDir, manifestCache).iterator();
         } else if (cacheName != null) {
             Ivy ivy = getIvyInstance();
             RepositoryCacheManager cacheManager = ivy.getSettings().getRepositoryCacheManager(
@@ -132,7 +147,8 @@ public class BuildBundleRepoDescriptorTask extends IvyTask {
                         + cacheManager.getClass().getName() + "' is not supported.");
             }
             File basedir = ((DefaultRepositoryCacheManager) cacheManager).getBasedir();
-            it = new FSManifestIterable(basedir).iterator();
+            manifestCache = newManifestCache();
+            it = newFSManifestIterable(basedir, manifestCache).iterator();
         } else {
             throw new BuildException(
                     "No resolver, cache or basedir specified: "
@@ -174,7 +190,24 @@ public class BuildBundleRepoDescriptorTask extends IvyTask {
             // don't care
         }
 
+        if (manifestCache != null) {
+            Message.verbose(manifestCache.getHitCount()
+                    + " unchanged jars found in the manifest cache");
+            manifestCache.save();
+        }
+
         Message.sumupProblems();
     }
 
+    private ManifestCache newManifestCache() {
+        return manifestCacheFile == null ? null : new ManifestCache(manifestCacheFile);
+    }
+
+    private FSManifestIterable newFSManifestIterable(File dir, ManifestCache manifestCache) {
+        FSManifestIterable iterable = new FSManifestIterable(dir);
+        iterable.setThreads(threads);
+        iterable.setManifestCache(manifestCache);
+        return iterable;
+    }
+
 }
@@ -23,7 +23,6 @@ import org.apache.ivy.Ivy;
 import org.apache.ivy.core.install.InstallOptions;
 import org.apache.ivy.core.module.id.ModuleId;
 import org.apache.ivy.core.module.id.ModuleRevisionId;
-import org.apache.ivy.core.report.ResolveReport;
 import org.apache.ivy.core.settings.IvySettings;
 import org.apache.ivy.plugins.matcher.PatternMatcher;
 import org.apache.ivy.util.filter.FilterHelper;
@@ -57,6 +56,12 @@ public class IvyInstall extends IvyTask {
 
     private boolean haltOnFailure = true;
 
+    private boolean bulk = false;
+
+    private int threads = 4;
+
+    private File checkpoint;
+
     public void doExecute() throws BuildException {
         Ivy ivy = getIvyInstance();
         IvySettings settings = ivy.getSettings();
@@ -98,21 +103,27 @@ public class IvyInstall extends IvyTask {
         ModuleRevisionId mrid = 
             ModuleRevisionId.newInstance(organisation, module, branch, revision);
         
-        ResolveReport report;
+        InstallOptions options = new InstallOptions()
+                .setTransitive(transitive)
+                .setValidate(doValidate(settings))
+                .setOverwrite(overwrite)
+                .setConfs(conf.split(","))
+                .setArtifactFilter(FilterHelper.getArtifactTypeFilter(type))
+                .setMatcherName(matcher)
+                .setThreads(threads)
+                .setCheckpoint(checkpoint);
+        boolean hasError;
         try {
-            report = ivy.install(mrid, from, to, 
-                new InstallOptions()
-                    .setTransitive(transitive)
-                    .setValidate(doValidate(settings))
-                    .setOverwrite(overwrite)
-                    .setConfs(conf.split(","))
-                    .setArtifactFilter(FilterHelper.getArtifactTypeFilter(type))
-                    .setMatcherName(matcher));
+            if (bulk) {
+                hasError = ivy.bulkInstall(mrid, from, to, options).hasError();
+            } else {
+                hasError = ivy.install(mrid, from, to, options).hasError();
+            }
         } catch (Exception e) {
             throw new BuildException("impossible to install " + mrid + ": " + e, e);
         }
 
-        if (report.hasError() && isHaltonfailure()) {
+        if (hasError && isHaltonfailure()) {
             throw new BuildException(
                     "Problem happened while installing modules - see output for details");
         }
@@ -218,4 +229,27 @@ public class IvyInstall extends IvyTask {
         this.conf = conf;
     }
 
+    public boolean isBulk() {
+        return bulk;
+    }
+
+    public void setBulk(boolean bulk) {
+        this.bulk = bulk;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public void setThreads(int threads) {
+        this.threads = threads;
+    }
+
+    public File getCheckpoint() {
+        return checkpoint;
+    }
+
+    public void setCheckpoint(File checkpoint) {
+        this.checkpoint = checkpoint;
+    }
 }
@@ -85,6 +85,8 @@ public class IvyPublish extends IvyTask {
 
     private String pubBranch;
 
+    private int threads = 1;
+
     public void setCache(File cache) {
         cacheAttributeNotSupported();
     }
@@ -324,6 +326,7 @@ public class IvyPublish extends IvyTask {
                     .setMerge(merge)
                     .setWarnOnMissing(warnonmissing)
                     .setHaltOnMissing(haltonmissing)
+                    .setThreads(threads)
                     .setConfs(splitConfs(conf)));
         } catch (Exception e) {
             if (e instanceof BuildException) {
@@ -379,6 +382,14 @@ public class IvyPublish extends IvyTask {
         return forcedeliver;
     }
 
+    public int getThreads() {
+        return threads;
+    }
+
+    public void setThreads(int threads) {
+        this.threads = threads;
+    }
+
     public boolean isUpdate() {
         return update;
     }
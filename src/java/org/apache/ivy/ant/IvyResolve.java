@@ -25,6 +25,7 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 
 import org.apache.ivy.Ivy;
 import org.apache.ivy.core.LogOptions;
@@ -33,6 +34,7 @@ import org.apache.ivy.core.module.descriptor.DefaultModuleDescriptor;
 import org.apache.ivy.core.module.descriptor.DependencyDescriptor;
 import org.apache.ivy.core.module.descriptor.ModuleDescriptor;
 import org.apache.ivy.core.module.id.ModuleRevisionId;
+import org.apache.ivy.core.report.ResolveMetrics;
 import org.apache.ivy.core.report.ResolveReport;
 import org.apache.ivy.core.resolve.ResolveOptions;
 import org.apache.ivy.core.resolve.ResolveProcessException;
@@ -90,6 +92,12 @@ public class IvyResolve extends IvyTask {
     
     private boolean checkIfChanged = true; //for backward compatibility
 
+    private File metricsFile = null;
+
+    private String metricsProperty = null;
+
+    private ResolveMetrics metrics = null;
+
     private List/* <IvyDependency> */dependencies = new ArrayList();
 
     private List/* <IvyExclude> */excludes = new ArrayList();
@@ -335,6 +343,14 @@ public class IvyResolve extends IvyTask {
             }
             setResolved(report, resolveId, isKeep());
             confs = report.getConfigurations();
+            metrics = report.getMetrics();
+            if (metricsProperty != null && metrics != null) {
+                for (Iterator it = metrics.toMap().entrySet().iterator(); it.hasNext();) {
+                    Map.Entry entry = (Map.Entry) it.next();
+                    getProject().setProperty(metricsProperty + "." + entry.getKey(), 
+                        String.valueOf(entry.getValue()));
+                }
+            }
 
             if (isKeep()) {
                 ModuleDescriptor md = report.getModuleDescriptor();
@@ -422,7 +438,8 @@ public class IvyResolve extends IvyTask {
                 .setTransitive(transitive)
                 .setResolveMode(resolveMode)
                 .setResolveId(resolveId)
-                .setCheckIfChanged(checkIfChanged);
+                .setCheckIfChanged(checkIfChanged)
+                .setMetricsFile(metricsFile);
     }
 
     public String getModule() {
@@ -496,4 +513,35 @@ public class IvyResolve extends IvyTask {
     public void setCheckIfChanged(boolean checkIfChanged) {
         this.checkIfChanged = checkIfChanged;
     }
+
+    public File getMetricsFile() {
+        return metricsFile;
+    }
+
+    /**
+     * Sets the file to which the metrics of the resolve are written as JSON.
+     */
+    public void setMetricsFile(File metricsFile) {
+        this.metricsFile = metricsFile;
+    }
+
+    public String getMetricsProperty() {
+        return metricsProperty;
+    }
+
+    /**
+     * Sets the prefix of the properties to set with the metrics of the resolve, like
+     * <code>prefix.phase.download</code>.
+     */
+    public void setMetricsProperty(String metricsProperty) {
+        this.metricsProperty = metricsProperty;
+    }
+
+    /**
+     * Returns the metrics of the last resolve done by this task, or <code>null</code> if it has
+     * not been executed yet.
+     */
+    public ResolveMetrics getMetrics() {
+        return metrics;
+    }
 }
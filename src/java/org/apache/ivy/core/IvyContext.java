@@ -19,6 +19,7 @@ package org.apache.ivy.core;
 
 import java.lang.ref.WeakReference;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -30,6 +31,7 @@ import org.apache.ivy.core.module.descriptor.DependencyDescriptor;
 import org.apache.ivy.core.resolve.ResolveData;
 import org.apache.ivy.core.settings.IvySettings;
 import org.apache.ivy.plugins.circular.CircularDependencyStrategy;
+import org.apache.ivy.plugins.resolver.DependencyResolver;
 import org.apache.ivy.util.Message;
 import org.apache.ivy.util.MessageLogger;
 
@@ -54,17 +56,35 @@ public class IvyContext {
     private ResolveData resolveData;
 
     private DependencyDescriptor dd;
+
+    private DependencyResolver dictatorResolver;
     
     public IvyContext() {
     }
 
+    /**
+     * Creates a copy of the given context, usually to be pushed in another thread.
+     * <p>
+     * The lists used by {@link #push(String, Object)} are copied too, so that the values pushed
+     * and popped in the copy are not seen by the given context, and the reverse.
+     * </p>
+     */
     public IvyContext(IvyContext ctx) {
         defaultIvy = ctx.defaultIvy;
         ivy = ctx.ivy;
-        contextMap = new HashMap(ctx.contextMap);
+        synchronized (ctx.contextMap) {
+            contextMap = new HashMap(ctx.contextMap);
+        }
+        for (Iterator it = contextMap.entrySet().iterator(); it.hasNext();) {
+            Map.Entry entry = (Map.Entry) it.next();
+            if (entry.getValue() instanceof List) {
+                entry.setValue(new LinkedList((List) entry.getValue()));
+            }
+        }
         operatingThread = ctx.operatingThread;
         resolveData = ctx.resolveData;
         dd = ctx.dd;
+        dictatorResolver = ctx.dictatorResolver;
     }
 
     public static IvyContext getContext() {
@@ -383,4 +403,24 @@ public class IvyContext {
         return dd;
     }
 
+    /**
+     * Sets a dictator resolver used in place of any resolver by the operations done in this
+     * context, and in the copies of this context made afterwards, whatever the dictator resolver
+     * of the settings.
+     * <p>
+     * Contrary to {@link IvySettings#setDictatorResolver(DependencyResolver)}, this does not
+     * affect the operations done at the same time in other threads with the same settings.
+     * </p>
+     * 
+     * @param dictatorResolver
+     *            the dictator resolver to use in this context, null to use the one of the settings
+     */
+    public void setDictatorResolver(DependencyResolver dictatorResolver) {
+        this.dictatorResolver = dictatorResolver;
+    }
+
+    public DependencyResolver getDictatorResolver() {
+        return dictatorResolver;
+    }
+
 }
@@ -23,9 +23,15 @@ import java.io.UnsupportedEncodingException;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.text.ParseException;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.regex.Pattern;
 
 import org.apache.ivy.Ivy;
@@ -40,6 +46,7 @@ import org.apache.ivy.core.module.id.ModuleRules;
 import org.apache.ivy.core.report.ArtifactDownloadReport;
 import org.apache.ivy.core.report.DownloadStatus;
 import org.apache.ivy.core.report.MetadataArtifactDownloadReport;
+import org.apache.ivy.core.report.ResolveMetrics;
 import org.apache.ivy.core.resolve.ResolvedModuleRevision;
 import org.apache.ivy.core.settings.IvySettings;
 import org.apache.ivy.plugins.IvySettingsAware;
@@ -59,9 +66,11 @@ import org.apache.ivy.plugins.repository.Repository;
 import org.apache.ivy.plugins.repository.Resource;
 import org.apache.ivy.plugins.repository.ResourceDownloader;
 import org.apache.ivy.plugins.repository.ResourceHelper;
+import org.apache.ivy.plugins.repository.file.FileRepository;
 import org.apache.ivy.plugins.resolver.AbstractResolver;
 import org.apache.ivy.plugins.resolver.DependencyResolver;
 import org.apache.ivy.plugins.resolver.util.ResolvedResource;
+import org.apache.ivy.plugins.resolver.util.ResolverHelper;
 import org.apache.ivy.util.Checks;
 import org.apache.ivy.util.FileUtil;
 import org.apache.ivy.util.HexEncoder;
@@ -117,8 +126,15 @@ public class DefaultRepositoryCacheManager implements RepositoryCacheManager, Iv
 
     private Long defaultTTL = null;
 
+    private Long notFoundTTL = null;
+
     private ModuleDescriptorMemoryCache memoryModuleDescrCache;
 
+    private boolean compactDescriptors = true;
+
+    // the locks of the threads of this process on the module metadata, by module revision id
+    private final Map/* <ModuleRevisionId, ModuleLock> */moduleLocks = new HashMap();
+
     public DefaultRepositoryCacheManager() {
     }
 
@@ -197,6 +213,25 @@ public class DefaultRepositoryCacheManager implements RepositoryCacheManager, Iv
         this.defaultTTL = new Long(parseDuration(defaultTTL));
     }
 
+    /**
+     * Returns the time during which a module or an artifact not found by a resolver is not
+     * looked up again in this resolver. 0 means that lookup misses are not cached.
+     */
+    public long getNotFoundTTL() {
+        if (notFoundTTL == null) {
+            notFoundTTL = new Long(parseDuration(settings.getVariable("ivy.cache.ttl.notfound")));
+        }
+        return notFoundTTL.longValue();
+    }
+
+    public void setNotFoundTTL(long notFoundTTL) {
+        this.notFoundTTL = new Long(notFoundTTL);
+    }
+
+    public void setNotFoundTTL(String notFoundTTL) {
+        this.notFoundTTL = new Long(parseDuration(notFoundTTL));
+    }
+
     public String getDataFilePattern() {
         return dataFilePattern;
     }
@@ -261,6 +296,23 @@ public class DefaultRepositoryCacheManager implements RepositoryCacheManager, Iv
         }
         return memoryModuleDescrCache;
     }
+
+    /**
+     * True if a compact binary snapshot of the module descriptors parsed from cached ivy files
+     * should be kept beside them, to avoid parsing these ivy files again in subsequent
+     * resolutions.
+     */
+    public boolean isCompactDescriptors() {
+        return compactDescriptors;
+    }
+
+    public void setCompactDescriptors(boolean compactDescriptors) {
+        this.compactDescriptors = compactDescriptors;
+    }
+
+    private File getCompactDescriptorFile(File ivyFile) {
+        return new File(ivyFile.getParentFile(), ivyFile.getName() + ".compact");
+    }
     
     
     private static final Pattern DURATION_PATTERN 
@@ -271,7 +323,14 @@ public class DefaultRepositoryCacheManager implements RepositoryCacheManager, Iv
     private static final int MILLIS_IN_HOUR = 60 * MILLIS_IN_MINUTES;
     private static final int MILLIS_IN_DAY = 24 * MILLIS_IN_HOUR;
 
-    private long parseDuration(String duration) {
+    /**
+     * Parses a duration such as "1d 2h 30m" or "eternal".
+     * 
+     * @return the duration in milliseconds, 0 if duration is null
+     * @throws IllegalArgumentException
+     *             if the duration is not well formed
+     */
+    public static long parseDuration(String duration) {
         if (duration == null) {
             return 0;
         }
@@ -300,7 +359,7 @@ public class DefaultRepositoryCacheManager implements RepositoryCacheManager, Iv
         }
     }
 
-    private int getGroupIntValue(java.util.regex.Matcher m, int groupNumber) {
+    private static int getGroupIntValue(java.util.regex.Matcher m, int groupNumber) {
         String g = m.group(groupNumber);
         return g == null || g.length() == 0 ? 0 : Integer.parseInt(g);
     }
@@ -583,15 +642,34 @@ public class DefaultRepositoryCacheManager implements RepositoryCacheManager, Iv
             DependencyDescriptor dd, ModuleRevisionId requestedRevisionId, 
             CacheMetadataOptions options, String expectedResolver) {
         ModuleRevisionId mrid = requestedRevisionId;
+        ResolvedModuleRevision rmr = null;
         if (isCheckmodified(dd, requestedRevisionId, options)) {
             Message.verbose("don't use cache for " + mrid + ": checkModified=true");
-            return null;
-        }
-        if (!options.isUseCacheOnly() && isChanging(dd, requestedRevisionId, options)) {
+        } else if (!options.isUseCacheOnly() && isChanging(dd, requestedRevisionId, options)) {
             Message.verbose("don't use cache for " + mrid + ": changing=true");
-            return null;
+        } else {
+            rmr = doFindModuleInCache(mrid, options, expectedResolver);
         }
-        return doFindModuleInCache(mrid, options, expectedResolver);
+        ResolveMetrics metrics = ResolveMetrics.current();
+        if (metrics != null) {
+            metrics.increment(rmr == null 
+                ? ResolveMetrics.CACHE_METADATA_MISS : ResolveMetrics.CACHE_METADATA_HIT);
+        }
+        return rmr;
+    }
+
+    /**
+     * Returns <code>true</code> if what has been cached about the given dependency must be
+     * checked again in the repository, as its cached module descriptor would be: on a refresh
+     * resolve, or when the dependency is checked for modification or changing.
+     */
+    public boolean isRepositoryCheckRequired(DependencyDescriptor dd,
+            ModuleRevisionId requestedRevisionId, CacheMetadataOptions options) {
+        if (options.isUseCacheOnly()) {
+            return false;
+        }
+        return options.isForce() || isCheckmodified(dd, requestedRevisionId, options)
+                || isChanging(dd, requestedRevisionId, options);
     }
 
     private ResolvedModuleRevision doFindModuleInCache(
@@ -653,8 +731,8 @@ public class DefaultRepositoryCacheManager implements RepositoryCacheManager, Iv
                         artResolver = resolver;
                     }
                     if (resolver != null) {
-                        Message.debug("\tfound ivy file in cache for " + mrid + " (resolved by "
-                            + resolver.getName() + "): " + ivyFile);
+                        Message.debug("\tfound ivy file in cache for {} (resolved by {}): {}", mrid,
+                            resolver.getName(), ivyFile);
                         if (expectedResolver == null 
                                 || expectedResolver.equals(resolver.getName())) {
                             MetadataArtifactDownloadReport madr 
@@ -681,11 +759,11 @@ public class DefaultRepositoryCacheManager implements RepositoryCacheManager, Iv
                     }
                 } catch (Exception e) {
                     // will try with resolver
-                    Message.debug("\tproblem while parsing cached ivy file for: " + mrid + ": "
-                        + e.getMessage());
+                    Message.debug("\tproblem while parsing cached ivy file for: {}: {}", mrid,
+                        e.getMessage());
                 }
             } else {
-                Message.debug("\tno ivy file in cache for " + mrid + ": tried " + ivyFile);
+                Message.debug("\tno ivy file in cache for {}: tried {}", mrid, ivyFile);
             }
         } finally {
             if (unlock) {
@@ -701,14 +779,48 @@ public class DefaultRepositoryCacheManager implements RepositoryCacheManager, Iv
         private final ModuleDescriptorParser mdParser;
         private final ParserSettings settings;
 
-        public MyModuleDescriptorProvider(ModuleDescriptorParser mdParser, ParserSettings settings) {
+        private final boolean useCompactDescriptor;
+
+        public MyModuleDescriptorProvider(ModuleDescriptorParser mdParser, ParserSettings settings,
+                boolean useCompactDescriptor) {
             this.mdParser = mdParser;
             this.settings = settings;
+            this.useCompactDescriptor = useCompactDescriptor;
         }
         
         public ModuleDescriptor provideModule(ParserSettings ivySettings, 
                 File descriptorURL, boolean validate) throws ParseException, IOException {
-            return mdParser.parseDescriptor(settings, descriptorURL.toURI().toURL(), validate);
+            long start = System.currentTimeMillis();
+            try {
+                return doProvideModule(descriptorURL, validate);
+            } finally {
+                ResolveMetrics metrics = ResolveMetrics.current();
+                if (metrics != null) {
+                    metrics.addPhaseTime(ResolveMetrics.PHASE_PARSE, 
+                        System.currentTimeMillis() - start);
+                }
+            }
+        }
+
+        private ModuleDescriptor doProvideModule(File descriptorURL, boolean validate)
+                throws ParseException, IOException {
+            if (!useCompactDescriptor) {
+                return mdParser.parseDescriptor(settings, descriptorURL.toURI().toURL(), validate);
+            }
+            File compactFile = getCompactDescriptorFile(descriptorURL);
+            ModuleDescriptor md = ModuleDescriptorSnapshot.load(
+                compactFile, descriptorURL, settings, validate);
+            if (md != null) {
+                Message.debug("\tloaded compact descriptor: {}", compactFile);
+                return md;
+            }
+            ParserSettingsMonitor monitor = new ParserSettingsMonitor(settings);
+            md = mdParser.parseDescriptor(
+                monitor.getMonitoredSettings(), descriptorURL.toURI().toURL(), validate);
+            ModuleDescriptorSnapshot.store(
+                compactFile, descriptorURL, md, monitor.getSubstitutes(), validate);
+            monitor.endMonitoring();
+            return md;
         }
     }
     
@@ -716,7 +828,8 @@ public class DefaultRepositoryCacheManager implements RepositoryCacheManager, Iv
             CacheMetadataOptions options, File ivyFile) 
             throws ParseException, IOException {
         ModuleDescriptorMemoryCache cache = getMemoryCache();
-        ModuleDescriptorProvider mdProvider = new MyModuleDescriptorProvider(mdParser, settings); 
+        ModuleDescriptorProvider mdProvider = new MyModuleDescriptorProvider(
+            mdParser, settings, isCompactDescriptors()); 
         return cache.get(ivyFile, settings, options.isValidate(), mdProvider);
     }
 
@@ -724,7 +837,8 @@ public class DefaultRepositoryCacheManager implements RepositoryCacheManager, Iv
             CacheMetadataOptions options, File ivyFile, ParserSettings parserSettings) 
             throws ParseException, IOException {
         ModuleDescriptorMemoryCache cache = getMemoryCache();
-        ModuleDescriptorProvider mdProvider = new MyModuleDescriptorProvider(mdParser, parserSettings); 
+        ModuleDescriptorProvider mdProvider = new MyModuleDescriptorProvider(
+            mdParser, parserSettings, false); 
         return cache.getStale(ivyFile, settings, options.isValidate(), mdProvider);
     }
 
@@ -784,6 +898,133 @@ public class DefaultRepositoryCacheManager implements RepositoryCacheManager, Iv
         }
     }
 
+    /**
+     * Returns <code>true</code> if the given resolver did not find the module descriptor of the
+     * given module revision less than {@link #getNotFoundTTL() the not found TTL} ago.
+     */
+    public boolean isModuleNotFound(String resolverName, ModuleRevisionId mrid) {
+        return isNotFound(mrid, getNotFoundKey(resolverName) + "ivy");
+    }
+
+    /**
+     * Records that the given resolver did not find the module descriptor of the given module
+     * revision.
+     */
+    public void saveModuleNotFound(String resolverName, ModuleRevisionId mrid) {
+        saveNotFound(mrid, getNotFoundKey(resolverName) + "ivy");
+    }
+
+    /**
+     * Returns <code>true</code> if the given resolver did not find the given artifact less than
+     * {@link #getNotFoundTTL() the not found TTL} ago.
+     */
+    public boolean isArtifactNotFound(String resolverName, Artifact artifact) {
+        return isNotFound(artifact.getModuleRevisionId(), 
+            getNotFoundKey(resolverName) + getPrefixKey(artifact));
+    }
+
+    /**
+     * Records that the given resolver did not find the given artifact.
+     */
+    public void saveArtifactNotFound(String resolverName, Artifact artifact) {
+        saveNotFound(artifact.getModuleRevisionId(), 
+            getNotFoundKey(resolverName) + getPrefixKey(artifact));
+    }
+
+    /**
+     * Forgets the module descriptors and artifacts of the given module which were not found by
+     * the given resolver, usually because something has just been published with it. The misses
+     * are forgotten for all the revisions of the module, since the misses of a dynamic revision
+     * are recorded under this revision, which the published one may now match.
+     */
+    public void clearNotFound(String resolverName, ModuleRevisionId mrid) {
+        if (getNotFoundTTL() <= 0) {
+            return;
+        }
+        Set revisions = new HashSet();
+        revisions.add(mrid.getRevision());
+        Map tokens = new HashMap(mrid.getAttributes());
+        tokens.remove(IvyPatternHelper.REVISION_KEY);
+        String[] cachedRevisions = ResolverHelper.listTokenValues(new FileRepository(),
+            new File(getRepositoryCacheRoot(), IvyPatternHelper.substituteTokens(
+                getDataFilePattern(), tokens)).getAbsolutePath(), IvyPatternHelper.REVISION_KEY);
+        if (cachedRevisions != null) {
+            revisions.addAll(Arrays.asList(cachedRevisions));
+        }
+        for (Iterator iter = revisions.iterator(); iter.hasNext();) {
+            clearRevisionNotFound(resolverName,
+                ModuleRevisionId.newInstance(mrid, (String) iter.next()));
+        }
+    }
+
+    private void clearRevisionNotFound(String resolverName, ModuleRevisionId mrid) {
+        if (!lockMetadataArtifact(mrid)) {
+            Message.error("impossible to acquire lock for " + mrid);
+            return;
+        }
+        try {
+            PropertiesFile cachedData = getCachedDataFile(mrid);
+            String prefix = getNotFoundKey(resolverName);
+            boolean changed = false;
+            for (Iterator iter = cachedData.keySet().iterator(); iter.hasNext();) {
+                if (((String) iter.next()).startsWith(prefix)) {
+                    iter.remove();
+                    changed = true;
+                }
+            }
+            if (changed) {
+                cachedData.save();
+            }
+        } finally {
+            unlockMetadataArtifact(mrid);
+        }
+    }
+
+    private String getNotFoundKey(String resolverName) {
+        return "notfound." + resolverName + ".";
+    }
+
+    private boolean isNotFound(ModuleRevisionId mrid, String key) {
+        long ttl = getNotFoundTTL();
+        if (ttl <= 0) {
+            return false;
+        }
+        if (!lockMetadataArtifact(mrid)) {
+            Message.error("impossible to acquire lock for " + mrid);
+            return false;
+        }
+        try {
+            String time = getCachedDataFile(mrid).getProperty(key);
+            if (time == null) {
+                return false;
+            }
+            long expiration = Long.parseLong(time) + ttl;
+            // negative expiration means that Long.MAX_VALUE has been exceeded
+            return expiration < 0 || System.currentTimeMillis() <= expiration;
+        } catch (NumberFormatException e) {
+            return false;
+        } finally {
+            unlockMetadataArtifact(mrid);
+        }
+    }
+
+    private void saveNotFound(ModuleRevisionId mrid, String key) {
+        if (getNotFoundTTL() <= 0) {
+            return;
+        }
+        if (!lockMetadataArtifact(mrid)) {
+            Message.error("impossible to acquire lock for " + mrid);
+            return;
+        }
+        try {
+            PropertiesFile cachedData = getCachedDataFile(mrid);
+            cachedData.setProperty(key, String.valueOf(System.currentTimeMillis()));
+            cachedData.save();
+        } finally {
+            unlockMetadataArtifact(mrid);
+        }
+    }
+
     public long getTTL(ModuleRevisionId mrid) {
         Long ttl = (Long) ttlRules.getRule(mrid);
         return ttl == null ? getDefaultTTL() : ttl.longValue();
@@ -1067,6 +1308,8 @@ public class DefaultRepositoryCacheManager implements RepositoryCacheManager, Iv
             writer.write(orginalMetadataRef, md, 
                 originalFileInCache, 
                 mdFileInCache);
+            // the ivy file has changed, any compact snapshot made from it is now obsolete
+            getCompactDescriptorFile(mdFileInCache).delete();
 
             getMemoryCache().putInCache(mdFileInCache, new ParserSettingsMonitor(settings), true, md);
             saveResolvers(md, resolver.getName(), resolver.getName());
@@ -1136,7 +1379,7 @@ public class DefaultRepositoryCacheManager implements RepositoryCacheManager, Iv
                         + "): but it's a default one, maybe we can find a better one");
                 } else {
                     if (!isCheckmodified(dd, mrid, options) && !isChanging(dd, mrid, options)) {
-                        Message.verbose("\t" + getName() + ": revision in cache: " + mrid);
+                        Message.verbose("\t{}: revision in cache: {}", getName(), mrid);
                         rmr.getReport().setSearched(true);
                         return rmr;
                     }
@@ -1196,8 +1439,8 @@ public class DefaultRepositoryCacheManager implements RepositoryCacheManager, Iv
                         + "; parser class=" + parser.getClass().getName()
                         + "; module descriptor resource=" + mdRef.getResource());
                 }
-                Message.debug("\t" + getName() + ": parsed downloaded md file for " + mrid 
-                    + "; parsed=" + md.getModuleRevisionId());
+                Message.debug("\t{}: parsed downloaded md file for {}; parsed={}", getName(), mrid,
+                    md.getModuleRevisionId());
 
                 // check if we should delete old artifacts
                 boolean deleteOldArtifacts = false;
@@ -1286,24 +1529,91 @@ public class DefaultRepositoryCacheManager implements RepositoryCacheManager, Iv
     }
 
     // lock used to lock all metadata related information access
+    // the lock strategy guards the cache against the other processes, while the threads of this
+    // process, which may share the cache manager, are serialized by a lock of their own
     private boolean lockMetadataArtifact(ModuleRevisionId mrid) {
         Artifact artifact = getDefaultMetadataArtifact(mrid);
+        long start = System.currentTimeMillis();
+        ModuleLock moduleLock = acquireModuleLock(mrid);
+        boolean locked = false;
         try {
             // we need to provide an artifact origin to be sure we do not end up in a stack overflow
             // if the cache pattern is using original name, and the substitution thus trying to get
             // the saved artifact origin value which in turns calls this method
-            return getLockStrategy().lockArtifact(artifact, 
+            locked = getLockStrategy().lockArtifact(artifact, 
                 getArchiveFileInCache(artifact, getDefaultMetadataArtifactOrigin(mrid)));
+            ResolveMetrics metrics = ResolveMetrics.current();
+            if (metrics != null) {
+                metrics.add(ResolveMetrics.LOCK_WAIT_TIME, System.currentTimeMillis() - start);
+            }
+            return locked;
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt(); // reset interrupt status 
             throw new RuntimeException("operation interrupted");
+        } finally {
+            if (!locked) {
+                releaseModuleLock(mrid, moduleLock);
+            }
         }
     }
 
     private void unlockMetadataArtifact(ModuleRevisionId mrid) {
         Artifact artifact = getDefaultMetadataArtifact(mrid);
-        getLockStrategy().unlockArtifact(artifact, 
-            getArchiveFileInCache(artifact, getDefaultMetadataArtifactOrigin(mrid)));
+        try {
+            getLockStrategy().unlockArtifact(artifact, 
+                getArchiveFileInCache(artifact, getDefaultMetadataArtifactOrigin(mrid)));
+        } finally {
+            ModuleLock moduleLock;
+            synchronized (moduleLocks) {
+                moduleLock = (ModuleLock) moduleLocks.get(mrid);
+            }
+            if (moduleLock != null) {
+                releaseModuleLock(mrid, moduleLock);
+            }
+        }
+    }
+
+    private ModuleLock acquireModuleLock(ModuleRevisionId mrid) {
+        ModuleLock moduleLock;
+        synchronized (moduleLocks) {
+            moduleLock = (ModuleLock) moduleLocks.get(mrid);
+            if (moduleLock == null) {
+                moduleLock = new ModuleLock();
+                moduleLocks.put(mrid, moduleLock);
+            }
+            moduleLock.users++;
+        }
+        try {
+            moduleLock.lock.lockInterruptibly();
+        } catch (InterruptedException e) {
+            synchronized (moduleLocks) {
+                if (--moduleLock.users == 0) {
+                    moduleLocks.remove(mrid);
+                }
+            }
+            Thread.currentThread().interrupt(); // reset interrupt status 
+            throw new RuntimeException("operation interrupted");
+        }
+        return moduleLock;
+    }
+
+    private void releaseModuleLock(ModuleRevisionId mrid, ModuleLock moduleLock) {
+        moduleLock.lock.unlock();
+        synchronized (moduleLocks) {
+            if (--moduleLock.users == 0) {
+                moduleLocks.remove(mrid);
+            }
+        }
+    }
+
+    /**
+     * The lock of the threads of this process on the metadata of a module, with the number of
+     * threads holding or waiting for it, so that it is forgotten when none uses it any more.
+     */
+    private static final class ModuleLock {
+        private final ReentrantLock lock = new ReentrantLock();
+
+        private int users = 0;
     }
     
     
@@ -1408,6 +1718,7 @@ public class DefaultRepositoryCacheManager implements RepositoryCacheManager, Iv
         Message.debug("\t\tlockingStrategy: " + getLockStrategy().getName());
         Message.debug("\t\tchangingPattern: " + getChangingPattern());
         Message.debug("\t\tchangingMatcher: " + getChangingMatcherName());
+        Message.debug("\t\tnotFoundTTL: " + getNotFoundTTL());
     }
 
     /**
@@ -161,20 +161,44 @@ public class DefaultResolutionCacheManager implements ResolutionCacheManager, Iv
         return XmlModuleDescriptorParser.getInstance().parseDescriptor(pSettings, ivyFileURL, false);
     }
     
+    /**
+     * Saves the resolved module descriptor in the cache. The files are written aside and then
+     * moved in place, so that the resolves of the same module running concurrently, or reading
+     * these files, never see them partially written: the last resolve to save them wins.
+     */
     public void saveResolvedModuleDescriptor(ModuleDescriptor md) throws ParseException, IOException {
         ModuleRevisionId mrevId = md.getResolvedModuleRevisionId();
         File ivyFileInCache = getResolvedIvyFileInCache(mrevId);
-        md.toIvyFile(ivyFileInCache);
+        toIvyFile(md, ivyFileInCache);
         
         Properties paths = new Properties();
         saveLocalParents(mrevId, md, ivyFileInCache, paths);
         
         if (!paths.isEmpty()) {
             File parentsFile = getResolvedIvyPropertiesInCache(ModuleRevisionId.newInstance(mrevId, mrevId.getRevision() + "-parents"));
-            FileOutputStream out = new FileOutputStream(parentsFile);
-            paths.store(out, null);
-            out.close();
+            File tmp = FileUtil.newTempFile(parentsFile);
+            FileOutputStream out = new FileOutputStream(tmp);
+            try {
+                paths.store(out, null);
+            } finally {
+                out.close();
+            }
+            FileUtil.replace(tmp, parentsFile);
+        }
+    }
+
+    private void toIvyFile(ModuleDescriptor md, File file) throws ParseException, IOException {
+        File tmp = FileUtil.newTempFile(file);
+        try {
+            md.toIvyFile(tmp);
+        } catch (ParseException e) {
+            tmp.delete();
+            throw e;
+        } catch (IOException e) {
+            tmp.delete();
+            throw e;
         }
+        FileUtil.replace(tmp, file);
     }
     
     private void saveLocalParents(ModuleRevisionId baseMrevId, ModuleDescriptor md, File mdFile, Properties paths) throws ParseException, IOException {
@@ -188,7 +212,7 @@ public class DefaultResolutionCacheManager implements ResolutionCacheManager, Iv
             ModuleDescriptor parent = parents[i].getParentMd();
             ModuleRevisionId pRevId = ModuleRevisionId.newInstance(baseMrevId, baseMrevId.getRevision() + "-parent." + paths.size());
             File parentFile = getResolvedIvyFileInCache(pRevId);
-            parent.toIvyFile(parentFile);
+            toIvyFile(parent, parentFile);
             
             paths.setProperty(mdFile.getName() + "|" + parents[i].getLocation(), parentFile.getAbsolutePath());
             saveLocalParents(baseMrevId, parent, parentFile, paths);
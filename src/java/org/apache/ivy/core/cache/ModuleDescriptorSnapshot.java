@@ -0,0 +1,778 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.ivy.core.cache;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.ivy.core.IvyPatternHelper;
+import org.apache.ivy.core.module.descriptor.AbstractIncludeExcludeRule;
+import org.apache.ivy.core.module.descriptor.Artifact;
+import org.apache.ivy.core.module.descriptor.Configuration;
+import org.apache.ivy.core.module.descriptor.DefaultArtifact;
+import org.apache.ivy.core.module.descriptor.DefaultDependencyArtifactDescriptor;
+import org.apache.ivy.core.module.descriptor.DefaultDependencyDescriptor;
+import org.apache.ivy.core.module.descriptor.DefaultExcludeRule;
+import org.apache.ivy.core.module.descriptor.DefaultIncludeRule;
+import org.apache.ivy.core.module.descriptor.DefaultModuleDescriptor;
+import org.apache.ivy.core.module.descriptor.DependencyArtifactDescriptor;
+import org.apache.ivy.core.module.descriptor.DependencyDescriptor;
+import org.apache.ivy.core.module.descriptor.ExcludeRule;
+import org.apache.ivy.core.module.descriptor.IncludeRule;
+import org.apache.ivy.core.module.descriptor.License;
+import org.apache.ivy.core.module.descriptor.MDArtifact;
+import org.apache.ivy.core.module.descriptor.ModuleDescriptor;
+import org.apache.ivy.core.module.descriptor.OverrideDependencyDescriptorMediator;
+import org.apache.ivy.core.module.id.ArtifactId;
+import org.apache.ivy.core.module.id.ModuleId;
+import org.apache.ivy.core.module.id.ModuleRevisionId;
+import org.apache.ivy.plugins.matcher.MapMatcher;
+import org.apache.ivy.plugins.matcher.PatternMatcher;
+import org.apache.ivy.plugins.parser.ParserSettings;
+import org.apache.ivy.plugins.parser.xml.XmlModuleDescriptorParser;
+import org.apache.ivy.plugins.repository.Resource;
+import org.apache.ivy.plugins.repository.ResourceHelper;
+import org.apache.ivy.plugins.repository.url.URLResource;
+import org.apache.ivy.util.Message;
+
+/**
+ * Reads and writes a compact binary snapshot of a module descriptor parsed from an ivy file
+ * stored in the repository cache.
+ * <p>
+ * Loading a snapshot is much cheaper than parsing the ivy file it has been made from, since no
+ * xml parsing, variable substitution nor configuration mapping interpretation is required.
+ * The ivy file remains the reference: a snapshot is only used if the ivy file has not changed
+ * since the snapshot has been written (same last modified date and length), if it has been
+ * written with validation when validation is requested, and if the settings variables which were
+ * substituted while parsing the ivy file still have the same values.
+ * </p>
+ * <p>
+ * Only the module descriptors which can be exactly rebuilt from their data are stored: module
+ * descriptors using inheritance, namespaces, conflict managers or custom implementations of
+ * descriptor elements are always parsed from the ivy file.
+ * </p>
+ */
+final class ModuleDescriptorSnapshot {
+
+    private static final int MAGIC = 0x49564d44; // 'IVMD'
+
+    private static final int FORMAT_VERSION = 1;
+
+    private static final int NULL_STRING = -1;
+
+    private static final int NEW_STRING = -2;
+
+    private ModuleDescriptorSnapshot() {
+    }
+
+    /**
+     * Writes a snapshot of the given module descriptor, previously parsed from the given ivy file.
+     *
+     * @param snapshotFile
+     *            the file in which the snapshot should be written
+     * @param ivyFile
+     *            the ivy file from which the module descriptor has been parsed
+     * @param md
+     *            the parsed module descriptor
+     * @param substitutes
+     *            the settings variables substitutions made while parsing the ivy file
+     * @param validated
+     *            true if the ivy file has been validated when parsed
+     * @return true if the snapshot has been written, false if the module descriptor cannot be
+     *         stored in a snapshot or if an error occurred
+     */
+    public static boolean store(File snapshotFile, File ivyFile, ModuleDescriptor md,
+            Map/* <String,String> */substitutes, boolean validated) {
+        if (!isSupported(md)) {
+            Message.debug("module descriptor can't be stored in a compact snapshot: " + md);
+            snapshotFile.delete();
+            return false;
+        }
+        File tmp = new File(snapshotFile.getParentFile(), snapshotFile.getName() + ".part");
+        try {
+            Output out = new Output(new DataOutputStream(new BufferedOutputStream(
+                    new FileOutputStream(tmp))));
+            try {
+                out.data.writeInt(MAGIC);
+                out.data.writeInt(FORMAT_VERSION);
+                out.data.writeLong(ivyFile.lastModified());
+                out.data.writeLong(ivyFile.length());
+                out.data.writeBoolean(validated);
+                out.writeMap(substitutes);
+                writeModuleDescriptor(out, (DefaultModuleDescriptor) md);
+            } finally {
+                out.data.close();
+            }
+            snapshotFile.delete();
+            if (!tmp.renameTo(snapshotFile)) {
+                throw new IOException("impossible to rename " + tmp + " to " + snapshotFile);
+            }
+            return true;
+        } catch (IOException e) {
+            Message.debug("impossible to write compact snapshot " + snapshotFile + ": "
+                    + e.getMessage());
+            tmp.delete();
+            return false;
+        }
+    }
+
+    /**
+     * Loads a module descriptor from a snapshot previously written for the given ivy file.
+     *
+     * @param snapshotFile
+     *            the snapshot file to read
+     * @param ivyFile
+     *            the ivy file from which the snapshot has been made
+     * @param settings
+     *            the current parser settings
+     * @param validate
+     *            true if the ivy file is required to have been validated
+     * @return the module descriptor, or null if there is no usable snapshot
+     */
+    public static ModuleDescriptor load(File snapshotFile, File ivyFile, ParserSettings settings,
+            boolean validate) {
+        if (!snapshotFile.exists()) {
+            return null;
+        }
+        try {
+            Input in = new Input(new DataInputStream(new BufferedInputStream(
+                    new FileInputStream(snapshotFile))));
+            try {
+                if (in.data.readInt() != MAGIC || in.data.readInt() != FORMAT_VERSION) {
+                    Message.debug("unsupported compact snapshot format: " + snapshotFile);
+                    return null;
+                }
+                if (in.data.readLong() != ivyFile.lastModified()
+                        || in.data.readLong() != ivyFile.length()) {
+                    Message.debug("ivy file changed since compact snapshot was written: "
+                            + ivyFile);
+                    return null;
+                }
+                boolean validated = in.data.readBoolean();
+                if (validate && !validated) {
+                    Message.debug("compact snapshot hasn't been validated: " + snapshotFile);
+                    return null;
+                }
+                Map substitutes = in.readMap();
+                for (Iterator it = substitutes.entrySet().iterator(); it.hasNext();) {
+                    Map.Entry entry = (Map.Entry) it.next();
+                    if (!entry.getValue().equals(settings.substitute((String) entry.getKey()))) {
+                        Message.debug("settings variable has changed for : " + entry.getKey());
+                        return null;
+                    }
+                }
+                return readModuleDescriptor(in, ivyFile, settings);
+            } finally {
+                in.data.close();
+            }
+        } catch (IOException e) {
+            Message.debug("impossible to read compact snapshot " + snapshotFile + ": "
+                    + e.getMessage());
+            return null;
+        } catch (RuntimeException e) {
+            // the snapshot is inconsistent with the current settings or corrupted
+            Message.debug("impossible to load compact snapshot " + snapshotFile + ": " + e);
+            return null;
+        }
+    }
+
+    private static boolean isSupported(ModuleDescriptor md) {
+        if (md.getClass() != DefaultModuleDescriptor.class) {
+            return false;
+        }
+        DefaultModuleDescriptor dmd = (DefaultModuleDescriptor) md;
+        if (dmd.getInheritedDescriptors().length > 0 || dmd.getNamespace() != null
+                || dmd.getModuleRevisionId() != dmd.getResolvedModuleRevisionId()
+                || !dmd.getAllConflictManagers().getAllRules().isEmpty()) {
+            return false;
+        }
+        Map mediators = dmd.getAllDependencyDescriptorMediators().getAllRules();
+        for (Iterator it = mediators.values().iterator(); it.hasNext();) {
+            if (it.next().getClass() != OverrideDependencyDescriptorMediator.class) {
+                return false;
+            }
+        }
+        Configuration[] confs = dmd.getConfigurations();
+        for (int i = 0; i < confs.length; i++) {
+            if (confs[i].getClass() != Configuration.class || confs[i].getSourceModule() != null) {
+                return false;
+            }
+        }
+
+        // artifacts are rebuilt from getAllArtifacts(), make sure no artifact is missing
+        Map allArtifacts = identitySet(dmd.getAllArtifacts());
+        String[] confNames = dmd.getConfigurationsNames();
+        for (int i = 0; i < confNames.length; i++) {
+            Artifact[] artifacts = dmd.getArtifacts(confNames[i]);
+            for (int j = 0; j < artifacts.length; j++) {
+                if (!allArtifacts.containsKey(artifacts[j])) {
+                    return false;
+                }
+            }
+        }
+        for (Iterator it = allArtifacts.keySet().iterator(); it.hasNext();) {
+            Artifact artifact = (Artifact) it.next();
+            if (artifact.getClass() != MDArtifact.class || artifact.isMetadata()) {
+                return false;
+            }
+        }
+
+        ExcludeRule[] excludes = dmd.getAllExcludeRules();
+        for (int i = 0; i < excludes.length; i++) {
+            if (excludes[i].getClass() != DefaultExcludeRule.class) {
+                return false;
+            }
+        }
+
+        DependencyDescriptor[] dds = dmd.getDependencies();
+        for (int i = 0; i < dds.length; i++) {
+            if (dds[i].getClass() != DefaultDependencyDescriptor.class
+                    || dds[i].getNamespace() != null
+                    || dds[i].getSourceModule() != dmd.getModuleRevisionId()) {
+                return false;
+            }
+            if (!isRebuildable(dds[i], confNames)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Dependency artifacts and include/exclude rules are rebuilt from their configurations, which
+     * is how the parser registers them. Check this gives the same result as the actual content of
+     * the dependency descriptor.
+     */
+    private static boolean isRebuildable(DependencyDescriptor dd, String[] confNames) {
+        DependencyArtifactDescriptor[] dads = dd.getAllDependencyArtifacts();
+        IncludeRule[] includes = dd.getAllIncludeRules();
+        ExcludeRule[] excludes = dd.getAllExcludeRules();
+        for (int i = 0; i < dads.length; i++) {
+            if (dads[i].getClass() != DefaultDependencyArtifactDescriptor.class
+                    || dads[i].getDependencyDescriptor() != dd) {
+                return false;
+            }
+        }
+        for (int i = 0; i < includes.length; i++) {
+            if (includes[i].getClass() != DefaultIncludeRule.class) {
+                return false;
+            }
+        }
+        for (int i = 0; i < excludes.length; i++) {
+            if (excludes[i].getClass() != DefaultExcludeRule.class) {
+                return false;
+            }
+        }
+        String[] confs = new String[confNames.length + 1];
+        System.arraycopy(confNames, 0, confs, 0, confNames.length);
+        confs[confNames.length] = "*";
+        for (int i = 0; i < confs.length; i++) {
+            if (!sameConfiguredObjects(dd.getDependencyArtifacts(confs[i]), dads, confs[i])
+                    || !sameConfiguredObjects(dd.getIncludeRules(confs[i]), includes, confs[i])
+                    || !sameConfiguredObjects(dd.getExcludeRules(confs[i]), excludes, confs[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean sameConfiguredObjects(Object[] actual, Object[] all, String conf) {
+        Map expected = new IdentityHashMap();
+        for (int i = 0; i < all.length; i++) {
+            List confs = Arrays.asList(getConfigurations(all[i]));
+            if (confs.contains(conf) || confs.contains("*")) {
+                expected.put(all[i], all[i]);
+            }
+        }
+        return expected.equals(identitySet(actual));
+    }
+
+    private static String[] getConfigurations(Object o) {
+        if (o instanceof DependencyArtifactDescriptor) {
+            return ((DependencyArtifactDescriptor) o).getConfigurations();
+        }
+        return ((AbstractIncludeExcludeRule) o).getConfigurations();
+    }
+
+    private static Map identitySet(Object[] objects) {
+        Map set = new IdentityHashMap();
+        for (int i = 0; i < objects.length; i++) {
+            set.put(objects[i], objects[i]);
+        }
+        return set;
+    }
+
+    private static void writeModuleDescriptor(Output out, DefaultModuleDescriptor md)
+            throws IOException {
+        out.writeModuleRevisionId(md.getModuleRevisionId());
+        out.writeString(md.getStatus());
+        out.data.writeBoolean(md.isDefault());
+        out.writeDate(md.getPublicationDate());
+        out.writeString(md.getHomePage());
+        out.writeString(md.getDescription());
+        out.writeString(md.getDefaultConf());
+        out.writeString(md.getDefaultConfMapping());
+        out.data.writeBoolean(md.isMappingOverride());
+        out.writeMap(md.getExtraAttributesNamespaces());
+        out.writeMap(md.getExtraInfo());
+
+        License[] licenses = md.getLicenses();
+        out.data.writeInt(licenses.length);
+        for (int i = 0; i < licenses.length; i++) {
+            out.writeString(licenses[i].getName());
+            out.writeString(licenses[i].getUrl());
+        }
+
+        Configuration[] confs = md.getConfigurations();
+        out.data.writeInt(confs.length);
+        for (int i = 0; i < confs.length; i++) {
+            out.writeString(confs[i].getName());
+            out.writeString(confs[i].getVisibility().toString());
+            out.writeString(confs[i].getDescription());
+            out.writeStrings(confs[i].getExtends());
+            out.data.writeBoolean(confs[i].isTransitive());
+            out.writeString(confs[i].getDeprecated());
+            out.writeMap(confs[i].getQualifiedExtraAttributes());
+        }
+
+        String[] confNames = md.getConfigurationsNames();
+        Artifact[] artifacts = md.getAllArtifacts();
+        out.data.writeInt(artifacts.length);
+        for (int i = 0; i < artifacts.length; i++) {
+            out.writeString(artifacts[i].getName());
+            out.writeString(artifacts[i].getType());
+            out.writeString(artifacts[i].getExt());
+            out.writeUrl(artifacts[i].getUrl());
+            out.writeMap(artifacts[i].getQualifiedExtraAttributes());
+            out.writeStrings(artifacts[i].getConfigurations());
+            List addedTo = new ArrayList();
+            for (int j = 0; j < confNames.length; j++) {
+                Artifact[] confArtifacts = md.getArtifacts(confNames[j]);
+                for (int k = 0; k < confArtifacts.length; k++) {
+                    if (confArtifacts[k] == artifacts[i]) {
+                        addedTo.add(confNames[j]);
+                        break;
+                    }
+                }
+            }
+            out.writeStrings((String[]) addedTo.toArray(new String[addedTo.size()]));
+        }
+
+        DependencyDescriptor[] dds = md.getDependencies();
+        out.data.writeInt(dds.length);
+        for (int i = 0; i < dds.length; i++) {
+            writeDependency(out, (DefaultDependencyDescriptor) dds[i]);
+        }
+
+        ExcludeRule[] excludes = md.getAllExcludeRules();
+        out.data.writeInt(excludes.length);
+        for (int i = 0; i < excludes.length; i++) {
+            out.writeRule(excludes[i].getId(), excludes[i].getMatcher(),
+                excludes[i].getQualifiedExtraAttributes(), excludes[i].getConfigurations());
+        }
+
+        Map mediators = md.getAllDependencyDescriptorMediators().getAllRules();
+        out.data.writeInt(mediators.size());
+        for (Iterator it = mediators.entrySet().iterator(); it.hasNext();) {
+            Map.Entry entry = (Map.Entry) it.next();
+            MapMatcher condition = (MapMatcher) entry.getKey();
+            OverrideDependencyDescriptorMediator mediator =
+                (OverrideDependencyDescriptorMediator) entry.getValue();
+            Map attributes = condition.getAttributes();
+            out.writeString((String) attributes.get(IvyPatternHelper.ORGANISATION_KEY));
+            out.writeString((String) attributes.get(IvyPatternHelper.MODULE_KEY));
+            out.writeString(condition.getPatternMatcher().getName());
+            out.writeString(mediator.getBranch());
+            out.writeString(mediator.getVersion());
+        }
+    }
+
+    private static void writeDependency(Output out, DefaultDependencyDescriptor dd)
+            throws IOException {
+        out.writeModuleRevisionId(dd.getDependencyRevisionId());
+        out.writeModuleRevisionId(dd.getDynamicConstraintDependencyRevisionId());
+        out.data.writeBoolean(dd.isForce());
+        out.data.writeBoolean(dd.isChanging());
+        out.data.writeBoolean(dd.isTransitive());
+
+        String[] moduleConfs = dd.getModuleConfigurations();
+        out.data.writeInt(moduleConfs.length);
+        for (int i = 0; i < moduleConfs.length; i++) {
+            out.writeString(moduleConfs[i]);
+            out.writeStrings(dd.getRawDependencyConfigurations(moduleConfs[i]));
+        }
+
+        DependencyArtifactDescriptor[] dads = dd.getAllDependencyArtifacts();
+        out.data.writeInt(dads.length);
+        for (int i = 0; i < dads.length; i++) {
+            out.writeString(dads[i].getName());
+            out.writeString(dads[i].getType());
+            out.writeString(dads[i].getExt());
+            out.writeUrl(dads[i].getUrl());
+            out.writeMap(dads[i].getQualifiedExtraAttributes());
+            out.writeStrings(dads[i].getConfigurations());
+        }
+
+        IncludeRule[] includes = dd.getAllIncludeRules();
+        out.data.writeInt(includes.length);
+        for (int i = 0; i < includes.length; i++) {
+            out.writeRule(includes[i].getId(), includes[i].getMatcher(),
+                includes[i].getQualifiedExtraAttributes(), includes[i].getConfigurations());
+        }
+
+        ExcludeRule[] excludes = dd.getAllExcludeRules();
+        out.data.writeInt(excludes.length);
+        for (int i = 0; i < excludes.length; i++) {
+            out.writeRule(excludes[i].getId(), excludes[i].getMatcher(),
+                excludes[i].getQualifiedExtraAttributes(), excludes[i].getConfigurations());
+        }
+    }
+
+    private static ModuleDescriptor readModuleDescriptor(Input in, File ivyFile,
+            ParserSettings settings) throws IOException {
+        Resource res = new URLResource(ivyFile.toURI().toURL());
+        DefaultModuleDescriptor md = new DefaultModuleDescriptor(
+            XmlModuleDescriptorParser.getInstance(), res);
+        md.setLastModified(ResourceHelper.getLastModifiedOrDefault(res));
+
+        md.setModuleRevisionId(in.readModuleRevisionId());
+        md.setStatus(in.readString());
+        md.setDefault(in.data.readBoolean());
+        md.setPublicationDate(in.readDate());
+        md.setHomePage(in.readString());
+        md.setDescription(in.readString());
+        String defaultConf = in.readString();
+        if (defaultConf != null) {
+            md.setDefaultConf(defaultConf);
+        }
+        String defaultConfMapping = in.readString();
+        if (defaultConfMapping != null) {
+            md.setDefaultConfMapping(defaultConfMapping);
+        }
+        md.setMappingOverride(in.data.readBoolean());
+        Map namespaces = in.readMap();
+        for (Iterator it = namespaces.entrySet().iterator(); it.hasNext();) {
+            Map.Entry entry = (Map.Entry) it.next();
+            md.addExtraAttributeNamespace((String) entry.getKey(), (String) entry.getValue());
+        }
+        Map extraInfo = in.readMap();
+        for (Iterator it = extraInfo.entrySet().iterator(); it.hasNext();) {
+            Map.Entry entry = (Map.Entry) it.next();
+            md.addExtraInfo((String) entry.getKey(), (String) entry.getValue());
+        }
+
+        int count = in.data.readInt();
+        for (int i = 0; i < count; i++) {
+            md.addLicense(new License(in.readString(), in.readString()));
+        }
+
+        count = in.data.readInt();
+        for (int i = 0; i < count; i++) {
+            String name = in.readString();
+            Configuration.Visibility visibility =
+                Configuration.Visibility.getVisibility(in.readString());
+            String description = in.readString();
+            String[] ext = in.readStrings();
+            boolean transitive = in.data.readBoolean();
+            String deprecated = in.readString();
+            Configuration conf = new Configuration(
+                name, visibility, description, ext, transitive, deprecated);
+            Map extra = in.readMap();
+            for (Iterator it = extra.entrySet().iterator(); it.hasNext();) {
+                Map.Entry entry = (Map.Entry) it.next();
+                conf.setExtraAttribute((String) entry.getKey(), (String) entry.getValue());
+            }
+            md.addConfiguration(conf);
+        }
+
+        count = in.data.readInt();
+        for (int i = 0; i < count; i++) {
+            MDArtifact artifact = new MDArtifact(md, in.readString(), in.readString(),
+                    in.readString(), in.readUrl(), in.readMap());
+            String[] confs = in.readStrings();
+            for (int j = 0; j < confs.length; j++) {
+                artifact.addConfiguration(confs[j]);
+            }
+            String[] addedTo = in.readStrings();
+            for (int j = 0; j < addedTo.length; j++) {
+                md.addArtifact(addedTo[j], artifact);
+            }
+        }
+
+        count = in.data.readInt();
+        for (int i = 0; i < count; i++) {
+            md.addDependency(readDependency(in, md, settings));
+        }
+
+        count = in.data.readInt();
+        for (int i = 0; i < count; i++) {
+            ArtifactId aid = in.readArtifactId();
+            PatternMatcher matcher = in.readMatcher(settings);
+            DefaultExcludeRule rule = new DefaultExcludeRule(aid, matcher, in.readMap());
+            String[] confs = in.readStrings();
+            for (int j = 0; j < confs.length; j++) {
+                rule.addConfiguration(confs[j]);
+            }
+            md.addExcludeRule(rule);
+        }
+
+        count = in.data.readInt();
+        for (int i = 0; i < count; i++) {
+            ModuleId mid = ModuleId.newInstance(in.readString(), in.readString());
+            PatternMatcher matcher = in.readMatcher(settings);
+            md.addDependencyDescriptorMediator(mid, matcher,
+                new OverrideDependencyDescriptorMediator(in.readString(), in.readString()));
+        }
+
+        md.setModuleArtifact(DefaultArtifact.newIvyArtifact(
+            md.getResolvedModuleRevisionId(), md.getPublicationDate()));
+        return md;
+    }
+
+    private static DependencyDescriptor readDependency(Input in, DefaultModuleDescriptor md,
+            ParserSettings settings) throws IOException {
+        ModuleRevisionId revId = in.readModuleRevisionId();
+        ModuleRevisionId dynamicId = in.readModuleRevisionId();
+        boolean force = in.data.readBoolean();
+        boolean changing = in.data.readBoolean();
+        boolean transitive = in.data.readBoolean();
+        DefaultDependencyDescriptor dd = new DefaultDependencyDescriptor(
+            md, revId, dynamicId, force, changing, transitive);
+
+        int count = in.data.readInt();
+        for (int i = 0; i < count; i++) {
+            String moduleConf = in.readString();
+            String[] depConfs = in.readStrings();
+            for (int j = 0; j < depConfs.length; j++) {
+                dd.addDependencyConfiguration(moduleConf, depConfs[j]);
+            }
+        }
+
+        count = in.data.readInt();
+        for (int i = 0; i < count; i++) {
+            DefaultDependencyArtifactDescriptor dad = new DefaultDependencyArtifactDescriptor(
+                dd, in.readString(), in.readString(), in.readString(), in.readUrl(),
+                in.readMap());
+            String[] confs = in.readStrings();
+            for (int j = 0; j < confs.length; j++) {
+                dad.addConfiguration(confs[j]);
+                dd.addDependencyArtifact(confs[j], dad);
+            }
+        }
+
+        count = in.data.readInt();
+        for (int i = 0; i < count; i++) {
+            ArtifactId aid = in.readArtifactId();
+            PatternMatcher matcher = in.readMatcher(settings);
+            DefaultIncludeRule rule = new DefaultIncludeRule(aid, matcher, in.readMap());
+            String[] confs = in.readStrings();
+            for (int j = 0; j < confs.length; j++) {
+                rule.addConfiguration(confs[j]);
+                dd.addIncludeRule(confs[j], rule);
+            }
+        }
+
+        count = in.data.readInt();
+        for (int i = 0; i < count; i++) {
+            ArtifactId aid = in.readArtifactId();
+            PatternMatcher matcher = in.readMatcher(settings);
+            DefaultExcludeRule rule = new DefaultExcludeRule(aid, matcher, in.readMap());
+            String[] confs = in.readStrings();
+            for (int j = 0; j < confs.length; j++) {
+                rule.addConfiguration(confs[j]);
+                dd.addExcludeRule(confs[j], rule);
+            }
+        }
+        return dd;
+    }
+
+    /**
+     * Writes data to a snapshot, sharing repeated strings (organisations, configuration names,
+     * ...) through a string table.
+     */
+    private static final class Output {
+        private final DataOutputStream data;
+
+        private final Map/* <String,Integer> */strings = new HashMap();
+
+        Output(DataOutputStream data) {
+            this.data = data;
+        }
+
+        void writeString(String s) throws IOException {
+            if (s == null) {
+                data.writeInt(NULL_STRING);
+                return;
+            }
+            Integer index = (Integer) strings.get(s);
+            if (index != null) {
+                data.writeInt(index.intValue());
+                return;
+            }
+            strings.put(s, new Integer(strings.size()));
+            byte[] bytes = s.getBytes("UTF-8");
+            data.writeInt(NEW_STRING);
+            data.writeInt(bytes.length);
+            data.write(bytes);
+        }
+
+        void writeStrings(String[] values) throws IOException {
+            data.writeInt(values.length);
+            for (int i = 0; i < values.length; i++) {
+                writeString(values[i]);
+            }
+        }
+
+        void writeMap(Map/* <String,String> */map) throws IOException {
+            if (map == null) {
+                data.writeInt(0);
+                return;
+            }
+            data.writeInt(map.size());
+            for (Iterator it = map.entrySet().iterator(); it.hasNext();) {
+                Map.Entry entry = (Map.Entry) it.next();
+                writeString((String) entry.getKey());
+                writeString((String) entry.getValue());
+            }
+        }
+
+        void writeDate(Date date) throws IOException {
+            data.writeBoolean(date != null);
+            if (date != null) {
+                data.writeLong(date.getTime());
+            }
+        }
+
+        void writeUrl(URL url) throws IOException {
+            writeString(url == null ? null : url.toExternalForm());
+        }
+
+        void writeModuleRevisionId(ModuleRevisionId mrid) throws IOException {
+            writeString(mrid.getOrganisation());
+            writeString(mrid.getName());
+            writeString(mrid.getBranch());
+            writeString(mrid.getRevision());
+            writeMap(mrid.getQualifiedExtraAttributes());
+        }
+
+        void writeRule(ArtifactId aid, PatternMatcher matcher, Map extra, String[] confs)
+                throws IOException {
+            writeString(aid.getModuleId().getOrganisation());
+            writeString(aid.getModuleId().getName());
+            writeString(aid.getName());
+            writeString(aid.getType());
+            writeString(aid.getExt());
+            writeString(matcher.getName());
+            writeMap(extra);
+            writeStrings(confs);
+        }
+    }
+
+    private static final class Input {
+        private final DataInputStream data;
+
+        private final List/* <String> */strings = new ArrayList();
+
+        Input(DataInputStream data) {
+            this.data = data;
+        }
+
+        String readString() throws IOException {
+            int index = data.readInt();
+            if (index == NULL_STRING) {
+                return null;
+            }
+            if (index == NEW_STRING) {
+                byte[] bytes = new byte[data.readInt()];
+                data.readFully(bytes);
+                String s = new String(bytes, "UTF-8");
+                strings.add(s);
+                return s;
+            }
+            if (index < 0 || index >= strings.size()) {
+                throw new IOException("corrupted string table");
+            }
+            return (String) strings.get(index);
+        }
+
+        String[] readStrings() throws IOException {
+            String[] values = new String[data.readInt()];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = readString();
+            }
+            return values;
+        }
+
+        Map readMap() throws IOException {
+            int size = data.readInt();
+            Map map = new LinkedHashMap();
+            for (int i = 0; i < size; i++) {
+                String key = readString();
+                map.put(key, readString());
+            }
+            return map;
+        }
+
+        Date readDate() throws IOException {
+            return data.readBoolean() ? new Date(data.readLong()) : null;
+        }
+
+        URL readUrl() throws IOException {
+            String url = readString();
+            return url == null ? null : new URL(url);
+        }
+
+        ModuleRevisionId readModuleRevisionId() throws IOException {
+            String org = readString();
+            String name = readString();
+            String branch = readString();
+            String revision = readString();
+            return ModuleRevisionId.newInstance(org, name, branch, revision, readMap(), false);
+        }
+
+        ArtifactId readArtifactId() throws IOException {
+            ModuleId mid = ModuleId.newInstance(readString(), readString());
+            return new ArtifactId(mid, readString(), readString(), readString());
+        }
+
+        PatternMatcher readMatcher(ParserSettings settings) throws IOException {
+            String name = readString();
+            PatternMatcher matcher = settings.getMatcher(name);
+            if (matcher == null) {
+                throw new IOException("unknown matcher: " + name);
+            }
+            return matcher;
+        }
+    }
+}
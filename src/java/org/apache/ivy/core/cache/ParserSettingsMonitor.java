@@ -18,6 +18,7 @@
 package org.apache.ivy.core.cache;
 
 import java.io.File;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
@@ -65,6 +66,14 @@ class ParserSettingsMonitor {
         return monitoredSettings;
     }
     
+    /**
+     * @return the settings variables substitutions made through the monitored settings, as a map
+     * of the substituted values to their substitution result.
+     */
+    public Map/*<String,String>*/ getSubstitutes() {
+        return Collections.unmodifiableMap(substitutes);
+    }
+    
     /**
      * Free the ressource used during the monitoring, keeping only the info
      * required to evaluate hasChanged.
@@ -0,0 +1,81 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.ivy.core.deliver;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+import org.apache.ivy.core.module.descriptor.ModuleDescriptor;
+import org.apache.ivy.core.module.id.ModuleRevisionId;
+
+/**
+ * A {@link PublishingDependencyRevisionResolver} which resolves each dependency revision only
+ * once, whatever the module being delivered, and whatever the number of threads asking for it
+ * at the same time.
+ * <p>
+ * The revision is cached by dependency revision id, published status and dependency status: the
+ * delegate resolver must not depend on the published module.
+ * </p>
+ */
+class CachingPublishingDRResolver implements PublishingDependencyRevisionResolver {
+    private final PublishingDependencyRevisionResolver delegate;
+
+    private final ConcurrentMap/* <List, FutureTask<String>> */revisions =
+        new ConcurrentHashMap();
+
+    CachingPublishingDRResolver(PublishingDependencyRevisionResolver delegate) {
+        this.delegate = delegate;
+    }
+
+    public String resolve(final ModuleDescriptor published, final String publishedStatus,
+            final ModuleRevisionId depMrid, final String status) {
+        List key = Arrays.asList(new Object[] {depMrid, publishedStatus, status});
+        FutureTask revision = (FutureTask) revisions.get(key);
+        if (revision == null) {
+            FutureTask task = new FutureTask(new Callable() {
+                public Object call() {
+                    return delegate.resolve(published, publishedStatus, depMrid, status);
+                }
+            });
+            revision = (FutureTask) revisions.putIfAbsent(key, task);
+            if (revision == null) {
+                revision = task;
+                task.run();
+            }
+        }
+        try {
+            return (String) revision.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("interrupted while resolving the revision of " + depMrid);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new RuntimeException("impossible to resolve the revision of " + depMrid, cause);
+        }
+    }
+}
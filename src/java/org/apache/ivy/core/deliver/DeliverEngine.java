@@ -24,13 +24,22 @@ import java.net.MalformedURLException;
 import java.net.URL;
 import java.text.ParseException;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 
+import org.apache.ivy.core.IvyContext;
 import org.apache.ivy.core.IvyPatternHelper;
 import org.apache.ivy.core.cache.ResolutionCacheManager;
 import org.apache.ivy.core.module.descriptor.DependencyDescriptor;
@@ -101,6 +110,105 @@ public class DeliverEngine {
      */
     public void deliver(ModuleRevisionId mrid, String revision, String destIvyPattern,
             DeliverOptions options) throws IOException, ParseException {
+        deliver(mrid, revision, destIvyPattern, options, options.getPdrResolver());
+    }
+
+    /**
+     * Delivers several resolved modules, typically all the modules of a release, as
+     * {@link #deliver(ModuleRevisionId, String, String, DeliverOptions)} does for each of them.
+     * <p>
+     * Up to options.getThreads() modules are delivered at the same time. The revisions of the
+     * dependencies are resolved only once for all the modules: the pdrResolver of the options is
+     * called once per dependency revision, publication status and dependency status, so it must
+     * not depend on the delivered module.
+     * </p>
+     * <p>
+     * If a module cannot be delivered, the modules not delivered yet are skipped, and the error is
+     * thrown once the deliveries in progress are finished.
+     * </p>
+     * 
+     * @param mrids
+     *            the module revision ids of the modules to deliver
+     * @param revision
+     *            the revision to which the modules should be delivered
+     * @param destIvyPattern
+     *            the pattern to which the delivered ivy files should be written
+     * @param options
+     *            the options with which deliver should be done
+     * @return the delivered ivy files, by module revision id, in the order of the given modules
+     */
+    public Map/* <ModuleRevisionId, File> */deliver(Collection/* <ModuleRevisionId> */mrids,
+            final String revision, final String destIvyPattern, final DeliverOptions options)
+            throws IOException, ParseException {
+        long start = System.currentTimeMillis();
+        final PublishingDependencyRevisionResolver pdrResolver = new CachingPublishingDRResolver(
+                options.getPdrResolver());
+        Map/* <ModuleRevisionId, Future<File>> */futures = new LinkedHashMap();
+        int threads = Math.max(1, Math.min(options.getThreads(), mrids.size()));
+        ExecutorService executor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "ivy-deliver");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        try {
+            for (Iterator iter = mrids.iterator(); iter.hasNext();) {
+                final ModuleRevisionId mrid = (ModuleRevisionId) iter.next();
+                final IvyContext context = new IvyContext(IvyContext.getContext());
+                futures.put(mrid, executor.submit(new Callable() {
+                    public Object call() throws Exception {
+                        IvyContext.pushContext(context);
+                        try {
+                            return deliver(mrid, revision, destIvyPattern, options, pdrResolver);
+                        } finally {
+                            IvyContext.popContext();
+                        }
+                    }
+                }));
+            }
+            Map/* <ModuleRevisionId, File> */delivered = new LinkedHashMap();
+            for (Iterator iter = futures.entrySet().iterator(); iter.hasNext();) {
+                Map.Entry entry = (Map.Entry) iter.next();
+                delivered.put(entry.getKey(), getDelivered((Future) entry.getValue()));
+            }
+            Message.verbose("\t" + delivered.size() + " modules delivered ("
+                    + (System.currentTimeMillis() - start) + "ms)");
+            return delivered;
+        } finally {
+            for (Iterator iter = futures.values().iterator(); iter.hasNext();) {
+                ((Future) iter.next()).cancel(false);
+            }
+            executor.shutdown();
+        }
+    }
+
+    private File getDelivered(Future future) throws IOException, ParseException {
+        try {
+            return (File) future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("deliver interrupted");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof ParseException) {
+                throw (ParseException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            IOException ioe = new IOException("deliver failed: " + cause);
+            ioe.initCause(cause);
+            throw ioe;
+        }
+    }
+
+    private File deliver(ModuleRevisionId mrid, String revision, String destIvyPattern,
+            DeliverOptions options, PublishingDependencyRevisionResolver pdrResolver)
+            throws IOException, ParseException {
         Message.info(":: delivering :: " + mrid + " :: " + revision + " :: " + options.getStatus()
                 + " :: " + options.getPubdate());
         Message.verbose("\toptions = " + options);
@@ -175,8 +283,8 @@ public class DeliverEngine {
             else {
                 mrid2 = ModuleRevisionId.newInstance(dependencies[i].getDependencyRevisionId(), bra, rev);
             }
-            resolvedDependencies.put(dependencies[i].getDependencyRevisionId(), options
-                    .getPdrResolver().resolve(
+            resolvedDependencies.put(dependencies[i].getDependencyRevisionId(), pdrResolver
+                    .resolve(
                         md,
                         options.getStatus(),
                         mrid2,
@@ -217,5 +325,6 @@ public class DeliverEngine {
         }
 
         Message.verbose("\tdeliver done (" + (System.currentTimeMillis() - start) + "ms)");
+        return publishedIvy;
     }
 }
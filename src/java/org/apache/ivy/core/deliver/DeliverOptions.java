@@ -51,6 +51,8 @@ public class DeliverOptions {
     /** true to merge parent descriptor elements into delivered child descriptor */
     private boolean merge = true;
 
+    private int threads = 1;
+
     /**
      * Returns an instance of DeliverOptions with options corresponding to default values taken from
      * the given settings.
@@ -258,6 +260,22 @@ public class DeliverOptions {
         return this;
     }
 
+    public int getThreads() {
+        return threads;
+    }
+
+    /**
+     * Sets the number of modules which can be delivered at the same time, when several modules are
+     * delivered at once.
+     * 
+     * @return the instance of DeliverOptions on which the method has been called, for easy method
+     *         chaining
+     */
+    public DeliverOptions setThreads(int threads) {
+        this.threads = threads;
+        return this;
+    }
+
     public String toString() {
         return "status=" + status + " pubdate=" + pubdate + " validate=" + validate
                 + " resolveDynamicRevisions=" + resolveDynamicRevisions
@@ -40,11 +40,22 @@ public class EndArtifactPublishEvent extends PublishEvent {
 
     private final boolean successful;
 
+    private final long duration;
+
     public EndArtifactPublishEvent(DependencyResolver resolver, Artifact artifact, File data,
             boolean overwrite, boolean successful) {
+        this(resolver, artifact, data, overwrite, successful, -1);
+    }
+
+    public EndArtifactPublishEvent(DependencyResolver resolver, Artifact artifact, File data,
+            boolean overwrite, boolean successful, long duration) {
         super(NAME, resolver, artifact, data, overwrite);
         this.successful = successful;
+        this.duration = duration;
         addAttribute("status", isSuccessful() ? STATUS_SUCCESSFUL : STATUS_FAILED);
+        if (duration >= 0) {
+            addAttribute("duration", String.valueOf(duration));
+        }
     }
 
     /**
@@ -53,4 +64,11 @@ public class EndArtifactPublishEvent extends PublishEvent {
     public boolean isSuccessful() {
         return successful;
     }
+
+    /**
+     * @return the time spent publishing the artifact, in milliseconds, or -1 if unknown
+     */
+    public long getDuration() {
+        return duration;
+    }
 }
@@ -0,0 +1,108 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.ivy.core.install;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.ivy.core.module.id.ModuleRevisionId;
+
+/**
+ * The outcome of a bulk install, module by module. This class is thread safe.
+ *
+ * @see InstallEngine#bulkInstall(ModuleRevisionId, String, String, InstallOptions)
+ */
+public class BulkInstallReport {
+    private final List/* <ModuleRevisionId> */installed = new ArrayList();
+
+    private final List/* <ModuleRevisionId> */upToDate = new ArrayList();
+
+    private final List/* <ModuleRevisionId> */resumed = new ArrayList();
+
+    private final Map/* <ModuleRevisionId, String> */failures = new LinkedHashMap();
+
+    private long duration;
+
+    synchronized void addInstalled(ModuleRevisionId mrid) {
+        installed.add(mrid);
+    }
+
+    synchronized void addUpToDate(ModuleRevisionId mrid) {
+        upToDate.add(mrid);
+    }
+
+    synchronized void addResumed(ModuleRevisionId mrid) {
+        resumed.add(mrid);
+    }
+
+    synchronized void addFailure(ModuleRevisionId mrid, String message) {
+        failures.put(mrid, message);
+    }
+
+    synchronized void setDuration(long duration) {
+        this.duration = duration;
+    }
+
+    /**
+     * @return the modules which have been published to the target resolver
+     */
+    public synchronized List/* <ModuleRevisionId> */getInstalled() {
+        return new ArrayList(installed);
+    }
+
+    /**
+     * @return the modules which were already in the target resolver, with the same content
+     */
+    public synchronized List/* <ModuleRevisionId> */getUpToDate() {
+        return new ArrayList(upToDate);
+    }
+
+    /**
+     * @return the modules skipped because the checkpoint records them as installed by a previous
+     *         run
+     */
+    public synchronized List/* <ModuleRevisionId> */getResumed() {
+        return new ArrayList(resumed);
+    }
+
+    /**
+     * @return the modules which could not be installed, with the reason why
+     */
+    public synchronized Map/* <ModuleRevisionId, String> */getFailures() {
+        return new LinkedHashMap(failures);
+    }
+
+    public synchronized boolean hasError() {
+        return !failures.isEmpty();
+    }
+
+    /**
+     * @return the time spent by the bulk install, in milliseconds
+     */
+    public synchronized long getDuration() {
+        return duration;
+    }
+
+    public synchronized String toString() {
+        return installed.size() + " installed, " + upToDate.size() + " up to date, "
+                + resumed.size() + " resumed, " + failures.size() + " failed (" + duration
+                + "ms)";
+    }
+}
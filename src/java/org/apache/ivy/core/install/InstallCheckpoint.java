@@ -0,0 +1,114 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.ivy.core.install;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.apache.ivy.core.module.id.ModuleRevisionId;
+import org.apache.ivy.util.Message;
+
+/**
+ * The modules already installed by a bulk install, recorded in a file as soon as they are, one
+ * encoded module revision id per line, so that an interrupted install can be resumed.
+ */
+class InstallCheckpoint {
+    private static final String ENCODING = "UTF-8";
+
+    private final File file;
+
+    private final Set/* <ModuleRevisionId> */done = new HashSet();
+
+    private Writer writer;
+
+    /**
+     * @param file
+     *            the checkpoint file, loaded if it exists; null to record nothing
+     */
+    InstallCheckpoint(File file) throws IOException {
+        this.file = file;
+        if (file == null || !file.exists()) {
+            return;
+        }
+        BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(
+                file), ENCODING));
+        try {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.length() == 0) {
+                    continue;
+                }
+                try {
+                    done.add(ModuleRevisionId.decode(line));
+                } catch (IllegalArgumentException e) {
+                    // the last line may have been partially written when the install stopped
+                    Message.debug("ignoring corrupted checkpoint entry in " + file + ": " + line);
+                }
+            }
+        } finally {
+            reader.close();
+        }
+        Message.verbose("\tresuming install from " + file + ": " + done.size()
+                + " modules already installed");
+    }
+
+    synchronized boolean isDone(ModuleRevisionId mrid) {
+        return done.contains(mrid);
+    }
+
+    synchronized void done(ModuleRevisionId mrid) throws IOException {
+        done.add(mrid);
+        if (file == null) {
+            return;
+        }
+        if (writer == null) {
+            file.getAbsoluteFile().getParentFile().mkdirs();
+            writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file, true),
+                    ENCODING));
+        }
+        writer.write(mrid.encodeToString());
+        writer.write('\n');
+        writer.flush();
+    }
+
+    /**
+     * Closes the checkpoint file, and deletes it if the install is complete.
+     */
+    synchronized void close(boolean complete) {
+        if (writer != null) {
+            try {
+                writer.close();
+            } catch (IOException e) {
+                Message.debug("impossible to close " + file + ": " + e);
+            }
+            writer = null;
+        }
+        if (complete && file != null && file.exists() && !file.delete()) {
+            Message.warn("impossible to delete the install checkpoint " + file);
+        }
+    }
+}
@@ -17,11 +17,26 @@
  */
 package org.apache.ivy.core.install;
 
+import java.io.BufferedReader;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Date;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 
+import org.apache.ivy.core.IvyContext;
+import org.apache.ivy.core.module.descriptor.Artifact;
 import org.apache.ivy.core.module.descriptor.Configuration;
 import org.apache.ivy.core.module.descriptor.DefaultDependencyDescriptor;
 import org.apache.ivy.core.module.descriptor.DefaultModuleDescriptor;
@@ -29,17 +44,26 @@ import org.apache.ivy.core.module.descriptor.ModuleDescriptor;
 import org.apache.ivy.core.module.id.ModuleId;
 import org.apache.ivy.core.module.id.ModuleRevisionId;
 import org.apache.ivy.core.report.ArtifactDownloadReport;
+import org.apache.ivy.core.report.DownloadStatus;
 import org.apache.ivy.core.report.ResolveReport;
 import org.apache.ivy.core.resolve.DownloadOptions;
 import org.apache.ivy.core.resolve.IvyNode;
+import org.apache.ivy.core.resolve.ResolveData;
 import org.apache.ivy.core.resolve.ResolveEngine;
 import org.apache.ivy.core.resolve.ResolveOptions;
+import org.apache.ivy.core.resolve.ResolvedModuleRevision;
 import org.apache.ivy.core.search.SearchEngine;
 import org.apache.ivy.plugins.conflict.NoConflictManager;
 import org.apache.ivy.plugins.matcher.ExactPatternMatcher;
 import org.apache.ivy.plugins.matcher.MatcherHelper;
 import org.apache.ivy.plugins.matcher.PatternMatcher;
+import org.apache.ivy.plugins.repository.Resource;
+import org.apache.ivy.plugins.resolver.BasicResolver;
 import org.apache.ivy.plugins.resolver.DependencyResolver;
+import org.apache.ivy.plugins.resolver.util.ResolvedResource;
+import org.apache.ivy.util.ChecksumHelper;
+import org.apache.ivy.util.ConfigurationUtils;
+import org.apache.ivy.util.FileUtil;
 import org.apache.ivy.util.Message;
 
 public class InstallEngine {
@@ -58,29 +82,20 @@ public class InstallEngine {
 
     public ResolveReport install(ModuleRevisionId mrid, String from, String to, 
             InstallOptions options) throws IOException {
-        DependencyResolver fromResolver = settings.getResolver(from);
-        DependencyResolver toResolver = settings.getResolver(to);
-        if (fromResolver == null) {
-            throw new IllegalArgumentException("unknown resolver " + from
-                    + ". Available resolvers are: " + settings.getResolverNames());
-        }
-        if (toResolver == null) {
-            throw new IllegalArgumentException("unknown resolver " + to
-                    + ". Available resolvers are: " + settings.getResolverNames());
-        }
-        PatternMatcher matcher = settings.getMatcher(options.getMatcherName());
-        if (matcher == null) {
-            throw new IllegalArgumentException("unknown matcher " + options.getMatcherName()
-                    + ". Available matchers are: " + settings.getMatcherNames());
-        }
+        DependencyResolver fromResolver = getResolver(from);
+        DependencyResolver toResolver = getResolver(to);
+        PatternMatcher matcher = getMatcher(options);
 
         // build module file declaring the dependency
         Message.info(":: installing " + mrid + " ::");
-        DependencyResolver oldDicator = resolveEngine.getDictatorResolver();
+        // the dictator is only set in this thread, the resolves in progress in other threads
+        // still use their own resolvers
+        IvyContext context = IvyContext.getContext();
+        DependencyResolver oldDicator = context.getDictatorResolver();
         boolean log = settings.logNotConvertedExclusionRule();
         try {
             settings.setLogNotConvertedExclusionRule(true);
-            resolveEngine.setDictatorResolver(fromResolver);
+            context.setDictatorResolver(fromResolver);
 
             DefaultModuleDescriptor md = new DefaultModuleDescriptor(ModuleRevisionId.newInstance(
                 "apache", "ivy-install", "1.0"), settings.getStatusManager().getDefaultStatus(),
@@ -180,9 +195,312 @@ public class InstallEngine {
             // IVY-834: log the problems if there were any...
             Message.sumupProblems();
 
-            resolveEngine.setDictatorResolver(oldDicator);
+            context.setDictatorResolver(oldDicator);
             settings.setLogNotConvertedExclusionRule(log);
         }
     }
 
+    /**
+     * Installs all the module revisions matching the given one, found in the from resolver, in
+     * the to resolver.
+     * <p>
+     * Contrary to {@link #install(ModuleRevisionId, String, String, InstallOptions)}, the modules
+     * are not resolved together first: the install runs as a pipeline, in which each module found
+     * by the search has its metadata fetched, and is then downloaded and published on its own, by
+     * options.getThreads() threads for each of these two stages. This is meant to mirror a large
+     * set of modules, so the dependencies are not installed, whatever the transitive option. The
+     * downloads run concurrently, but the modules are published one at a time in the to resolver,
+     * whose publish transaction cannot be shared.
+     * </p>
+     * <p>
+     * The modules already present in the target resolver, with the same content, are not
+     * published again. The modules installed are recorded in the checkpoint file of the options,
+     * if any, so that an interrupted install can be resumed. The failure of a module does not stop
+     * the install of the others, it is reported in the returned report.
+     * </p>
+     */
+    public BulkInstallReport bulkInstall(ModuleRevisionId mrid, String from, String to,
+            InstallOptions options) throws IOException {
+        DependencyResolver fromResolver = getResolver(from);
+        DependencyResolver toResolver = getResolver(to);
+        PatternMatcher matcher = getMatcher(options);
+
+        Message.info(":: bulk installing " + mrid + " ::");
+        long start = System.currentTimeMillis();
+        BulkInstallReport report = new BulkInstallReport();
+        InstallCheckpoint checkpoint = new InstallCheckpoint(options.getCheckpoint());
+        ExecutorService metadataExecutor = newExecutor("ivy-install-metadata", options);
+        ExecutorService artifactsExecutor = newExecutor("ivy-install-artifacts", options);
+        BulkInstall install = new BulkInstall(fromResolver, toResolver, options, report,
+                checkpoint, artifactsExecutor);
+        boolean complete = false;
+        try {
+            ModuleRevisionId[] mrids;
+            if (MatcherHelper.isExact(matcher, mrid)) {
+                mrids = new ModuleRevisionId[] {mrid};
+            } else {
+                mrids = searchEngine.listModules(fromResolver, mrid, matcher);
+            }
+            Message.verbose("\tfound " + mrids.length + " modules to install");
+            List/* <Future<Future>> */fetches = new ArrayList(mrids.length);
+            for (int i = 0; i < mrids.length; i++) {
+                fetches.add(metadataExecutor.submit(install.fetch(mrids[i])));
+            }
+            for (Iterator it = fetches.iterator(); it.hasNext();) {
+                Future publish = (Future) ((Future) it.next()).get();
+                if (publish != null) {
+                    publish.get();
+                }
+            }
+            complete = !report.hasError();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("bulk install of " + mrid + " interrupted");
+        } catch (ExecutionException e) {
+            // the tasks catch their exceptions, only errors can get here
+            throw (Error) e.getCause();
+        } finally {
+            metadataExecutor.shutdownNow();
+            artifactsExecutor.shutdownNow();
+            checkpoint.close(complete);
+            Message.sumupProblems();
+        }
+        report.setDuration(System.currentTimeMillis() - start);
+        Message.info(":: bulk install of " + mrid + " done: " + report);
+        return report;
+    }
+
+    private ExecutorService newExecutor(final String name, InstallOptions options) {
+        return Executors.newFixedThreadPool(Math.max(options.getThreads(), 1),
+            new ThreadFactory() {
+                public Thread newThread(Runnable r) {
+                    Thread thread = new Thread(r, name);
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+    }
+
+    private DependencyResolver getResolver(String name) {
+        DependencyResolver resolver = settings.getResolver(name);
+        if (resolver == null) {
+            throw new IllegalArgumentException("unknown resolver " + name
+                    + ". Available resolvers are: " + settings.getResolverNames());
+        }
+        return resolver;
+    }
+
+    private PatternMatcher getMatcher(InstallOptions options) {
+        PatternMatcher matcher = settings.getMatcher(options.getMatcherName());
+        if (matcher == null) {
+            throw new IllegalArgumentException("unknown matcher " + options.getMatcherName()
+                    + ". Available matchers are: " + settings.getMatcherNames());
+        }
+        return matcher;
+    }
+
+    /**
+     * The two stages of a bulk install: the fetch of the metadata of a module, which hands the
+     * module over to the install of its artifacts.
+     */
+    private class BulkInstall {
+        private final DependencyResolver fromResolver;
+
+        private final DependencyResolver toResolver;
+
+        private final InstallOptions options;
+
+        private final BulkInstallReport report;
+
+        private final InstallCheckpoint checkpoint;
+
+        private final ExecutorService artifactsExecutor;
+
+        private final ResolveOptions resolveOptions;
+
+        BulkInstall(DependencyResolver fromResolver, DependencyResolver toResolver,
+                InstallOptions options, BulkInstallReport report, InstallCheckpoint checkpoint,
+                ExecutorService artifactsExecutor) {
+            this.fromResolver = fromResolver;
+            this.toResolver = toResolver;
+            this.options = options;
+            this.report = report;
+            this.checkpoint = checkpoint;
+            this.artifactsExecutor = artifactsExecutor;
+            this.resolveOptions = new ResolveOptions().setValidate(options.isValidate());
+        }
+
+        /**
+         * @return the task fetching the metadata of the given module, which returns the future of
+         *         the install of the module, or null if it is not to be installed
+         */
+        Callable fetch(final ModuleRevisionId mrid) {
+            final IvyContext context = new IvyContext(IvyContext.getContext());
+            return new Callable() {
+                public Object call() {
+                    IvyContext.pushContext(context);
+                    try {
+                        if (checkpoint.isDone(mrid)) {
+                            Message.verbose("\t" + mrid + " already installed by a previous run");
+                            report.addResumed(mrid);
+                            return null;
+                        }
+                        ResolvedModuleRevision rmr = fromResolver.getDependency(
+                            new DefaultDependencyDescriptor(mrid, false), newResolveData());
+                        if (rmr == null) {
+                            fail(mrid, "module not found in " + fromResolver.getName());
+                            return null;
+                        }
+                        return artifactsExecutor.submit(install(rmr));
+                    } catch (Exception e) {
+                        fail(mrid, e.toString());
+                        return null;
+                    } finally {
+                        IvyContext.popContext();
+                    }
+                }
+            };
+        }
+
+        private Callable install(final ResolvedModuleRevision rmr) {
+            final IvyContext context = new IvyContext(IvyContext.getContext());
+            return new Callable() {
+                public Object call() {
+                    IvyContext.pushContext(context);
+                    ModuleRevisionId mrid = rmr.getId();
+                    try {
+                        install(rmr, mrid);
+                    } catch (Exception e) {
+                        fail(mrid, e.toString());
+                    } finally {
+                        IvyContext.popContext();
+                    }
+                    return null;
+                }
+            };
+        }
+
+        private void install(ResolvedModuleRevision rmr, ModuleRevisionId mrid)
+                throws IOException {
+            IvyContext.getContext().checkInterrupted();
+            ModuleDescriptor md = rmr.getDescriptor();
+            File localIvyFile = rmr.getReport().getLocalFile();
+            if (localIvyFile == null) {
+                throw new IOException("no metadata found for " + mrid);
+            }
+            ArtifactDownloadReport[] artifacts = fromResolver.download(getArtifacts(md),
+                new DownloadOptions()).getArtifactsReports();
+            for (int i = 0; i < artifacts.length; i++) {
+                if (artifacts[i].getDownloadStatus() == DownloadStatus.FAILED) {
+                    throw new IOException("impossible to download " + artifacts[i].getArtifact());
+                }
+            }
+
+            if (isInstalled(md, localIvyFile, artifacts)) {
+                Message.verbose("\t" + mrid + " already installed in " + toResolver.getName());
+                report.addUpToDate(mrid);
+                checkpoint.done(mrid);
+                return;
+            }
+
+            Message.verbose("installing " + mrid);
+            // the resolvers keep the state of the publish transaction in progress, so the modules
+            // are published one at a time in the target resolver
+            synchronized (toResolver) {
+                boolean successfullyPublished = false;
+                try {
+                    toResolver.beginPublishTransaction(mrid, options.isOverwrite());
+                    for (int i = 0; i < artifacts.length; i++) {
+                        if (artifacts[i].getLocalFile() != null) {
+                            toResolver.publish(artifacts[i].getArtifact(),
+                                artifacts[i].getLocalFile(), options.isOverwrite());
+                        }
+                    }
+                    toResolver.publish(md.getMetadataArtifact(), localIvyFile,
+                        options.isOverwrite());
+                    toResolver.commitPublishTransaction();
+                    successfullyPublished = true;
+                } finally {
+                    if (!successfullyPublished) {
+                        toResolver.abortPublishTransaction();
+                    }
+                }
+            }
+            report.addInstalled(mrid);
+            checkpoint.done(mrid);
+        }
+
+        private Artifact[] getArtifacts(ModuleDescriptor md) {
+            Set/* <Artifact> */artifacts = new LinkedHashSet();
+            String[] confs = ConfigurationUtils.replaceWildcards(options.getConfs(), md);
+            for (int i = 0; i < confs.length; i++) {
+                Artifact[] confArtifacts = md.getArtifacts(confs[i].trim());
+                for (int j = 0; j < confArtifacts.length; j++) {
+                    if (options.getArtifactFilter().accept(confArtifacts[j])) {
+                        artifacts.add(confArtifacts[j]);
+                    }
+                }
+            }
+            return (Artifact[]) artifacts.toArray(new Artifact[artifacts.size()]);
+        }
+
+        /**
+         * @return true if the metadata and all the artifacts of the module are already in the
+         *         target resolver, with the same content
+         */
+        private boolean isInstalled(ModuleDescriptor md, File localIvyFile,
+                ArtifactDownloadReport[] artifacts) throws IOException {
+            if (!(toResolver instanceof BasicResolver)) {
+                return false;
+            }
+            ResolvedResource ivyRef = toResolver.findIvyFileRef(new DefaultDependencyDescriptor(
+                    md.getModuleRevisionId(), false), newResolveData());
+            if (ivyRef == null || !isSameContent(localIvyFile, ivyRef.getResource())) {
+                return false;
+            }
+            for (int i = 0; i < artifacts.length; i++) {
+                if (artifacts[i].getLocalFile() == null) {
+                    continue;
+                }
+                ResolvedResource artifactRef = ((BasicResolver) toResolver).doFindArtifactRef(
+                    artifacts[i].getArtifact(), null);
+                if (artifactRef == null
+                        || !isSameContent(artifacts[i].getLocalFile(), artifactRef.getResource())) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Compares the checksums of the given file and resource, using the checksum published
+         * next to the resource when there is one.
+         */
+        private boolean isSameContent(File file, Resource resource) throws IOException {
+            if (!resource.exists()) {
+                return false;
+            }
+            if (resource.getContentLength() > 0 && resource.getContentLength() != file.length()) {
+                return false;
+            }
+            String actual;
+            Resource checksum = resource.clone(resource.getName() + ".sha1");
+            if (checksum.exists()) {
+                actual = ChecksumHelper.readChecksum(FileUtil.readEntirely(new BufferedReader(
+                        new InputStreamReader(checksum.openStream()))));
+            } else {
+                actual = ChecksumHelper.computeAsString(resource.openStream(), "sha1");
+            }
+            return actual.equals(ChecksumHelper.computeAsString(file, "sha1"));
+        }
+
+        private ResolveData newResolveData() {
+            return new ResolveData(resolveEngine, resolveOptions);
+        }
+
+        private void fail(ModuleRevisionId mrid, String message) {
+            Message.warn("impossible to install " + mrid + ": " + message);
+            report.addFailure(mrid, message);
+        }
+    }
 }
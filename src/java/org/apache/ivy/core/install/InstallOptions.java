@@ -17,6 +17,8 @@
  */
 package org.apache.ivy.core.install;
 
+import java.io.File;
+
 import org.apache.ivy.plugins.matcher.PatternMatcher;
 import org.apache.ivy.util.filter.Filter;
 import org.apache.ivy.util.filter.FilterHelper;
@@ -28,6 +30,8 @@ public class InstallOptions {
     private String[] confs = {"*"};
     private Filter artifactFilter = FilterHelper.NO_FILTER;
     private String matcherName = PatternMatcher.EXACT;
+    private int threads = 4;
+    private File checkpoint;
     
     public boolean isTransitive() {
         return transitive;
@@ -71,4 +75,26 @@ public class InstallOptions {
         this.confs = conf;
         return this;
     }
+    public int getThreads() {
+        return threads;
+    }
+    /**
+     * Sets the number of modules which can be fetched, and the number of modules which can be
+     * published, at the same time by a bulk install.
+     */
+    public InstallOptions setThreads(int threads) {
+        this.threads = threads;
+        return this;
+    }
+    public File getCheckpoint() {
+        return checkpoint;
+    }
+    /**
+     * Sets the file in which a bulk install records the modules it has installed, so that it can
+     * be resumed if interrupted. The file is deleted once the install completes without error.
+     */
+    public InstallOptions setCheckpoint(File checkpoint) {
+        this.checkpoint = checkpoint;
+        return this;
+    }
 }
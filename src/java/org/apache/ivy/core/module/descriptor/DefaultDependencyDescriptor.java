@@ -450,6 +450,23 @@ public class DefaultDependencyDescriptor implements DependencyDescriptor {
         return null;
     }
 
+    /**
+     * Returns the dependency configurations mapped to the given module configuration exactly as
+     * they have been added with {@link #addDependencyConfiguration(String, String)}, without any
+     * interpretation of fallbacks, extending configurations or intersections.
+     * 
+     * @param moduleConfiguration
+     *            the module configuration as used when the mapping has been added
+     * @return the raw dependency configurations, never null
+     */
+    public String[] getRawDependencyConfigurations(String moduleConfiguration) {
+        List confsList = (List) confs.get(moduleConfiguration);
+        if (confsList == null) {
+            return new String[0];
+        }
+        return (String[]) confsList.toArray(new String[confsList.size()]);
+    }
+
     public String[] getDependencyConfigurations(String[] moduleConfigurations) {
         Set confs = new LinkedHashSet();
         for (int i = 0; i < moduleConfigurations.length; i++) {
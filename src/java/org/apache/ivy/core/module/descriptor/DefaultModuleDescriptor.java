@@ -632,6 +632,10 @@ public class DefaultModuleDescriptor implements ModuleDescriptor {
         return dd;
     }
 
+    public ModuleRules/* <ConflictManager> */getAllConflictManagers() {
+        return (ModuleRules) conflictManagers.clone();
+    }
+
     public ModuleRules/* <DependencyDescriptorMediator> */getAllDependencyDescriptorMediators() {
         return (ModuleRules) dependencyDescriptorMediators.clone();
     }
@@ -30,9 +30,19 @@ import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.Map.Entry;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.ivy.core.IvyContext;
 import org.apache.ivy.core.IvyPatternHelper;
@@ -221,6 +231,7 @@ public class PublishEngine {
                 missing.add(artifact);
             }
         }
+        Artifact ivyArtifact = null;
         if (options.getSrcIvyPattern() != null) {
             Artifact artifact = MDArtifact.newIvyArtifact(md);
             File artifactFile = settings.resolveFile(
@@ -239,6 +250,7 @@ public class PublishEngine {
                 missing.add(artifact);
             } else {
                 artifactsFiles.put(artifact, artifactFile);
+                ivyArtifact = artifact;
             }
         }
         
@@ -246,12 +258,21 @@ public class PublishEngine {
         boolean successfullyPublished = false;
         try {
             resolver.beginPublishTransaction(md.getModuleRevisionId(), options.isOverwrite());
-            // for each declared published artifact in this descriptor, do:
-            for (Iterator iter = artifactsFiles.entrySet().iterator(); iter.hasNext();) {
-                Map.Entry entry = (Entry) iter.next();
-                Artifact artifact = (Artifact) entry.getKey();
-                File artifactFile = (File) entry.getValue();
-                publish(artifact, artifactFile, resolver, options.isOverwrite());
+            // the ivy file is published last, once all the artifacts it declares are
+            File ivyFile = (File) artifactsFiles.remove(ivyArtifact);
+            if (options.getThreads() > 1 && artifactsFiles.size() > 1) {
+                publishConcurrently(artifactsFiles, resolver, options);
+            } else {
+                // for each declared published artifact in this descriptor, do:
+                for (Iterator iter = artifactsFiles.entrySet().iterator(); iter.hasNext();) {
+                    Map.Entry entry = (Entry) iter.next();
+                    Artifact artifact = (Artifact) entry.getKey();
+                    File artifactFile = (File) entry.getValue();
+                    publish(artifact, artifactFile, resolver, options.isOverwrite());
+                }
+            }
+            if (ivyFile != null) {
+                publish(ivyArtifact, ivyFile, resolver, options.isOverwrite());
             }
             resolver.commitPublishTransaction();
             successfullyPublished = true;
@@ -263,6 +284,94 @@ public class PublishEngine {
         return missing;
     }
 
+    /**
+     * Publishes the given artifacts using up to options.getThreads() threads. If the publication of
+     * an artifact fails, the publications not started yet are cancelled, and this method returns
+     * only once the publications in progress are finished, so that the transaction can be safely
+     * aborted.
+     */
+    private void publishConcurrently(Map/*<Artifact,File>*/ artifactsFiles,
+            final DependencyResolver resolver, PublishOptions options) throws IOException {
+        final boolean overwrite = options.isOverwrite();
+        final String name = "ivy-publish-" + resolver.getName();
+        ExecutorService executor = Executors.newFixedThreadPool(
+            Math.min(options.getThreads(), artifactsFiles.size()), new ThreadFactory() {
+                public Thread newThread(Runnable r) {
+                    Thread thread = new Thread(r, name);
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        CompletionService completion = new ExecutorCompletionService(executor);
+        List/*<Future>*/ futures = new ArrayList();
+        try {
+            for (Iterator iter = artifactsFiles.entrySet().iterator(); iter.hasNext();) {
+                Map.Entry entry = (Entry) iter.next();
+                final Artifact artifact = (Artifact) entry.getKey();
+                final File artifactFile = (File) entry.getValue();
+                final IvyContext context = new IvyContext(IvyContext.getContext());
+                futures.add(completion.submit(new Callable() {
+                    public Object call() throws Exception {
+                        IvyContext.pushContext(context);
+                        try {
+                            publish(artifact, artifactFile, resolver, overwrite);
+                            return null;
+                        } finally {
+                            IvyContext.popContext();
+                        }
+                    }
+                }));
+            }
+            for (int i = 0; i < futures.size(); i++) {
+                try {
+                    completion.take().get();
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    if (cause instanceof IOException) {
+                        throw (IOException) cause;
+                    } else if (cause instanceof RuntimeException) {
+                        throw (RuntimeException) cause;
+                    } else if (cause instanceof Error) {
+                        throw (Error) cause;
+                    }
+                    IOException ioe = new IOException("publish failed: " + cause);
+                    ioe.initCause(cause);
+                    throw ioe;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("publish interrupted");
+        } finally {
+            for (Iterator iter = futures.iterator(); iter.hasNext();) {
+                ((Future) iter.next()).cancel(false);
+            }
+            executor.shutdown();
+            awaitTermination(executor);
+        }
+    }
+
+    private void awaitTermination(ExecutorService executor) {
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    if (executor.awaitTermination(1, TimeUnit.SECONDS)) {
+                        return;
+                    }
+                    Message.verbose("\twaiting for the artifacts being published...");
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                    executor.shutdownNow();
+                }
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
     private void publish(Artifact artifact, File src,
             DependencyResolver resolver, boolean overwrite) throws IOException {
         IvyContext.getContext().checkInterrupted();
@@ -270,15 +379,19 @@ public class PublishEngine {
         eventManager.fireIvyEvent(
             new StartArtifactPublishEvent(resolver, artifact, src, overwrite));
         boolean successful = false; //set to true once the publish succeeds
+        long start = System.currentTimeMillis();
         try {
             if (src.exists()) {
                 resolver.publish(artifact, src, overwrite);
                 successful = true;
             }
         } finally {
+            long duration = System.currentTimeMillis() - start;
+            Message.verbose("\t" + artifact + (successful ? " published" : " not published")
+                + " (" + duration + "ms)");
             //notify triggers that the publish is finished, successfully or not.
-            eventManager.fireIvyEvent(
-                new EndArtifactPublishEvent(resolver, artifact, src, overwrite, successful));
+            eventManager.fireIvyEvent(new EndArtifactPublishEvent(
+                resolver, artifact, src, overwrite, successful, duration));
         }
     }
 }
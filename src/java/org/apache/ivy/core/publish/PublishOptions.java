@@ -63,6 +63,8 @@ public class PublishOptions {
 
     private boolean warnonmissing;
 
+    private int threads = 1;
+
     public String[] getConfs() {
         return confs;
     }
@@ -180,4 +182,16 @@ public class PublishOptions {
         return this;
     }
 
+    public int getThreads() {
+        return threads;
+    }
+
+    /**
+     * Sets the number of artifacts which can be uploaded concurrently. The ivy file is always
+     * published last, once all the other artifacts have been successfully published.
+     */
+    public PublishOptions setThreads(int threads) {
+        this.threads = threads;
+        return this;
+    }
 }
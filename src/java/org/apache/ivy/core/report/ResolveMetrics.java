@@ -0,0 +1,280 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.ivy.core.report;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.ivy.core.IvyContext;
+import org.apache.ivy.core.resolve.ResolveData;
+
+/**
+ * The measures taken during a resolve, telling what its time went to.
+ * <p>
+ * The metrics are made of four groups of values:
+ * </p>
+ * <ul>
+ * <li>the time spent in each phase of the resolve, in milliseconds</li>
+ * <li>the time spent in each resolver to find the module metadata, in milliseconds. The time of a
+ * chain includes the time of its resolvers.</li>
+ * <li>the time spent in each conflict manager, in milliseconds</li>
+ * <li>counters, like the cache hits and misses or the HTTP requests</li>
+ * </ul>
+ * <p>
+ * The phases overlap: parsing happens while the metadata are fetched, and the lock waits happen
+ * in all the phases.
+ * </p>
+ * <p>
+ * The metrics are filled by all the threads working for the same resolve. The metrics of the
+ * resolve in progress in the current thread are available with {@link #current()}.
+ * </p>
+ */
+public class ResolveMetrics {
+    /** the time spent loading the settings used by the resolve */
+    public static final String PHASE_SETTINGS = "settings";
+
+    /** the time spent finding the module metadata in the resolvers, including the cache */
+    public static final String PHASE_METADATA = "metadata";
+
+    /** the time spent parsing module descriptors */
+    public static final String PHASE_PARSE = "parse";
+
+    /** the time spent in the conflict managers */
+    public static final String PHASE_CONFLICTS = "conflicts";
+
+    /** the time spent downloading the artifacts, including the cache */
+    public static final String PHASE_DOWNLOAD = "download";
+
+    /** the time spent writing the reports */
+    public static final String PHASE_REPORT = "report";
+
+    /** the number of module descriptors found in the cache */
+    public static final String CACHE_METADATA_HIT = "cache.metadata.hit";
+
+    /** the number of module descriptors not found, or not usable, in the cache */
+    public static final String CACHE_METADATA_MISS = "cache.metadata.miss";
+
+    /** the number of artifacts found in the cache */
+    public static final String CACHE_ARTIFACT_HIT = "cache.artifact.hit";
+
+    /** the number of artifacts downloaded to the cache */
+    public static final String CACHE_ARTIFACT_MISS = "cache.artifact.miss";
+
+    /** the number of HTTP requests */
+    public static final String HTTP_REQUESTS = "http.requests";
+
+    /** the number of bytes downloaded by HTTP */
+    public static final String HTTP_BYTES = "http.bytes";
+
+    /** the time spent waiting for the cache locks, in milliseconds */
+    public static final String LOCK_WAIT_TIME = "lock.wait.time";
+
+    private final ConcurrentMap/* <String, AtomicLong> */phases = new ConcurrentHashMap();
+
+    private final ConcurrentMap/* <String, AtomicLong> */resolvers = new ConcurrentHashMap();
+
+    private final ConcurrentMap/* <String, AtomicLong> */conflictManagers =
+        new ConcurrentHashMap();
+
+    private final ConcurrentMap/* <String, AtomicLong> */counters = new ConcurrentHashMap();
+
+    /**
+     * Returns the metrics of the resolve in progress in the current thread, or <code>null</code>
+     * if no resolve is in progress.
+     */
+    public static ResolveMetrics current() {
+        ResolveData data = IvyContext.getContext().getResolveData();
+        return data == null ? null : data.getMetrics();
+    }
+
+    public void addPhaseTime(String phase, long time) {
+        add(phases, phase, time);
+    }
+
+    public void addResolverTime(String resolver, long time) {
+        add(resolvers, resolver, time);
+    }
+
+    public void addConflictManagerTime(String conflictManager, long time) {
+        add(conflictManagers, conflictManager, time);
+    }
+
+    public void increment(String counter) {
+        add(counters, counter, 1);
+    }
+
+    public void add(String counter, long value) {
+        add(counters, counter, value);
+    }
+
+    public long getPhaseTime(String phase) {
+        return get(phases, phase);
+    }
+
+    public long getResolverTime(String resolver) {
+        return get(resolvers, resolver);
+    }
+
+    public long getConflictManagerTime(String conflictManager) {
+        return get(conflictManagers, conflictManager);
+    }
+
+    public long getCount(String counter) {
+        return get(counters, counter);
+    }
+
+    /**
+     * @return the time spent in each phase, by phase name, sorted by name
+     */
+    public SortedMap/* <String, Long> */getPhaseTimes() {
+        return snapshot(phases);
+    }
+
+    /**
+     * @return the time spent in each resolver, by resolver name, sorted by name
+     */
+    public SortedMap/* <String, Long> */getResolverTimes() {
+        return snapshot(resolvers);
+    }
+
+    /**
+     * @return the time spent in each conflict manager, by conflict manager name, sorted by name
+     */
+    public SortedMap/* <String, Long> */getConflictManagerTimes() {
+        return snapshot(conflictManagers);
+    }
+
+    /**
+     * @return the counters, by name, sorted by name
+     */
+    public SortedMap/* <String, Long> */getCounts() {
+        return snapshot(counters);
+    }
+
+    /**
+     * Returns all the metrics as a flat map, with the names of the phases prefixed by "phase.",
+     * the names of the resolvers by "resolver." and the names of the conflict managers by
+     * "conflict-manager.".
+     */
+    public SortedMap/* <String, Long> */toMap() {
+        SortedMap map = new TreeMap();
+        putAll(map, "phase.", phases);
+        putAll(map, "resolver.", resolvers);
+        putAll(map, "conflict-manager.", conflictManagers);
+        putAll(map, "", counters);
+        return Collections.unmodifiableSortedMap(map);
+    }
+
+    /**
+     * Writes the metrics to the given file, as a JSON object with the phases, resolvers,
+     * conflictManagers and counters members.
+     */
+    public void writeJSON(File file) throws IOException {
+        if (file.getParentFile() != null) {
+            file.getParentFile().mkdirs();
+        }
+        PrintWriter out = new PrintWriter(new OutputStreamWriter(new FileOutputStream(file),
+                "UTF-8"));
+        try {
+            out.println("{");
+            writeJSON(out, "phases", phases, false);
+            writeJSON(out, "resolvers", resolvers, false);
+            writeJSON(out, "conflictManagers", conflictManagers, false);
+            writeJSON(out, "counters", counters, true);
+            out.println("}");
+        } finally {
+            out.close();
+        }
+    }
+
+    public String toString() {
+        return toMap().toString();
+    }
+
+    private static void writeJSON(PrintWriter out, String name, Map values, boolean last) {
+        out.print("  \"" + name + "\": {");
+        boolean first = true;
+        for (Iterator it = snapshot(values).entrySet().iterator(); it.hasNext();) {
+            Map.Entry entry = (Map.Entry) it.next();
+            out.print(first ? "\n" : ",\n");
+            out.print("    " + quote((String) entry.getKey()) + ": " + entry.getValue());
+            first = false;
+        }
+        out.println(first ? "}" + (last ? "" : ",") : "\n  }" + (last ? "" : ","));
+    }
+
+    private static String quote(String s) {
+        StringBuffer buffer = new StringBuffer(s.length() + 2);
+        buffer.append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '"' || c == '\\') {
+                buffer.append('\\').append(c);
+            } else if (c < ' ') {
+                String hex = Integer.toHexString(c);
+                buffer.append("\\u0000".substring(0, 6 - hex.length())).append(hex);
+            } else {
+                buffer.append(c);
+            }
+        }
+        return buffer.append('"').toString();
+    }
+
+    private static void add(ConcurrentMap values, String name, long value) {
+        // the resolvers and conflict managers may have no name
+        name = String.valueOf(name);
+        AtomicLong total = (AtomicLong) values.get(name);
+        if (total == null) {
+            AtomicLong newTotal = new AtomicLong();
+            total = (AtomicLong) values.putIfAbsent(name, newTotal);
+            if (total == null) {
+                total = newTotal;
+            }
+        }
+        total.addAndGet(value);
+    }
+
+    private static long get(Map values, String name) {
+        AtomicLong value = (AtomicLong) values.get(name);
+        return value == null ? 0 : value.get();
+    }
+
+    private static SortedMap snapshot(Map values) {
+        SortedMap map = new TreeMap();
+        putAll(map, "", values);
+        return Collections.unmodifiableSortedMap(map);
+    }
+
+    private static void putAll(Map map, String prefix, Map values) {
+        for (Iterator it = values.entrySet().iterator(); it.hasNext();) {
+            Map.Entry entry = (Map.Entry) it.next();
+            map.put(prefix + entry.getKey(), new Long(((AtomicLong) entry.getValue()).get()));
+        }
+    }
+}
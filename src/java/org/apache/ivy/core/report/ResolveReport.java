@@ -62,6 +62,10 @@ public class ResolveReport {
 
     private long downloadSize;
 
+    private long heapPerNode;
+
+    private ResolveMetrics metrics;
+
     public ResolveReport(ModuleDescriptor md) {
         this(md, ResolveOptions.getDefaultResolveId(md));
     }
@@ -321,6 +325,37 @@ public class ResolveReport {
         return downloadSize;
     }
 
+    public void setHeapPerNode(long heapPerNode) {
+        this.heapPerNode = heapPerNode;
+    }
+
+    /**
+     * The heap taken by the per configuration state of the nodes of the dependency graph built
+     * during the resolve, divided by its number of nodes, in bytes.
+     * <p>
+     * This is estimated from the configuration sets and maps held by the nodes, so it doesn't
+     * depend on the other activity of the JVM, but it doesn't include the module descriptors nor
+     * the maps which are not keyed by configuration.
+     * </p>
+     * 
+     * @return The average heap used per node of the dependency graph, in bytes.
+     */
+    public long getHeapPerNode() {
+        return heapPerNode;
+    }
+
+    public void setMetrics(ResolveMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Returns the metrics of the resolve, telling what its time went to, or <code>null</code> if
+     * this report has not been produced by a resolve.
+     */
+    public ResolveMetrics getMetrics() {
+        return metrics;
+    }
+
     public String getResolveId() {
         return resolveId;
     }
@@ -0,0 +1,88 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.ivy.core.resolve;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Interns the configuration names used during a resolve to small int ids, so that the per
+ * configuration data of the nodes can be kept in {@link ConfigurationSet}s and
+ * {@link ConfigurationMap}s.
+ * <p>
+ * An instance is shared by the {@link ResolveData} of a resolve and its copies, so the names are
+ * released with the resolve. The ids are never reused within a resolve: the configuration names
+ * are few, even counting the fallback and wildcard expressions. This class is thread safe.
+ * </p>
+ */
+final class ConfigurationIds {
+    private final ConcurrentMap/* <String, Integer> */ids = new ConcurrentHashMap();
+
+    private volatile String[] names = new String[16];
+
+    private int count = 0;
+
+    /**
+     * Returns the id of the given configuration, allocating one if needed.
+     */
+    int getId(String conf) {
+        Integer id = (Integer) ids.get(conf);
+        if (id != null) {
+            return id.intValue();
+        }
+        synchronized (this) {
+            id = (Integer) ids.get(conf);
+            if (id == null) {
+                String[] n = names;
+                if (count == n.length) {
+                    String[] grown = new String[n.length * 2];
+                    System.arraycopy(n, 0, grown, 0, n.length);
+                    n = grown;
+                }
+                // the name is published before the id, so that getName never misses it
+                n[count] = conf;
+                names = n;
+                id = new Integer(count++);
+                ids.put(conf, id);
+            }
+            return id.intValue();
+        }
+    }
+
+    /**
+     * Returns the id of the given configuration, or -1 if none has been allocated to it.
+     */
+    int lookup(Object conf) {
+        if (!(conf instanceof String)) {
+            return -1;
+        }
+        Integer id = (Integer) ids.get(conf);
+        return id == null ? -1 : id.intValue();
+    }
+
+    String getName(int id) {
+        return names[id];
+    }
+
+    /**
+     * Returns the number of configurations interned so far.
+     */
+    synchronized int size() {
+        return count;
+    }
+}
@@ -0,0 +1,241 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.ivy.core.resolve;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * A map keyed by configuration names, stored as two parallel arrays sorted by the
+ * {@link ConfigurationIds ids} of the configurations in the resolve.
+ * <p>
+ * The nodes have few entries per configuration map, for which this takes a fraction of the memory
+ * of a {@link java.util.HashMap}, and a lookup is a binary search in a couple of ints. The entries
+ * are iterated in the order in which the configurations have been interned. Null keys are not
+ * supported.
+ * </p>
+ */
+final class ConfigurationMap extends AbstractMap/* <String, V> */{
+    private static final int[] NO_IDS = new int[0];
+
+    private static final Object[] NO_VALUES = new Object[0];
+
+    /**
+     * The approximate heap taken by an empty map, in bytes.
+     */
+    private static final int EMPTY_SIZE = 32;
+
+    /**
+     * The approximate heap taken by the header of an array, and by an int or a reference in an
+     * array, in bytes.
+     */
+    private static final int ARRAY_HEADER_SIZE = 16;
+
+    private static final int SLOT_SIZE = 4;
+
+    private final ConfigurationIds confIds;
+
+    private int[] ids = NO_IDS;
+
+    private Object[] values = NO_VALUES;
+
+    private int size = 0;
+
+    ConfigurationMap(ConfigurationIds confIds) {
+        this.confIds = confIds;
+    }
+
+    private int indexOf(Object conf) {
+        int id = confIds.lookup(conf);
+        return id < 0 ? -1 : Arrays.binarySearch(ids, 0, size, id);
+    }
+
+    public Object get(Object conf) {
+        int index = indexOf(conf);
+        return index < 0 ? null : values[index];
+    }
+
+    public boolean containsKey(Object conf) {
+        return indexOf(conf) >= 0;
+    }
+
+    public Object put(Object conf, Object value) {
+        int id = confIds.getId((String) conf);
+        int index = Arrays.binarySearch(ids, 0, size, id);
+        if (index >= 0) {
+            Object previous = values[index];
+            values[index] = value;
+            return previous;
+        }
+        index = -index - 1;
+        if (size == ids.length) {
+            int capacity = size < 2 ? 2 : size + (size >> 1);
+            int[] newIds = new int[capacity];
+            Object[] newValues = new Object[capacity];
+            System.arraycopy(ids, 0, newIds, 0, size);
+            System.arraycopy(values, 0, newValues, 0, size);
+            ids = newIds;
+            values = newValues;
+        }
+        System.arraycopy(ids, index, ids, index + 1, size - index);
+        System.arraycopy(values, index, values, index + 1, size - index);
+        ids[index] = id;
+        values[index] = value;
+        size++;
+        return null;
+    }
+
+    public Object remove(Object conf) {
+        int index = indexOf(conf);
+        if (index < 0) {
+            return null;
+        }
+        Object previous = values[index];
+        removeAt(index);
+        return previous;
+    }
+
+    private void removeAt(int index) {
+        System.arraycopy(ids, index + 1, ids, index, size - index - 1);
+        System.arraycopy(values, index + 1, values, index, size - index - 1);
+        size--;
+        values[size] = null;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void clear() {
+        ids = NO_IDS;
+        values = NO_VALUES;
+        size = 0;
+    }
+
+    /**
+     * @return an estimate of the heap taken by this map, in bytes, including the configuration
+     *         sets and maps it contains but not its other values
+     */
+    long getEstimatedSize() {
+        long estimate = EMPTY_SIZE;
+        if (ids.length > 0) {
+            estimate += 2 * (ARRAY_HEADER_SIZE + SLOT_SIZE * ids.length);
+        }
+        for (int i = 0; i < size; i++) {
+            estimate += estimateSize(values[i]);
+        }
+        return estimate;
+    }
+
+    /**
+     * @return an estimate of the heap taken by the given value if it is a {@link ConfigurationSet}
+     *         or a {@link ConfigurationMap}, in bytes, 0 otherwise
+     */
+    static long estimateSize(Object value) {
+        if (value instanceof ConfigurationSet) {
+            return ((ConfigurationSet) value).getEstimatedSize();
+        }
+        if (value instanceof ConfigurationMap) {
+            return ((ConfigurationMap) value).getEstimatedSize();
+        }
+        return 0;
+    }
+
+    public Set entrySet() {
+        return new AbstractSet() {
+            public int size() {
+                return size;
+            }
+
+            public Iterator iterator() {
+                return new Iterator() {
+                    private int next = 0;
+
+                    private boolean removable = false;
+
+                    public boolean hasNext() {
+                        return next < size;
+                    }
+
+                    public Object next() {
+                        if (next >= size) {
+                            throw new NoSuchElementException();
+                        }
+                        removable = true;
+                        return new ConfigurationEntry(next++);
+                    }
+
+                    public void remove() {
+                        if (!removable) {
+                            throw new IllegalStateException();
+                        }
+                        removeAt(--next);
+                        removable = false;
+                    }
+                };
+            }
+        };
+    }
+
+    private final class ConfigurationEntry implements Map.Entry {
+        private final int id;
+
+        private Object value;
+
+        ConfigurationEntry(int index) {
+            id = ids[index];
+            value = values[index];
+        }
+
+        public Object getKey() {
+            return confIds.getName(id);
+        }
+
+        public Object getValue() {
+            return value;
+        }
+
+        public Object setValue(Object value) {
+            Object previous = this.value;
+            this.value = value;
+            int index = Arrays.binarySearch(ids, 0, size, id);
+            if (index >= 0) {
+                values[index] = value;
+            }
+            return previous;
+        }
+
+        public boolean equals(Object o) {
+            if (!(o instanceof Map.Entry)) {
+                return false;
+            }
+            Map.Entry e = (Map.Entry) o;
+            return getKey().equals(e.getKey())
+                    && (value == null ? e.getValue() == null : value.equals(e.getValue()));
+        }
+
+        public int hashCode() {
+            return getKey().hashCode() ^ (value == null ? 0 : value.hashCode());
+        }
+    }
+}
@@ -0,0 +1,155 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.ivy.core.resolve;
+
+import java.util.AbstractSet;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * A set of configuration names, stored as a bitset of their {@link ConfigurationIds ids} in the
+ * resolve.
+ * <p>
+ * The configurations are iterated in the order in which they have been interned. Null is not
+ * supported.
+ * </p>
+ */
+final class ConfigurationSet extends AbstractSet/* <String> */{
+    /**
+     * The approximate heap taken by an empty set: the set, its bitset and the header of the bitset
+     * words, in bytes.
+     */
+    private static final int EMPTY_SIZE = 64;
+
+    private final ConfigurationIds confIds;
+
+    private final BitSet ids = new BitSet();
+
+    ConfigurationSet(ConfigurationIds confIds) {
+        this.confIds = confIds;
+    }
+
+    ConfigurationSet(ConfigurationIds confIds, Collection/* <String> */confs) {
+        this.confIds = confIds;
+        addAll(confs);
+    }
+
+    public boolean add(Object conf) {
+        int id = confIds.getId((String) conf);
+        if (ids.get(id)) {
+            return false;
+        }
+        ids.set(id);
+        return true;
+    }
+
+    public boolean contains(Object conf) {
+        int id = confIds.lookup(conf);
+        return id >= 0 && ids.get(id);
+    }
+
+    public boolean remove(Object conf) {
+        int id = confIds.lookup(conf);
+        if (id < 0 || !ids.get(id)) {
+            return false;
+        }
+        ids.clear(id);
+        return true;
+    }
+
+    public boolean addAll(Collection confs) {
+        if (isSameIds(confs)) {
+            int size = ids.cardinality();
+            ids.or(((ConfigurationSet) confs).ids);
+            return ids.cardinality() != size;
+        }
+        return super.addAll(confs);
+    }
+
+    public boolean removeAll(Collection confs) {
+        if (isSameIds(confs)) {
+            int size = ids.cardinality();
+            ids.andNot(((ConfigurationSet) confs).ids);
+            return ids.cardinality() != size;
+        }
+        boolean modified = false;
+        for (Iterator it = confs.iterator(); it.hasNext();) {
+            modified |= remove(it.next());
+        }
+        return modified;
+    }
+
+    /**
+     * @return true if the given configurations are a set using the same ids as this one, whose
+     *         bits can be combined with the ones of this set
+     */
+    private boolean isSameIds(Collection confs) {
+        return confs instanceof ConfigurationSet && ((ConfigurationSet) confs).confIds == confIds;
+    }
+
+    public int size() {
+        return ids.cardinality();
+    }
+
+    public boolean isEmpty() {
+        return ids.isEmpty();
+    }
+
+    public void clear() {
+        ids.clear();
+    }
+
+    /**
+     * @return an estimate of the heap taken by this set, in bytes
+     */
+    long getEstimatedSize() {
+        // BitSet.size() is the number of bits of the allocated words
+        return EMPTY_SIZE + ids.size() / Byte.SIZE;
+    }
+
+    public Iterator iterator() {
+        return new Iterator() {
+            private int next = ids.nextSetBit(0);
+
+            private int last = -1;
+
+            public boolean hasNext() {
+                return next >= 0;
+            }
+
+            public Object next() {
+                if (next < 0) {
+                    throw new NoSuchElementException();
+                }
+                last = next;
+                next = ids.nextSetBit(next + 1);
+                return confIds.getName(last);
+            }
+
+            public void remove() {
+                if (last < 0) {
+                    throw new IllegalStateException();
+                }
+                ids.clear(last);
+                last = -1;
+            }
+        };
+    }
+}
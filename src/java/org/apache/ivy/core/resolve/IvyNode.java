@@ -48,6 +48,7 @@ import org.apache.ivy.core.module.descriptor.ModuleDescriptor;
 import org.apache.ivy.core.module.id.ArtifactId;
 import org.apache.ivy.core.module.id.ModuleId;
 import org.apache.ivy.core.module.id.ModuleRevisionId;
+import org.apache.ivy.core.report.ResolveMetrics;
 import org.apache.ivy.core.resolve.IvyNodeCallers.Caller;
 import org.apache.ivy.core.resolve.IvyNodeEviction.EvictionData;
 import org.apache.ivy.plugins.conflict.ConflictManager;
@@ -94,15 +95,15 @@ public class IvyNode implements Comparable {
 
     private boolean searched = false;
     
-    private Collection confsToFetch = new HashSet();
+    private Collection confsToFetch;
 
-    private Collection fetchedConfigurations = new HashSet();
+    private Collection fetchedConfigurations;
 
-    private Collection loadedRootModuleConfs = new HashSet();
+    private Collection loadedRootModuleConfs;
 
     // //////// USAGE DATA
 
-    private IvyNodeUsage usage = new IvyNodeUsage(this);
+    private IvyNodeUsage usage;
     
     // usage information merged from evicted nodes this node is "replacing"
     private Map/*<ModuleRevisionId, IvyNodeUsage>*/ mergedUsages = new LinkedHashMap();
@@ -124,6 +125,11 @@ public class IvyNode implements Comparable {
     private void init(ResolveData data) {
         this.data = data;
         settings = data.getSettings();
+        ConfigurationIds confIds = data.getConfigurationIds();
+        confsToFetch = new ConfigurationSet(confIds);
+        fetchedConfigurations = new ConfigurationSet(confIds);
+        loadedRootModuleConfs = new ConfigurationSet(confIds);
+        usage = new IvyNodeUsage(this);
         eviction = new IvyNodeEviction(this);
         callers = new IvyNodeCallers(this);
     }
@@ -167,10 +173,13 @@ public class IvyNode implements Comparable {
                         new StartResolveDependencyEvent(
                             resolver, dependencyDescriptor, requestedRevisionId));
                     module = resolver.getDependency(dependencyDescriptor, data);
+                    long time = System.currentTimeMillis() - start;
+                    data.getMetrics().addPhaseTime(ResolveMetrics.PHASE_METADATA, time);
+                    data.getMetrics().addResolverTime(resolver.getName(), time);
                     data.getEventManager().fireIvyEvent(
                         new EndResolveDependencyEvent(
                             resolver, dependencyDescriptor, requestedRevisionId, 
-                            module, System.currentTimeMillis() - start));
+                            module, time));
                     
                     if (module != null) {
                         module.getResolver().getRepositoryCacheManager().saveResolvers(
@@ -1314,6 +1323,29 @@ public class IvyNode implements Comparable {
         return usage;
     }
 
+    /**
+     * Returns an estimate of the heap taken by the per configuration state of this node: its
+     * configuration sets, and the configuration sets and maps of its usages, callers and
+     * evictions.
+     * <p>
+     * It doesn't include the module descriptor, the dependency descriptors and the maps which are
+     * not keyed by configuration.
+     * </p>
+     * 
+     * @return the estimated heap taken by the configuration data of this node, in bytes
+     */
+    long getEstimatedConfigurationsSize() {
+        long estimate = ConfigurationMap.estimateSize(confsToFetch)
+                + ConfigurationMap.estimateSize(fetchedConfigurations)
+                + ConfigurationMap.estimateSize(loadedRootModuleConfs)
+                + usage.getEstimatedSize() + callers.getEstimatedSize()
+                + eviction.getEstimatedSize();
+        for (Iterator iterator = mergedUsages.values().iterator(); iterator.hasNext();) {
+            estimate += ((IvyNodeUsage) iterator.next()).getEstimatedSize();
+        }
+        return estimate;
+    }
+
     /**
      * Indicates if there is any of the merged usages of this node which has a depender with
      * transitive dependency descriptor.
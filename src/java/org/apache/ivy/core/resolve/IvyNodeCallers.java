@@ -39,7 +39,8 @@ public class IvyNodeCallers {
 
         private ModuleRevisionId mrid;
 
-        private Map confs = new HashMap(); // Map (String callerConf -> String[] dependencyConfs)
+        // Map (String callerConf -> String[] dependencyConfs)
+        private Map confs;
 
         private DependencyDescriptor dd;
 
@@ -49,10 +50,16 @@ public class IvyNodeCallers {
 
         public Caller(ModuleDescriptor md, ModuleRevisionId mrid, DependencyDescriptor dd,
                 boolean callerCanExclude) {
+            this(md, mrid, dd, callerCanExclude, null);
+        }
+
+        Caller(ModuleDescriptor md, ModuleRevisionId mrid, DependencyDescriptor dd,
+                boolean callerCanExclude, ConfigurationIds confIds) {
             this.md = md;
             this.mrid = mrid;
             this.dd = dd;
             this.callerCanExclude = callerCanExclude;
+            confs = confIds == null ? (Map) new HashMap() : new ConfigurationMap(confIds);
         }
 
         public void addConfiguration(String callerConf, String[] dependencyConfs) {
@@ -136,7 +143,7 @@ public class IvyNodeCallers {
 
     // Map (String rootModuleConf -> Map (ModuleRevisionId -> Caller)): key in second map is used to
     // easily get a caller by its mrid
-    private Map callersByRootConf = new HashMap();
+    private Map callersByRootConf;
 
     // this map contains all the module ids calling this one (including transitively) as keys.
     // the mapped nodes (values) correspond to a direct caller from which the transitive caller
@@ -148,6 +155,21 @@ public class IvyNodeCallers {
 
     public IvyNodeCallers(IvyNode node) {
         this.node = node;
+        callersByRootConf = new ConfigurationMap(node.getData().getConfigurationIds());
+    }
+
+    /**
+     * @return an estimate of the heap taken by the configuration maps of the callers, in bytes
+     */
+    long getEstimatedSize() {
+        long estimate = ConfigurationMap.estimateSize(callersByRootConf);
+        for (Iterator iter = callersByRootConf.values().iterator(); iter.hasNext();) {
+            Map callers = (Map) iter.next();
+            for (Iterator it = callers.values().iterator(); it.hasNext();) {
+                estimate += ConfigurationMap.estimateSize(((Caller) it.next()).confs);
+            }
+        }
+        return estimate;
     }
 
     /**
@@ -175,7 +197,8 @@ public class IvyNodeCallers {
         }
         Caller caller = (Caller) callers.get(mrid);
         if (caller == null) {
-            caller = new Caller(md, mrid, dd, callerNode.canExclude(rootModuleConf));
+            caller = new Caller(md, mrid, dd, callerNode.canExclude(rootModuleConf), node
+                    .getData().getConfigurationIds());
             callers.put(mrid, caller);
         }
         caller.addConfiguration(requestedConf, dependencyConfs);
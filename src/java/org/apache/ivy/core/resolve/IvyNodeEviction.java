@@ -194,15 +194,23 @@ public class IvyNodeEviction {
     // map indicating for each dependency which revision
     // has been evicted
 
-    private Map evicted = new HashMap(); // Map (root module conf -> EvictionData) // indicates
+    private Map evicted; // Map (root module conf -> EvictionData) //
 
-    // if the node is evicted in each root module conf
+    // indicates if the node is evicted in each root module conf
 
     public IvyNodeEviction(IvyNode node) {
         if (node == null) {
             throw new NullPointerException("node must not be null");
         }
         this.node = node;
+        evicted = new ConfigurationMap(node.getData().getConfigurationIds());
+    }
+
+    /**
+     * @return an estimate of the heap taken by the configuration map of the evictions, in bytes
+     */
+    long getEstimatedSize() {
+        return ConfigurationMap.estimateSize(evicted);
     }
 
     /**
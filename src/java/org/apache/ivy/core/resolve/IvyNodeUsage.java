@@ -119,18 +119,38 @@ public class IvyNodeUsage {
     // Map (String rootConfName -> Set(String confName))
     // used to know which configurations of the dependency are required
     // for each root module configuration
-    private Map rootModuleConfs = new HashMap();
+    private Map rootModuleConfs;
 
     // Map (NodeConf in -> Set(String conf))
     private Map requiredConfs = new HashMap();
     
-    private Map /*<String, Set<Depender>>*/ dependers = new HashMap();
+    private Map /*<String, Set<Depender>>*/ dependers;
     
     // Map (String rootModuleConf -> IvyNodeBlacklist)
-    private Map blacklisted = new HashMap();
+    private Map blacklisted;
+
+    private ConfigurationIds confIds;
     
     public IvyNodeUsage(IvyNode node) {
         this.node = node;
+        confIds = node.getData().getConfigurationIds();
+        rootModuleConfs = new ConfigurationMap(confIds);
+        dependers = new ConfigurationMap(confIds);
+        blacklisted = new ConfigurationMap(confIds);
+    }
+
+    /**
+     * @return an estimate of the heap taken by the configuration sets and maps of this usage, in
+     *         bytes
+     */
+    long getEstimatedSize() {
+        long estimate = ConfigurationMap.estimateSize(rootModuleConfs)
+                + ConfigurationMap.estimateSize(dependers)
+                + ConfigurationMap.estimateSize(blacklisted);
+        for (Iterator iter = requiredConfs.values().iterator(); iter.hasNext();) {
+            estimate += ConfigurationMap.estimateSize(iter.next());
+        }
+        return estimate;
     }
 
     protected Collection getRequiredConfigurations(IvyNode in, String inConf) {
@@ -138,7 +158,7 @@ public class IvyNodeUsage {
     }
 
     protected void setRequiredConfs(IvyNode parent, String parentConf, Collection confs) {
-        requiredConfs.put(new NodeConf(parent, parentConf), new HashSet(confs));
+        requiredConfs.put(new NodeConf(parent, parentConf), new ConfigurationSet(confIds, confs));
     }
     
     /**
@@ -154,7 +174,7 @@ public class IvyNodeUsage {
     protected Set addAndGetConfigurations(String rootModuleConf) {
         Set depConfs = (Set) rootModuleConfs.get(rootModuleConf);
         if (depConfs == null) {
-            depConfs = new HashSet();
+            depConfs = new ConfigurationSet(confIds);
             rootModuleConfs.put(rootModuleConf, depConfs);
         }
         return depConfs;
@@ -197,7 +217,8 @@ public class IvyNodeUsage {
             if (toupdate != null) {
                 toupdate.addAll(set);
             } else {
-                to.put(key, new HashSet(set));
+                to.put(key, set instanceof ConfigurationSet ? new ConfigurationSet(confIds, set)
+                        : new HashSet(set));
             }
         }
     }
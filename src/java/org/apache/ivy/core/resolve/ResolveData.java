@@ -26,12 +26,16 @@ import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.apache.ivy.core.event.EventManager;
 import org.apache.ivy.core.module.descriptor.DependencyDescriptor;
 import org.apache.ivy.core.module.descriptor.ModuleDescriptor;
 import org.apache.ivy.core.module.id.ModuleRevisionId;
 import org.apache.ivy.core.report.ConfigurationResolveReport;
+import org.apache.ivy.core.report.ResolveMetrics;
 import org.apache.ivy.util.Message;
 
 public class ResolveData {
@@ -47,11 +51,24 @@ public class ResolveData {
 
     private ResolvedModuleRevision currentResolvedModuleRevision;
 
+    private ResolveMetrics metrics = new ResolveMetrics();
+
+    // the dependencies already fetched, by module revision and configuration
+    private Set/* <String> */fetched = Collections.newSetFromMap(new ConcurrentHashMap());
+
+    private ConcurrentMap/* <Object, Object> */states = new ConcurrentHashMap();
+
+    private ConfigurationIds configurationIds = new ConfigurationIds();
+
     public ResolveData(ResolveData data, boolean validate) {
         this(data.engine, new ResolveOptions(data.options).setValidate(validate), 
             data.report, data.visitData);
         setCurrentVisitNode(data.currentVisitNode);
         setCurrentResolvedModuleRevision(data.currentResolvedModuleRevision);
+        metrics = data.metrics;
+        fetched = data.fetched;
+        states = data.states;
+        configurationIds = data.configurationIds;
     }
 
     public ResolveData(ResolveEngine engine, ResolveOptions options) {
@@ -71,6 +88,56 @@ public class ResolveData {
         this.options = options;
     }
 
+    /**
+     * Returns the metrics of the resolve, shared by the copies of this data.
+     */
+    public ResolveMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Returns the state kept during the resolve by the given owner, usually a resolver, or
+     * <code>null</code> if it has kept no state yet.
+     * <p>
+     * The states are shared by the copies of this data, but not with the other resolves, so that
+     * several resolves can use the same resolvers at the same time.
+     * </p>
+     */
+    public Object getState(Object owner) {
+        return states.get(owner);
+    }
+
+    /**
+     * Keeps the given state for the given owner during the resolve, unless a state is already
+     * kept for it.
+     * 
+     * @return the state kept for the owner, which is not the given one if another one was
+     *         already kept
+     */
+    public Object putStateIfAbsent(Object owner, Object state) {
+        Object previous = states.putIfAbsent(owner, state);
+        return previous == null ? state : previous;
+    }
+
+    /**
+     * Returns the ids of the configuration names of the nodes, shared by the copies of this data.
+     */
+    ConfigurationIds getConfigurationIds() {
+        return configurationIds;
+    }
+
+    boolean isFetched(String key) {
+        return fetched.contains(key);
+    }
+
+    void markFetched(String key) {
+        fetched.add(key);
+    }
+
+    void clearFetched() {
+        fetched.clear();
+    }
+
     public ConfigurationResolveReport getReport() {
         return report;
     }
@@ -58,8 +58,10 @@ import org.apache.ivy.core.report.ArtifactDownloadReport;
 import org.apache.ivy.core.report.ConfigurationResolveReport;
 import org.apache.ivy.core.report.DownloadReport;
 import org.apache.ivy.core.report.DownloadStatus;
+import org.apache.ivy.core.report.ResolveMetrics;
 import org.apache.ivy.core.report.ResolveReport;
 import org.apache.ivy.core.resolve.IvyNodeEviction.EvictionData;
+import org.apache.ivy.core.settings.IvySettings;
 import org.apache.ivy.core.sort.SortEngine;
 import org.apache.ivy.core.sort.SortOptions;
 import org.apache.ivy.plugins.conflict.ConflictManager;
@@ -68,6 +70,7 @@ import org.apache.ivy.plugins.parser.ModuleDescriptorParserRegistry;
 import org.apache.ivy.plugins.repository.url.URLResource;
 import org.apache.ivy.plugins.resolver.DependencyResolver;
 import org.apache.ivy.plugins.version.VersionMatcher;
+import org.apache.ivy.util.FileUtil;
 import org.apache.ivy.util.Message;
 import org.apache.ivy.util.filter.Filter;
 
@@ -87,9 +90,7 @@ public class ResolveEngine {
 
     private SortEngine sortEngine;
 
-    private Set fetchedSet = new HashSet();
-
-    private DependencyResolver dictatorResolver;
+    private volatile DependencyResolver dictatorResolver;
 
     /**
      * Constructs a ResolveEngine.
@@ -112,17 +113,24 @@ public class ResolveEngine {
 
     /**
      * Returns the currently configured dictator resolver, which when non null is used in place of
-     * any specified resolver in the IvySettings
+     * any specified resolver in the IvySettings. The dictator resolver of the current
+     * {@link IvyContext}, if any, takes precedence over the one of this engine.
      * 
      * @return the currently configured dictator resolver, may be null.
      */
     public DependencyResolver getDictatorResolver() {
-        return dictatorResolver;
+        DependencyResolver resolver = IvyContext.getContext().getDictatorResolver();
+        return resolver == null ? dictatorResolver : resolver;
     }
 
     /**
      * Sets a dictator resolver, which is used in place of regular dependency resolver for
      * subsequent dependency resolution by this engine.
+     * <p>
+     * This affects all the resolutions done by this engine, including the ones in progress in
+     * other threads. Use {@link IvyContext#setDictatorResolver(DependencyResolver)} to use a
+     * dictator resolver in the current thread only.
+     * </p>
      * 
      * @param dictatorResolver
      *            the dictator resolver to use in this engine, null if regular settings should used
@@ -200,7 +208,6 @@ public class ResolveEngine {
      */
     public ResolveReport resolve(ModuleDescriptor md, ResolveOptions options)
             throws ParseException, IOException {
-        DependencyResolver oldDictator = getDictatorResolver();
         IvyContext context = IvyContext.getContext();
         try {
             String[] confs = options.getConfs(md);
@@ -229,9 +236,22 @@ public class ResolveEngine {
 
             ResolveData data = new ResolveData(this, options);
             context.setResolveData(data);
+            ResolveMetrics metrics = data.getMetrics();
+            report.setMetrics(metrics);
+            if (settings instanceof IvySettings) {
+                metrics.addPhaseTime(ResolveMetrics.PHASE_SETTINGS,
+                    ((IvySettings) settings).getLoadTime());
+            }
             
             // resolve dependencies
             IvyNode[] dependencies = getDependencies(md, options, report);
+            if (dependencies.length > 0) {
+                long heap = 0;
+                for (int i = 0; i < dependencies.length; i++) {
+                    heap += dependencies[i].getEstimatedConfigurationsSize();
+                }
+                report.setHeapPerNode(heap / dependencies.length);
+            }
             report.setDependencies(Arrays.asList(dependencies), options.getArtifactFilter());
             
             if (options.getCheckIfChanged()) {
@@ -312,15 +332,21 @@ public class ResolveEngine {
                             
                             // The evicted modules have no description, so we can't put the status
                             String status = depDescriptor == null ? "?" : depDescriptor.getStatus();
-                            Message.debug("storing dependency " + depResolvedId + " in props");
+                            Message.debug("storing dependency {} in props", depResolvedId);
                             props.put(depRevisionId.encodeToString(), rev + " " + status + " " + forcedRev + " " + depResolvedId.getBranch());
                         }
                     }
                 }
             }
-            FileOutputStream out = new FileOutputStream(ivyPropertiesInCache);
-            props.store(out, md.getResolvedModuleRevisionId() + " resolved revisions");
-            out.close();
+            // written aside and moved in place, the resolves of the same module may run concurrently
+            File tmp = FileUtil.newTempFile(ivyPropertiesInCache);
+            FileOutputStream out = new FileOutputStream(tmp);
+            try {
+                props.store(out, md.getResolvedModuleRevisionId() + " resolved revisions");
+            } finally {
+                out.close();
+            }
+            FileUtil.replace(tmp, ivyPropertiesInCache);
             Message.verbose("\tresolved ivy file produced in cache");
 
             report.setResolveTime(System.currentTimeMillis() - start);
@@ -333,11 +359,19 @@ public class ResolveEngine {
             }
 
             if (options.isOutputReport()) {
+                long reportStart = System.currentTimeMillis();
                 outputReport(report, cacheManager, options);
+                metrics.addPhaseTime(ResolveMetrics.PHASE_REPORT, 
+                    System.currentTimeMillis() - reportStart);
+            }
+            if (options.getMetricsFile() != null) {
+                metrics.writeJSON(options.getMetricsFile());
             }
 
             Message.verbose("\tresolve done (" + report.getResolveTime() + "ms resolve - "
                     + report.getDownloadTime() + "ms download)");
+            Message.debug("\tresolved {} nodes (~{} bytes of heap per node)", new Integer(
+                dependencies.length), new Long(report.getHeapPerNode()));
             Message.sumupProblems();
 
             eventManager.fireIvyEvent(new EndResolveEvent(md, confs, report));
@@ -348,7 +382,6 @@ public class ResolveEngine {
             throw ex;
         } finally {
             context.setResolveData(null);
-            setDictatorResolver(oldDictator);
         }
     }
 
@@ -377,6 +410,8 @@ public class ResolveEngine {
                 .toArray(new Artifact[report.getArtifacts().size()])));
 
         long totalSize = 0;
+        long hits = 0;
+        long misses = 0;
         for (int i = 0; i < dependencies.length; i++) {
             checkInterrupted();
             // download artifacts required in all asked configurations
@@ -399,6 +434,9 @@ public class ResolveEngine {
                         }
                     } else if (adrs[j].getDownloadStatus() == DownloadStatus.SUCCESSFUL) {
                         totalSize += adrs[j].getSize();
+                        misses++;
+                    } else {
+                        hits++;
                     }
                 }
                 // update concerned reports
@@ -419,6 +457,12 @@ public class ResolveEngine {
         }
         report.setDownloadTime(System.currentTimeMillis() - start);
         report.setDownloadSize(totalSize);
+        ResolveMetrics metrics = report.getMetrics();
+        if (metrics != null) {
+            metrics.addPhaseTime(ResolveMetrics.PHASE_DOWNLOAD, report.getDownloadTime());
+            metrics.add(ResolveMetrics.CACHE_ARTIFACT_HIT, hits);
+            metrics.add(ResolveMetrics.CACHE_ARTIFACT_MISS, misses);
+        }
     }
 
     /**
@@ -554,7 +598,7 @@ public class ResolveEngine {
             for (int i = 0; i < confs.length; i++) {
                 Message.verbose("resolving dependencies for configuration '" + confs[i] + "'");
                 // for each configuration we clear the cache of what's been fetched
-                fetchedSet.clear();
+                data.clearFetched();
     
                 ConfigurationResolveReport confReport = null;
                 if (report != null) {
@@ -584,7 +628,7 @@ public class ResolveEngine {
                         Message.verbose("=           RESTARTING RESOLVE PROCESS");
                         Message.verbose("= " + restart.getMessage());
                         Message.verbose("====================================================");
-                        fetchedSet.clear();
+                        data.clearFetched();
                     }
                 }
 
@@ -674,11 +718,14 @@ public class ResolveEngine {
     private void fetchDependencies(VisitNode node, String conf, boolean shouldBePublic) {
         checkInterrupted();
         long start = System.currentTimeMillis();
-        if (node.getParent() != null) {
-            Message.verbose("== resolving dependencies " + node.getParent().getId() + "->"
-                    + node.getId() + " [" + node.getParentConf() + "->" + conf + "]");
-        } else {
-            Message.verbose("== resolving dependencies for " + node.getId() + " [" + conf + "]");
+        if (Message.isVerboseEnabled()) {
+            if (node.getParent() != null) {
+                Message.verbose("== resolving dependencies " + node.getParent().getId() + "->"
+                        + node.getId() + " [" + node.getParentConf() + "->" + conf + "]");
+            } else {
+                Message.verbose("== resolving dependencies for " + node.getId() + " [" + conf
+                        + "]");
+            }
         }
         ResolveData data = node.getNode().getData();
         VisitNode parentVisitNode = data.getCurrentVisitNode();
@@ -819,12 +866,12 @@ public class ResolveEngine {
      */
     private boolean isDependenciesFetched(IvyNode node, String conf) {
         String key = getDependenciesFetchedKey(node, conf);
-        return fetchedSet.contains(key);
+        return node.getData().isFetched(key);
     }
     
     private void markDependenciesFetched(IvyNode node, String conf) {
         String key = getDependenciesFetchedKey(node, conf);
-        fetchedSet.add(key);
+        node.getData().markFetched(key);
     }
 
     private String getDependenciesFetchedKey(IvyNode node, String conf) {
@@ -1020,7 +1067,16 @@ public class ResolveEngine {
                         + conflicts);
             }
 
-            return conflictManager.resolveConflicts(ancestor.getNode(), conflicts);
+            long start = System.currentTimeMillis();
+            try {
+                return conflictManager.resolveConflicts(ancestor.getNode(), conflicts);
+            } finally {
+                long time = System.currentTimeMillis() - start;
+                ResolveMetrics metrics = node.getNode().getData().getMetrics();
+                metrics.addPhaseTime(ResolveMetrics.PHASE_CONFLICTS, time);
+                metrics.addConflictManagerTime(conflictManager.getName() == null 
+                    ? conflictManager.getClass().getName() : conflictManager.getName(), time);
+            }
         }
     }
 
@@ -17,6 +17,7 @@
  */
 package org.apache.ivy.core.resolve;
 
+import java.io.File;
 import java.util.Date;
 
 import org.apache.ivy.core.LogOptions;
@@ -118,6 +119,11 @@ public class ResolveOptions extends LogOptions {
      **/  
     private boolean checkIfChanged = false;
 
+    /**
+     * The file to which the metrics of the resolve should be written as JSON, if any.
+     */
+    private File metricsFile;
+
     public ResolveOptions() {
     }
 
@@ -136,6 +142,7 @@ public class ResolveOptions extends LogOptions {
         artifactFilter = options.artifactFilter;
         resolveId = options.resolveId;
         checkIfChanged = options.checkIfChanged;
+        metricsFile = options.metricsFile;
     }
 
     public Filter getArtifactFilter() {
@@ -296,6 +303,21 @@ public class ResolveOptions extends LogOptions {
         return checkIfChanged;
     }
 
+    public File getMetricsFile() {
+        return metricsFile;
+    }
+
+    /**
+     * Sets the file to which the {@link org.apache.ivy.core.report.ResolveMetrics metrics} of the
+     * resolve are written as JSON, <code>null</code> to write no file. The metrics are also
+     * written in the xml reports and available from the {@link
+     * org.apache.ivy.core.report.ResolveReport} in any case.
+     */
+    public ResolveOptions setMetricsFile(File metricsFile) {
+        this.metricsFile = metricsFile;
+        return this;
+    }
+
 
     public static String getDefaultResolveId(ModuleDescriptor md) {
         ModuleId module = md.getModuleRevisionId().getModuleId();
@@ -17,6 +17,7 @@
  */
 package org.apache.ivy.core.search;
 
+import java.io.File;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
@@ -30,6 +31,7 @@ import java.util.Set;
 import java.util.Map.Entry;
 
 import org.apache.ivy.core.IvyPatternHelper;
+import org.apache.ivy.core.cache.DefaultRepositoryCacheManager;
 import org.apache.ivy.core.module.id.ModuleId;
 import org.apache.ivy.core.module.id.ModuleRevisionId;
 import org.apache.ivy.core.settings.IvySettings;
@@ -39,16 +41,109 @@ import org.apache.ivy.plugins.matcher.PatternMatcher;
 import org.apache.ivy.plugins.namespace.NameSpaceHelper;
 import org.apache.ivy.plugins.namespace.Namespace;
 import org.apache.ivy.plugins.resolver.AbstractResolver;
+import org.apache.ivy.plugins.resolver.ChainResolver;
 import org.apache.ivy.plugins.resolver.DependencyResolver;
+import org.apache.ivy.plugins.resolver.DualResolver;
 import org.apache.ivy.util.Message;
 
 public class SearchEngine {
+    /**
+     * The variable giving the time during which the token values listed by the resolvers are
+     * kept in the search index, with the same syntax as the cache ttls. The index is not used if
+     * it is not set.
+     */
+    public static final String INDEX_TTL_VARIABLE = "ivy.search.index.ttl";
+
+    /**
+     * The variable giving the file in which the search index is stored. It defaults to
+     * search.index in the repository cache directory.
+     */
+    public static final String INDEX_FILE_VARIABLE = "ivy.search.index.file";
+
     private IvySettings settings;
 
+    private SearchIndex index;
+
+    private boolean indexInitialized = false;
+
     public SearchEngine(IvySettings settings) {
         this.settings = settings;
     }
 
+    /**
+     * Returns the index used to answer the searches without listing the resolvers again, or
+     * <code>null</code> if the searches always list the resolvers.
+     */
+    public synchronized SearchIndex getIndex() {
+        if (!indexInitialized) {
+            String ttl = settings.getVariable(INDEX_TTL_VARIABLE);
+            if (ttl != null) {
+                long duration = DefaultRepositoryCacheManager.parseDuration(ttl);
+                if (duration > 0) {
+                    String file = settings.getVariable(INDEX_FILE_VARIABLE);
+                    index = new SearchIndex(duration, file == null ? new File(
+                            settings.getDefaultRepositoryCacheBasedir(), "search.index")
+                            : settings.resolveFile(file));
+                }
+            }
+            indexInitialized = true;
+        }
+        return index;
+    }
+
+    public synchronized void setIndex(SearchIndex index) {
+        this.index = index;
+        indexInitialized = true;
+    }
+
+    /**
+     * Forgets the token values listed from the given resolver, and from the chains and dual
+     * resolvers which contain it, if they have been indexed.
+     */
+    public void invalidate(String resolverName) {
+        // the index may have been filled by another process
+        SearchIndex index = getIndex();
+        if (index == null) {
+            return;
+        }
+        index.invalidate(resolverName);
+        for (Iterator iter = settings.getResolvers().iterator(); iter.hasNext();) {
+            DependencyResolver resolver = (DependencyResolver) iter.next();
+            if (!resolverName.equals(resolver.getName()) && contains(resolver, resolverName)) {
+                index.invalidate(resolver.getName());
+            }
+        }
+    }
+
+    private static boolean contains(DependencyResolver resolver, String resolverName) {
+        if (resolver == null) {
+            return false;
+        }
+        if (resolverName.equals(resolver.getName())) {
+            return true;
+        }
+        if (resolver instanceof ChainResolver) {
+            for (Iterator iter = ((ChainResolver) resolver).getResolvers().iterator(); iter
+                    .hasNext();) {
+                if (contains((DependencyResolver) iter.next(), resolverName)) {
+                    return true;
+                }
+            }
+        } else if (resolver instanceof DualResolver) {
+            return contains(((DualResolver) resolver).getIvyResolver(), resolverName)
+                    || contains(((DualResolver) resolver).getArtifactResolver(), resolverName);
+        }
+        return false;
+    }
+
+    private Map[] listTokenValues(DependencyResolver resolver, String[] tokens, Map criteria) {
+        SearchIndex index = getIndex();
+        if (index == null) {
+            return resolver.listTokenValues(tokens, criteria);
+        }
+        return index.listTokenValues(resolver, tokens, criteria);
+    }
+
     /**
      * Returns an empty array when no token values are found.
      * 
@@ -61,7 +156,7 @@ public class SearchEngine {
         
         for (Iterator iter = settings.getResolvers().iterator(); iter.hasNext();) {
             DependencyResolver resolver = (DependencyResolver) iter.next();
-            Map[] values = resolver.listTokenValues(new String[] {token}, otherTokenValues);
+            Map[] values = listTokenValues(resolver, new String[] {token}, otherTokenValues);
             for (int i = 0; i < values.length; i++) {
                 entries.add(values[i].get(token));
             }
@@ -75,7 +170,7 @@ public class SearchEngine {
 
         for (Iterator iter = settings.getResolvers().iterator(); iter.hasNext();) {
             DependencyResolver resolver = (DependencyResolver) iter.next();
-            Map[] orgs = resolver.listTokenValues(
+            Map[] orgs = listTokenValues(resolver, 
                 new String[] {IvyPatternHelper.ORGANISATION_KEY}, new HashMap());
             for (int i = 0; i < orgs.length; i++) {
                 String org = (String) orgs[i].get(IvyPatternHelper.ORGANISATION_KEY);
@@ -91,7 +186,7 @@ public class SearchEngine {
 
         for (Iterator iter = settings.getResolvers().iterator(); iter.hasNext();) {
             DependencyResolver resolver = (DependencyResolver) iter.next();
-            Map[] orgs = resolver.listTokenValues(
+            Map[] orgs = listTokenValues(resolver, 
                 new String[] {IvyPatternHelper.ORGANISATION_KEY}, new HashMap());
             for (int i = 0; i < orgs.length; i++) {
                 entries.add(orgs[i].get(IvyPatternHelper.ORGANISATION_KEY));
@@ -109,7 +204,7 @@ public class SearchEngine {
         
         for (Iterator iter = settings.getResolvers().iterator(); iter.hasNext();) {
             DependencyResolver resolver = (DependencyResolver) iter.next();
-            Map[] modules = resolver.listTokenValues(
+            Map[] modules = listTokenValues(resolver, 
                 new String[] {IvyPatternHelper.MODULE_KEY}, tokenValues);
             for (int i = 0; i < modules.length; i++) {
                 String module = (String) modules[i].get(IvyPatternHelper.MODULE_KEY);
@@ -128,7 +223,7 @@ public class SearchEngine {
         
         for (Iterator iter = settings.getResolvers().iterator(); iter.hasNext();) {
             DependencyResolver resolver = (DependencyResolver) iter.next();
-            Map[] modules = resolver.listTokenValues(
+            Map[] modules = listTokenValues(resolver, 
                 new String[] {IvyPatternHelper.MODULE_KEY}, tokenValues);
             for (int i = 0; i < modules.length; i++) {
                 entries.add(modules[i].get(IvyPatternHelper.MODULE_KEY));
@@ -147,7 +242,7 @@ public class SearchEngine {
         
         for (Iterator iter = settings.getResolvers().iterator(); iter.hasNext();) {
             DependencyResolver resolver = (DependencyResolver) iter.next();
-            Map[] revisions = resolver.listTokenValues(
+            Map[] revisions = listTokenValues(resolver, 
                 new String[] {IvyPatternHelper.REVISION_KEY}, tokenValues);
             for (int i = 0; i < revisions.length; i++) {
                 String revision = (String) revisions[i].get(IvyPatternHelper.REVISION_KEY);
@@ -167,7 +262,7 @@ public class SearchEngine {
         
         for (Iterator iter = settings.getResolvers().iterator(); iter.hasNext();) {
             DependencyResolver resolver = (DependencyResolver) iter.next();
-            Map[] revisions = resolver.listTokenValues(
+            Map[] revisions = listTokenValues(resolver, 
                 new String[] {IvyPatternHelper.REVISION_KEY}, tokenValues);
             for (int i = 0; i < revisions.length; i++) {
                 entries.add(revisions[i].get(IvyPatternHelper.REVISION_KEY));
@@ -200,7 +295,7 @@ public class SearchEngine {
 
         for (Iterator iter = settings.getResolvers().iterator(); iter.hasNext();) {
             DependencyResolver resolver = (DependencyResolver) iter.next();
-            Map[] moduleIdAsMap = resolver.listTokenValues(tokensToList, criteria);
+            Map[] moduleIdAsMap = listTokenValues(resolver, tokensToList, criteria);
             for (int i = 0; i < moduleIdAsMap.length; i++) {
                 String org = (String) moduleIdAsMap[i].get(IvyPatternHelper.ORGANISATION_KEY);
                 String name = (String) moduleIdAsMap[i].get(IvyPatternHelper.MODULE_KEY);
@@ -238,7 +333,7 @@ public class SearchEngine {
 
         for (Iterator iter = settings.getResolvers().iterator(); iter.hasNext();) {
             DependencyResolver resolver = (DependencyResolver) iter.next();
-            Map[] moduleIdAsMap = resolver.listTokenValues(tokensToList, criteria);
+            Map[] moduleIdAsMap = listTokenValues(resolver, tokensToList, criteria);
             for (int i = 0; i < moduleIdAsMap.length; i++) {
                 String org = (String) moduleIdAsMap[i].get(IvyPatternHelper.ORGANISATION_KEY);
                 String name = (String) moduleIdAsMap[i].get(IvyPatternHelper.MODULE_KEY);
@@ -292,7 +387,7 @@ public class SearchEngine {
         String[] tokensToList = (String[]) moduleCrit.getAttributes().keySet().toArray(
             new String[moduleCrit.getAttributes().size()]);
 
-        Map[] moduleIdAsMap = resolver.listTokenValues(tokensToList, criteria);
+        Map[] moduleIdAsMap = listTokenValues(resolver, tokensToList, criteria);
         Set result = new LinkedHashSet(); // we use a Set to remove duplicates
         for (int i = 0; i < moduleIdAsMap.length; i++) {
             String org = (String) moduleIdAsMap[i].get(IvyPatternHelper.ORGANISATION_KEY);
@@ -334,7 +429,8 @@ public class SearchEngine {
         if (matcher.isExact()) {
             criteria.put(key, expression);
         } else {
-            criteria.put(key, matcher);
+            criteria.put(key,
+                new SearchIndex.PatternCriterion(patternMatcher, expression, matcher));
         }
     }
     
@@ -0,0 +1,558 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.ivy.core.search;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.Map.Entry;
+
+import org.apache.ivy.plugins.matcher.Matcher;
+import org.apache.ivy.plugins.matcher.PatternMatcher;
+import org.apache.ivy.plugins.resolver.AbstractPatternsBasedResolver;
+import org.apache.ivy.plugins.resolver.AbstractResolver;
+import org.apache.ivy.plugins.resolver.ChainResolver;
+import org.apache.ivy.plugins.resolver.DependencyResolver;
+import org.apache.ivy.plugins.resolver.DualResolver;
+import org.apache.ivy.util.Message;
+
+/**
+ * An index of the token values listed by the resolvers, so that the searches do not have to list
+ * the repositories again.
+ * <p>
+ * The index keeps the token values (organisation, module, branch, revision, extra attributes...)
+ * listed by each resolver, along with the repository it lists and the criteria used to list
+ * them. The criteria are sent to the resolvers, so that a listing can skip the parts of the
+ * repository which cannot match, and the pattern matchers created by the {@link SearchEngine} are
+ * kept in the index by their name and expression. Any query using the same criteria is then
+ * answered without accessing the repository, and so is a query using less matchers or more
+ * criteria, as long as the listing has listed the tokens needed to apply the missing ones.
+ * </p>
+ * <p>
+ * The listings are kept for the given time to live, after which the resolver is listed again.
+ * When the index is given a file, the listings are stored in it each time they change, and read
+ * again from it when another process has changed it, so they are shared by the processes using
+ * the same file, invalidations included. This class is thread safe.
+ * </p>
+ */
+public class SearchIndex {
+    private static final int MAGIC = 0x49565358; // 'IVSX'
+
+    private static final int FORMAT_VERSION = 2;
+
+    private final long ttl;
+
+    private final File file;
+
+    // the last modification date and length of the file when it has been read or written by
+    // this index
+    private long fileLastModified = 0;
+
+    private long fileLength = 0;
+
+    private final Map/* <String, List<Listing>> */listings = new HashMap();
+
+    private long hits = 0;
+
+    private long misses = 0;
+
+    /**
+     * @param ttl
+     *            the time in milliseconds during which the listings of a resolver are used
+     */
+    public SearchIndex(long ttl) {
+        this(ttl, null);
+    }
+
+    /**
+     * @param ttl
+     *            the time in milliseconds during which the listings of a resolver are used
+     * @param file
+     *            the file in which the listings are stored, null to keep them in memory only
+     */
+    public SearchIndex(long ttl, File file) {
+        this.ttl = ttl;
+        this.file = file;
+    }
+
+    /**
+     * @return the file in which the listings are stored, null if they are kept in memory only
+     */
+    public File getFile() {
+        return file;
+    }
+
+    public long getTtl() {
+        return ttl;
+    }
+
+    /**
+     * Lists the values of the given tokens in the given resolver, as
+     * {@link DependencyResolver#listTokenValues(String[], Map)} does, using the index when
+     * possible.
+     */
+    public Map[] listTokenValues(DependencyResolver resolver, String[] tokens, Map criteria) {
+        Map/* <String, String> */exactCriteria = new HashMap();
+        Map/* <String, Matcher> */matchers = new HashMap();
+        // the matchers which can be kept in the index are given to the resolver, the others
+        // are only applied to the listed values
+        Map/* <String, PatternCriterion> */patternCriteria = new HashMap();
+        for (Iterator it = criteria.entrySet().iterator(); it.hasNext();) {
+            Map.Entry entry = (Entry) it.next();
+            if (entry.getValue() instanceof PatternCriterion) {
+                patternCriteria.put(entry.getKey(), entry.getValue());
+                matchers.put(entry.getKey(), entry.getValue());
+            } else if (entry.getValue() instanceof Matcher) {
+                matchers.put(entry.getKey(), entry.getValue());
+            } else {
+                exactCriteria.put(entry.getKey(), entry.getValue());
+            }
+        }
+        Set/* <String> */tokensToList = new LinkedHashSet(Arrays.asList(tokens));
+        tokensToList.addAll(matchers.keySet());
+
+        String repository = getRepositoryId(resolver);
+        Listing listing = findListing(resolver.getName(), repository, tokensToList,
+            exactCriteria, matchers);
+        if (listing == null) {
+            Map listingCriteria = new HashMap(exactCriteria);
+            listingCriteria.putAll(patternCriteria);
+            Map[] values = resolver.listTokenValues(
+                (String[]) tokensToList.toArray(new String[tokensToList.size()]), listingCriteria);
+            listing = new Listing(repository, tokensToList, exactCriteria, patternCriteria, values);
+            addListing(resolver.getName(), listing);
+        }
+        return listing.select(tokensToList, exactCriteria, matchers);
+    }
+
+    /**
+     * Returns a description of the repository listed by the given resolver. The listings are
+     * kept by resolver name, and a shared index file may be used with settings giving the same
+     * name to different repositories: a listing is only used for the repository it has listed.
+     */
+    static String getRepositoryId(DependencyResolver resolver) {
+        if (resolver instanceof AbstractPatternsBasedResolver) {
+            AbstractPatternsBasedResolver patterns = (AbstractPatternsBasedResolver) resolver;
+            return "patterns" + patterns.getIvyPatterns() + patterns.getArtifactPatterns()
+                    + (patterns.isM2compatible() ? " m2compatible" : "");
+        }
+        if (resolver instanceof ChainResolver) {
+            StringBuffer id = new StringBuffer("chain[");
+            for (Iterator it = ((ChainResolver) resolver).getResolvers().iterator(); it
+                    .hasNext();) {
+                id.append(getRepositoryId((DependencyResolver) it.next()));
+                if (it.hasNext()) {
+                    id.append(", ");
+                }
+            }
+            return id.append("]").toString();
+        }
+        if (resolver instanceof DualResolver) {
+            DualResolver dual = (DualResolver) resolver;
+            return "dual[" + getRepositoryId(dual.getIvyResolver()) + ", "
+                    + getRepositoryId(dual.getArtifactResolver()) + "]";
+        }
+        if (resolver == null) {
+            return "none";
+        }
+        // nothing tells where the other resolvers list their values, except their settings
+        String id = resolver.getClass().getName();
+        if (resolver instanceof AbstractResolver
+                && ((AbstractResolver) resolver).getSettings() != null) {
+            String settingsUrl = ((AbstractResolver) resolver).getSettings().getVariable(
+                "ivy.settings.url");
+            if (settingsUrl != null) {
+                id += " in " + settingsUrl;
+            }
+        }
+        return id;
+    }
+
+    /**
+     * Forgets everything listed from the given resolver, typically after something has been
+     * published to it.
+     */
+    public synchronized void invalidate(String resolverName) {
+        refresh();
+        if (listings.remove(resolverName) != null) {
+            store();
+        }
+    }
+
+    public synchronized void clear() {
+        listings.clear();
+        store();
+    }
+
+    /**
+     * @return the number of queries answered by the index
+     */
+    public synchronized long getHitCount() {
+        return hits;
+    }
+
+    /**
+     * @return the number of queries for which a resolver has been listed
+     */
+    public synchronized long getMissCount() {
+        return misses;
+    }
+
+    private synchronized Listing findListing(String resolverName, String repository, Set tokens,
+            Map exactCriteria, Map matchers) {
+        refresh();
+        List resolverListings = (List) listings.get(resolverName);
+        if (resolverListings != null) {
+            long now = System.currentTimeMillis();
+            for (Iterator it = resolverListings.iterator(); it.hasNext();) {
+                Listing listing = (Listing) it.next();
+                if (now - listing.time > ttl) {
+                    it.remove();
+                } else if (listing.answers(repository, tokens, exactCriteria, matchers)) {
+                    hits++;
+                    return listing;
+                }
+            }
+        }
+        misses++;
+        return null;
+    }
+
+    private synchronized void addListing(String resolverName, Listing listing) {
+        List resolverListings = (List) listings.get(resolverName);
+        if (resolverListings == null) {
+            resolverListings = new ArrayList();
+            listings.put(resolverName, resolverListings);
+        }
+        for (Iterator it = resolverListings.iterator(); it.hasNext();) {
+            Listing other = (Listing) it.next();
+            if (other.repository.equals(listing.repository) && other.tokens.equals(listing.tokens)
+                    && other.criteria.equals(listing.criteria)
+                    && other.patternKeys.equals(listing.patternKeys)) {
+                it.remove();
+            }
+        }
+        resolverListings.add(listing);
+        store();
+    }
+
+    /**
+     * Reads the listings again from the file if it has been changed by another index.
+     */
+    private void refresh() {
+        if (file == null
+                || (file.lastModified() == fileLastModified && file.length() == fileLength)) {
+            return;
+        }
+        listings.clear();
+        fileLastModified = file.lastModified();
+        fileLength = file.length();
+        if (fileLastModified == 0) {
+            return;
+        }
+        try {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(
+                    new FileInputStream(file)));
+            try {
+                if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+                    Message.debug("unsupported search index format: " + file);
+                    return;
+                }
+                int resolverCount = in.readInt();
+                for (int i = 0; i < resolverCount; i++) {
+                    String resolverName = in.readUTF();
+                    int listingCount = in.readInt();
+                    List resolverListings = new ArrayList(listingCount);
+                    for (int j = 0; j < listingCount; j++) {
+                        resolverListings.add(Listing.read(in));
+                    }
+                    listings.put(resolverName, resolverListings);
+                }
+            } finally {
+                in.close();
+            }
+        } catch (IOException e) {
+            Message.debug("impossible to read search index " + file + ": " + e.getMessage());
+            listings.clear();
+        }
+    }
+
+    /**
+     * Writes the listings which have not expired in the file, if any.
+     */
+    private void store() {
+        if (file == null) {
+            return;
+        }
+        File parent = file.getParentFile();
+        if (parent != null) {
+            parent.mkdirs();
+        }
+        File tmp = new File(parent, file.getName() + ".part");
+        long now = System.currentTimeMillis();
+        try {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                    new FileOutputStream(tmp)));
+            try {
+                out.writeInt(MAGIC);
+                out.writeInt(FORMAT_VERSION);
+                out.writeInt(listings.size());
+                for (Iterator it = listings.entrySet().iterator(); it.hasNext();) {
+                    Map.Entry entry = (Entry) it.next();
+                    out.writeUTF((String) entry.getKey());
+                    List resolverListings = new ArrayList();
+                    for (Iterator itListing = ((List) entry.getValue()).iterator(); itListing
+                            .hasNext();) {
+                        Listing listing = (Listing) itListing.next();
+                        if (now - listing.time <= ttl) {
+                            resolverListings.add(listing);
+                        }
+                    }
+                    out.writeInt(resolverListings.size());
+                    for (Iterator itListing = resolverListings.iterator(); itListing.hasNext();) {
+                        ((Listing) itListing.next()).write(out);
+                    }
+                }
+            } finally {
+                out.close();
+            }
+            file.delete();
+            if (!tmp.renameTo(file)) {
+                throw new IOException("impossible to rename " + tmp + " to " + file);
+            }
+            fileLastModified = file.lastModified();
+            fileLength = file.length();
+        } catch (IOException e) {
+            Message.debug("impossible to write search index " + file + ": " + e.getMessage());
+            tmp.delete();
+        }
+    }
+
+    /**
+     * A matcher created by a {@link PatternMatcher} for a search criterion, which can be kept in
+     * the index by the name of its pattern matcher and its expression.
+     */
+    static final class PatternCriterion implements Matcher {
+        private final String key;
+
+        private final Matcher matcher;
+
+        PatternCriterion(PatternMatcher patternMatcher, String expression, Matcher matcher) {
+            this.key = patternMatcher.getName() + ":" + expression;
+            this.matcher = matcher;
+        }
+
+        public boolean matches(String input) {
+            return matcher.matches(input);
+        }
+
+        public boolean isExact() {
+            return matcher.isExact();
+        }
+
+        String getKey() {
+            return key;
+        }
+
+        public String toString() {
+            return key;
+        }
+    }
+
+    /**
+     * The values of some tokens listed in a repository with some criteria.
+     */
+    private static final class Listing {
+        private final String repository;
+
+        private final Set/* <String> */tokens;
+
+        private final Map/* <String, String> */criteria;
+
+        private final Map/* <String, String> */patternKeys;
+
+        // the matchers of the pattern criteria, which are not stored in the file
+        private final Map/* <String, Matcher> */patternMatchers;
+
+        private final Map[] values;
+
+        private final long time;
+
+        Listing(String repository, Set tokens, Map criteria, Map patternCriteria, Map[] values) {
+            this(repository, tokens, criteria, new HashMap(), patternCriteria, values, System
+                    .currentTimeMillis());
+            for (Iterator it = patternCriteria.entrySet().iterator(); it.hasNext();) {
+                Map.Entry entry = (Entry) it.next();
+                patternKeys.put(entry.getKey(), ((PatternCriterion) entry.getValue()).getKey());
+            }
+        }
+
+        private Listing(String repository, Set tokens, Map criteria, Map patternKeys,
+                Map patternMatchers, Map[] values, long time) {
+            this.repository = repository;
+            this.tokens = tokens;
+            this.criteria = criteria;
+            this.patternKeys = patternKeys;
+            this.patternMatchers = patternMatchers;
+            this.values = values;
+            this.time = time;
+        }
+
+        static Listing read(DataInputStream in) throws IOException {
+            long time = in.readLong();
+            String repository = in.readUTF();
+            int tokenCount = in.readInt();
+            Set/* <String> */tokens = new LinkedHashSet();
+            for (int i = 0; i < tokenCount; i++) {
+                tokens.add(in.readUTF());
+            }
+            Map/* <String, String> */criteria = readMap(in);
+            Map/* <String, String> */patternKeys = readMap(in);
+            Map[] values = new Map[in.readInt()];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = readMap(in);
+            }
+            return new Listing(repository, tokens, criteria, patternKeys, new HashMap(), values,
+                    time);
+        }
+
+        void write(DataOutputStream out) throws IOException {
+            out.writeLong(time);
+            out.writeUTF(repository);
+            out.writeInt(tokens.size());
+            for (Iterator it = tokens.iterator(); it.hasNext();) {
+                out.writeUTF((String) it.next());
+            }
+            writeMap(out, criteria);
+            writeMap(out, patternKeys);
+            out.writeInt(values.length);
+            for (int i = 0; i < values.length; i++) {
+                writeMap(out, values[i]);
+            }
+        }
+
+        private static Map readMap(DataInputStream in) throws IOException {
+            int size = in.readInt();
+            Map/* <String, String> */map = new HashMap(size);
+            for (int i = 0; i < size; i++) {
+                String key = in.readUTF();
+                map.put(key, in.readBoolean() ? in.readUTF() : null);
+            }
+            return map;
+        }
+
+        private static void writeMap(DataOutputStream out, Map map) throws IOException {
+            out.writeInt(map.size());
+            for (Iterator it = map.entrySet().iterator(); it.hasNext();) {
+                Map.Entry entry = (Entry) it.next();
+                out.writeUTF((String) entry.getKey());
+                out.writeBoolean(entry.getValue() != null);
+                if (entry.getValue() != null) {
+                    out.writeUTF(entry.getValue().toString());
+                }
+            }
+        }
+
+        /**
+         * @return true if this listing contains all the values listed in the given repository by
+         *         a query of the given tokens with the given criteria and matchers
+         */
+        boolean answers(String queryRepository, Set queryTokens, Map queryCriteria,
+                Map queryMatchers) {
+            if (!repository.equals(queryRepository) || !tokens.containsAll(queryTokens)) {
+                return false;
+            }
+            for (Iterator it = criteria.entrySet().iterator(); it.hasNext();) {
+                Map.Entry entry = (Entry) it.next();
+                if (!entry.getValue().equals(queryCriteria.get(entry.getKey()))) {
+                    return false;
+                }
+            }
+            for (Iterator it = patternKeys.entrySet().iterator(); it.hasNext();) {
+                Map.Entry entry = (Entry) it.next();
+                Object queryMatcher = queryMatchers.get(entry.getKey());
+                if (queryMatcher instanceof PatternCriterion
+                        && entry.getValue().equals(((PatternCriterion) queryMatcher).getKey())) {
+                    continue;
+                }
+                // a query for an exact value of the token is answered if the value matched
+                Matcher matcher = (Matcher) patternMatchers.get(entry.getKey());
+                String value = (String) queryCriteria.get(entry.getKey());
+                if (matcher == null || value == null || !matcher.matches(value)) {
+                    return false;
+                }
+            }
+            for (Iterator it = queryCriteria.keySet().iterator(); it.hasNext();) {
+                Object key = it.next();
+                if (!criteria.containsKey(key) && !tokens.contains(key)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        Map[] select(Set queryTokens, Map queryCriteria, Map matchers) {
+            Set/* <Map> */result = new LinkedHashSet();
+            for (int i = 0; i < values.length; i++) {
+                if (matches(values[i], queryCriteria, matchers)) {
+                    Map selected = new HashMap(queryCriteria);
+                    for (Iterator it = queryTokens.iterator(); it.hasNext();) {
+                        Object token = it.next();
+                        if (values[i].containsKey(token)) {
+                            selected.put(token, values[i].get(token));
+                        }
+                    }
+                    result.add(selected);
+                }
+            }
+            return (Map[]) result.toArray(new Map[result.size()]);
+        }
+
+        private boolean matches(Map tokenValues, Map queryCriteria, Map matchers) {
+            // like the resolvers, the criteria on the tokens without value are ignored
+            for (Iterator it = queryCriteria.entrySet().iterator(); it.hasNext();) {
+                Map.Entry entry = (Entry) it.next();
+                Object value = tokenValues.get(entry.getKey());
+                if (value != null && !value.equals(entry.getValue())) {
+                    return false;
+                }
+            }
+            for (Iterator it = matchers.entrySet().iterator(); it.hasNext();) {
+                Map.Entry entry = (Entry) it.next();
+                String value = (String) tokenValues.get(entry.getKey());
+                if (value != null && !((Matcher) entry.getValue()).matches(value)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
@@ -38,6 +38,7 @@ import java.util.Map;
 import java.util.Properties;
 
 import org.apache.ivy.Ivy;
+import org.apache.ivy.core.IvyContext;
 import org.apache.ivy.core.IvyPatternHelper;
 import org.apache.ivy.core.NormalRelativeUrlResolver;
 import org.apache.ivy.core.RelativeUrlResolver;
@@ -113,13 +114,15 @@ public class IvySettings implements SortEngineSettings, PublishEngineSettings, P
         RepositoryManagementEngineSettings {
     private static final long INTERUPT_TIMEOUT = 2000;
 
+    private static Properties defaultTypeDefs;
+
     private Map typeDefs = new HashMap();
 
     private Map resolversMap = new HashMap();
 
     private DependencyResolver defaultResolver;
 
-    private DependencyResolver dictatorResolver = null;
+    private volatile DependencyResolver dictatorResolver = null;
 
     private String defaultResolverName;
 
@@ -186,6 +189,8 @@ public class IvySettings implements SortEngineSettings, PublishEngineSettings, P
 
     private boolean useRemoteConfig = false;
 
+    private long loadTime;
+
     private File defaultUserDir;
     
     private File baseDir = new File(".").getAbsoluteFile();
@@ -240,7 +245,7 @@ public class IvySettings implements SortEngineSettings, PublishEngineSettings, P
             }
         } else {
             try {
-                typeDefs(getSettingsURL("typedef.properties").openStream(), true);
+                typeDefs(getDefaultTypeDefs(), true);
             } catch (IOException e) {
                 Message.warn("impossible to load default type defs");
             }
@@ -396,7 +401,9 @@ public class IvySettings implements SortEngineSettings, PublishEngineSettings, P
             throw iae;
         }
         setVariable("ivy.default.ivy.user.dir", getDefaultIvyUserDir().getAbsolutePath(), false);
-        Message.verbose("settings loaded (" + (System.currentTimeMillis() - start) + "ms)");
+        long time = System.currentTimeMillis() - start;
+        loadTime += time;
+        Message.verbose("settings loaded (" + time + "ms)");
         dumpSettings();
     }
 
@@ -414,9 +421,18 @@ public class IvySettings implements SortEngineSettings, PublishEngineSettings, P
         loadDefaultProperties();
         new XmlSettingsParser(this).parse(settingsURL);
         setVariable("ivy.default.ivy.user.dir", getDefaultIvyUserDir().getAbsolutePath(), false);
-        Message.verbose("settings loaded (" + (System.currentTimeMillis() - start) + "ms)");
+        long time = System.currentTimeMillis() - start;
+        loadTime += time;
+        Message.verbose("settings loaded (" + time + "ms)");
         dumpSettings();
     }
+
+    /**
+     * Returns the time spent loading these settings from settings files, in milliseconds.
+     */
+    public long getLoadTime() {
+        return loadTime;
+    }
     
     /**
      * Default initialization of settings, useful when you don't want to load your settings from a
@@ -469,6 +485,23 @@ public class IvySettings implements SortEngineSettings, PublishEngineSettings, P
                 - "ivysettings.xml".length() - 1);
     }
 
+    /**
+     * Returns the default type definitions, which are loaded only once per JVM.
+     */
+    private static synchronized Properties getDefaultTypeDefs() throws IOException {
+        if (defaultTypeDefs == null) {
+            InputStream stream = getSettingsURL("typedef.properties").openStream();
+            try {
+                Properties p = new Properties();
+                p.load(stream);
+                defaultTypeDefs = p;
+            } finally {
+                stream.close();
+            }
+        }
+        return defaultTypeDefs;
+    }
+
     private static URL getSettingsURL(String file) {
         return XmlSettingsParser.class.getResource(file);
     }
@@ -869,9 +902,19 @@ public class IvySettings implements SortEngineSettings, PublishEngineSettings, P
         dictatorResolver = resolver;
     }
 
+    /**
+     * Returns the dictator resolver of the current context if any, or else the one of these
+     * settings.
+     */
+    private DependencyResolver getDictatorResolver() {
+        DependencyResolver resolver = IvyContext.getContext().getDictatorResolver();
+        return resolver == null ? dictatorResolver : resolver;
+    }
+
     public DependencyResolver getResolver(ModuleRevisionId mrid) {
-        if (dictatorResolver != null) {
-            return dictatorResolver;
+        DependencyResolver dictator = getDictatorResolver();
+        if (dictator != null) {
+            return dictator;
         }
         String resolverName = getResolverName(mrid);
         return getResolver(resolverName);
@@ -882,8 +925,9 @@ public class IvySettings implements SortEngineSettings, PublishEngineSettings, P
     }
 
     public DependencyResolver getResolver(String resolverName) {
-        if (dictatorResolver != null) {
-            return dictatorResolver;
+        DependencyResolver dictator = getDictatorResolver();
+        if (dictator != null) {
+            return dictator;
         }
         DependencyResolver resolver = (DependencyResolver) resolversMap.get(resolverName);
         if (resolver == null) {
@@ -893,8 +937,9 @@ public class IvySettings implements SortEngineSettings, PublishEngineSettings, P
     }
 
     public DependencyResolver getDefaultResolver() {
-        if (dictatorResolver != null) {
-            return dictatorResolver;
+        DependencyResolver dictator = getDictatorResolver();
+        if (dictator != null) {
+            return dictator;
         }
         if (defaultResolver == null) {
             defaultResolver = (DependencyResolver) resolversMap.get(defaultResolverName);
@@ -1089,7 +1134,7 @@ public class IvySettings implements SortEngineSettings, PublishEngineSettings, P
         return (VersionMatcher) versionMatchers.get(name);
     }
 
-    public void addVersionMatcher(VersionMatcher vmatcher) {
+    public synchronized void addVersionMatcher(VersionMatcher vmatcher) {
         init(vmatcher);
         versionMatchers.put(vmatcher.getName(), vmatcher);
 
@@ -1108,20 +1153,22 @@ public class IvySettings implements SortEngineSettings, PublishEngineSettings, P
             new VersionMatcher[versionMatchers.size()]);
     }
 
-    public VersionMatcher getVersionMatcher() {
+    // the defaults below are created on first use, possibly by several resolves at the same time:
+    // they are synchronized so that they are created once, and are seen fully configured
+    public synchronized VersionMatcher getVersionMatcher() {
         if (versionMatcher == null) {
             configureDefaultVersionMatcher();
         }
         return versionMatcher;
     }
 
-    public void configureDefaultVersionMatcher() {
+    public synchronized void configureDefaultVersionMatcher() {
         addVersionMatcher(new LatestVersionMatcher());
         addVersionMatcher(new SubVersionMatcher());
         addVersionMatcher(new VersionRangeMatcher());
     }
 
-    public CircularDependencyStrategy getCircularDependencyStrategy() {
+    public synchronized CircularDependencyStrategy getCircularDependencyStrategy() {
         if (circularDependencyStrategy == null) {
             circularDependencyStrategy = getCircularDependencyStrategy("default");
         }
@@ -1135,7 +1182,7 @@ public class IvySettings implements SortEngineSettings, PublishEngineSettings, P
         return (CircularDependencyStrategy) circularDependencyStrategies.get(name);
     }
 
-    public void setCircularDependencyStrategy(CircularDependencyStrategy strategy) {
+    public synchronized void setCircularDependencyStrategy(CircularDependencyStrategy strategy) {
         circularDependencyStrategy = strategy;
     }
 
@@ -1153,14 +1200,14 @@ public class IvySettings implements SortEngineSettings, PublishEngineSettings, P
         addCircularDependencyStrategy(IgnoreCircularDependencyStrategy.getInstance());
     }
 
-    public StatusManager getStatusManager() {
+    public synchronized StatusManager getStatusManager() {
         if (statusManager == null) {
             statusManager = StatusManager.newDefaultInstance();
         }
         return statusManager;
     }
 
-    public void setStatusManager(StatusManager statusManager) {
+    public synchronized void setStatusManager(StatusManager statusManager) {
         this.statusManager = statusManager;
     }
 
@@ -1202,7 +1249,7 @@ public class IvySettings implements SortEngineSettings, PublishEngineSettings, P
         return variableContainer.getVariable(name);
     }
 
-    public ConflictManager getDefaultConflictManager() {
+    public synchronized ConflictManager getDefaultConflictManager() {
         if (defaultConflictManager == null) {
             defaultConflictManager = new LatestConflictManager(getDefaultLatestStrategy());
             ((LatestConflictManager) defaultConflictManager).setSettings(this);
@@ -1210,33 +1257,33 @@ public class IvySettings implements SortEngineSettings, PublishEngineSettings, P
         return defaultConflictManager;
     }
 
-    public void setDefaultConflictManager(ConflictManager defaultConflictManager) {
+    public synchronized void setDefaultConflictManager(ConflictManager defaultConflictManager) {
         this.defaultConflictManager = defaultConflictManager;
     }
 
-    public LatestStrategy getDefaultLatestStrategy() {
+    public synchronized LatestStrategy getDefaultLatestStrategy() {
         if (defaultLatestStrategy == null) {
             defaultLatestStrategy = new LatestRevisionStrategy();
         }
         return defaultLatestStrategy;
     }
 
-    public void setDefaultLatestStrategy(LatestStrategy defaultLatestStrategy) {
+    public synchronized void setDefaultLatestStrategy(LatestStrategy defaultLatestStrategy) {
         this.defaultLatestStrategy = defaultLatestStrategy;
     }
 
-    public LockStrategy getDefaultLockStrategy() {
+    public synchronized LockStrategy getDefaultLockStrategy() {
         if (defaultLockStrategy == null) {
             defaultLockStrategy = new NoLockStrategy();
         }
         return defaultLockStrategy;
     }
 
-    public void setDefaultLockStrategy(LockStrategy defaultLockStrategy) {
+    public synchronized void setDefaultLockStrategy(LockStrategy defaultLockStrategy) {
         this.defaultLockStrategy = defaultLockStrategy;
     }
 
-    public RepositoryCacheManager getDefaultRepositoryCacheManager() {
+    public synchronized RepositoryCacheManager getDefaultRepositoryCacheManager() {
         if (defaultRepositoryCacheManager == null) {
             defaultRepositoryCacheManager 
                 = new DefaultRepositoryCacheManager(
@@ -1246,11 +1293,11 @@ public class IvySettings implements SortEngineSettings, PublishEngineSettings, P
         return defaultRepositoryCacheManager;
     }
 
-    public void setDefaultRepositoryCacheManager(RepositoryCacheManager cache) {
+    public synchronized void setDefaultRepositoryCacheManager(RepositoryCacheManager cache) {
         this.defaultRepositoryCacheManager = cache;
     }
 
-    public ResolutionCacheManager getResolutionCacheManager() {
+    public synchronized ResolutionCacheManager getResolutionCacheManager() {
         if (resolutionCacheManager == null) {
             resolutionCacheManager 
                 = new DefaultResolutionCacheManager(getDefaultResolutionCacheBasedir());
@@ -1259,7 +1306,7 @@ public class IvySettings implements SortEngineSettings, PublishEngineSettings, P
         return resolutionCacheManager;
     }
     
-    public void setResolutionCacheManager(ResolutionCacheManager resolutionCacheManager) {
+    public synchronized void setResolutionCacheManager(ResolutionCacheManager resolutionCacheManager) {
         this.resolutionCacheManager = resolutionCacheManager;
     }
 
@@ -0,0 +1,213 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.ivy.core.settings;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.xml.parsers.ParserConfigurationException;
+
+import org.apache.ivy.util.HexEncoder;
+import org.apache.ivy.util.Message;
+import org.apache.ivy.util.XMLHelper;
+import org.apache.ivy.util.url.URLHandlerRegistry;
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.AttributesImpl;
+import org.xml.sax.helpers.DefaultHandler;
+
+/**
+ * Keeps the settings files already parsed in this JVM in a compiled form, keyed by the hash of
+ * their content.
+ * <p>
+ * A compiled settings file is the sequence of its elements with their raw attribute values, which
+ * can be replayed to a {@link XmlSettingsParser} without parsing xml again. Since variables are
+ * substituted by the parser when the elements are replayed, the same compiled file can be used
+ * with any set of variables. Each settings file is downloaded only once per load, its content
+ * being used both to compute the key and to compile it on a cache miss.
+ * </p>
+ */
+final class SettingsDocumentCache {
+    private static final int MAX_DOCUMENTS = 32;
+
+    private static final int BUFFER_SIZE = 4096;
+
+    private static final Map/*<String,SettingsDocument>*/ DOCUMENTS = new LinkedHashMap(
+            MAX_DOCUMENTS, 0.75f, true) {
+        protected boolean removeEldestEntry(Map.Entry eldest) {
+            return size() > MAX_DOCUMENTS;
+        }
+    };
+
+    private static long hits = 0;
+
+    private static long misses = 0;
+
+    private SettingsDocumentCache() {
+    }
+
+    /**
+     * Returns the compiled settings document found at the given url, compiling it only if a
+     * document with the same content has not already been compiled.
+     */
+    public static SettingsDocument getDocument(URL settingsUrl)
+            throws IOException, SAXException, ParserConfigurationException {
+        byte[] content = readContent(settingsUrl);
+        String key = hash(content);
+        synchronized (DOCUMENTS) {
+            SettingsDocument document = (SettingsDocument) DOCUMENTS.get(key);
+            if (document != null) {
+                hits++;
+                Message.debug("using compiled settings for " + settingsUrl);
+                return document;
+            }
+            misses++;
+        }
+        SettingsDocument document = compile(settingsUrl, content);
+        synchronized (DOCUMENTS) {
+            DOCUMENTS.put(key, document);
+        }
+        return document;
+    }
+
+    /**
+     * Returns the number of settings files loaded from an already compiled document since the
+     * JVM started.
+     */
+    public static long getHitCount() {
+        synchronized (DOCUMENTS) {
+            return hits;
+        }
+    }
+
+    /**
+     * Returns the number of settings files which had to be parsed since the JVM started.
+     */
+    public static long getMissCount() {
+        synchronized (DOCUMENTS) {
+            return misses;
+        }
+    }
+
+    /**
+     * Discards all compiled settings documents.
+     */
+    public static void clear() {
+        synchronized (DOCUMENTS) {
+            DOCUMENTS.clear();
+        }
+    }
+
+    private static byte[] readContent(URL settingsUrl) throws IOException {
+        InputStream stream = URLHandlerRegistry.getDefault().openStream(settingsUrl);
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[BUFFER_SIZE];
+            int c;
+            while ((c = stream.read(buffer)) != -1) {
+                out.write(buffer, 0, c);
+            }
+            return out.toByteArray();
+        } finally {
+            try {
+                stream.close();
+            } catch (IOException e) {
+                // ignored
+            }
+        }
+    }
+
+    private static String hash(byte[] content) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA1");
+            return HexEncoder.encode(digest.digest(content));
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException("The SHA1 algorithm is not available in your classpath", e);
+        }
+    }
+
+    private static SettingsDocument compile(URL settingsUrl, byte[] content)
+            throws IOException, SAXException, ParserConfigurationException {
+        InputSource source = new InputSource(new ByteArrayInputStream(content));
+        source.setSystemId(settingsUrl.toExternalForm());
+        final List events = new ArrayList();
+        XMLHelper.parseWithoutNamespaces(source, new DefaultHandler() {
+            public void startElement(String uri, String localName, String qName,
+                    Attributes attributes) {
+                String[] element = new String[1 + 2 * attributes.getLength()];
+                element[0] = qName;
+                for (int i = 0; i < attributes.getLength(); i++) {
+                    element[1 + 2 * i] = attributes.getQName(i);
+                    element[2 + 2 * i] = attributes.getValue(i);
+                }
+                events.add(element);
+            }
+
+            public void endElement(String uri, String localName, String qName) {
+                events.add(qName);
+            }
+        });
+        return new SettingsDocument(events);
+    }
+
+    /**
+     * A compiled settings file. Instances are immutable and can be replayed concurrently.
+     */
+    static final class SettingsDocument {
+        // either a String[] {qName, attName1, attValue1, ...} for an element start, or the
+        // qName String for an element end
+        private final Object[] events;
+
+        private SettingsDocument(List events) {
+            this.events = events.toArray();
+        }
+
+        /**
+         * Sends the elements of this settings document to the given handler, as if the settings
+         * file was parsed with it.
+         */
+        public void replay(DefaultHandler handler) throws SAXException {
+            handler.startDocument();
+            for (int i = 0; i < events.length; i++) {
+                if (events[i] instanceof String[]) {
+                    String[] element = (String[]) events[i];
+                    AttributesImpl attributes = new AttributesImpl();
+                    for (int j = 1; j < element.length; j += 2) {
+                        attributes.addAttribute(
+                            "", element[j], element[j], "CDATA", element[j + 1]);
+                    }
+                    handler.startElement("", element[0], element[0], attributes);
+                } else {
+                    String qName = (String) events[i];
+                    handler.endElement("", qName, qName);
+                }
+            }
+            handler.endDocument();
+        }
+    }
+}
@@ -20,7 +20,6 @@ package org.apache.ivy.core.settings;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.io.InputStream;
 import java.net.MalformedURLException;
 import java.net.URI;
 import java.net.URISyntaxException;
@@ -33,8 +32,6 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 
-import javax.xml.parsers.SAXParserFactory;
-
 import org.apache.ivy.core.IvyPatternHelper;
 import org.apache.ivy.core.cache.RepositoryCacheManager;
 import org.apache.ivy.core.module.status.StatusManager;
@@ -51,7 +48,6 @@ import org.apache.ivy.util.url.CredentialsStore;
 import org.apache.ivy.util.url.URLHandler;
 import org.apache.ivy.util.url.URLHandlerRegistry;
 import org.xml.sax.Attributes;
-import org.xml.sax.InputSource;
 import org.xml.sax.SAXException;
 import org.xml.sax.helpers.DefaultHandler;
 
@@ -152,12 +148,8 @@ public class XmlSettingsParser extends DefaultHandler {
 
     private void doParse(URL settingsUrl) throws IOException, ParseException {
         this.settings = settingsUrl;
-        InputStream stream = null;
         try {
-            stream = URLHandlerRegistry.getDefault().openStream(settingsUrl);
-            InputSource inSrc = new InputSource(stream);
-            inSrc.setSystemId(settingsUrl.toExternalForm());
-            SAXParserFactory.newInstance().newSAXParser().parse(settingsUrl.toExternalForm(), this);
+            SettingsDocumentCache.getDocument(settingsUrl).replay(this);
             ivy.validate();
         } catch (IOException e) {
             throw e;
@@ -166,14 +158,6 @@ public class XmlSettingsParser extends DefaultHandler {
                     + ": " + e.getMessage(), 0);
             pe.initCause(e);
             throw pe;
-        } finally {
-            if (stream != null) {
-                try {
-                    stream.close();
-                } catch (IOException e) {
-                    // ignored
-                }
-            }
         }
     }
 
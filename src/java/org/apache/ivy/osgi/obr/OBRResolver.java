@@ -32,6 +32,8 @@ import org.apache.ivy.core.event.EventManager;
 import org.apache.ivy.core.report.ArtifactDownloadReport;
 import org.apache.ivy.osgi.obr.xml.OBRXMLParser;
 import org.apache.ivy.osgi.repo.AbstractOSGiResolver;
+import org.apache.ivy.osgi.repo.RepoDescriptor;
+import org.apache.ivy.osgi.repo.RepoDescriptorIndex;
 import org.apache.ivy.plugins.repository.Resource;
 import org.apache.ivy.plugins.repository.url.URLResource;
 import org.xml.sax.SAXException;
@@ -46,6 +48,8 @@ public class OBRResolver extends AbstractOSGiResolver {
 
     private Boolean forceMetadataUpdate;
 
+    private boolean lazy = false;
+
     public void setRepoXmlFile(String repositoryXmlFile) {
         this.repoXmlFile = repositoryXmlFile;
     }
@@ -62,6 +66,18 @@ public class OBRResolver extends AbstractOSGiResolver {
         this.forceMetadataUpdate = forceMetadataUpdate;
     }
 
+    /**
+     * Sets whether the bundles of the repository should be kept in a compact form, their module
+     * descriptors being built only when they are looked up.
+     */
+    public void setLazy(boolean lazy) {
+        this.lazy = lazy;
+    }
+
+    public boolean isLazy() {
+        return lazy;
+    }
+
     protected void init() {
         if (repoXmlFile != null && repoXmlURL != null) {
             throw new RuntimeException("The OBR repository resolver " + getName()
@@ -116,6 +132,17 @@ public class OBRResolver extends AbstractOSGiResolver {
     }
 
     private void loadRepoFromFile(URI baseUri, File repoFile, String sourceLocation) {
+        RepoDescriptorIndex index = getRepoDescriptorIndex(sourceLocation);
+        if (index != null) {
+            index.setLazy(lazy);
+            // the repository.xml has already been downloaded if needed, only check the local file
+            RepoDescriptor repo = index.load(getRepositoryCacheManager(), null, getRepository());
+            if (repo != null) {
+                setRepoDescriptor(repo);
+                return;
+            }
+            index.addSource(repoFile);
+        }
         FileInputStream in;
         try {
             in = new FileInputStream(repoFile);
@@ -123,8 +150,10 @@ public class OBRResolver extends AbstractOSGiResolver {
             throw new RuntimeException("The OBR repository resolver " + getName()
                     + " couldn't be configured: the file " + sourceLocation + " was not found");
         }
+        RepoDescriptor repo;
         try {
-            setRepoDescriptor(OBRXMLParser.parse(baseUri, in));
+            repo = OBRXMLParser.parse(baseUri, in, lazy);
+            setRepoDescriptor(repo);
         } catch (ParseException e) {
             throw new RuntimeException("The OBR repository resolver " + getName()
                     + " couldn't be configured: the file " + sourceLocation
@@ -143,5 +172,8 @@ public class OBRResolver extends AbstractOSGiResolver {
         } catch (IOException e) {
             // don't care
         }
+        if (index != null) {
+            index.store(repo);
+        }
     }
 }
@@ -17,7 +17,10 @@
  */
 package org.apache.ivy.osgi.obr.filter;
 
+import java.text.ParseException;
+
 import org.apache.ivy.osgi.obr.xml.RequirementFilter;
+import org.apache.ivy.osgi.util.Version;
 
 public class CompareFilter extends RequirementFilter {
 
@@ -55,6 +58,8 @@ public class CompareFilter extends RequirementFilter {
 
     private final String leftValue;
 
+    private Version rightVersion;
+
     public CompareFilter(String leftValue, Operator operator, String rightValue) {
         this.leftValue = leftValue;
         this.rightValue = rightValue;
@@ -73,6 +78,16 @@ public class CompareFilter extends RequirementFilter {
         return rightValue;
     }
 
+    /**
+     * @return the right value parsed as an OSGi version, which is parsed only once
+     */
+    public synchronized Version getRightVersion() throws ParseException {
+        if (rightVersion == null) {
+            rightVersion = new Version(rightValue);
+        }
+        return rightVersion;
+    }
+
     public void append(StringBuffer builder) {
         builder.append("(");
         builder.append(leftValue);
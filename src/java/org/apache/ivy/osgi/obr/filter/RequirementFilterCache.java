@@ -0,0 +1,100 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.ivy.osgi.obr.filter;
+
+import java.text.ParseException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.ivy.osgi.obr.xml.RequirementFilter;
+
+/**
+ * Interns the parsed requirement filters by their text.
+ * <p>
+ * The same filters are repeated on a lot of the resources of an OBR repository: parsing the same
+ * text again returns the same instance, as long as it has been parsed recently. So the resources
+ * share the same filter tree, and the versions of its comparisons are parsed only once. The
+ * returned filters are shared, so they must not be modified.
+ * </p>
+ */
+public final class RequirementFilterCache {
+
+    private static final int MAX_FILTERS = 4096;
+
+    private static final Map/* <String, RequirementFilter> */FILTERS = new LinkedHashMap(16,
+            0.75f, true) {
+        protected boolean removeEldestEntry(Map.Entry eldest) {
+            return size() > MAX_FILTERS;
+        }
+    };
+
+    private static long hits = 0;
+
+    private static long misses = 0;
+
+    private RequirementFilterCache() {
+        // utility class
+    }
+
+    /**
+     * Returns the filter parsed from the given text, parsing it only if it has not been parsed
+     * recently.
+     */
+    public static RequirementFilter parse(String text) throws ParseException {
+        synchronized (FILTERS) {
+            RequirementFilter filter = (RequirementFilter) FILTERS.get(text);
+            if (filter != null) {
+                hits++;
+                return filter;
+            }
+            misses++;
+        }
+        RequirementFilter filter = RequirementFilterParser.parse(text);
+        synchronized (FILTERS) {
+            FILTERS.put(text, filter);
+        }
+        return filter;
+    }
+
+    /**
+     * Returns the number of filters found already parsed since the JVM started.
+     */
+    public static long getHitCount() {
+        synchronized (FILTERS) {
+            return hits;
+        }
+    }
+
+    /**
+     * Returns the number of filters which had to be parsed since the JVM started.
+     */
+    public static long getMissCount() {
+        synchronized (FILTERS) {
+            return misses;
+        }
+    }
+
+    /**
+     * Discards all the interned filters.
+     */
+    public static void clear() {
+        synchronized (FILTERS) {
+            FILTERS.clear();
+        }
+    }
+}
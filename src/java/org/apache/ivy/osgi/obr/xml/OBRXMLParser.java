@@ -27,8 +27,9 @@ import javax.xml.parsers.ParserConfigurationException;
 
 import org.apache.ivy.osgi.core.BundleInfo;
 import org.apache.ivy.osgi.core.ExecutionEnvironmentProfileProvider;
-import org.apache.ivy.osgi.obr.filter.RequirementFilterParser;
+import org.apache.ivy.osgi.obr.filter.RequirementFilterCache;
 import org.apache.ivy.osgi.repo.BundleRepoDescriptor;
+import org.apache.ivy.osgi.repo.LazyBundleRepoDescriptor;
 import org.apache.ivy.osgi.util.DelegetingHandler;
 import org.apache.ivy.osgi.util.Version;
 import org.apache.ivy.util.Message;
@@ -41,7 +42,20 @@ public class OBRXMLParser {
 
     public static BundleRepoDescriptor parse(URI baseUri, InputStream in) throws ParseException,
             IOException, SAXException {
-        RepositoryHandler handler = new RepositoryHandler(baseUri);
+        return parse(baseUri, in, false);
+    }
+
+    /**
+     * Parses a repository.xml, each resource being added to the descriptor as soon as it is
+     * parsed.
+     * 
+     * @param lazy
+     *            true to get a {@link LazyBundleRepoDescriptor}, which keeps the resources in a
+     *            compact form and builds their module descriptors only when they are looked up
+     */
+    public static BundleRepoDescriptor parse(URI baseUri, InputStream in, boolean lazy)
+            throws ParseException, IOException, SAXException {
+        RepositoryHandler handler = new RepositoryHandler(baseUri, lazy);
         try {
             XMLHelper.parse(in, null, handler, null);
         } catch (ParserConfigurationException e) {
@@ -62,9 +76,12 @@ public class OBRXMLParser {
 
         private final URI baseUri;
 
-        public RepositoryHandler(URI baseUri) {
+        private final boolean lazy;
+
+        public RepositoryHandler(URI baseUri, boolean lazy) {
             super(REPOSITORY);
             this.baseUri = baseUri;
+            this.lazy = lazy;
             addChild(new ResourceHandler(), new ChildElementHandler() {
                 public void childHanlded(DelegetingHandler child) {
                     repo.addBundle(((ResourceHandler) child).bundleInfo);
@@ -73,8 +90,13 @@ public class OBRXMLParser {
         }
 
         protected void handleAttributes(Attributes atts) {
-            repo = new BundleRepoDescriptor(baseUri,
-                    ExecutionEnvironmentProfileProvider.getInstance());
+            if (lazy) {
+                repo = new LazyBundleRepoDescriptor(baseUri,
+                        ExecutionEnvironmentProfileProvider.getInstance());
+            } else {
+                repo = new BundleRepoDescriptor(baseUri,
+                        ExecutionEnvironmentProfileProvider.getInstance());
+            }
 
             repo.setName(atts.getValue(NAME));
 
@@ -334,7 +356,8 @@ public class OBRXMLParser {
             filter = null;
             if (filterText != null) {
                 try {
-                    filter = RequirementFilterParser.parse(filterText);
+                    // the same filters are found on many resources, share them
+                    filter = RequirementFilterCache.parse(filterText);
                 } catch (ParseException e) {
                     throw new SAXParseException("Requirement with illformed filter: " + filterText,
                             getLocator());
@@ -34,7 +34,6 @@ import org.apache.ivy.osgi.core.BundleCapability;
 import org.apache.ivy.osgi.core.BundleInfo;
 import org.apache.ivy.osgi.core.BundleRequirement;
 import org.apache.ivy.osgi.core.ExportPackage;
-import org.apache.ivy.osgi.core.ManifestParser;
 import org.apache.ivy.osgi.obr.xml.OBRXMLParser.CapabilityHandler;
 import org.apache.ivy.osgi.obr.xml.OBRXMLParser.CapabilityPropertyHandler;
 import org.apache.ivy.osgi.obr.xml.OBRXMLParser.RepositoryHandler;
@@ -74,8 +73,7 @@ public class OBRXMLWriter {
             ManifestAndLocation manifestAndLocation = (ManifestAndLocation) it.next();
             BundleInfo bundleInfo;
             try {
-                bundleInfo = ManifestParser.parseManifest(manifestAndLocation.getManifest());
-                bundleInfo.setUri(manifestAndLocation.getUri());
+                bundleInfo = manifestAndLocation.getBundleInfo();
                 nbOk++;
             } catch (ParseException e) {
                 nbRejected++;
@@ -118,7 +118,7 @@ public class RequirementAdapter {
             String v = compareFilter.getRightValue();
             Version version;
             try {
-                version = new Version(v);
+                version = compareFilter.getRightVersion();
             } catch (ParseException e) {
                 throw new ParseException("Ill formed version: " + v, 0);
             }
@@ -84,12 +84,8 @@ public class P2MetadataParser implements XMLInputParser {
                     }
                 }
             });
-            addChild(new UnitsHandler(), new ChildElementHandler() {
+            addChild(new UnitsHandler(p2Descriptor), new ChildElementHandler() {
                 public void childHanlded(DelegetingHandler child) {
-                    Iterator it = ((UnitsHandler) child).bundles.iterator();
-                    while (it.hasNext()) {
-                        p2Descriptor.addBundle((BundleInfo) it.next());
-                    }
                 }
             });
             addChild(new ReferencesHandler(), new ChildElementHandler() {
@@ -176,31 +172,26 @@ public class P2MetadataParser implements XMLInputParser {
         }
     }
 
+    /**
+     * Handles the units of the repository, each bundle being added to the descriptor as soon as
+     * its unit is parsed, so that the units of large repositories are never all kept in memory.
+     */
     static class UnitsHandler extends DelegetingHandler {
 
         private static final String UNITS = "units";
 
-        private static final String SIZE = "size";
-
-        List bundles;
-
-        public UnitsHandler() {
+        public UnitsHandler(final P2Descriptor p2Descriptor) {
             super(UNITS);
             addChild(new UnitHandler(), new ChildElementHandler() {
                 public void childHanlded(DelegetingHandler child) {
                     BundleInfo bundleInfo = ((UnitHandler) child).bundleInfo;
                     if (!bundleInfo.getCapabilities().isEmpty()) {
-                        bundles.add(((UnitHandler) child).bundleInfo);
+                        p2Descriptor.addBundle(bundleInfo);
                     }
                 }
             });
         }
 
-        protected void handleAttributes(Attributes atts) {
-            int size = Integer.parseInt(atts.getValue(SIZE));
-            bundles = new ArrayList(size);
-        }
-
     }
 
     static class UnitHandler extends DelegetingHandler {
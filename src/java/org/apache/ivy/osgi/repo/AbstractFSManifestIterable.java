@@ -21,14 +21,24 @@ import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URI;
+import java.text.ParseException;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 import java.util.NoSuchElementException;
 import java.util.Stack;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
 import java.util.jar.JarInputStream;
 import java.util.jar.Manifest;
 
+import org.apache.ivy.core.IvyContext;
 import org.apache.ivy.util.Message;
 
 // T is the type of the resource "path"
@@ -36,11 +46,43 @@ public abstract class AbstractFSManifestIterable /* <T> implements Iterable/* <M
 
     private final Object/* T */root;
 
+    private int threads = 1;
+
+    private ManifestCache manifestCache = null;
+
     public AbstractFSManifestIterable(Object /* T */root) {
         this.root = root;
     }
 
+    /**
+     * Sets the number of threads used to walk the directories and read the manifests. With more
+     * than one thread, the manifests are read and parsed in the background, the iterator still
+     * returning them in the same order as a sequential scan.
+     */
+    public void setThreads(int threads) {
+        this.threads = threads;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    /**
+     * Sets the cache in which the manifests read are kept, so that unchanged jars are not opened
+     * again by the next scans. The cache is not saved by this iterable.
+     */
+    public void setManifestCache(ManifestCache manifestCache) {
+        this.manifestCache = manifestCache;
+    }
+
+    public ManifestCache getManifestCache() {
+        return manifestCache;
+    }
+
     public Iterator/* <ManifestAndLocation> */iterator() {
+        if (threads > 1) {
+            return new ParallelManifestIterator(root);
+        }
         return new FSManifestIterator(root);
     }
 
@@ -52,9 +94,75 @@ public abstract class AbstractFSManifestIterable /* <T> implements Iterable/* <M
 
     abstract protected URI buildBundleURI(Object/* T */location) throws IOException;
 
-    class FSManifestIterator implements Iterator/* <ManifestAndLocation> */{
+    /**
+     * @return the length of the given bundle file, or -1 if unknown, in which case its manifest is
+     *         not cached
+     */
+    protected long getLength(Object/* T */f) throws IOException {
+        return -1;
+    }
 
-        private ManifestAndLocation next = null;
+    /**
+     * @return the last modified date of the given bundle file, or 0 if unknown, in which case its
+     *         manifest is not cached
+     */
+    protected long getLastModified(Object/* T */f) throws IOException {
+        return 0;
+    }
+
+    /**
+     * Reads the manifest of a bundle candidate, from the manifest cache if the file has not
+     * changed.
+     * 
+     * @return the manifest and its location, or null if the candidate has no manifest or can't be
+     *         read
+     */
+    private ManifestAndLocation readManifest(Object/* T */bundleCandidate) {
+        String path = String.valueOf(bundleCandidate);
+        long length = -1;
+        long lastModified = 0;
+        JarInputStream in = null;
+        try {
+            if (manifestCache != null) {
+                length = getLength(bundleCandidate);
+                lastModified = getLastModified(bundleCandidate);
+                if (length >= 0 && lastModified > 0
+                        && manifestCache.isCached(path, length, lastModified)) {
+                    Manifest manifest = manifestCache.get(path);
+                    return manifest == null ? null : new ManifestAndLocation(manifest,
+                            buildBundleURI(bundleCandidate));
+                }
+            }
+            in = new JarInputStream(getInputStream(bundleCandidate));
+            Manifest manifest = in.getManifest();
+            if (manifestCache != null && length >= 0 && lastModified > 0) {
+                manifestCache.put(path, length, lastModified, manifest);
+            }
+            if (manifest != null) {
+                return new ManifestAndLocation(manifest, buildBundleURI(bundleCandidate));
+            } else {
+                Message.debug("No manifest in jar: " + bundleCandidate);
+            }
+        } catch (FileNotFoundException e) {
+            Message.debug("Jar file just removed: " + bundleCandidate + " (" + e + ")");
+        } catch (IOException e) {
+            Message.warn("Unreadable jar: " + bundleCandidate + " (" + e + ")");
+        } finally {
+            if (in != null) {
+                try {
+                    in.close();
+                } catch (IOException e) {
+                    // Don't care
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Walks the directories to find the bundle candidates.
+     */
+    class BundleCandidateWalker {
 
         /**
          * Stack of list of directories. An iterator in the stack represents the current directory
@@ -71,16 +179,18 @@ public abstract class AbstractFSManifestIterable /* <T> implements Iterable/* <M
 
         private Object/* T */currentDir = null;
 
-        FSManifestIterator(Object /* T */root) {
+        BundleCandidateWalker(Object /* T */root) {
             dirs.add(Collections.singleton(root).iterator());
         }
 
         /**
          * Deep first tree lookup for the directories and the bundles are searched on each found
          * directory.
+         * 
+         * @return the next bundle candidate, or null if there is none
          */
-        public boolean hasNext() {
-            while (next == null) {
+        Object/* T */nextCandidate() {
+            while (true) {
                 // no current directory
                 if (currentDir == null) {
                     // so get the next one
@@ -94,36 +204,13 @@ public abstract class AbstractFSManifestIterable /* <T> implements Iterable/* <M
                         }
                     } else if (dirs.size() <= 1) {
                         // no next directory, but we are at the root: finished
-                        return false;
+                        return null;
                     } else {
                         // remove the top of the stack and continue with a sibling.
                         dirs.pop();
                     }
                 } else if (bundleCandidates.hasNext()) {
-                    Object/* T */bundleCandidate = bundleCandidates.next();
-                    JarInputStream in = null;
-                    try {
-                        in = new JarInputStream(getInputStream(bundleCandidate));
-                        Manifest manifest = in.getManifest();
-                        if (manifest != null) {
-                            next = new ManifestAndLocation(manifest,
-                                    buildBundleURI(bundleCandidate));
-                        } else {
-                            Message.debug("No manifest in jar: " + bundleCandidate);
-                        }
-                    } catch (FileNotFoundException e) {
-                        Message.debug("Jar file just removed: " + bundleCandidate + " (" + e + ")");
-                    } catch (IOException e) {
-                        Message.warn("Unreadable jar: " + bundleCandidate + " (" + e + ")");
-                    } finally {
-                        if (in != null) {
-                            try {
-                                in.close();
-                            } catch (IOException e) {
-                                // Don't care
-                            }
-                        }
-                    }
+                    return bundleCandidates.next();
                 } else {
                     // no more candidate on the current directory
                     // so lookup in the children directories
@@ -136,6 +223,27 @@ public abstract class AbstractFSManifestIterable /* <T> implements Iterable/* <M
                     currentDir = null;
                 }
             }
+        }
+    }
+
+    class FSManifestIterator implements Iterator/* <ManifestAndLocation> */{
+
+        private ManifestAndLocation next = null;
+
+        private final BundleCandidateWalker walker;
+
+        FSManifestIterator(Object /* T */root) {
+            walker = new BundleCandidateWalker(root);
+        }
+
+        public boolean hasNext() {
+            while (next == null) {
+                Object/* T */bundleCandidate = walker.nextCandidate();
+                if (bundleCandidate == null) {
+                    return false;
+                }
+                next = readManifest(bundleCandidate);
+            }
             return true;
         }
 
@@ -152,4 +260,106 @@ public abstract class AbstractFSManifestIterable /* <T> implements Iterable/* <M
             throw new UnsupportedOperationException();
         }
     }
+
+    /**
+     * Walks the directories in a background thread, and reads and parses the manifests on a pool
+     * of threads. The manifests are returned in the order the bundle candidates have been found.
+     */
+    class ParallelManifestIterator implements Iterator/* <ManifestAndLocation> */{
+
+        // marks the end of the scan in the results
+        private final Object end = new Object();
+
+        // the futures of the manifests in the order of the scan, followed by end
+        private final BlockingQueue/* <Object> */results = new LinkedBlockingQueue();
+
+        private volatile RuntimeException walkError = null;
+
+        private ManifestAndLocation next = null;
+
+        private boolean finished = false;
+
+        ParallelManifestIterator(final Object /* T */root) {
+            final IvyContext context = new IvyContext(IvyContext.getContext());
+            final ExecutorService executor = Executors.newFixedThreadPool(threads,
+                new ThreadFactory() {
+                    public Thread newThread(Runnable r) {
+                        Thread thread = new Thread(r, "ivy manifest scan " + root);
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+            executor.submit(new Runnable() {
+                public void run() {
+                    IvyContext.pushContext(context);
+                    try {
+                        BundleCandidateWalker walker = new BundleCandidateWalker(root);
+                        Object/* T */bundleCandidate;
+                        while ((bundleCandidate = walker.nextCandidate()) != null) {
+                            final Object/* T */candidate = bundleCandidate;
+                            results.add(executor.submit(new Callable() {
+                                public Object call() {
+                                    IvyContext.pushContext(context);
+                                    try {
+                                        ManifestAndLocation manifest = readManifest(candidate);
+                                        if (manifest != null) {
+                                            try {
+                                                manifest.getBundleInfo();
+                                            } catch (ParseException e) {
+                                                // reported to the consumer of the manifest
+                                            }
+                                        }
+                                        return manifest;
+                                    } finally {
+                                        IvyContext.popContext();
+                                    }
+                                }
+                            }));
+                        }
+                    } catch (RuntimeException e) {
+                        walkError = e;
+                    } finally {
+                        results.add(end);
+                        executor.shutdown();
+                        IvyContext.popContext();
+                    }
+                }
+            });
+        }
+
+        public boolean hasNext() {
+            while (next == null && !finished) {
+                try {
+                    Object result = results.take();
+                    if (result == end) {
+                        finished = true;
+                        if (walkError != null) {
+                            throw walkError;
+                        }
+                    } else {
+                        next = (ManifestAndLocation) ((Future) result).get();
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new RuntimeException("interrupted while scanning the manifests");
+                } catch (ExecutionException e) {
+                    throw new RuntimeException("error while reading a manifest", e.getCause());
+                }
+            }
+            return next != null;
+        }
+
+        public Object next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            ManifestAndLocation manifest = next;
+            next = null;
+            return manifest;
+        }
+
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
 }
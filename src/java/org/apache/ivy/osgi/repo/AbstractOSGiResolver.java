@@ -20,6 +20,8 @@ package org.apache.ivy.osgi.repo;
 import java.io.File;
 import java.io.IOException;
 import java.net.URL;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.text.ParseException;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -35,6 +37,8 @@ import java.util.Map.Entry;
 import java.util.Set;
 
 import org.apache.ivy.core.IvyPatternHelper;
+import org.apache.ivy.core.cache.DefaultRepositoryCacheManager;
+import org.apache.ivy.core.cache.RepositoryCacheManager;
 import org.apache.ivy.core.module.descriptor.Artifact;
 import org.apache.ivy.core.module.descriptor.Configuration;
 import org.apache.ivy.core.module.descriptor.DefaultDependencyDescriptor;
@@ -50,6 +54,7 @@ import org.apache.ivy.core.resolve.ResolvedModuleRevision;
 import org.apache.ivy.osgi.core.BundleInfo;
 import org.apache.ivy.osgi.core.BundleInfoAdapter;
 import org.apache.ivy.osgi.util.Version;
+import org.apache.ivy.osgi.util.VersionRange;
 import org.apache.ivy.plugins.repository.Resource;
 import org.apache.ivy.plugins.repository.url.URLRepository;
 import org.apache.ivy.plugins.repository.url.URLResource;
@@ -57,6 +62,7 @@ import org.apache.ivy.plugins.resolver.BasicResolver;
 import org.apache.ivy.plugins.resolver.util.MDResolvedResource;
 import org.apache.ivy.plugins.resolver.util.ResolvedResource;
 import org.apache.ivy.plugins.resolver.util.ResourceMDParser;
+import org.apache.ivy.util.HexEncoder;
 import org.apache.ivy.util.Message;
 
 public abstract class AbstractOSGiResolver extends BasicResolver {
@@ -67,6 +73,8 @@ public abstract class AbstractOSGiResolver extends BasicResolver {
 
     private URLRepository repository = new URLRepository();
 
+    private boolean persistentIndex = true;
+
     public static class RequirementStrategy {
         // take the first matching
         public static RequirementStrategy first = new RequirementStrategy();
@@ -95,6 +103,44 @@ public abstract class AbstractOSGiResolver extends BasicResolver {
         setRequirementStrategy(RequirementStrategy.valueOf(strategy));
     }
 
+    /**
+     * Sets whether the bundles of the repository should be kept in an index in the cache, so
+     * that the repository metadata are parsed again only when they change.
+     */
+    public void setPersistentIndex(boolean persistentIndex) {
+        this.persistentIndex = persistentIndex;
+    }
+
+    public boolean isPersistentIndex() {
+        return persistentIndex;
+    }
+
+    /**
+     * Returns the persistent index to use for the repository at the given location, or null if
+     * the persistent index is disabled or not supported by the cache manager.
+     */
+    protected RepoDescriptorIndex getRepoDescriptorIndex(String location) {
+        if (!persistentIndex) {
+            return null;
+        }
+        RepositoryCacheManager cacheManager = getRepositoryCacheManager();
+        if (!(cacheManager instanceof DefaultRepositoryCacheManager)) {
+            return null;
+        }
+        String hash;
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA1");
+            hash = HexEncoder.encode(digest.digest(location.getBytes("UTF-8")));
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException("The SHA1 algorithm is not available in your classpath", e);
+        } catch (IOException e) {
+            throw new RuntimeException("UTF-8 is not supported", e);
+        }
+        File basedir = ((DefaultRepositoryCacheManager) cacheManager).getBasedir();
+        return new RepoDescriptorIndex(new File(basedir, "osgi-index/" + getTypeName() + "-"
+                + hash + ".idx"));
+    }
+
     protected void setRepoDescriptor(RepoDescriptor repoDescriptor) {
         this.repoDescriptor = repoDescriptor;
     }
@@ -129,7 +175,14 @@ public abstract class AbstractOSGiResolver extends BasicResolver {
             throw new RuntimeException("Unsupported OSGi module Id: " + mrid.getModuleId());
         }
         String id = mrid.getName();
-        Set/* <ModuleDescriptor> */mds = getRepoDescriptor().findModule(osgiType, id);
+        Set/* <ModuleDescriptor> */mds;
+        VersionRange range = toVersionRange(mrid.getRevision());
+        if (range == null) {
+            mds = getRepoDescriptor().findModule(osgiType, id);
+        } else {
+            // only consider the modules which may match the asked revision
+            mds = getRepoDescriptor().findModule(osgiType, id, range);
+        }
         if (mds == null || mds.isEmpty()) {
             Message.verbose("\t " + id + " not found.");
             return null;
@@ -150,6 +203,37 @@ public abstract class AbstractOSGiResolver extends BasicResolver {
         return found;
     }
 
+    /**
+     * Converts an ivy revision into the range of OSGi versions it may match, the exact revisions
+     * and the ivy version ranges built from OSGi ranges being supported.
+     * 
+     * @return the OSGi version range, or null if the revision is not understood
+     */
+    private static VersionRange toVersionRange(String revision) {
+        if (revision == null || revision.length() == 0) {
+            return null;
+        }
+        try {
+            char first = revision.charAt(0);
+            char last = revision.charAt(revision.length() - 1);
+            if ((first == '[' || first == '(') && (last == ']' || last == ')')) {
+                String[] bounds = revision.substring(1, revision.length() - 1).split(",", -1);
+                if (bounds.length != 2) {
+                    return null;
+                }
+                Version start = bounds[0].trim().length() == 0 ? null : new Version(
+                        bounds[0].trim());
+                Version end = bounds[1].trim().length() == 0 ? null : new Version(
+                        bounds[1].trim());
+                return new VersionRange(first == '(', start, last == ')', end);
+            }
+            Version version = new Version(revision);
+            return new VersionRange(false, version, false, version);
+        } catch (ParseException e) {
+            return null;
+        }
+    }
+
     public ResolvedResource[] findBundle(DependencyDescriptor dd, ResolveData data, Set/*
                                                                                         * <
                                                                                         * ModuleDescriptor
@@ -321,7 +405,8 @@ public abstract class AbstractOSGiResolver extends BasicResolver {
 
     protected Collection findNames(Map tokenValues, String token) {
         if (IvyPatternHelper.ORGANISATION_KEY.equals(token)) {
-            return getRepoDescriptor().getModuleByCapbilities().keySet();
+            // copy, the names may be filtered afterwards
+            return new HashSet(getRepoDescriptor().getCapabilities());
         }
 
         String osgiType = (String) tokenValues.get(IvyPatternHelper.ORGANISATION_KEY);
@@ -329,42 +414,23 @@ public abstract class AbstractOSGiResolver extends BasicResolver {
             return Collections.EMPTY_LIST;
         }
 
-        String rev = (String) tokenValues.get(IvyPatternHelper.REVISION_KEY);
-
         if (IvyPatternHelper.MODULE_KEY.equals(token)) {
-            Map/* <String, Map<String, Set<ModuleDescriptor>>> */moduleByCapbilities = getRepoDescriptor()
-                    .getModuleByCapbilities();
-            if (osgiType != null) {
-                Map/* <String, Set<ModuleDescriptor>> */moduleByCapabilityValue = (Map) moduleByCapbilities
-                        .get(osgiType);
-                if (moduleByCapabilityValue == null) {
-                    return Collections.EMPTY_LIST;
-                }
-                Set/* <String> */capabilityValues = new HashSet();
-                return moduleByCapabilityValue.keySet();
-            } else {
-                Set/* <String> */capabilityValues = new HashSet();
-                Iterator/* <Map<String, Set<ModuleDescriptor>>> */it = ((Collection) moduleByCapbilities
-                        .values()).iterator();
-                while (it.hasNext()) {
-                    Map/* <String, Set<ModuleDescriptor>> */moduleByCapbilityValue = (Map) it
-                            .next();
-                    filterCapabilityValues(capabilityValues, moduleByCapbilityValue, tokenValues,
-                        rev);
-                }
-                return capabilityValues;
+            Set/* <String> */capabilityValues = getRepoDescriptor().getCapabilityValues(osgiType);
+            if (capabilityValues == null) {
+                return Collections.EMPTY_LIST;
             }
+            return new HashSet(capabilityValues);
         }
 
         if (IvyPatternHelper.REVISION_KEY.equals(token)) {
             String name = (String) tokenValues.get(IvyPatternHelper.MODULE_KEY);
             List/* <String> */versions = new ArrayList/* <String> */();
-            Set/* <ModuleDescriptor> */mds = getRepoDescriptor().findModule(osgiType, name);
-            if (mds != null) {
-                Iterator itMd = mds.iterator();
-                while (itMd.hasNext()) {
-                    ModuleDescriptor md = (ModuleDescriptor) itMd.next();
-                    versions.add(md.getRevision());
+            Set/* <Version> */capabilityVersions = getRepoDescriptor().getCapabilityVersions(
+                osgiType, name);
+            if (capabilityVersions != null) {
+                Iterator itVersion = capabilityVersions.iterator();
+                while (itVersion.hasNext()) {
+                    versions.add(itVersion.next().toString());
                 }
             }
             return versions;
@@ -378,68 +444,20 @@ public abstract class AbstractOSGiResolver extends BasicResolver {
             if (osgiType.equals(BundleInfo.PACKAGE_TYPE)) {
                 return Collections.singletonList(BundleInfoAdapter.CONF_USE_PREFIX + name);
             }
-            Set/* <BundleCapabilityAndLocation> */bundleCapabilities = getRepoDescriptor()
-                    .findModule(osgiType, name);
-            if (bundleCapabilities == null) {
-                return Collections.EMPTY_LIST;
-            }
             String version = (String) tokenValues.get(IvyPatternHelper.REVISION_KEY);
             if (version == null) {
                 return Collections.EMPTY_LIST;
             }
-            Version v;
-            try {
-                v = new Version(version);
-            } catch (ParseException e) {
-                return Collections.EMPTY_LIST;
-            }
-            BundleCapabilityAndLocation found = null;
-            Iterator itBundle = bundleCapabilities.iterator();
-            while (itBundle.hasNext()) {
-                BundleCapabilityAndLocation bundleCapability = (BundleCapabilityAndLocation) itBundle
-                        .next();
-                if (bundleCapability.getVersion().equals(v)) {
-                    found = bundleCapability;
-                }
-            }
+            BundleInfo found = findBundleInfo(osgiType, name, version);
             if (found == null) {
                 return Collections.EMPTY_LIST;
             }
-            List/* <String> */confs = BundleInfoAdapter.getConfigurations(found.getBundleInfo());
+            List/* <String> */confs = BundleInfoAdapter.getConfigurations(found);
             return confs;
         }
         return Collections.EMPTY_LIST;
     }
 
-    /**
-     * Populate capabilityValues with capability values for which at least one module match the
-     * expected revision
-     */
-    private void filterCapabilityValues(Set/* <String> */capabilityValues,
-            Map/* <String, Set<ModuleDescriptor>> */moduleByCapbilityValue,
-            Map/* <String, String */tokenValues, String rev) {
-        if (rev == null) {
-            // no revision, all match then
-            capabilityValues.addAll(moduleByCapbilityValue.keySet());
-        } else {
-            Iterator/* <Entry<String, Set<ModuleDescriptor>>> */it = moduleByCapbilityValue
-                    .entrySet().iterator();
-            while (it.hasNext()) {
-                Entry/* <String, Set<ModuleDescriptor>> */entry = (Entry) it.next();
-                Iterator/* <ModuleDescriptor> */itModules = ((Set) entry.getValue()).iterator();
-                boolean moduleMatchRev = false;
-                while (!moduleMatchRev && itModules.hasNext()) {
-                    ModuleDescriptor md = (ModuleDescriptor) itModules.next();
-                    moduleMatchRev = rev.equals(md.getRevision());
-                }
-                if (moduleMatchRev) {
-                    // at least one module matched, the capability value is ok to add
-                    capabilityValues.add(entry.getKey());
-                }
-            }
-        }
-    }
-
     public Map[] listTokenValues(String[] tokens, Map criteria) {
         Set/* <String> */tokenSet = new HashSet/* <String> */(Arrays.asList(tokens));
         Set/* <Map<String, String>> */listTokenValues = listTokenValues(tokenSet, criteria);
@@ -502,18 +520,17 @@ public abstract class AbstractOSGiResolver extends BasicResolver {
         tokenSet.remove(IvyPatternHelper.REVISION_KEY);
         String rev = (String) criteria.get(IvyPatternHelper.REVISION_KEY);
         if (rev == null) {
-            Set/* <BundleCapabilityAndLocation> */bundleCapabilities = getRepoDescriptor()
-                    .findModule(osgiType, module);
-            if (bundleCapabilities == null) {
+            Set/* <Version> */capabilityVersions = getRepoDescriptor().getCapabilityVersions(
+                osgiType, module);
+            if (capabilityVersions == null) {
                 return Collections.EMPTY_SET;
             }
             Set/* <Map<String, String>> */tokenValues = new HashSet/* <Map<String, String>> */();
-            Iterator itBundle = bundleCapabilities.iterator();
-            while (itBundle.hasNext()) {
-                BundleCapabilityAndLocation capability = (BundleCapabilityAndLocation) itBundle
-                        .next();
+            Iterator itVersion = capabilityVersions.iterator();
+            while (itVersion.hasNext()) {
+                Version version = (Version) itVersion.next();
                 Map/* <String, String> */newCriteria = new HashMap/* <String, String> */(criteria);
-                newCriteria.put(IvyPatternHelper.REVISION_KEY, capability.getVersion().toString());
+                newCriteria.put(IvyPatternHelper.REVISION_KEY, version.toString());
                 tokenValues.addAll(listTokenValues(tokenSet, newCriteria));
             }
             return tokenValues;
@@ -527,32 +544,12 @@ public abstract class AbstractOSGiResolver extends BasicResolver {
                 values.put(IvyPatternHelper.CONF_KEY, BundleInfoAdapter.CONF_USE_PREFIX + module);
                 return Collections./* <Map<String, String>> */singleton(values);
             }
-            Set/* <BundleCapabilityAndLocation> */bundleCapabilities = getRepoDescriptor()
-                    .findModule(osgiType, module);
-            if (bundleCapabilities == null) {
-                return Collections.EMPTY_SET;
-            }
-            Version v;
-            try {
-                v = new Version(rev);
-            } catch (ParseException e) {
-                return Collections.EMPTY_SET;
-            }
-            BundleCapabilityAndLocation found = null;
-            Iterator itBundle = bundleCapabilities.iterator();
-            while (itBundle.hasNext()) {
-                BundleCapabilityAndLocation bundleCapability = (BundleCapabilityAndLocation) itBundle
-                        .next();
-                if (bundleCapability.getVersion().equals(v)) {
-                    found = bundleCapability;
-                }
-            }
+            BundleInfo found = findBundleInfo(osgiType, module, rev);
             if (found == null) {
                 return Collections.EMPTY_SET;
             }
             Set/* <Map<String, String>> */tokenValues = new HashSet/* <Map<String, String>> */();
-            List/* <String> */configurations = BundleInfoAdapter.getConfigurations(found
-                    .getBundleInfo());
+            List/* <String> */configurations = BundleInfoAdapter.getConfigurations(found);
             for (int i = 0; i < configurations.size(); i++) {
                 Map/* <String, String> */newCriteria = new HashMap/* <String, String> */(criteria);
                 newCriteria.put(IvyPatternHelper.CONF_KEY, configurations.get(i));
@@ -565,6 +562,32 @@ public abstract class AbstractOSGiResolver extends BasicResolver {
         return Collections./* <Map<String, String>> */singleton(values);
     }
 
+    /**
+     * @return the bundle providing the given capability with the given version, null if there is
+     *         none
+     */
+    private BundleInfo findBundleInfo(String osgiType, String name, String rev) {
+        Version v;
+        try {
+            v = new Version(rev);
+        } catch (ParseException e) {
+            return null;
+        }
+        Set/* <ModuleDescriptor> */mds = getRepoDescriptor().findModule(osgiType, name, v);
+        if (mds == null) {
+            return null;
+        }
+        Iterator itMd = mds.iterator();
+        while (itMd.hasNext()) {
+            BundleInfo bundleInfo = getRepoDescriptor().getBundleInfo(
+                (ModuleDescriptor) itMd.next());
+            if (bundleInfo != null) {
+                return bundleInfo;
+            }
+        }
+        return null;
+    }
+
     protected long get(Resource resource, File dest) throws IOException {
         Message.verbose("\t" + getName() + ": downloading " + resource.getName());
         Message.debug("\t\tto " + dest);
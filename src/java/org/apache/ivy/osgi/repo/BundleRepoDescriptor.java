@@ -21,9 +21,7 @@ import java.net.URI;
 import java.text.ParseException;
 import java.util.Iterator;
 
-import org.apache.ivy.osgi.core.BundleInfo;
 import org.apache.ivy.osgi.core.ExecutionEnvironmentProfileProvider;
-import org.apache.ivy.osgi.core.ManifestParser;
 import org.apache.ivy.util.Message;
 
 public class BundleRepoDescriptor extends RepoDescriptor {
@@ -56,10 +54,7 @@ public class BundleRepoDescriptor extends RepoDescriptor {
         while (it.hasNext()) {
             ManifestAndLocation manifestAndLocation = (ManifestAndLocation) it.next();
             try {
-                BundleInfo bundleInfo = ManifestParser.parseManifest(manifestAndLocation
-                        .getManifest());
-                bundleInfo.setUri(manifestAndLocation.getUri());
-                addBundle(bundleInfo);
+                addBundle(manifestAndLocation.getBundleInfo());
             } catch (ParseException e) {
                 Message.error("Rejected " + manifestAndLocation.getUri() + ": " + e.getMessage());
             }
@@ -102,6 +102,14 @@ public class FSManifestIterable extends AbstractFSManifestIterable/* <File> */{
         return new FileInputStream((File) f);
     }
 
+    protected long getLength(Object/* File */f) {
+        return ((File) f).length();
+    }
+
+    protected long getLastModified(Object/* File */f) {
+        return ((File) f).lastModified();
+    }
+
     protected List/* <File> */listBundleFiles(Object/* File */dir) {
         return Arrays.asList(((File) dir).listFiles(new FileFilter() {
             public boolean accept(File f) {
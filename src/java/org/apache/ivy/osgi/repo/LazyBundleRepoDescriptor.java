@@ -0,0 +1,388 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.ivy.osgi.repo;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.text.ParseException;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import org.apache.ivy.core.module.descriptor.ModuleDescriptor;
+import org.apache.ivy.core.module.id.ModuleRevisionId;
+import org.apache.ivy.osgi.core.BundleCapability;
+import org.apache.ivy.osgi.core.BundleInfo;
+import org.apache.ivy.osgi.core.ExecutionEnvironmentProfileProvider;
+import org.apache.ivy.osgi.util.Version;
+import org.apache.ivy.osgi.util.VersionRange;
+
+/**
+ * A repository descriptor which keeps its bundles in a compact binary form, and builds their
+ * module descriptors only when they are looked up.
+ * <p>
+ * When a bundle is added, only its symbolic name, its capabilities and their versions are
+ * indexed, the rest of the bundle being serialized. The module descriptors built on lookups are
+ * kept in a cache of bounded size. So a repository with a lot of bundles, of which only a few are
+ * used by a resolve, takes far less memory than with a plain {@link RepoDescriptor}.
+ * </p>
+ * <p>
+ * Modules added directly with {@link #add(String, String, Version, ModuleDescriptor)} are kept as
+ * in a plain {@link RepoDescriptor}, and are looked up along with the bundles.
+ * </p>
+ * <p>
+ * {@link #getModules()} and {@link #getModuleByCapbilities()} have to build the module
+ * descriptors of all the bundles, they should be avoided on large repositories. The equality of
+ * two lazy repositories is computed from their location and the serialized bundles, so it does
+ * not build any module descriptor.
+ * </p>
+ */
+public class LazyBundleRepoDescriptor extends BundleRepoDescriptor {
+
+    private static final int MAX_CACHED_MODULES = 1024;
+
+    private final List/* <byte[]> */bundles = new ArrayList();
+
+    private final Map/* <String, Map<String, BundleIndex>> */bundlesByCapabilities = new HashMap();
+
+    private final Map/* <Integer, ModuleDescriptor> */cachedModules = new LinkedHashMap(16,
+            0.75f, true) {
+        protected boolean removeEldestEntry(Map.Entry eldest) {
+            return size() > MAX_CACHED_MODULES;
+        }
+    };
+
+    public LazyBundleRepoDescriptor(URI baseUri,
+            ExecutionEnvironmentProfileProvider profileProvider) {
+        super(baseUri, profileProvider);
+    }
+
+    public void addBundle(BundleInfo bundleInfo) {
+        Integer ordinal = new Integer(bundles.size());
+        try {
+            bundles.add(RepoDescriptorIndex.toBytes(bundleInfo));
+        } catch (IOException e) {
+            throw new RuntimeException("impossible to serialize the bundle " + bundleInfo, e);
+        }
+        index(BundleInfo.BUNDLE_TYPE, bundleInfo.getSymbolicName(), bundleInfo.getVersion(),
+            ordinal);
+        Iterator itCapability = bundleInfo.getCapabilities().iterator();
+        while (itCapability.hasNext()) {
+            BundleCapability capability = (BundleCapability) itCapability.next();
+            index(capability.getType(), capability.getName(), capability.getVersion(), ordinal);
+        }
+    }
+
+    private void index(String type, String value, Version version, Integer ordinal) {
+        Map/* <String, BundleIndex> */indexes = (Map) bundlesByCapabilities.get(type);
+        if (indexes == null) {
+            indexes = new HashMap/* <String, BundleIndex> */();
+            bundlesByCapabilities.put(type, indexes);
+        }
+        BundleIndex index = (BundleIndex) indexes.get(value);
+        if (index == null) {
+            index = new BundleIndex();
+            indexes.put(value, index);
+        }
+        index.add(version, ordinal);
+    }
+
+    /**
+     * Adds a module which is not backed by a bundle. It is kept as built, like in a plain
+     * {@link RepoDescriptor}.
+     */
+    public void add(String type, String value, Version version, ModuleDescriptor md) {
+        super.add(type, value, version, md);
+    }
+
+    private BundleIndex getBundleIndex(String type, String value) {
+        Map/* <String, BundleIndex> */indexes = (Map) bundlesByCapabilities.get(type);
+        if (indexes == null) {
+            return null;
+        }
+        return (BundleIndex) indexes.get(value);
+    }
+
+    public Set/* <ModuleDescriptor> */findModule(String requirement, String value) {
+        BundleIndex index = getBundleIndex(requirement, value);
+        Set/* <ModuleDescriptor> */added = super.findModule(requirement, value);
+        if (index == null) {
+            return added == null ? null : new HashSet(added);
+        }
+        Set/* <ModuleDescriptor> */mds = new HashSet();
+        addModules(mds, index.unversioned);
+        Iterator it = index.versions.values().iterator();
+        while (it.hasNext()) {
+            addModules(mds, (List) it.next());
+        }
+        addAll(mds, added);
+        return mds;
+    }
+
+    public Set/* <ModuleDescriptor> */findModule(String requirement, String value,
+            VersionRange range) {
+        BundleIndex index = getBundleIndex(requirement, value);
+        Set/* <ModuleDescriptor> */added = super.findModule(requirement, value, range);
+        if (index == null) {
+            return added;
+        }
+        Set/* <ModuleDescriptor> */mds = new HashSet();
+        addModules(mds, index.unversioned);
+        Iterator it = subMap(index.versions, range).values().iterator();
+        while (it.hasNext()) {
+            addModules(mds, (List) it.next());
+        }
+        addAll(mds, added);
+        return mds;
+    }
+
+    public Set/* <ModuleDescriptor> */findModule(String requirement, String value,
+            Version version) {
+        BundleIndex index = getBundleIndex(requirement, value);
+        Set/* <ModuleDescriptor> */added = super.findModule(requirement, value, version);
+        List/* <Integer> */ordinals = index == null ? null : (List) index.versions.get(version);
+        if (ordinals == null) {
+            return added == null ? null : new HashSet(added);
+        }
+        Set/* <ModuleDescriptor> */mds = new HashSet();
+        addModules(mds, ordinals);
+        addAll(mds, added);
+        return mds;
+    }
+
+    public Set/* <Version> */getCapabilityVersions(String requirement, String value) {
+        BundleIndex index = getBundleIndex(requirement, value);
+        Set/* <Version> */added = super.getCapabilityVersions(requirement, value);
+        if (index == null) {
+            return added;
+        }
+        if (added == null) {
+            return index.versions.keySet();
+        }
+        Set/* <Version> */versions = new TreeSet(index.versions.keySet());
+        versions.addAll(added);
+        return versions;
+    }
+
+    public Set/* <String> */getCapabilities() {
+        return union(bundlesByCapabilities.keySet(), super.getCapabilities());
+    }
+
+    public Set/* <String> */getCapabilityValues(String capabilityName) {
+        Map/* <String, BundleIndex> */indexes = (Map) bundlesByCapabilities.get(capabilityName);
+        Set/* <String> */added = super.getCapabilityValues(capabilityName);
+        if (indexes == null) {
+            return added;
+        }
+        return union(indexes.keySet(), added);
+    }
+
+    public BundleInfo getBundleInfo(ModuleDescriptor md) {
+        BundleInfo added = super.getBundleInfo(md);
+        if (added != null) {
+            return added;
+        }
+        ModuleRevisionId mrid = md.getModuleRevisionId();
+        BundleIndex index = getBundleIndex(BundleInfo.BUNDLE_TYPE, mrid.getName());
+        if (index == null || mrid.getRevision() == null) {
+            return null;
+        }
+        List/* <Integer> */ordinals;
+        try {
+            ordinals = (List) index.versions.get(new Version(mrid.getRevision()));
+        } catch (ParseException e) {
+            return null;
+        }
+        if (ordinals == null) {
+            return null;
+        }
+        return getBundle(((Integer) ordinals.get(0)).intValue());
+    }
+
+    /**
+     * @return a view of the bundles of this repository, each bundle being read again when it is
+     *         accessed
+     */
+    public List/* <BundleInfo> */getBundles() {
+        return new AbstractList() {
+            public Object get(int index) {
+                return getBundle(index);
+            }
+
+            public int size() {
+                return bundles.size();
+            }
+        };
+    }
+
+    public Set/* <ModuleDescriptor> */getModules() {
+        Set/* <ModuleDescriptor> */mds = new HashSet();
+        for (int i = 0; i < bundles.size(); i++) {
+            mds.add(getModule(new Integer(i)));
+        }
+        mds.addAll(super.getModules());
+        return mds;
+    }
+
+    public Map/* <String, Map<String, Set<ModuleDescriptor>>> */getModuleByCapbilities() {
+        Map/* <String, Map<String, Set<ModuleDescriptor>>> */moduleByCapbilities = new HashMap();
+        Iterator itTypes = getCapabilities().iterator();
+        while (itTypes.hasNext()) {
+            String type = (String) itTypes.next();
+            Map/* <String, Set<ModuleDescriptor>> */map = new HashMap();
+            Iterator itValues = getCapabilityValues(type).iterator();
+            while (itValues.hasNext()) {
+                String value = (String) itValues.next();
+                map.put(value, findModule(type, value));
+            }
+            moduleByCapbilities.put(type, map);
+        }
+        return moduleByCapbilities;
+    }
+
+    private static void addAll(Set/* <ModuleDescriptor> */mds, Set/* <ModuleDescriptor> */added) {
+        if (added != null) {
+            mds.addAll(added);
+        }
+    }
+
+    private static Set/* <String> */union(Set/* <String> */indexed, Set/* <String> */added) {
+        if (added == null || added.isEmpty()) {
+            return indexed;
+        }
+        Set/* <String> */union = new HashSet(indexed);
+        union.addAll(added);
+        return union;
+    }
+
+    private void addModules(Set/* <ModuleDescriptor> */mds, List/* <Integer> */ordinals) {
+        Iterator it = ordinals.iterator();
+        while (it.hasNext()) {
+            mds.add(getModule((Integer) it.next()));
+        }
+    }
+
+    private ModuleDescriptor getModule(Integer ordinal) {
+        synchronized (cachedModules) {
+            ModuleDescriptor md = (ModuleDescriptor) cachedModules.get(ordinal);
+            if (md != null) {
+                return md;
+            }
+        }
+        ModuleDescriptor md = toModuleDescriptor(getBundle(ordinal.intValue()));
+        synchronized (cachedModules) {
+            cachedModules.put(ordinal, md);
+        }
+        return md;
+    }
+
+    private BundleInfo getBundle(int ordinal) {
+        try {
+            return RepoDescriptorIndex.fromBytes((byte[]) bundles.get(ordinal));
+        } catch (IOException e) {
+            throw new RuntimeException("impossible to read a bundle of " + getBaseUri(), e);
+        } catch (ParseException e) {
+            throw new RuntimeException("impossible to read a bundle of " + getBaseUri(), e);
+        } catch (URISyntaxException e) {
+            throw new RuntimeException("impossible to read a bundle of " + getBaseUri(), e);
+        }
+    }
+
+    public String toString() {
+        return "lazy repository " + getBaseUri() + " (" + bundles.size() + " bundles)";
+    }
+
+    public int hashCode() {
+        final int prime = 31;
+        int result = 1;
+        result = prime * result + (getBaseUri() == null ? 0 : getBaseUri().hashCode());
+        Iterator it = bundles.iterator();
+        while (it.hasNext()) {
+            result = prime * result + Arrays.hashCode((byte[]) it.next());
+        }
+        result = prime * result + getAddedModules().hashCode();
+        return result;
+    }
+
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (obj == null) {
+            return false;
+        }
+        if (getClass() != obj.getClass()) {
+            return false;
+        }
+        LazyBundleRepoDescriptor other = (LazyBundleRepoDescriptor) obj;
+        if (getBaseUri() == null ? other.getBaseUri() != null : !getBaseUri().equals(
+            other.getBaseUri())) {
+            return false;
+        }
+        if (bundles.size() != other.bundles.size()) {
+            return false;
+        }
+        for (int i = 0; i < bundles.size(); i++) {
+            if (!Arrays.equals((byte[]) bundles.get(i), (byte[]) other.bundles.get(i))) {
+                return false;
+            }
+        }
+        return getAddedModules().equals(other.getAddedModules());
+    }
+
+    private Set/* <ModuleDescriptor> */getAddedModules() {
+        return super.getModules();
+    }
+
+    /**
+     * The bundles providing a capability, sorted by the version of the capability.
+     */
+    private static final class BundleIndex {
+        private final NavigableMap/* <Version, List<Integer>> */versions = new TreeMap();
+
+        private List/* <Integer> */unversioned = Collections.EMPTY_LIST;
+
+        void add(Version version, Integer ordinal) {
+            if (version == null) {
+                if (unversioned.isEmpty()) {
+                    unversioned = new ArrayList(1);
+                }
+                unversioned.add(ordinal);
+                return;
+            }
+            List/* <Integer> */ordinals = (List) versions.get(version);
+            if (ordinals == null) {
+                ordinals = new ArrayList(1);
+                versions.put(version, ordinals);
+            }
+            ordinals.add(ordinal);
+        }
+    }
+}
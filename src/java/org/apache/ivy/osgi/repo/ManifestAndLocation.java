@@ -18,8 +18,12 @@
 package org.apache.ivy.osgi.repo;
 
 import java.net.URI;
+import java.text.ParseException;
 import java.util.jar.Manifest;
 
+import org.apache.ivy.osgi.core.BundleInfo;
+import org.apache.ivy.osgi.core.ManifestParser;
+
 public class ManifestAndLocation {
 
     private final Manifest manifest;
@@ -29,6 +33,10 @@ public class ManifestAndLocation {
      */
     private final URI uri;
 
+    private BundleInfo bundleInfo = null;
+
+    private ParseException parseError = null;
+
     public ManifestAndLocation(Manifest manifest, URI uri) {
         this.manifest = manifest;
         this.uri = uri;
@@ -42,4 +50,26 @@ public class ManifestAndLocation {
         return manifest;
     }
 
+    /**
+     * Returns the bundle described by the manifest, located at the uri of the jar. The manifest
+     * is parsed only once.
+     * 
+     * @throws ParseException
+     *             if the manifest is not a valid bundle manifest
+     */
+    public synchronized BundleInfo getBundleInfo() throws ParseException {
+        if (bundleInfo == null && parseError == null) {
+            try {
+                bundleInfo = ManifestParser.parseManifest(manifest);
+                bundleInfo.setUri(uri);
+            } catch (ParseException e) {
+                parseError = e;
+            }
+        }
+        if (parseError != null) {
+            throw parseError;
+        }
+        return bundleInfo;
+    }
+
 }
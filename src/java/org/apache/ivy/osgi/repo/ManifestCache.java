@@ -0,0 +1,218 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.ivy.osgi.repo;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.jar.Manifest;
+
+import org.apache.ivy.util.Message;
+
+/**
+ * A cache of the manifests of the jars scanned by an {@link AbstractFSManifestIterable}, so that
+ * the jars which have not changed since the previous scan do not have to be opened again.
+ * <p>
+ * A jar is identified by its path, and considered unchanged if its length and last modified date
+ * are the same. Only the main attributes of the manifests are kept, which are the only ones
+ * describing the bundle. The jars without manifest are recorded too. The cache can be saved in a
+ * file, in which case only the jars seen during the last scan are kept. This class is thread
+ * safe.
+ * </p>
+ */
+public class ManifestCache {
+
+    private static final int MAGIC = 0x49564d46; // 'IVMF'
+
+    private static final int FORMAT_VERSION = 1;
+
+    private final File file;
+
+    private final Map/* <String, Entry> */entries = new HashMap();
+
+    private final Set/* <String> */seen = new HashSet();
+
+    private boolean loaded = false;
+
+    private int hits = 0;
+
+    /**
+     * Creates a cache kept in memory only.
+     */
+    public ManifestCache() {
+        this(null);
+    }
+
+    /**
+     * Creates a cache loaded from the given file if it exists, and saved to it by {@link #save()}.
+     */
+    public ManifestCache(File file) {
+        this.file = file;
+    }
+
+    /**
+     * @return true if the manifest of the jar at the given path is in the cache, and the jar has
+     *         not changed since it has been cached
+     */
+    public synchronized boolean isCached(String path, long length, long lastModified) {
+        ensureLoaded();
+        Entry entry = (Entry) entries.get(path);
+        if (entry == null || entry.length != length || entry.lastModified != lastModified) {
+            return false;
+        }
+        seen.add(path);
+        hits++;
+        return true;
+    }
+
+    /**
+     * @return the cached manifest of the jar at the given path, null if the jar has no manifest
+     */
+    public synchronized Manifest get(String path) {
+        Entry entry = (Entry) entries.get(path);
+        return entry == null ? null : entry.manifest;
+    }
+
+    public synchronized void put(String path, long length, long lastModified, Manifest manifest) {
+        ensureLoaded();
+        Manifest mainAttributes = null;
+        if (manifest != null) {
+            mainAttributes = new Manifest();
+            mainAttributes.getMainAttributes().putAll(manifest.getMainAttributes());
+        }
+        entries.put(path, new Entry(length, lastModified, mainAttributes));
+        seen.add(path);
+    }
+
+    /**
+     * @return the number of jars found unchanged in the cache so far
+     */
+    public synchronized int getHitCount() {
+        return hits;
+    }
+
+    /**
+     * Writes the jars seen since this cache has been loaded in the cache file, if any.
+     */
+    public synchronized void save() {
+        if (file == null) {
+            return;
+        }
+        File parent = file.getAbsoluteFile().getParentFile();
+        parent.mkdirs();
+        File tmp = new File(parent, file.getName() + ".part");
+        try {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                    new FileOutputStream(tmp)));
+            try {
+                out.writeInt(MAGIC);
+                out.writeInt(FORMAT_VERSION);
+                out.writeInt(seen.size());
+                for (Iterator it = seen.iterator(); it.hasNext();) {
+                    String path = (String) it.next();
+                    Entry entry = (Entry) entries.get(path);
+                    out.writeUTF(path);
+                    out.writeLong(entry.length);
+                    out.writeLong(entry.lastModified);
+                    if (entry.manifest == null) {
+                        out.writeInt(-1);
+                    } else {
+                        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                        entry.manifest.write(bytes);
+                        out.writeInt(bytes.size());
+                        bytes.writeTo(out);
+                    }
+                }
+            } finally {
+                out.close();
+            }
+            file.delete();
+            if (!tmp.renameTo(file)) {
+                throw new IOException("impossible to rename " + tmp + " to " + file);
+            }
+        } catch (IOException e) {
+            Message.warn("impossible to save the manifest cache " + file + ": " + e.getMessage());
+            tmp.delete();
+        }
+    }
+
+    private void ensureLoaded() {
+        if (loaded) {
+            return;
+        }
+        loaded = true;
+        if (file == null || !file.exists()) {
+            return;
+        }
+        try {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(
+                    file)));
+            try {
+                if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+                    Message.debug("unsupported manifest cache format: " + file);
+                    return;
+                }
+                int count = in.readInt();
+                for (int i = 0; i < count; i++) {
+                    String path = in.readUTF();
+                    long length = in.readLong();
+                    long lastModified = in.readLong();
+                    int size = in.readInt();
+                    Manifest manifest = null;
+                    if (size >= 0) {
+                        byte[] bytes = new byte[size];
+                        in.readFully(bytes);
+                        manifest = new Manifest(new ByteArrayInputStream(bytes));
+                    }
+                    entries.put(path, new Entry(length, lastModified, manifest));
+                }
+            } finally {
+                in.close();
+            }
+        } catch (IOException e) {
+            Message.debug("impossible to read the manifest cache " + file + ": " + e.getMessage());
+            entries.clear();
+        }
+    }
+
+    private static final class Entry {
+        private final long length;
+
+        private final long lastModified;
+
+        private final Manifest manifest;
+
+        Entry(long length, long lastModified, Manifest manifest) {
+            this.length = length;
+            this.lastModified = lastModified;
+            this.manifest = manifest;
+        }
+    }
+}
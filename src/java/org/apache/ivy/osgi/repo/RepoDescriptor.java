@@ -18,11 +18,15 @@
 package org.apache.ivy.osgi.repo;
 
 import java.net.URI;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.NavigableMap;
 import java.util.Set;
+import java.util.TreeMap;
 
 import org.apache.ivy.core.module.descriptor.DefaultModuleDescriptor;
 import org.apache.ivy.core.module.descriptor.ModuleDescriptor;
@@ -31,14 +35,23 @@ import org.apache.ivy.osgi.core.BundleInfo;
 import org.apache.ivy.osgi.core.BundleInfoAdapter;
 import org.apache.ivy.osgi.core.ExecutionEnvironmentProfileProvider;
 import org.apache.ivy.osgi.core.OSGiManifestParser;
+import org.apache.ivy.osgi.util.Version;
+import org.apache.ivy.osgi.util.VersionRange;
 import org.apache.ivy.util.Message;
 
 public class RepoDescriptor {
 
     private final Map/* <String, Map<String, Set<ModuleDescriptor>>> */moduleByCapbilities = new HashMap();
 
+    // the same modules, sorted by the version of the capability they provide
+    private final Map/* <String, Map<String, VersionIndex>> */moduleByCapabilityVersions = new HashMap();
+
+    private final Map/* <ModuleDescriptor, BundleInfo> */bundleByModule = new HashMap();
+
     private final Set/* <ModuleDescriptor> */modules = new HashSet();
 
+    private final List/* <BundleInfo> */bundles = new ArrayList();
+
     private final ExecutionEnvironmentProfileProvider profileProvider;
 
     private final URI baseUri;
@@ -52,6 +65,13 @@ public class RepoDescriptor {
         return baseUri;
     }
 
+    /**
+     * @return the bundles added to this repository, in the order they have been added
+     */
+    public List/* <BundleInfo> */getBundles() {
+        return bundles;
+    }
+
     public Set/* <ModuleDescriptor> */getModules() {
         return modules;
     }
@@ -69,6 +89,105 @@ public class RepoDescriptor {
         return (Set) modules.get(value);
     }
 
+    /**
+     * Finds the modules providing a capability with a version which may be in the given range.
+     * <p>
+     * The lookup is done in the modules sorted by version, the qualifiers being ignored when
+     * comparing with the bounds of the range, which are both considered inclusive. So the
+     * returned modules are a superset of the ones matching the range, which the caller should
+     * still check against the revision it looks for. The modules providing the capability without
+     * version are always returned.
+     * </p>
+     * 
+     * @return the candidate modules, or null if no module provides the capability
+     */
+    public Set/* <ModuleDescriptor> */findModule(String requirement, String value,
+            VersionRange range) {
+        VersionIndex index = getVersionIndex(requirement, value);
+        if (index == null) {
+            return null;
+        }
+        Set/* <ModuleDescriptor> */mds = new HashSet(index.unversioned);
+        Iterator it = subMap(index.versions, range).values().iterator();
+        while (it.hasNext()) {
+            mds.addAll((Set) it.next());
+        }
+        return mds;
+    }
+
+    /**
+     * @return the part of the given map keyed by versions which may be in the given range, as
+     *         described in {@link #findModule(String, String, VersionRange)}
+     */
+    static NavigableMap/* <Version, V> */subMap(NavigableMap/* <Version, V> */versions,
+            VersionRange range) {
+        Version start = range.getStartVersion() == null ? null : range.getStartVersion()
+                .withoutQualifier();
+        Version end = range.getEndVersion() == null ? null : range.getEndVersion()
+                .withNudgedPatch();
+        if (start != null && end != null) {
+            if (start.compareTo(end) >= 0) {
+                return new TreeMap();
+            }
+            return versions.subMap(start, true, end, false);
+        } else if (start != null) {
+            return versions.tailMap(start, true);
+        } else if (end != null) {
+            return versions.headMap(end, false);
+        }
+        return versions;
+    }
+
+    /**
+     * @return the modules providing a capability with exactly the given version, or null if there
+     *         is none
+     */
+    public Set/* <ModuleDescriptor> */findModule(String requirement, String value,
+            Version version) {
+        VersionIndex index = getVersionIndex(requirement, value);
+        if (index == null) {
+            return null;
+        }
+        return (Set) index.versions.get(version);
+    }
+
+    /**
+     * @return the versions with which a capability is provided, in increasing order, or null if
+     *         no module provides it. The modules providing it without version are not taken into
+     *         account.
+     */
+    public Set/* <Version> */getCapabilityVersions(String requirement, String value) {
+        VersionIndex index = getVersionIndex(requirement, value);
+        if (index == null) {
+            return null;
+        }
+        return index.versions.keySet();
+    }
+
+    /**
+     * @return the bundle from which the given module of this repository has been built, null if
+     *         it has not been added as a bundle
+     */
+    public BundleInfo getBundleInfo(ModuleDescriptor md) {
+        return (BundleInfo) bundleByModule.get(md);
+    }
+
+    private VersionIndex getVersionIndex(String requirement, String value) {
+        Map/* <String, VersionIndex> */indexes = (Map) moduleByCapabilityVersions
+                .get(requirement);
+        if (indexes == null) {
+            return null;
+        }
+        return (VersionIndex) indexes.get(value);
+    }
+
+    /**
+     * @return the types of the capabilities provided by the modules of this repository
+     */
+    public Set/* <String> */getCapabilities() {
+        return moduleByCapbilities.keySet();
+    }
+
     public Set/* <String> */getCapabilityValues(String capabilityName) {
         Map/* <String, Set<ModuleDescriptor>> */modules = (Map) moduleByCapbilities
                 .get(capabilityName);
@@ -79,6 +198,16 @@ public class RepoDescriptor {
     }
 
     public void add(String type, String value, ModuleDescriptor md) {
+        add(type, value, null, md);
+    }
+
+    /**
+     * Adds a module providing the given capability.
+     * 
+     * @param version
+     *            the version of the provided capability, null if not versioned
+     */
+    public void add(String type, String value, Version version, ModuleDescriptor md) {
         modules.add(md);
         Map/* <String, Set<ModuleDescriptor>> */map = (Map) moduleByCapbilities.get(type);
         if (map == null) {
@@ -94,27 +223,45 @@ public class RepoDescriptor {
             Message.debug("Duplicate module in the repo " + baseUri + " for " + type + " "
                     + value + ": " + md.getModuleRevisionId());
         }
+
+        Map/* <String, VersionIndex> */indexes = (Map) moduleByCapabilityVersions.get(type);
+        if (indexes == null) {
+            indexes = new HashMap/* <String, VersionIndex> */();
+            moduleByCapabilityVersions.put(type, indexes);
+        }
+        VersionIndex index = (VersionIndex) indexes.get(value);
+        if (index == null) {
+            index = new VersionIndex();
+            indexes.put(value, index);
+        }
+        index.add(version, md);
     }
 
     public void addBundle(BundleInfo bundleInfo) {
-        DefaultModuleDescriptor md = BundleInfoAdapter.toModuleDescriptor(
-            OSGiManifestParser.getInstance(), baseUri, bundleInfo, profileProvider);
-        add(BundleInfo.BUNDLE_TYPE, bundleInfo.getSymbolicName(), md);
+        DefaultModuleDescriptor md = toModuleDescriptor(bundleInfo);
+        bundles.add(bundleInfo);
+        bundleByModule.put(md, bundleInfo);
+        add(BundleInfo.BUNDLE_TYPE, bundleInfo.getSymbolicName(), bundleInfo.getVersion(), md);
         Iterator itCapability = bundleInfo.getCapabilities().iterator();
         while (itCapability.hasNext()) {
             BundleCapability capability = (BundleCapability) itCapability.next();
-            add(capability.getType(), capability.getName(), md);
+            add(capability.getType(), capability.getName(), capability.getVersion(), md);
         }
     }
 
+    protected DefaultModuleDescriptor toModuleDescriptor(BundleInfo bundleInfo) {
+        return BundleInfoAdapter.toModuleDescriptor(OSGiManifestParser.getInstance(), baseUri,
+            bundleInfo, profileProvider);
+    }
+
     public String toString() {
-        return modules.toString();
+        return getModules().toString();
     }
 
     public int hashCode() {
         final int prime = 31;
         int result = 1;
-        result = prime * result + ((modules == null) ? 0 : modules.hashCode());
+        result = prime * result + getModules().hashCode();
         return result;
     }
 
@@ -129,14 +276,29 @@ public class RepoDescriptor {
             return false;
         }
         RepoDescriptor other = (RepoDescriptor) obj;
-        if (modules == null) {
-            if (other.modules != null) {
-                return false;
+        return getModules().equals(other.getModules());
+    }
+
+    /**
+     * The modules providing a capability, sorted by the version of the capability.
+     */
+    private static final class VersionIndex {
+        private final NavigableMap/* <Version, Set<ModuleDescriptor>> */versions = new TreeMap();
+
+        private final Set/* <ModuleDescriptor> */unversioned = new HashSet();
+
+        void add(Version version, ModuleDescriptor md) {
+            if (version == null) {
+                unversioned.add(md);
+                return;
             }
-        } else if (!modules.equals(other.modules)) {
-            return false;
+            Set/* <ModuleDescriptor> */mds = (Set) versions.get(version);
+            if (mds == null) {
+                mds = new HashSet/* <ModuleDescriptor> */();
+                versions.put(version, mds);
+            }
+            mds.add(md);
         }
-        return true;
     }
 
 }
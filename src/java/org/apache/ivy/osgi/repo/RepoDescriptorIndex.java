@@ -0,0 +1,496 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.ivy.osgi.repo;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.ivy.core.cache.CacheResourceOptions;
+import org.apache.ivy.core.cache.RepositoryCacheManager;
+import org.apache.ivy.core.report.ArtifactDownloadReport;
+import org.apache.ivy.core.report.DownloadStatus;
+import org.apache.ivy.osgi.core.BundleCapability;
+import org.apache.ivy.osgi.core.BundleInfo;
+import org.apache.ivy.osgi.core.BundleRequirement;
+import org.apache.ivy.osgi.core.ExecutionEnvironmentProfileProvider;
+import org.apache.ivy.osgi.core.ExportPackage;
+import org.apache.ivy.osgi.util.Version;
+import org.apache.ivy.osgi.util.VersionRange;
+import org.apache.ivy.plugins.repository.Repository;
+import org.apache.ivy.plugins.repository.url.URLResource;
+import org.apache.ivy.util.Message;
+
+/**
+ * A persistent index of the bundles of an OSGi repository, stored in a compact binary file.
+ * <p>
+ * The index records the metadata files which have been read to build the repository descriptor
+ * (repository.xml, site.xml, p2 content and artifacts, ...), with their length and last modified
+ * date once in the cache. Before being used, the index checks each of these files again: the
+ * remote ones through the repository cache manager, which downloads them again only if they are
+ * out of date, the local ones directly. The index is used only if none of them has changed,
+ * which saves parsing them again.
+ * </p>
+ */
+public final class RepoDescriptorIndex {
+
+    private static final int MAGIC = 0x49564f58; // 'IVOX'
+
+    private static final int FORMAT_VERSION = 1;
+
+    private static final int NULL_STRING = -1;
+
+    private static final int NEW_STRING = -2;
+
+    private static final int FILE_SOURCE = 0;
+
+    private static final int DOWNLOADED_SOURCE = 1;
+
+    private final File indexFile;
+
+    private final List/* <Source> */sources = new ArrayList();
+
+    private boolean lazy = false;
+
+    public RepoDescriptorIndex(File indexFile) {
+        this.indexFile = indexFile;
+    }
+
+    /**
+     * Sets whether the repository descriptor loaded from the index should be a
+     * {@link LazyBundleRepoDescriptor}.
+     */
+    public void setLazy(boolean lazy) {
+        this.lazy = lazy;
+    }
+
+    public File getIndexFile() {
+        return indexFile;
+    }
+
+    /**
+     * Records a local file read to build the repository descriptor.
+     */
+    public synchronized void addSource(File file) {
+        sources.add(new Source(FILE_SOURCE, file.getAbsolutePath(), null, null, null, file));
+    }
+
+    /**
+     * Records a resource downloaded with
+     * {@link RepositoryCacheManager#downloadRepositoryResource} to build the repository
+     * descriptor. Failed downloads should be recorded too, the index being invalid if the resource
+     * appears later on.
+     */
+    public synchronized void addSource(URLResource resource, String name, String type, String ext,
+            ArtifactDownloadReport report) {
+        sources.add(new Source(DOWNLOADED_SOURCE, resource.getURL().toExternalForm(), name, type,
+                ext, report.getDownloadStatus() == DownloadStatus.FAILED ? null : report
+                        .getLocalFile()));
+    }
+
+    /**
+     * Loads the repository descriptor stored in the index file, if the sources it has been built
+     * from have not changed.
+     *
+     * @param cacheManager
+     *            the cache manager with which the remote sources have been downloaded
+     * @param options
+     *            the options to use to check the remote sources
+     * @param repository
+     *            the repository from which the remote sources are downloaded
+     * @return the repository descriptor, or null if the index is missing or out of date
+     */
+    public RepoDescriptor load(RepositoryCacheManager cacheManager, CacheResourceOptions options,
+            Repository repository) {
+        if (!indexFile.exists()) {
+            return null;
+        }
+        try {
+            Input in = new Input(new DataInputStream(new BufferedInputStream(new FileInputStream(
+                    indexFile))));
+            try {
+                if (in.data.readInt() != MAGIC || in.data.readInt() != FORMAT_VERSION) {
+                    Message.debug("unsupported osgi repository index format: " + indexFile);
+                    return null;
+                }
+                int sourceCount = in.data.readInt();
+                for (int i = 0; i < sourceCount; i++) {
+                    if (!isUpToDate(in, cacheManager, options, repository)) {
+                        return null;
+                    }
+                }
+                URI baseUri = new URI(in.readString());
+                RepoDescriptor repo;
+                if (lazy) {
+                    repo = new LazyBundleRepoDescriptor(baseUri,
+                            ExecutionEnvironmentProfileProvider.getInstance());
+                } else {
+                    repo = new RepoDescriptor(baseUri,
+                            ExecutionEnvironmentProfileProvider.getInstance());
+                }
+                int bundleCount = in.data.readInt();
+                for (int i = 0; i < bundleCount; i++) {
+                    repo.addBundle(readBundleInfo(in));
+                }
+                Message.verbose("\tosgi repository loaded from its index " + indexFile);
+                return repo;
+            } finally {
+                in.data.close();
+            }
+        } catch (IOException e) {
+            Message.debug("impossible to read osgi repository index " + indexFile + ": "
+                    + e.getMessage());
+        } catch (URISyntaxException e) {
+            Message.debug("corrupted osgi repository index " + indexFile + ": " + e.getMessage());
+        } catch (ParseException e) {
+            Message.debug("corrupted osgi repository index " + indexFile + ": " + e.getMessage());
+        }
+        return null;
+    }
+
+    private boolean isUpToDate(Input in, RepositoryCacheManager cacheManager,
+            CacheResourceOptions options, Repository repository) throws IOException {
+        int kind = in.data.readInt();
+        String location = in.readString();
+        String name = in.readString();
+        String type = in.readString();
+        String ext = in.readString();
+        boolean exists = in.data.readBoolean();
+        long length = in.data.readLong();
+        long lastModified = in.data.readLong();
+
+        File file;
+        if (kind == FILE_SOURCE) {
+            file = new File(location);
+        } else {
+            ArtifactDownloadReport report = cacheManager.downloadRepositoryResource(
+                new URLResource(new URL(location)), name, type, ext, options, repository);
+            file = report.getDownloadStatus() == DownloadStatus.FAILED ? null : report
+                    .getLocalFile();
+        }
+        boolean upToDate;
+        if (file == null || !file.exists()) {
+            upToDate = !exists;
+        } else {
+            upToDate = exists && file.length() == length && file.lastModified() == lastModified;
+        }
+        if (!upToDate) {
+            Message.verbose("\t" + location + " has changed, osgi repository index ignored");
+        }
+        return upToDate;
+    }
+
+    /**
+     * Writes the given repository descriptor in the index file, with the sources recorded so far.
+     */
+    public synchronized void store(RepoDescriptor repo) {
+        File parent = indexFile.getParentFile();
+        if (parent != null) {
+            parent.mkdirs();
+        }
+        File tmp = new File(parent, indexFile.getName() + ".part");
+        try {
+            Output out = new Output(new DataOutputStream(new BufferedOutputStream(
+                    new FileOutputStream(tmp))));
+            try {
+                out.data.writeInt(MAGIC);
+                out.data.writeInt(FORMAT_VERSION);
+                out.data.writeInt(sources.size());
+                for (Iterator it = sources.iterator(); it.hasNext();) {
+                    Source source = (Source) it.next();
+                    out.data.writeInt(source.kind);
+                    out.writeString(source.location);
+                    out.writeString(source.name);
+                    out.writeString(source.type);
+                    out.writeString(source.ext);
+                    out.data.writeBoolean(source.exists);
+                    out.data.writeLong(source.length);
+                    out.data.writeLong(source.lastModified);
+                }
+                out.writeString(repo.getBaseUri().toString());
+                List bundles = repo.getBundles();
+                out.data.writeInt(bundles.size());
+                for (Iterator it = bundles.iterator(); it.hasNext();) {
+                    writeBundleInfo(out, (BundleInfo) it.next());
+                }
+            } finally {
+                out.data.close();
+            }
+            indexFile.delete();
+            if (!tmp.renameTo(indexFile)) {
+                throw new IOException("impossible to rename " + tmp + " to " + indexFile);
+            }
+        } catch (IOException e) {
+            Message.debug("impossible to write osgi repository index " + indexFile + ": "
+                    + e.getMessage());
+            tmp.delete();
+        }
+    }
+
+    /**
+     * @return the given bundle in the compact binary form of the index
+     */
+    static byte[] toBytes(BundleInfo bundle) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        Output out = new Output(new DataOutputStream(bytes));
+        writeBundleInfo(out, bundle);
+        out.data.flush();
+        return bytes.toByteArray();
+    }
+
+    /**
+     * @return the bundle read from its compact binary form
+     */
+    static BundleInfo fromBytes(byte[] bytes) throws IOException, ParseException,
+            URISyntaxException {
+        return readBundleInfo(new Input(new DataInputStream(new ByteArrayInputStream(bytes))));
+    }
+
+    private static void writeBundleInfo(Output out, BundleInfo bundle) throws IOException {
+        out.writeString(bundle.getSymbolicName());
+        out.writeVersion(bundle.getRawVersion());
+        out.writeString(bundle.getId());
+        out.writeString(bundle.getPresentationName());
+        out.writeString(bundle.getDescription());
+        out.writeString(bundle.getDocumentation());
+        out.writeString(bundle.getLicense());
+        out.data.writeBoolean(bundle.getSize() != null);
+        if (bundle.getSize() != null) {
+            out.data.writeInt(bundle.getSize().intValue());
+        }
+        out.writeString(bundle.getUri() == null ? null : bundle.getUri().toString());
+        List ees = bundle.getExecutionEnvironments();
+        out.data.writeInt(ees == null ? -1 : ees.size());
+        if (ees != null) {
+            for (Iterator it = ees.iterator(); it.hasNext();) {
+                out.writeString((String) it.next());
+            }
+        }
+        out.data.writeInt(bundle.getRequirements().size());
+        for (Iterator it = bundle.getRequirements().iterator(); it.hasNext();) {
+            BundleRequirement requirement = (BundleRequirement) it.next();
+            out.writeString(requirement.getType());
+            out.writeString(requirement.getName());
+            out.writeString(requirement.getResolution());
+            VersionRange range = requirement.getVersion();
+            out.data.writeBoolean(range != null);
+            if (range != null) {
+                out.data.writeBoolean(range.isStartExclusive());
+                out.writeVersion(range.getStartVersion());
+                out.data.writeBoolean(range.isEndExclusive());
+                out.writeVersion(range.getEndVersion());
+            }
+        }
+        out.data.writeInt(bundle.getCapabilities().size());
+        for (Iterator it = bundle.getCapabilities().iterator(); it.hasNext();) {
+            BundleCapability capability = (BundleCapability) it.next();
+            out.data.writeBoolean(capability instanceof ExportPackage);
+            out.writeString(capability.getType());
+            out.writeString(capability.getName());
+            out.writeVersion(capability.getRawVersion());
+            if (capability instanceof ExportPackage) {
+                List uses = new ArrayList(((ExportPackage) capability).getUses());
+                out.data.writeInt(uses.size());
+                for (Iterator itUse = uses.iterator(); itUse.hasNext();) {
+                    out.writeString((String) itUse.next());
+                }
+            }
+        }
+    }
+
+    private static BundleInfo readBundleInfo(Input in) throws IOException, ParseException,
+            URISyntaxException {
+        BundleInfo bundle = new BundleInfo(in.readString(), in.readVersion());
+        bundle.setId(in.readString());
+        bundle.setPresentationName(in.readString());
+        bundle.setDescription(in.readString());
+        bundle.setDocumentation(in.readString());
+        bundle.setLicense(in.readString());
+        if (in.data.readBoolean()) {
+            bundle.setSize(new Integer(in.data.readInt()));
+        }
+        String uri = in.readString();
+        if (uri != null) {
+            bundle.setUri(new URI(uri));
+        }
+        int eeCount = in.data.readInt();
+        if (eeCount == -1) {
+            bundle.setExecutionEnvironments(null);
+        } else if (eeCount > 0) {
+            List ees = new ArrayList(eeCount);
+            for (int i = 0; i < eeCount; i++) {
+                ees.add(in.readString());
+            }
+            bundle.setExecutionEnvironments(ees);
+        }
+        int requirementCount = in.data.readInt();
+        for (int i = 0; i < requirementCount; i++) {
+            String type = in.readString();
+            String name = in.readString();
+            String resolution = in.readString();
+            VersionRange range = null;
+            if (in.data.readBoolean()) {
+                boolean startExclusive = in.data.readBoolean();
+                Version start = in.readVersion();
+                boolean endExclusive = in.data.readBoolean();
+                range = new VersionRange(startExclusive, start, endExclusive, in.readVersion());
+            }
+            bundle.addRequirement(new BundleRequirement(type, name, range, resolution));
+        }
+        int capabilityCount = in.data.readInt();
+        for (int i = 0; i < capabilityCount; i++) {
+            boolean exportPackage = in.data.readBoolean();
+            String type = in.readString();
+            String name = in.readString();
+            Version version = in.readVersion();
+            if (exportPackage) {
+                ExportPackage export = new ExportPackage(name, version);
+                int useCount = in.data.readInt();
+                for (int j = 0; j < useCount; j++) {
+                    export.addUse(in.readString());
+                }
+                bundle.addCapability(export);
+            } else {
+                bundle.addCapability(new BundleCapability(type, name, version));
+            }
+        }
+        return bundle;
+    }
+
+    private static final class Source {
+        private final int kind;
+
+        private final String location;
+
+        private final String name;
+
+        private final String type;
+
+        private final String ext;
+
+        private final boolean exists;
+
+        private final long length;
+
+        private final long lastModified;
+
+        Source(int kind, String location, String name, String type, String ext, File file) {
+            this.kind = kind;
+            this.location = location;
+            this.name = name;
+            this.type = type;
+            this.ext = ext;
+            this.exists = file != null && file.exists();
+            this.length = exists ? file.length() : 0;
+            this.lastModified = exists ? file.lastModified() : 0;
+        }
+    }
+
+    /**
+     * Writes data to an index, sharing repeated strings (package names, execution environments,
+     * ...) through a string table.
+     */
+    private static final class Output {
+        private final DataOutputStream data;
+
+        private final Map/* <String,Integer> */strings = new HashMap();
+
+        Output(DataOutputStream data) {
+            this.data = data;
+        }
+
+        void writeString(String s) throws IOException {
+            if (s == null) {
+                data.writeInt(NULL_STRING);
+                return;
+            }
+            Integer index = (Integer) strings.get(s);
+            if (index != null) {
+                data.writeInt(index.intValue());
+                return;
+            }
+            strings.put(s, new Integer(strings.size()));
+            byte[] bytes = s.getBytes("UTF-8");
+            data.writeInt(NEW_STRING);
+            data.writeInt(bytes.length);
+            data.write(bytes);
+        }
+
+        void writeVersion(Version version) throws IOException {
+            writeString(version == null ? null : version.numbersAsString());
+            if (version != null) {
+                // the qualifier may contain dots, it can't be parsed back from the full version
+                writeString(version.qualifier().length() == 0 ? null : version.qualifier());
+            }
+        }
+    }
+
+    private static final class Input {
+        private final DataInputStream data;
+
+        private final List/* <String> */strings = new ArrayList();
+
+        Input(DataInputStream data) {
+            this.data = data;
+        }
+
+        String readString() throws IOException {
+            int index = data.readInt();
+            if (index == NULL_STRING) {
+                return null;
+            }
+            if (index == NEW_STRING) {
+                byte[] bytes = new byte[data.readInt()];
+                data.readFully(bytes);
+                String s = new String(bytes, "UTF-8");
+                strings.add(s);
+                return s;
+            }
+            if (index < 0 || index >= strings.size()) {
+                throw new IOException("corrupted string table");
+            }
+            return (String) strings.get(index);
+        }
+
+        Version readVersion() throws IOException, ParseException {
+            String numbers = readString();
+            if (numbers == null) {
+                return null;
+            }
+            Version version = new Version(numbers);
+            String qualifier = readString();
+            return qualifier == null ? version : new Version(version, qualifier);
+        }
+    }
+}
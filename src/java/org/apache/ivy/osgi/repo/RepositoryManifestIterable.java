@@ -59,6 +59,15 @@ public class RepositoryManifestIterable extends AbstractFSManifestIterable/* <St
         return repo.getResource((String) f).openStream();
     }
 
+    protected long getLength(Object/* String */f) throws IOException {
+        Resource resource = repo.getResource((String) f);
+        return resource.exists() ? resource.getContentLength() : -1;
+    }
+
+    protected long getLastModified(Object/* String */f) throws IOException {
+        return repo.getResource((String) f).getLastModified();
+    }
+
     protected List/* <String> */listBundleFiles(Object/* String */dir) throws IOException {
         return asList(ResolverHelper.listAll(repo, (String) dir));
     }
@@ -18,21 +18,35 @@
 package org.apache.ivy.osgi.updatesite;
 
 import java.io.FileInputStream;
+import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URL;
 import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipInputStream;
 
+import org.apache.ivy.core.IvyContext;
 import org.apache.ivy.core.cache.CacheResourceOptions;
 import org.apache.ivy.core.cache.RepositoryCacheManager;
 import org.apache.ivy.core.event.EventManager;
 import org.apache.ivy.core.report.ArtifactDownloadReport;
 import org.apache.ivy.core.report.DownloadStatus;
+import org.apache.ivy.osgi.core.BundleInfo;
 import org.apache.ivy.osgi.core.ExecutionEnvironmentProfileProvider;
 import org.apache.ivy.osgi.p2.P2ArtifactParser;
 import org.apache.ivy.osgi.p2.P2CompositeParser;
@@ -40,11 +54,13 @@ import org.apache.ivy.osgi.p2.P2Descriptor;
 import org.apache.ivy.osgi.p2.P2MetadataParser;
 import org.apache.ivy.osgi.p2.XMLInputParser;
 import org.apache.ivy.osgi.repo.RepoDescriptor;
+import org.apache.ivy.osgi.repo.RepoDescriptorIndex;
 import org.apache.ivy.osgi.updatesite.xml.EclipseFeature;
 import org.apache.ivy.osgi.updatesite.xml.EclipseUpdateSiteParser;
 import org.apache.ivy.osgi.updatesite.xml.FeatureParser;
 import org.apache.ivy.osgi.updatesite.xml.UpdateSite;
 import org.apache.ivy.osgi.updatesite.xml.UpdateSiteDigestParser;
+import org.apache.ivy.osgi.util.Version;
 import org.apache.ivy.plugins.repository.url.URLRepository;
 import org.apache.ivy.plugins.repository.url.URLResource;
 import org.apache.ivy.util.Message;
@@ -52,19 +68,57 @@ import org.xml.sax.SAXException;
 
 public class UpdateSiteLoader {
 
+    private static final int DEFAULT_THREADS = 4;
+
     private final RepositoryCacheManager repositoryCacheManager;
 
-    private final URLRepository urlRepository = new URLRepository();
+    // url repositories are not thread safe, each thread loading metadata gets its own
+    private final ThreadLocal/* <URLRepository> */urlRepositories = new ThreadLocal() {
+        protected Object initialValue() {
+            URLRepository urlRepository = new URLRepository();
+            if (eventManager != null) {
+                urlRepository.addTransferListener(eventManager);
+            }
+            return urlRepository;
+        }
+    };
+
+    private final EventManager eventManager;
 
     private final CacheResourceOptions options;
 
+    private final RepoDescriptorIndex index;
+
+    private int threads = DEFAULT_THREADS;
+
     public UpdateSiteLoader(RepositoryCacheManager repositoryCacheManager,
             EventManager eventManager, CacheResourceOptions options) {
+        this(repositoryCacheManager, eventManager, options, null);
+    }
+
+    /**
+     * @param index
+     *            the persistent index in which the loaded repository should be kept, or null to
+     *            always parse the update site
+     */
+    public UpdateSiteLoader(RepositoryCacheManager repositoryCacheManager,
+            EventManager eventManager, CacheResourceOptions options, RepoDescriptorIndex index) {
         this.repositoryCacheManager = repositoryCacheManager;
         this.options = options;
-        if (eventManager != null) {
-            urlRepository.addTransferListener(eventManager);
-        }
+        this.index = index;
+        this.eventManager = eventManager;
+    }
+
+    /**
+     * Sets the number of threads used to load the children of the p2 composite repositories. With
+     * a single thread, the children are loaded one after the other.
+     */
+    public void setThreads(int threads) {
+        this.threads = threads;
+    }
+
+    public int getThreads() {
+        return threads;
     }
 
     public RepoDescriptor load(URI repoUri) throws IOException, ParseException, SAXException {
@@ -76,6 +130,22 @@ public class UpdateSiteLoader {
             }
         }
         Message.verbose("Loading the update site " + repoUri);
+        if (index != null) {
+            RepoDescriptor repo = index.load(repositoryCacheManager, options,
+                getUrlRepository());
+            if (repo != null) {
+                return repo;
+            }
+        }
+        RepoDescriptor repo = loadRepo(repoUri);
+        if (repo != null && index != null) {
+            index.store(repo);
+        }
+        return repo;
+    }
+
+    private RepoDescriptor loadRepo(URI repoUri) throws IOException, ParseException,
+            SAXException {
         // first look for a p2 repository
         RepoDescriptor repo = loadP2(repoUri);
         if (repo != null) {
@@ -95,25 +165,48 @@ public class UpdateSiteLoader {
     }
 
     private P2Descriptor loadP2(URI repoUri) throws IOException, ParseException, SAXException {
+        long start = System.currentTimeMillis();
         P2Descriptor p2Descriptor = new P2Descriptor(repoUri,
                 ExecutionEnvironmentProfileProvider.getInstance());
-        if (!populateP2Descriptor(repoUri, p2Descriptor)) {
-            return null;
+        ExecutorService executor = null;
+        if (threads > 1) {
+            final String name = "ivy p2 loader " + repoUri;
+            executor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+                public Thread newThread(Runnable r) {
+                    Thread thread = new Thread(r, name);
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
         }
+        try {
+            if (!populateP2Descriptor(repoUri, p2Descriptor, new CompositeChildren(executor))) {
+                return null;
+            }
+        } finally {
+            if (executor != null) {
+                executor.shutdownNow();
+            }
+        }
+        Message.verbose("\tP2 repository " + repoUri + " loaded in "
+                + (System.currentTimeMillis() - start) + " ms: "
+                + p2Descriptor.getBundles().size() + " bundles");
         return p2Descriptor;
     }
 
-    private boolean populateP2Descriptor(URI repoUri, P2Descriptor p2Descriptor)
-            throws IOException, ParseException, SAXException {
+    private boolean populateP2Descriptor(URI repoUri, P2Descriptor p2Descriptor,
+            CompositeChildren children) throws IOException, ParseException, SAXException {
         Message.verbose("Loading P2 repository " + repoUri);
 
-        boolean artifactExists = readComposite(repoUri, "compositeArtifacts", p2Descriptor);
+        boolean artifactExists = readComposite(repoUri, "compositeArtifacts", p2Descriptor,
+            children);
         if (!artifactExists) {
             artifactExists = readJarOrXml(repoUri, "artifacts", new P2ArtifactParser(p2Descriptor,
                     repoUri.toURL().toExternalForm()));
         }
 
-        boolean contentExists = readComposite(repoUri, "compositeContent", p2Descriptor);
+        boolean contentExists = readComposite(repoUri, "compositeContent", p2Descriptor,
+            children);
         if (!contentExists) {
             contentExists = readJarOrXml(repoUri, "content", new P2MetadataParser(p2Descriptor));
         }
@@ -121,11 +214,15 @@ public class UpdateSiteLoader {
         return artifactExists || contentExists;
     }
 
-    private boolean readComposite(URI repoUri, String name, P2Descriptor p2Descriptor)
-            throws IOException, ParseException, SAXException {
+    private boolean readComposite(URI repoUri, String name, P2Descriptor p2Descriptor,
+            CompositeChildren children) throws IOException, ParseException, SAXException {
         P2CompositeParser p2CompositeParser = new P2CompositeParser();
         boolean exist = readJarOrXml(repoUri, name, p2CompositeParser);
         if (exist) {
+            // start loading all the children first, so that they are fetched and parsed
+            // concurrently, then add them to the descriptor in order, as if they were loaded one
+            // after the other
+            List/* <Future<RecordingP2Descriptor>> */loadings = new ArrayList();
             Iterator itChildLocation = p2CompositeParser.getChildLocations().iterator();
             while (itChildLocation.hasNext()) {
                 String childLocation = (String) itChildLocation.next();
@@ -133,12 +230,24 @@ public class UpdateSiteLoader {
                     childLocation += "/";
                 }
                 URI childUri = repoUri.resolve(childLocation);
-                populateP2Descriptor(childUri, p2Descriptor);
+                loadings.add(children.load(childUri));
+            }
+            Iterator itLoadings = loadings.iterator();
+            while (itLoadings.hasNext()) {
+                children.get((Future) itLoadings.next()).replay(p2Descriptor);
             }
         }
         return exist;
     }
 
+    private RecordingP2Descriptor loadChild(URI childUri) throws IOException, ParseException,
+            SAXException {
+        RecordingP2Descriptor recorder = new RecordingP2Descriptor(childUri);
+        // the nested composites are loaded by the thread loading their parent
+        populateP2Descriptor(childUri, recorder, new CompositeChildren(null));
+        return recorder;
+    }
+
     private boolean readJarOrXml(URI repoUri, String baseName, XMLInputParser reader)
             throws IOException, ParseException, SAXException {
         InputStream readIn = null; // the input stream from which the xml should be read
@@ -146,16 +255,14 @@ public class UpdateSiteLoader {
         URL contentUrl = repoUri.resolve(baseName + ".jar").toURL();
         URLResource res = new URLResource(contentUrl);
 
-        ArtifactDownloadReport report = repositoryCacheManager.downloadRepositoryResource(res,
-            baseName, baseName, "jar", options, urlRepository);
+        ArtifactDownloadReport report = download(res, baseName, baseName, "jar");
 
         if (report.getDownloadStatus() == DownloadStatus.FAILED) {
             // no jar file, try the xml one
             contentUrl = repoUri.resolve(baseName + ".xml").toURL();
             res = new URLResource(contentUrl);
 
-            report = repositoryCacheManager.downloadRepositoryResource(res, baseName, baseName,
-                "xml", options, urlRepository);
+            report = download(res, baseName, baseName, "xml");
 
             if (report.getDownloadStatus() == DownloadStatus.FAILED) {
                 // no xml either
@@ -180,11 +287,16 @@ public class UpdateSiteLoader {
 
         }
 
+        long start = System.currentTimeMillis();
+        CountingInputStream counting = new CountingInputStream(readIn);
         try {
-            reader.parse(readIn);
+            reader.parse(counting);
         } finally {
-            readIn.close();
+            counting.close();
         }
+        long time = System.currentTimeMillis() - start;
+        Message.verbose("\tParsed " + contentUrl + ": " + counting.count + " bytes in " + time
+                + " ms (" + (counting.count / Math.max(time, 1)) + " kB/s)");
 
         return true;
     }
@@ -194,8 +306,7 @@ public class UpdateSiteLoader {
         URL u = siteUri.resolve("site.xml").toURL();
 
         URLResource res = new URLResource(u);
-        ArtifactDownloadReport report = repositoryCacheManager.downloadRepositoryResource(res,
-            "site", "updatesite", "xml", options, urlRepository);
+        ArtifactDownloadReport report = download(res, "site", "updatesite", "xml");
         if (report.getDownloadStatus() == DownloadStatus.FAILED) {
             return null;
         }
@@ -243,8 +354,7 @@ public class UpdateSiteLoader {
         Message.verbose("\tReading " + digest);
 
         URLResource res = new URLResource(digest);
-        ArtifactDownloadReport report = repositoryCacheManager.downloadRepositoryResource(res,
-            "digest", "digest", "zip", options, urlRepository);
+        ArtifactDownloadReport report = download(res, "digest", "digest", "zip");
         if (report.getDownloadStatus() == DownloadStatus.FAILED) {
             return null;
         }
@@ -271,8 +381,7 @@ public class UpdateSiteLoader {
             URL url = site.getUri().resolve(feature.getUrl()).toURL();
 
             URLResource res = new URLResource(url);
-            ArtifactDownloadReport report = repositoryCacheManager.downloadRepositoryResource(res,
-                feature.getId(), "feature", "jar", options, urlRepository);
+            ArtifactDownloadReport report = download(res, feature.getId(), "feature", "jar");
             if (report.getDownloadStatus() == DownloadStatus.FAILED) {
                 return null;
             }
@@ -293,6 +402,20 @@ public class UpdateSiteLoader {
         return repoDescriptor;
     }
 
+    private ArtifactDownloadReport download(URLResource res, String name, String type,
+            String ext) {
+        ArtifactDownloadReport report = repositoryCacheManager.downloadRepositoryResource(res,
+            name, type, ext, options, getUrlRepository());
+        if (index != null) {
+            index.addSource(res, name, type, ext, report);
+        }
+        return report;
+    }
+
+    private URLRepository getUrlRepository() {
+        return (URLRepository) urlRepositories.get();
+    }
+
     private ZipInputStream findEntry(InputStream in, String entryName) throws IOException {
         ZipInputStream zipped = new ZipInputStream(in);
         ZipEntry zipEntry = zipped.getNextEntry();
@@ -304,4 +427,148 @@ public class UpdateSiteLoader {
         }
         return zipped;
     }
+
+    /**
+     * The children of the p2 composite repositories being loaded, each of them being fetched and
+     * parsed only once even if it is listed by both the composite artifacts and content. Without
+     * executor, the children are loaded by the calling thread.
+     */
+    private final class CompositeChildren {
+        private final ExecutorService executor;
+
+        private final Map/* <URI, Future<RecordingP2Descriptor>> */loadings = new HashMap();
+
+        private final IvyContext context = new IvyContext(IvyContext.getContext());
+
+        CompositeChildren(ExecutorService executor) {
+            this.executor = executor;
+        }
+
+        Future load(final URI childUri) {
+            Future loading = (Future) loadings.get(childUri);
+            if (loading == null) {
+                Callable task = new Callable() {
+                    public Object call() throws Exception {
+                        if (executor == null) {
+                            return loadChild(childUri);
+                        }
+                        IvyContext.pushContext(context);
+                        try {
+                            return loadChild(childUri);
+                        } finally {
+                            IvyContext.popContext();
+                        }
+                    }
+                };
+                if (executor == null) {
+                    loading = new FutureTask(task);
+                } else {
+                    loading = executor.submit(task);
+                }
+                loadings.put(childUri, loading);
+            }
+            return loading;
+        }
+
+        RecordingP2Descriptor get(Future loading) throws IOException, ParseException,
+                SAXException {
+            if (executor == null) {
+                // not started yet, or already done in which case this does nothing
+                ((FutureTask) loading).run();
+            }
+            try {
+                return (RecordingP2Descriptor) loading.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("interrupted while loading a p2 repository");
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof IOException) {
+                    throw (IOException) cause;
+                } else if (cause instanceof ParseException) {
+                    throw (ParseException) cause;
+                } else if (cause instanceof SAXException) {
+                    throw (SAXException) cause;
+                } else if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                } else if (cause instanceof Error) {
+                    throw (Error) cause;
+                }
+                throw new RuntimeException("error while loading a p2 repository", cause);
+            }
+        }
+    }
+
+    /**
+     * A p2 descriptor which only records what is added to it, to replay it later on the
+     * descriptor of the composite repository. The bundles are not filtered nor converted into
+     * module descriptors when they are recorded, since the artifacts they are filtered with may
+     * come from other children.
+     */
+    private static final class RecordingP2Descriptor extends P2Descriptor {
+        // either a BundleInfo, a Long timestamp, or an Object[] {classifier, id, version, url}
+        private final List events = new ArrayList();
+
+        RecordingP2Descriptor(URI repoUri) {
+            super(repoUri, ExecutionEnvironmentProfileProvider.getInstance());
+        }
+
+        public void setTimestamp(long timestamp) {
+            events.add(new Long(timestamp));
+        }
+
+        public void addBundle(BundleInfo bundleInfo) {
+            events.add(bundleInfo);
+        }
+
+        public void addArtifactUrl(String classifier, String id, Version version, String url) {
+            events.add(new Object[] {classifier, id, version, url});
+        }
+
+        void replay(P2Descriptor p2Descriptor) {
+            Iterator it = events.iterator();
+            while (it.hasNext()) {
+                Object event = it.next();
+                if (event instanceof BundleInfo) {
+                    p2Descriptor.addBundle((BundleInfo) event);
+                } else if (event instanceof Long) {
+                    p2Descriptor.setTimestamp(((Long) event).longValue());
+                } else {
+                    Object[] artifact = (Object[]) event;
+                    p2Descriptor.addArtifactUrl((String) artifact[0], (String) artifact[1],
+                        (Version) artifact[2], (String) artifact[3]);
+                }
+            }
+        }
+    }
+
+    private static final class CountingInputStream extends FilterInputStream {
+        private long count = 0;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        public int read() throws IOException {
+            int b = super.read();
+            if (b != -1) {
+                count++;
+            }
+            return b;
+        }
+
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) {
+                count += n;
+            }
+            return n;
+        }
+
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            count += skipped;
+            return skipped;
+        }
+    }
 }
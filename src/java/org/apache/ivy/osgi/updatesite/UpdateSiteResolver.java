@@ -34,6 +34,8 @@ public class UpdateSiteResolver extends AbstractOSGiResolver {
 
     private Boolean forceMetadataUpdate;
 
+    private Integer metadataThreads;
+
     public void setUrl(String url) {
         this.url = url;
     }
@@ -46,6 +48,10 @@ public class UpdateSiteResolver extends AbstractOSGiResolver {
         this.forceMetadataUpdate = forceMetadataUpdate;
     }
 
+    public void setMetadataThreads(Integer metadataThreads) {
+        this.metadataThreads = metadataThreads;
+    }
+
     protected void init() {
         if (url == null) {
             throw new RuntimeException("Missing url");
@@ -58,7 +64,10 @@ public class UpdateSiteResolver extends AbstractOSGiResolver {
             options.setForce(forceMetadataUpdate.booleanValue());
         }
         UpdateSiteLoader loader = new UpdateSiteLoader(getRepositoryCacheManager(),
-                getEventManager(), options);
+                getEventManager(), options, getRepoDescriptorIndex(url));
+        if (metadataThreads != null) {
+            loader.setThreads(metadataThreads.intValue());
+        }
         try {
             setRepoDescriptor(loader.load(new URI(url)));
         } catch (IOException e) {
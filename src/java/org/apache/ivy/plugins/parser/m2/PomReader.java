@@ -25,12 +25,17 @@ import java.io.InputStreamReader;
 import java.io.LineNumberReader;
 import java.net.URL;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+
+import javax.xml.parsers.ParserConfigurationException;
 
 import org.apache.ivy.core.IvyPatternHelper;
 import org.apache.ivy.core.module.descriptor.License;
@@ -39,18 +44,20 @@ import org.apache.ivy.core.module.id.ModuleRevisionId;
 import org.apache.ivy.plugins.repository.Resource;
 import org.apache.ivy.util.XMLHelper;
 import org.apache.ivy.util.url.URLHandlerRegistry;
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
-import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
-import org.xml.sax.EntityResolver;
+import org.xml.sax.Attributes;
 import org.xml.sax.InputSource;
 import org.xml.sax.SAXException;
 import org.xml.sax.SAXParseException;
+import org.xml.sax.helpers.DefaultHandler;
 
 /**
- * Provides the method to read some data out of the DOM tree of a pom 
- * file.
+ * Provides the method to read some data out of a pom file.
+ * <p>
+ * The pom is read in a single streaming pass: only the elements needed to build the module
+ * descriptor are retained, as raw text. Property substitution is done lazily when values are
+ * requested, so that properties set after parsing (parent properties, project coordinates, ...)
+ * are taken into account exactly as before.
+ * </p>
  */
 public class PomReader {
     
@@ -81,33 +88,38 @@ public class PomReader {
     private static final String PLUGINS = "plugins";
     private static final String PLUGIN = "plugin";
     private static final String TYPE = "type";
+    private static final String BUILD = "build";
+
+    private static final Set/*<String>*/ PROJECT_FIELDS = fields(new String[] {
+        GROUP_ID, ARTIFACT_ID, VERSION, PACKAGING, HOMEPAGE, DESCRIPTION});
+    private static final Set/*<String>*/ COORDINATE_FIELDS = fields(new String[] {
+        GROUP_ID, ARTIFACT_ID, VERSION});
+    private static final Set/*<String>*/ LICENSE_FIELDS = fields(new String[] {
+        LICENSE_NAME, LICENSE_URL});
+    private static final Set/*<String>*/ DEPENDENCY_FIELDS = fields(new String[] {
+        GROUP_ID, ARTIFACT_ID, VERSION, SCOPE, CLASSIFIER, TYPE, OPTIONAL});
+    private static final Set/*<String>*/ EXCLUSION_FIELDS = fields(new String[] {
+        GROUP_ID, ARTIFACT_ID});
 
     private HashMap properties = new HashMap();
     
-    private final Element projectElement;
-    private final Element parentElement;
+    private final ElementData projectData = new ElementData();
+    private ElementData parentData;
+    private ElementData relocationData;
+    private List/*<ElementData>*/ licensesData;
+    private final List/*<ElementData>*/ dependenciesData = new ArrayList();
+    private final List/*<ElementData>*/ dependencyMgtData = new ArrayList();
+    private final List/*<ElementData>*/ pluginsData = new ArrayList();
+    private final Map/*<String,String>*/ pomProperties = new HashMap();
     
     public PomReader(URL descriptorURL, Resource res) throws IOException, SAXException {
         InputStream stream = new AddDTDFilterInputStream(URLHandlerRegistry.getDefault().openStream(descriptorURL));
         InputSource source = new InputSource(stream);
         source.setSystemId(XMLHelper.toSystemId(descriptorURL));
         try {
-            Document pomDomDoc = XMLHelper.parseToDom(source, new EntityResolver() {
-                public InputSource resolveEntity(String publicId, String systemId) 
-                                throws SAXException, IOException {
-                    if ((systemId != null) && systemId.endsWith("m2-entities.ent")) {
-                        return new InputSource(
-                                        PomReader.class.getResourceAsStream("m2-entities.ent"));
-                    }
-                    return null;
-                }
-            });
-            projectElement = pomDomDoc.getDocumentElement();
-            if (!PROJECT.equals(projectElement.getNodeName()) && !MODEL.equals(projectElement.getNodeName())) {
-                throw new SAXParseException("project must be the root tag" , res.getName() , 
-                                            res.getName(), 0, 0);
-            }
-            parentElement = getFirstChildElement(projectElement , PARENT);
+            XMLHelper.parse(source, null, new PomHandler(res), null);
+        } catch (ParserConfigurationException e) {
+            throw new SAXException(e);
         } finally {
             try {
                 stream.close();
@@ -119,7 +131,7 @@ public class PomReader {
 
 
     public boolean hasParent() {
-        return parentElement != null;
+        return parentData != null;
     }
     
     /**
@@ -135,18 +147,18 @@ public class PomReader {
 
     
     public String getGroupId() {
-        String groupId = getFirstChildText(projectElement , GROUP_ID);
+        String groupId = projectData.get(GROUP_ID);
         if (groupId == null) {
-            groupId = getFirstChildText(parentElement, GROUP_ID);
+            groupId = get(parentData, GROUP_ID);
         } 
         return replaceProps(groupId);
 
     }
 
     public String getParentGroupId() {
-        String groupId = getFirstChildText(parentElement , GROUP_ID);
+        String groupId = get(parentData, GROUP_ID);
         if (groupId == null) {
-            groupId = getFirstChildText(projectElement, GROUP_ID);
+            groupId = projectData.get(GROUP_ID);
         }
         return replaceProps(groupId);
     }
@@ -154,41 +166,41 @@ public class PomReader {
 
     
     public String getArtifactId() {
-        String val = getFirstChildText(projectElement , ARTIFACT_ID);
+        String val = projectData.get(ARTIFACT_ID);
         if (val == null) {
-            val = getFirstChildText(parentElement, ARTIFACT_ID);
+            val = get(parentData, ARTIFACT_ID);
         }
         return replaceProps(val);
     }
 
     public String getParentArtifactId() {
-        String val = getFirstChildText(parentElement , ARTIFACT_ID);
+        String val = get(parentData, ARTIFACT_ID);
         if (val == null) {
-            val = getFirstChildText(projectElement, ARTIFACT_ID);
+            val = projectData.get(ARTIFACT_ID);
         } 
         return replaceProps(val);
     }
 
 
     public String getVersion() {
-        String val = getFirstChildText(projectElement , VERSION);
+        String val = projectData.get(VERSION);
         if (val == null) {
-            val = getFirstChildText(parentElement, VERSION);
+            val = get(parentData, VERSION);
         } 
         return replaceProps(val);
     }
 
     public String getParentVersion() {
-        String val = getFirstChildText(parentElement , VERSION);
+        String val = get(parentData, VERSION);
         if (val == null) {
-            val = getFirstChildText(projectElement, VERSION);
+            val = projectData.get(VERSION);
         } 
         return replaceProps(val);
     }
 
     
     public String getPackaging() {
-        String val = getFirstChildText(projectElement , PACKAGING);
+        String val = projectData.get(PACKAGING);
         if (val == null) {
             val = "jar";
         }
@@ -196,7 +208,7 @@ public class PomReader {
     }
     
     public String getHomePage() {
-        String val = getFirstChildText(projectElement , HOMEPAGE);
+        String val = projectData.get(HOMEPAGE);
         if (val == null) {
             val = "";
         }
@@ -204,7 +216,7 @@ public class PomReader {
     }
 
     public String getDescription() {
-        String val = getFirstChildText(projectElement , DESCRIPTION);
+        String val = projectData.get(DESCRIPTION);
         if (val == null) {
             val = "";
         }
@@ -212,44 +224,38 @@ public class PomReader {
     }
 
     public License[] getLicenses() {
-        Element licenses = getFirstChildElement(projectElement, LICENSES);
-        if (licenses == null) {
+        if (licensesData == null) {
             return new License[0];
         }
-        licenses.normalize();
         List/*<License>*/ lics = new ArrayList();
-        for (Iterator it = getAllChilds(licenses).iterator(); it.hasNext();) {
-            Element license = (Element) it.next();
-            if (LICENSE.equals(license.getNodeName())) {
-                String name = getFirstChildText(license, LICENSE_NAME);
-                String url = getFirstChildText(license, LICENSE_URL);
-                
-                if ((name == null) && (url == null)) {
-                    // move to next license
-                    continue;
-                }
-                
-                if (name == null) {
-                    // The license name is required in Ivy but not in a POM!
-                    name = "Unknown License";
-                }
-                
-                lics.add(new License(name, url));
+        for (Iterator it = licensesData.iterator(); it.hasNext();) {
+            ElementData license = (ElementData) it.next();
+            String name = license.get(LICENSE_NAME);
+            String url = license.get(LICENSE_URL);
+            
+            if ((name == null) && (url == null)) {
+                // move to next license
+                continue;
             }
+            
+            if (name == null) {
+                // The license name is required in Ivy but not in a POM!
+                name = "Unknown License";
+            }
+            
+            lics.add(new License(name, url));
         }
         return (License[]) lics.toArray(new License[lics.size()]);
     }
 
     
     public ModuleRevisionId getRelocation() {
-        Element distrMgt = getFirstChildElement(projectElement, DISTRIBUTION_MGT);
-        Element relocation = getFirstChildElement(distrMgt , RELOCATION);
-        if (relocation == null) {
+        if (relocationData == null) {
             return null;
         } else {
-            String relocGroupId = getFirstChildText(relocation, GROUP_ID);
-            String relocArtId = getFirstChildText(relocation, ARTIFACT_ID);
-            String relocVersion = getFirstChildText(relocation, VERSION);
+            String relocGroupId = relocationData.get(GROUP_ID);
+            String relocArtId = relocationData.get(ARTIFACT_ID);
+            String relocVersion = relocationData.get(VERSION);
             relocGroupId = relocGroupId == null ? getGroupId() : relocGroupId;
             relocArtId = relocArtId == null ? getArtifactId() : relocArtId;
             relocVersion = relocVersion == null ? getVersion() : relocVersion;
@@ -258,53 +264,38 @@ public class PomReader {
     }
     
     public List /* <PomDependencyData> */ getDependencies() {
-        Element dependenciesElement = getFirstChildElement(projectElement, DEPENDENCIES);
         LinkedList dependencies = new LinkedList();
-        if (dependenciesElement != null) {
-            NodeList childs = dependenciesElement.getChildNodes();
-            for (int i = 0; i < childs.getLength(); i++) {
-                Node node = childs.item(i);
-                if (node instanceof Element && DEPENDENCY.equals(node.getNodeName())) {
-                    dependencies.add(new PomDependencyData((Element) node));
-                }
-            }
+        for (Iterator it = dependenciesData.iterator(); it.hasNext();) {
+            dependencies.add(new PomDependencyData((ElementData) it.next()));
         }
         return dependencies;
     }
     
 
     public List /* <PomDependencyMgt> */ getDependencyMgt() {
-        Element dependenciesElement = getFirstChildElement(projectElement, DEPENDENCY_MGT);
-        dependenciesElement = getFirstChildElement(dependenciesElement, DEPENDENCIES);
         LinkedList dependencies = new LinkedList();
-        if (dependenciesElement != null) {
-            NodeList childs = dependenciesElement.getChildNodes();
-            for (int i = 0; i < childs.getLength(); i++) {
-                Node node = childs.item(i);
-                if (node instanceof Element && DEPENDENCY.equals(node.getNodeName())) {
-                    dependencies.add(new PomDependencyMgtElement((Element) node));
-                }
-            }
+        for (Iterator it = dependencyMgtData.iterator(); it.hasNext();) {
+            dependencies.add(new PomDependencyMgtElement((ElementData) it.next()));
         }
         return dependencies;
     }
 
     public class PomDependencyMgtElement implements PomDependencyMgt {
-        private final Element depElement;
+        private final ElementData depData;
         
         public PomDependencyMgtElement(PomDependencyMgtElement copyFrom) {
-            this(copyFrom.depElement);
+            this(copyFrom.depData);
         }
 
-        PomDependencyMgtElement(Element depElement) {
-            this.depElement = depElement; 
+        PomDependencyMgtElement(ElementData depData) {
+            this.depData = depData; 
         }
         
         /* (non-Javadoc)
          * @see org.apache.ivy.plugins.parser.m2.PomDependencyMgt#getGroupId()
          */
         public String getGroupId() {
-            String val = getFirstChildText(depElement , GROUP_ID);
+            String val = depData.get(GROUP_ID);
             return replaceProps(val);
         }
 
@@ -312,7 +303,7 @@ public class PomReader {
          * @see org.apache.ivy.plugins.parser.m2.PomDependencyMgt#getArtifaceId()
          */
         public String getArtifactId() {
-            String val = getFirstChildText(depElement , ARTIFACT_ID);
+            String val = depData.get(ARTIFACT_ID);
             return replaceProps(val);
         }
 
@@ -320,28 +311,24 @@ public class PomReader {
          * @see org.apache.ivy.plugins.parser.m2.PomDependencyMgt#getVersion()
          */
         public String getVersion() {
-            String val = getFirstChildText(depElement , VERSION);
+            String val = depData.get(VERSION);
             return replaceProps(val);
         }
         
         public String getScope() {
-            String val = getFirstChildText(depElement , SCOPE);
+            String val = depData.get(SCOPE);
             return replaceProps(val);
         }
         
         public List /*<ModuleId>*/ getExcludedModules() {
-            Element exclusionsElement = getFirstChildElement(depElement, EXCLUSIONS);
             LinkedList exclusions = new LinkedList();
-            if (exclusionsElement != null) {
-                NodeList childs = exclusionsElement.getChildNodes();
-                for (int i = 0; i < childs.getLength(); i++) {
-                    Node node = childs.item(i);
-                    if (node instanceof Element && EXCLUSION.equals(node.getNodeName())) {
-                        String groupId = getFirstChildText((Element) node, GROUP_ID);
-                        String artifactId = getFirstChildText((Element) node, ARTIFACT_ID);
-                        if ((groupId != null) && (artifactId != null)) {
-                            exclusions.add(ModuleId.newInstance(groupId, artifactId));
-                        }
+            if (depData.children != null) {
+                for (Iterator it = depData.children.iterator(); it.hasNext();) {
+                    ElementData exclusion = (ElementData) it.next();
+                    String groupId = exclusion.get(GROUP_ID);
+                    String artifactId = exclusion.get(ARTIFACT_ID);
+                    if ((groupId != null) && (artifactId != null)) {
+                        exclusions.add(ModuleId.newInstance(groupId, artifactId));
                     }
                 }
             }
@@ -351,44 +338,31 @@ public class PomReader {
     
     public List /* <PomPluginElement> */ getPlugins() {
         LinkedList plugins = new LinkedList();
-
-        Element buildElement = getFirstChildElement(projectElement, "build");
-        if (buildElement == null) {
-            return plugins;
-        }
-        
-        Element pluginsElement = getFirstChildElement(buildElement, PLUGINS);
-        if (pluginsElement != null) {
-            NodeList childs = pluginsElement.getChildNodes();
-            for (int i = 0; i < childs.getLength(); i++) {
-                Node node = childs.item(i);
-                if (node instanceof Element && PLUGIN.equals(node.getNodeName())) {
-                    plugins.add(new PomPluginElement((Element) node));
-                }
-            }
+        for (Iterator it = pluginsData.iterator(); it.hasNext();) {
+            plugins.add(new PomPluginElement((ElementData) it.next()));
         }
         return plugins;
     }
 
     public class PomPluginElement implements PomDependencyMgt {
-        private Element pluginElement;
+        private ElementData pluginData;
         
-        PomPluginElement(Element pluginElement) {
-            this.pluginElement = pluginElement; 
+        PomPluginElement(ElementData pluginData) {
+            this.pluginData = pluginData; 
         }
         
         public String getGroupId() {
-            String val = getFirstChildText(pluginElement , GROUP_ID);
+            String val = pluginData.get(GROUP_ID);
             return replaceProps(val);
         }
 
         public String getArtifactId() {
-            String val = getFirstChildText(pluginElement , ARTIFACT_ID);
+            String val = pluginData.get(ARTIFACT_ID);
             return replaceProps(val);
         }
 
         public String getVersion() {
-            String val = getFirstChildText(pluginElement , VERSION);
+            String val = pluginData.get(VERSION);
             return replaceProps(val);
         }
         
@@ -403,35 +377,34 @@ public class PomReader {
     
     
     public class PomDependencyData extends PomDependencyMgtElement {
-        private final Element depElement;
+        private final ElementData depData;
 
         public PomDependencyData(PomDependencyData copyFrom) {
-            this(copyFrom.depElement);
+            this(copyFrom.depData);
         }
 
-        PomDependencyData(Element depElement) {
-            super(depElement);
-            this.depElement = depElement;
+        PomDependencyData(ElementData depData) {
+            super(depData);
+            this.depData = depData;
         }
 
         public String getScope() {
-            String val = getFirstChildText(depElement , SCOPE);
+            String val = depData.get(SCOPE);
             return replaceProps(val);
         }
         
         public String getClassifier() {
-            String val = getFirstChildText(depElement , CLASSIFIER);
+            String val = depData.get(CLASSIFIER);
             return replaceProps(val);
         }
         
         public String getType() {
-            String val = getFirstChildText(depElement, TYPE);
+            String val = depData.get(TYPE);
             return replaceProps(val);
         }
 
         public boolean isOptional() {
-            Element e = getFirstChildElement(depElement, OPTIONAL); 
-            return (e != null) && "true".equalsIgnoreCase(getTextContent(e));
+            return "true".equalsIgnoreCase(depData.get(OPTIONAL));
         }
 
     }
@@ -440,16 +413,7 @@ public class PomReader {
      * @return the content of the properties tag into the pom.
      */
     public Map/* <String,String> */getPomProperties() {
-        Map pomProperties = new HashMap();
-        Element propsEl = getFirstChildElement(projectElement, PROPERTIES);
-        if (propsEl != null) {
-            propsEl.normalize();
-        }
-        for (Iterator it = getAllChilds(propsEl).iterator(); it.hasNext();) {
-            Element prop = (Element) it.next();
-            pomProperties.put(prop.getNodeName(), getTextContent(prop));
-        }
-        return pomProperties;
+        return new HashMap(pomProperties);
     }
 
     private String replaceProps(String val) {
@@ -460,61 +424,214 @@ public class PomReader {
         }
     }
 
-    private static String getTextContent(Element element) {
-        StringBuffer result = new StringBuffer();
+    private static String get(ElementData data, String name) {
+        return data == null ? null : data.get(name);
+    }
+
+    private static Set/*<String>*/ fields(String[] names) {
+        return new HashSet(Arrays.asList(names));
+    }
+
+    /**
+     * The raw (not substituted) text of the interesting child elements of a pom element, like a
+     * dependency or a license. Only the first occurrence of each child element is kept, and only
+     * the text directly contained in that child is retained.
+     */
+    static final class ElementData {
+        private final Map/*<String,String>*/ values = new HashMap();
         
-        NodeList childNodes = element.getChildNodes();
-        for (int i = 0; i < childNodes.getLength(); i++) {
-            Node child = childNodes.item(i);
-            
-            switch (child.getNodeType()) {
-                case Node.CDATA_SECTION_NODE:
-                case Node.TEXT_NODE:
-                    result.append(child.getNodeValue());
-                    break;
-                default:
-                    break;
+        /** nested records, i.e. exclusions of a dependency */
+        private List/*<ElementData>*/ children;
+        
+        String get(String name) {
+            return (String) values.get(name);
+        }
+
+        void setIfAbsent(String name, String value) {
+            if (!values.containsKey(name)) {
+                values.put(name, value);
             }
         }
-        
-        return result.toString();
+
+        void addChild(ElementData child) {
+            if (children == null) {
+                children = new ArrayList();
+            }
+            children.add(child);
+        }
     }
-    
-    private static String getFirstChildText(Element parentElem, String name) {
-        Element node = getFirstChildElement(parentElem, name);
-        if (node != null) {
-            return getTextContent(node);
-        } else {
-            return null;
+
+    /**
+     * The state of an open element during the streaming pass.
+     */
+    private static final class Frame {
+        private final String name;
+        private final int kind;
+        /** the record this element is, or the record it is a field of */
+        private final ElementData data;
+        private StringBuffer text;
+        private Set/*<String>*/ childNames;
+
+        Frame(String name, int kind, ElementData data) {
+            this.name = name;
+            this.kind = kind;
+            this.data = data;
+        }
+
+        /**
+         * @return <code>true</code> if this is the first child element with the given name.
+         */
+        boolean firstChild(String childName) {
+            if (childNames == null) {
+                childNames = new HashSet();
+            }
+            return childNames.add(childName);
         }
     }
 
-    private static Element getFirstChildElement(Element parentElem, String name) {
-        if (parentElem == null) {
+    /**
+     * SAX handler collecting only the parts of the pom needed by the
+     * {@link PomModuleDescriptorBuilder}, applying the same 'first child element' semantic as the
+     * previous DOM based navigation.
+     */
+    private final class PomHandler extends DefaultHandler {
+        private static final int IGNORED = 0;
+        private static final int PROJECT_KIND = 1;
+        private static final int FIELD = 2;
+        private static final int PROPERTY = 3;
+        private static final int CONTAINER = 4;
+        private static final int RECORD = 5;
+
+        private final Resource res;
+        private final LinkedList/*<Frame>*/ stack = new LinkedList();
+
+        PomHandler(Resource res) {
+            this.res = res;
+        }
+
+        public InputSource resolveEntity(String publicId, String systemId) 
+                throws SAXException, IOException {
+            if ((systemId != null) && systemId.endsWith("m2-entities.ent")) {
+                return new InputSource(
+                                PomReader.class.getResourceAsStream("m2-entities.ent"));
+            }
             return null;
         }
-        NodeList childs = parentElem.getChildNodes();
-        for (int i = 0; i < childs.getLength(); i++) {
-            Node node = childs.item(i);
-            if (node instanceof Element && name.equals(node.getNodeName())) {
-                return (Element) node;
+
+        public void startElement(String uri, String localName, String qName, 
+                Attributes attributes) throws SAXException {
+            if (stack.isEmpty()) {
+                if (!PROJECT.equals(qName) && !MODEL.equals(qName)) {
+                    throw new SAXParseException("project must be the root tag" , res.getName() , 
+                                                res.getName(), 0, 0);
+                }
+                stack.addLast(new Frame(qName, PROJECT_KIND, projectData));
+                return;
+            }
+            Frame parent = (Frame) stack.getLast();
+            boolean first = (parent.kind == PROJECT_KIND || parent.kind == CONTAINER
+                    || parent.kind == RECORD) && parent.firstChild(qName);
+            Frame frame = newFrame(parent, qName, first);
+            if (frame.kind == FIELD || frame.kind == PROPERTY) {
+                frame.text = new StringBuffer();
             }
+            stack.addLast(frame);
+        }
+
+        private Frame newFrame(Frame parent, String name, boolean first) {
+            String container = parent.kind == CONTAINER ? parent.name : null;
+            switch (parent.kind) {
+                case PROJECT_KIND:
+                    if (first && PROJECT_FIELDS.contains(name)) {
+                        return new Frame(name, FIELD, projectData);
+                    } else if (first && PARENT.equals(name)) {
+                        parentData = new ElementData();
+                        return new Frame(name, RECORD, parentData);
+                    } else if (first && (LICENSES.equals(name) || DEPENDENCIES.equals(name)
+                            || DEPENDENCY_MGT.equals(name) || DISTRIBUTION_MGT.equals(name)
+                            || BUILD.equals(name))) {
+                        if (LICENSES.equals(name)) {
+                            licensesData = new ArrayList();
+                        }
+                        return new Frame(name, CONTAINER, null);
+                    } else if (first && PROPERTIES.equals(name)) {
+                        return new Frame(name, CONTAINER, null);
+                    }
+                    break;
+                case CONTAINER:
+                    if (PROPERTIES.equals(container)) {
+                        return new Frame(name, PROPERTY, null);
+                    } else if (LICENSES.equals(container) && LICENSE.equals(name)) {
+                        ElementData license = new ElementData();
+                        licensesData.add(license);
+                        return new Frame(name, RECORD, license);
+                    } else if (DEPENDENCIES.equals(container) && DEPENDENCY.equals(name)) {
+                        ElementData dependency = new ElementData();
+                        if (stack.size() == 2) {
+                            dependenciesData.add(dependency);
+                        } else {
+                            dependencyMgtData.add(dependency);
+                        }
+                        return new Frame(name, RECORD, dependency);
+                    } else if (DEPENDENCY_MGT.equals(container) && first && DEPENDENCIES.equals(name)) {
+                        return new Frame(name, CONTAINER, null);
+                    } else if (DISTRIBUTION_MGT.equals(container) && first && RELOCATION.equals(name)) {
+                        relocationData = new ElementData();
+                        return new Frame(name, RECORD, relocationData);
+                    } else if (BUILD.equals(container) && first && PLUGINS.equals(name)) {
+                        return new Frame(name, CONTAINER, null);
+                    } else if (PLUGINS.equals(container) && PLUGIN.equals(name)) {
+                        ElementData plugin = new ElementData();
+                        pluginsData.add(plugin);
+                        return new Frame(name, RECORD, plugin);
+                    } else if (EXCLUSIONS.equals(container) && EXCLUSION.equals(name)) {
+                        ElementData exclusion = new ElementData();
+                        ((Frame) stack.get(stack.size() - 2)).data.addChild(exclusion);
+                        return new Frame(name, RECORD, exclusion);
+                    }
+                    break;
+                case RECORD:
+                    if (recordFields(parent).contains(name)) {
+                        return new Frame(name, FIELD, parent.data);
+                    } else if (first && EXCLUSIONS.equals(name) && DEPENDENCY.equals(parent.name)) {
+                        return new Frame(name, CONTAINER, null);
+                    }
+                    break;
+                default:
+                    break;
+            }
+            return new Frame(name, IGNORED, null);
         }
-        return null;
-    }
-    
-    private static List/* <Element> */getAllChilds(Element parent) {
-        List r = new LinkedList();
-        if (parent != null) {
-            NodeList childs = parent.getChildNodes();
-            for (int i = 0; i < childs.getLength(); i++) {
-                Node node = childs.item(i);
-                if (node instanceof Element) {
-                    r.add(node);
-                }
+
+        private Set/*<String>*/ recordFields(Frame record) {
+            if (DEPENDENCY.equals(record.name)) {
+                return DEPENDENCY_FIELDS;
+            } else if (LICENSE.equals(record.name)) {
+                return LICENSE_FIELDS;
+            } else if (EXCLUSION.equals(record.name)) {
+                return EXCLUSION_FIELDS;
+            } else {
+                // parent, relocation and plugin
+                return COORDINATE_FIELDS;
+            }
+        }
+
+        public void characters(char[] ch, int start, int length) throws SAXException {
+            Frame frame = (Frame) stack.getLast();
+            if (frame.text != null) {
+                frame.text.append(ch, start, length);
+            }
+        }
+
+        public void endElement(String uri, String localName, String qName) 
+                throws SAXException {
+            Frame frame = (Frame) stack.removeLast();
+            if (frame.kind == FIELD) {
+                frame.data.setIfAbsent(frame.name, frame.text.toString());
+            } else if (frame.kind == PROPERTY) {
+                pomProperties.put(frame.name, frame.text.toString());
             }
         }
-        return r;
     }
 
     private static final class AddDTDFilterInputStream extends FilterInputStream {
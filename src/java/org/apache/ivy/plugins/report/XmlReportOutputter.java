@@ -24,6 +24,7 @@ import java.io.OutputStream;
 
 import org.apache.ivy.core.cache.ResolutionCacheManager;
 import org.apache.ivy.core.report.ConfigurationResolveReport;
+import org.apache.ivy.core.report.ResolveMetrics;
 import org.apache.ivy.core.report.ResolveReport;
 import org.apache.ivy.core.resolve.ResolveOptions;
 import org.apache.ivy.util.FileUtil;
@@ -45,19 +46,26 @@ public class XmlReportOutputter implements ReportOutputter {
             throws IOException {
         String[] confs = report.getConfigurations();
         for (int i = 0; i < confs.length; i++) {
-            output(report.getConfigurationReport(confs[i]), report.getResolveId(), confs, cacheMgr);
+            output(report.getConfigurationReport(confs[i]), report.getResolveId(), confs,
+                report.getMetrics(), cacheMgr);
         }
     }
 
     public void output(ConfigurationResolveReport report, String resolveId, 
             String[] confs, ResolutionCacheManager cacheMgr) 
             throws IOException {
+        output(report, resolveId, confs, null, cacheMgr);
+    }
+
+    private void output(ConfigurationResolveReport report, String resolveId, 
+            String[] confs, ResolveMetrics metrics, ResolutionCacheManager cacheMgr) 
+            throws IOException {
         File reportFile = cacheMgr.getConfigurationResolveReportInCache(
             resolveId, report.getConfiguration());
         File reportParentDir = reportFile.getParentFile();
         reportParentDir.mkdirs();
         OutputStream stream = new FileOutputStream(reportFile);
-        writer.output(report, confs, stream);
+        writer.output(report, confs, metrics, stream);
         stream.close();
 
         Message.verbose("\treport for " + report.getModuleDescriptor().getModuleRevisionId()
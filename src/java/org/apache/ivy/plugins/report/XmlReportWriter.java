@@ -38,6 +38,7 @@ import org.apache.ivy.core.module.id.ModuleRevisionId;
 import org.apache.ivy.core.report.ArtifactDownloadReport;
 import org.apache.ivy.core.report.ConfigurationResolveReport;
 import org.apache.ivy.core.report.MetadataArtifactDownloadReport;
+import org.apache.ivy.core.report.ResolveMetrics;
 import org.apache.ivy.core.resolve.IvyNode;
 import org.apache.ivy.core.resolve.IvyNodeCallers.Caller;
 import org.apache.ivy.core.resolve.IvyNodeEviction.EvictionData;
@@ -58,6 +59,15 @@ public class XmlReportWriter {
 
     public void output(
             ConfigurationResolveReport report, String[] confs, OutputStream stream) {
+        output(report, confs, null, stream);
+    }
+
+    /**
+     * Writes the report of a configuration, followed by the metrics of the whole resolve if they
+     * are given.
+     */
+    public void output(ConfigurationResolveReport report, String[] confs, ResolveMetrics metrics,
+            OutputStream stream) {
         OutputStreamWriter encodedOutStream;
         try {
             encodedOutStream = new OutputStreamWriter(stream , REPORT_ENCODING);
@@ -104,6 +114,9 @@ public class XmlReportWriter {
             out.println("\t\t</module>");
         }
         out.println("\t</dependencies>");
+        if (metrics != null) {
+            outputMetrics(out, metrics);
+        }
         out.println("</ivy-report>");
         out.flush();
     }
@@ -190,6 +203,23 @@ public class XmlReportWriter {
         out.println("\t\t\t</revision>");
     }
 
+    private void outputMetrics(PrintWriter out, ResolveMetrics metrics) {
+        out.println("\t<metrics>");
+        outputMetrics(out, "phase", "time", metrics.getPhaseTimes());
+        outputMetrics(out, "resolver", "time", metrics.getResolverTimes());
+        outputMetrics(out, "conflict-manager", "time", metrics.getConflictManagerTimes());
+        outputMetrics(out, "counter", "value", metrics.getCounts());
+        out.println("\t</metrics>");
+    }
+
+    private void outputMetrics(PrintWriter out, String element, String attribute, Map values) {
+        for (Iterator it = values.entrySet().iterator(); it.hasNext();) {
+            Map.Entry entry = (Map.Entry) it.next();
+            out.println("\t\t<" + element + " name=\"" + XMLHelper.escape((String) entry.getKey())
+                    + "\" " + attribute + "=\"" + entry.getValue() + "\"/>");
+        }
+    }
+
     private void outputEvictionInformation(ConfigurationResolveReport report, PrintWriter out,
             IvyNode dep) {
         if (dep.isEvicted(report.getConfiguration())) {
@@ -27,9 +27,11 @@ public class RepositoryCopyProgressListener implements CopyProgressListener {
         this.repository = repository;
     }
 
-    private Long totalLength = null;
+    // per thread, as the repository may copy several files concurrently
+    private final ThreadLocal/* <Long> */totalLength = new ThreadLocal();
 
     public void start(CopyProgressEvent evt) {
+        Long totalLength = getTotalLength();
         if (totalLength != null) {
             repository.fireTransferStarted(totalLength.longValue());
         } else {
@@ -47,10 +49,10 @@ public class RepositoryCopyProgressListener implements CopyProgressListener {
     }
 
     public Long getTotalLength() {
-        return totalLength;
+        return (Long) totalLength.get();
     }
 
     public void setTotalLength(Long totalLength) {
-        this.totalLength = totalLength;
+        this.totalLength.set(totalLength);
     }
 }
@@ -18,6 +18,7 @@
 package org.apache.ivy.plugins.repository.sftp;
 
 import java.io.File;
+import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URI;
@@ -35,7 +36,6 @@ import org.apache.ivy.plugins.repository.ssh.SshCache;
 import org.apache.ivy.util.Message;
 
 import com.jcraft.jsch.ChannelSftp;
-import com.jcraft.jsch.JSchException;
 import com.jcraft.jsch.Session;
 import com.jcraft.jsch.SftpATTRS;
 import com.jcraft.jsch.SftpException;
@@ -46,12 +46,26 @@ import com.jcraft.jsch.ChannelSftp.LsEntry;
  * SFTP Repository, allow to use a repository accessed by sftp protocol. It supports all operations:
  * get, put and list. It relies on jsch for sftp handling, and thus is compatible with sftp version
  * 0, 1, 2 and 3
+ * <p>
+ * Each operation borrows its own sftp channel from a pool kept by {@link SshCache}, so that
+ * several threads can use the same repository at the same time.
+ * </p>
  */
 public class SFTPRepository extends AbstractSshBasedRepository {
     // this must be a long to ensure the multiplication done below uses longs
     // instead of ints which are not big enough to hold the result
     private static final long MILLIS_PER_SECOND = 1000;
 
+    private static final int DEFAULT_MAX_CHANNELS = 4;
+
+    private static final long DEFAULT_CHANNEL_IDLE_TIMEOUT = 60 * MILLIS_PER_SECOND;
+
+    private int maxChannels = DEFAULT_MAX_CHANNELS;
+
+    private long channelIdleTimeout = DEFAULT_CHANNEL_IDLE_TIMEOUT;
+
+    private long channelWaitTimeout = SshCache.DEFAULT_CHANNEL_WAIT_TIMEOUT;
+
     private final class MyProgressMonitor implements SftpProgressMonitor {
         private long totalLength;
 
@@ -73,6 +87,44 @@ public class SFTPRepository extends AbstractSshBasedRepository {
     public SFTPRepository() {
     }
 
+    /**
+     * Sets the maximum number of sftp channels opened at the same time on a session, 0 or less
+     * for no limit. Operations needing a channel when this limit is reached wait for one to be
+     * released.
+     */
+    public void setMaxChannels(int maxChannels) {
+        this.maxChannels = maxChannels;
+    }
+
+    public int getMaxChannels() {
+        return maxChannels;
+    }
+
+    /**
+     * Sets the number of milliseconds after which an unused sftp channel is closed, -1 to keep
+     * unused channels open until the session is closed.
+     */
+    public void setChannelIdleTimeout(long channelIdleTimeout) {
+        this.channelIdleTimeout = channelIdleTimeout;
+    }
+
+    public long getChannelIdleTimeout() {
+        return channelIdleTimeout;
+    }
+
+    /**
+     * Sets the maximum number of milliseconds to wait for an sftp channel to be released when
+     * maxChannels channels are in use, 0 or less to wait without limit. Operations still waiting
+     * after this time fail.
+     */
+    public void setChannelWaitTimeout(long channelWaitTimeout) {
+        this.channelWaitTimeout = channelWaitTimeout;
+    }
+
+    public long getChannelWaitTimeout() {
+        return channelWaitTimeout;
+    }
+
     public Resource getResource(String source) {
         return new SFTPResource(this, source);
     }
@@ -87,8 +139,11 @@ public class SFTPRepository extends AbstractSshBasedRepository {
      *         further connection
      */
     public Resource resolveResource(String path) {
+        Session session = null;
+        ChannelSftp c = null;
         try {
-            ChannelSftp c = getSftpChannel(path);
+            session = getSession(path);
+            c = acquireChannel(session);
 
             Collection r = c.ls(getPath(path));
 
@@ -106,16 +161,38 @@ public class SFTPRepository extends AbstractSshBasedRepository {
         } catch (Exception e) {
             Message.debug("reolving resource error: " + e.getMessage());
             // silent fail, return unexisting resource
+        } finally {
+            if (c != null) {
+                releaseChannel(session, c);
+            }
         }
 
         return new BasicResource(path, false, 0, 0, false);
     }
 
     public InputStream openStream(SFTPResource resource) throws IOException {
-        ChannelSftp c = getSftpChannel(resource.getName());
+        final Session session = getSession(resource.getName());
+        final ChannelSftp c = acquireChannel(session);
+        boolean streamOpened = false;
         try {
             String path = getPath(resource.getName());
-            return c.get(path);
+            // the channel can only be given back to the pool once the stream is consumed
+            InputStream stream = new FilterInputStream(c.get(path)) {
+                private boolean closed = false;
+
+                public void close() throws IOException {
+                    try {
+                        super.close();
+                    } finally {
+                        if (!closed) {
+                            closed = true;
+                            releaseChannel(session, c);
+                        }
+                    }
+                }
+            };
+            streamOpened = true;
+            return stream;
         } catch (SftpException e) {
             IOException ex = new IOException("impossible to open stream for " + resource + " on "
                     + getHost() + (e.getMessage() != null ? ": " + e.getMessage() : ""));
@@ -126,12 +203,17 @@ public class SFTPRepository extends AbstractSshBasedRepository {
                 + getHost() + (e.getMessage() != null ? ": " + e.getMessage() : ""));
             ex.initCause(e);
             throw ex;
-        } 
+        } finally {
+            if (!streamOpened) {
+                releaseChannel(session, c);
+            }
+        }
     }
 
     public void get(String source, File destination) throws IOException {
         fireTransferInitiated(getResource(source), TransferEvent.REQUEST_GET);
-        ChannelSftp c = getSftpChannel(source);
+        Session session = getSession(source);
+        ChannelSftp c = acquireChannel(session);
         try {
             String path = getPath(source);
             c.get(path, destination.getAbsolutePath(), new MyProgressMonitor());
@@ -145,12 +227,15 @@ public class SFTPRepository extends AbstractSshBasedRepository {
                 + (e.getMessage() != null ? ": " + e.getMessage() : ""));
             ex.initCause(e);
             throw ex;
+        } finally {
+            releaseChannel(session, c);
         }
     }
 
     public void put(File source, String destination, boolean overwrite) throws IOException {
         fireTransferInitiated(getResource(destination), TransferEvent.REQUEST_PUT);
-        ChannelSftp c = getSftpChannel(destination);
+        Session session = getSession(destination);
+        ChannelSftp c = acquireChannel(session);
         try {
             String path = getPath(destination);
             if (!overwrite && checkExistence(path, c)) {
@@ -168,6 +253,8 @@ public class SFTPRepository extends AbstractSshBasedRepository {
             IOException ex = new IOException(e.getMessage());
             ex.initCause(e);
             throw ex;
+        } finally {
+            releaseChannel(session, c);
         }
     }
 
@@ -183,7 +270,14 @@ public class SFTPRepository extends AbstractSshBasedRepository {
             if (directory.indexOf('/') != -1) {
                 mkdirs(directory.substring(0, directory.lastIndexOf('/')), c);
             }
-            c.mkdir(directory);
+            try {
+                c.mkdir(directory);
+            } catch (SftpException mkdirEx) {
+                // another thread may have created it in the meantime
+                if (!checkExistence(directory, c)) {
+                    throw mkdirEx;
+                }
+            }
         }
     }
 
@@ -200,8 +294,9 @@ public class SFTPRepository extends AbstractSshBasedRepository {
     }
 
     public List list(String parent) throws IOException {
+        Session session = getSession(parent);
+        ChannelSftp c = acquireChannel(session);
         try {
-            ChannelSftp c = getSftpChannel(parent);
             String path = getPath(parent);
             Collection r = c.ls(path);
             if (r != null) {
@@ -229,7 +324,9 @@ public class SFTPRepository extends AbstractSshBasedRepository {
             IOException ex = new IOException("Failed to return a listing for '" + parent + "'");
             ex.initCause(usex);
             throw ex;
-        }            
+        } finally {
+            releaseChannel(session, c);
+        }
         return null;
     }
 
@@ -254,31 +351,21 @@ public class SFTPRepository extends AbstractSshBasedRepository {
     }
 
     /**
-     * Establish the connection to the server if not yet connected, and listen to ivy events for
-     * closing connection when resolve is finished. Not meant to be used in multi threaded
-     * environment.
+     * Establish the connection to the server if not yet connected, and borrow an sftp channel of
+     * this connection. The session is closed when the resolve is finished.
      * 
-     * @return the ChannelSftp with which a connection is established
+     * @return the ChannelSftp with which a connection is established, which must be given back
+     *         with releaseChannel
      * @throws IOException
      *             if any connection problem occurs
      */
-    private ChannelSftp getSftpChannel(String pathOrUri) throws IOException {
-        Session session = getSession(pathOrUri);
-        String host = session.getHost();
-        ChannelSftp channel = SshCache.getInstance().getChannelSftp(session);
-        if (channel == null) {
-            try {
-                channel = (ChannelSftp) session.openChannel("sftp");
-                channel.connect();
-                Message.verbose(":: SFTP :: connected to " + host + "!");
-                SshCache.getInstance().attachChannelSftp(session, channel);
-            } catch (JSchException e) {
-                IOException ex = new IOException(e.getMessage());
-                ex.initCause(e);
-                throw ex;
-            }
-        }
-        return channel;
+    private ChannelSftp acquireChannel(Session session) throws IOException {
+        return SshCache.getInstance().acquireChannelSftp(session, maxChannels,
+            channelIdleTimeout, channelWaitTimeout);
+    }
+
+    private void releaseChannel(Session session, ChannelSftp channel) {
+        SshCache.getInstance().releaseChannelSftp(session, channel, channelIdleTimeout);
     }
 
     protected String getRepositoryScheme() {
@@ -20,8 +20,11 @@ package org.apache.ivy.plugins.repository.ssh;
 import java.io.File;
 import java.io.IOException;
 import java.util.HashMap;
+import java.util.LinkedList;
 import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.apache.ivy.core.IvyContext;
 import org.apache.ivy.core.event.IvyEvent;
@@ -43,10 +46,23 @@ import com.jcraft.jsch.UserInfo;
  * a class to cache SSH Connections and Channel for the SSH Repository each session is defined by
  * connecting user / host / port two maps are used to find cache entries one map is using the above
  * keys, the other uses the session itself
+ * <p>
+ * Each session keeps a pool of sftp channels, so that several threads can transfer files over
+ * the same session at the same time. Channels are borrowed with
+ * {@link #acquireChannelSftp(Session, int, long)} and must be given back with
+ * {@link #releaseChannelSftp(Session, ChannelSftp, long)}. This class is thread safe: sessions
+ * are established holding a lock for their user, host and port only, so that a slow host does not
+ * block the threads using the other ones.
+ * </p>
  */
 public final class SshCache {
 
     private static final int SSH_DEFAULT_PORT = 22;
+
+    /**
+     * The default number of milliseconds to wait for an sftp channel to be released.
+     */
+    public static final long DEFAULT_CHANNEL_WAIT_TIMEOUT = 10 * 60 * 1000;
     
     private SshCache() {
     };
@@ -60,7 +76,16 @@ public final class SshCache {
     private class Entry {
         private Session session = null;
 
-        private ChannelSftp channelSftp = null;
+        /**
+         * channels released to the pool, most recently released first
+         */
+        private LinkedList/*<IdleChannel>*/ idleChannels = new LinkedList();
+
+        private int borrowedChannels = 0;
+
+        private boolean closed = false;
+
+        private boolean closeWhenIdle = false;
 
         private String host = null;
 
@@ -97,29 +122,108 @@ public final class SshCache {
             IvyContext.getContext().getEventManager().addIvyListener(new IvyListener() {
                 public void progress(IvyEvent event) {
                     event.getSource().removeIvyListener(this);
-                    clearSession(session);
+                    if (closeWhenIdle()) {
+                        clearSession(session);
+                    }
                 }
             }, EndResolveEvent.NAME);
         }
 
         /**
-         * attach an sftp channel to this cache entry
+         * Takes an idle sftp channel from the pool, waiting for one to be released if maxChannels
+         * channels are already borrowed.
          * 
-         * @param channelSftp
-         *            to attach
+         * @return the borrowed channel, or null if the caller is allowed to open a new channel,
+         *         which is then considered borrowed
+         * @throws IOException
+         *             if no channel has been released after waitTimeout milliseconds
+         */
+        public synchronized ChannelSftp borrowChannelSftp(int maxChannels, long idleTimeout,
+                long waitTimeout) throws IOException {
+            long deadline = System.currentTimeMillis() + waitTimeout;
+            while (true) {
+                if (closed) {
+                    throw new IOException("ssh session to " + host + " has been closed");
+                }
+                discardIdleChannels(idleTimeout);
+                while (!idleChannels.isEmpty()) {
+                    ChannelSftp channel = ((IdleChannel) idleChannels.removeFirst()).channel;
+                    if (channel.isConnected()) {
+                        borrowedChannels++;
+                        return channel;
+                    }
+                }
+                if (maxChannels <= 0 || borrowedChannels < maxChannels) {
+                    borrowedChannels++;
+                    return null;
+                }
+                long remaining = deadline - System.currentTimeMillis();
+                if (waitTimeout > 0 && remaining <= 0) {
+                    throw new IOException("no sftp channel to " + host + " has been released in "
+                            + waitTimeout + "ms: the " + borrowedChannels + " channels allowed are"
+                            + " still in use, a stream may not have been closed");
+                }
+                try {
+                    wait(waitTimeout > 0 ? remaining : 0);
+                } catch (InterruptedException e) {
+                    throw new IOException("interrupted while waiting for an sftp channel to "
+                            + host);
+                }
+            }
+        }
+
+        /**
+         * Gives back a borrowed channel, or the slot reserved to open one if channel is null.
+         * 
+         * @return true if the session should be closed now that no channel is borrowed anymore
+         */
+        public synchronized boolean returnChannelSftp(ChannelSftp channel, long idleTimeout) {
+            borrowedChannels--;
+            if (channel != null) {
+                if (closed || idleTimeout == 0 || !channel.isConnected()) {
+                    disconnect(channel);
+                } else {
+                    idleChannels.addFirst(new IdleChannel(channel));
+                }
+            }
+            discardIdleChannels(idleTimeout);
+            notifyAll();
+            return closeWhenIdle && borrowedChannels == 0;
+        }
+
+        /**
+         * Marks this entry to be closed as soon as no channel is borrowed.
+         * 
+         * @return true if no channel is borrowed and the session can be closed right away
          */
-        public void setChannelSftp(ChannelSftp newChannel) {
-            if (channelSftp != null && newChannel != null) {
-                throw new IllegalStateException("Only one sftp channelSftp per session allowed");
+        public synchronized boolean closeWhenIdle() {
+            closeWhenIdle = borrowedChannels > 0;
+            return !closeWhenIdle;
+        }
+
+        /**
+         * @return an idle channel, which is not considered borrowed, or null if there is none
+         */
+        public synchronized ChannelSftp getChannelSftp() {
+            while (!idleChannels.isEmpty()) {
+                ChannelSftp channel = ((IdleChannel) idleChannels.getFirst()).channel;
+                if (channel.isConnected()) {
+                    return channel;
+                }
+                idleChannels.removeFirst();
             }
-            this.channelSftp = newChannel;
+            return null;
         }
 
         /**
-         * @return the attached sftp channel
+         * adds an sftp channel to the idle channels of this cache entry
+         * 
+         * @param newChannel
+         *            to attach
          */
-        public ChannelSftp getChannelSftp() {
-            return channelSftp;
+        public synchronized void setChannelSftp(ChannelSftp newChannel) {
+            idleChannels.addFirst(new IdleChannel(newChannel));
+            notifyAll();
         }
 
         /**
@@ -130,18 +234,48 @@ public final class SshCache {
         }
 
         /**
-         * remove channelSftp and disconnect if necessary
+         * disconnect all idle channels and refuse to give new ones
          */
-        public void releaseChannelSftp() {
-            if (channelSftp != null) {
-                if (channelSftp.isConnected()) {
-                    Message.verbose(":: SFTP :: closing sftp connection from " + host + "...");
-                    channelSftp.disconnect();
-                    channelSftp = null;
-                    Message.verbose(":: SFTP :: sftp connection closed from " + host);
+        public synchronized void close() {
+            closed = true;
+            while (!idleChannels.isEmpty()) {
+                disconnect(((IdleChannel) idleChannels.removeFirst()).channel);
+            }
+            notifyAll();
+        }
+
+        private void discardIdleChannels(long idleTimeout) {
+            if (idleTimeout < 0) {
+                return;
+            }
+            long now = System.currentTimeMillis();
+            while (!idleChannels.isEmpty()) {
+                IdleChannel idle = (IdleChannel) idleChannels.getLast();
+                if (now - idle.releaseTime < idleTimeout) {
+                    break;
                 }
+                idleChannels.removeLast();
+                disconnect(idle.channel);
             }
         }
+
+        private void disconnect(ChannelSftp channel) {
+            if (channel.isConnected()) {
+                Message.verbose(":: SFTP :: closing sftp connection from " + host + "...");
+                channel.disconnect();
+                Message.verbose(":: SFTP :: sftp connection closed from " + host);
+            }
+        }
+    }
+
+    private static final class IdleChannel {
+        private final ChannelSftp channel;
+
+        private final long releaseTime = System.currentTimeMillis();
+
+        public IdleChannel(ChannelSftp channel) {
+            this.channel = channel;
+        }
     }
 
     /**
@@ -156,6 +290,11 @@ public final class SshCache {
      */
     private Map sessionCacheMap = new HashMap();
 
+    /**
+     * the locks held while establishing sessions, by cache key
+     */
+    private final ConcurrentMap/*<String, Object>*/ connectLocks = new ConcurrentHashMap();
+
     /**
      * retrieves a session entry for a given hostname from the cache
      * 
@@ -163,7 +302,7 @@ public final class SshCache {
      *            to retrieve session for
      * @return null or the existing entry
      */
-    private Entry getCacheEntry(String user, String host, int port) {
+    private synchronized Entry getCacheEntry(String user, String host, int port) {
         return (Entry) uriCacheMap.get(createCacheKey(user, host, port));
     }
 
@@ -194,7 +333,7 @@ public final class SshCache {
      *            to retrieve cache entry for
      * @return null or the existing entry
      */
-    private Entry getCacheEntry(Session session) {
+    private synchronized Entry getCacheEntry(Session session) {
         return (Entry) sessionCacheMap.get(session);
     }
 
@@ -211,14 +350,16 @@ public final class SshCache {
      * @param newSession
      *            Session to save
      */
-    private void setSession(String user, String host, int port, Session newSession) {
+    synchronized void setSession(String user, String host, int port, Session newSession) {
         Entry entry = (Entry) uriCacheMap.get(createCacheKey(user, host, port));
         Session oldSession = null;
         if (entry != null) {
             oldSession = entry.getSession();
         }
+        if (entry != null && !entry.getSession().equals(newSession)) {
+            entry.close();
+        }
         if (oldSession != null && !oldSession.equals(newSession) && oldSession.isConnected()) {
-            entry.releaseChannelSftp();
             String oldhost = oldSession.getHost();
             Message.verbose(":: SSH :: closing ssh connection from " + oldhost + "...");
             oldSession.disconnect();
@@ -242,7 +383,7 @@ public final class SshCache {
      * @param session
      *            to clear
      */
-    public void clearSession(Session session) {
+    public synchronized void clearSession(Session session) {
         Entry entry = (Entry) sessionCacheMap.get(session);
         if (entry != null) {
             setSession(entry.getUser(), entry.getHost(), entry.getPort(), null);
@@ -250,32 +391,111 @@ public final class SshCache {
     }
 
     /**
-     * retrieves an sftp channel from the cache
+     * Borrows an sftp channel of the given session from the pool, waiting at most
+     * {@link #DEFAULT_CHANNEL_WAIT_TIMEOUT} milliseconds for one to be released.
+     * 
+     * @see #acquireChannelSftp(Session, int, long, long)
+     */
+    public ChannelSftp acquireChannelSftp(Session session, int maxChannels, long idleTimeout)
+            throws IOException {
+        return acquireChannelSftp(session, maxChannels, idleTimeout, 
+            DEFAULT_CHANNEL_WAIT_TIMEOUT);
+    }
+
+    /**
+     * Borrows an sftp channel of the given session from the pool, opening a new one if no idle
+     * channel is available. When maxChannels channels of this session are already borrowed, waits
+     * for one of them to be released.
+     * 
+     * @param session
+     *            the session to use, as returned by getSession
+     * @param maxChannels
+     *            the maximum number of channels opened at the same time on this session, 0 or less
+     *            for no limit
+     * @param idleTimeout
+     *            the number of milliseconds after which an idle channel is closed, -1 to keep
+     *            idle channels until the session is closed
+     * @param waitTimeout
+     *            the maximum number of milliseconds to wait for a channel to be released, 0 or
+     *            less to wait without limit
+     * @return a connected channel, which must be given back with releaseChannelSftp
+     * @throws IOException
+     *             if the channel cannot be opened, or if no channel has been released in time
+     */
+    public ChannelSftp acquireChannelSftp(Session session, int maxChannels, long idleTimeout,
+            long waitTimeout) throws IOException {
+        Entry entry = getCacheEntry(session);
+        if (entry == null) {
+            throw new IllegalArgumentException("No entry for " + session + " in the cache");
+        }
+        ChannelSftp channel = entry.borrowChannelSftp(maxChannels, idleTimeout, waitTimeout);
+        if (channel != null) {
+            return channel;
+        }
+        try {
+            channel = (ChannelSftp) session.openChannel("sftp");
+            channel.connect();
+            Message.verbose(":: SFTP :: connected to " + session.getHost() + "!");
+            return channel;
+        } catch (JSchException e) {
+            releaseChannelSftp(session, null, idleTimeout);
+            IOException ex = new IOException(e.getMessage());
+            ex.initCause(e);
+            throw ex;
+        } catch (RuntimeException e) {
+            releaseChannelSftp(session, null, idleTimeout);
+            throw e;
+        }
+    }
+
+    /**
+     * Gives back a channel borrowed with acquireChannelSftp to the pool. Channels which are not
+     * connected anymore are discarded.
+     * 
+     * @param session
+     *            the session the channel belongs to
+     * @param channel
+     *            the channel to give back, may be null if acquiring it failed
+     * @param idleTimeout
+     *            the number of milliseconds after which an idle channel is closed, -1 to keep
+     *            idle channels until the session is closed
+     */
+    public void releaseChannelSftp(Session session, ChannelSftp channel, long idleTimeout) {
+        Entry entry = getCacheEntry(session);
+        if (entry == null) {
+            if (channel != null && channel.isConnected()) {
+                channel.disconnect();
+            }
+            return;
+        }
+        if (entry.returnChannelSftp(channel, idleTimeout)) {
+            clearSession(session);
+        }
+    }
+
+    /**
+     * retrieves an idle sftp channel from the cache
      * 
      * @param session
      *            to connect to
      * @return channelSftp or null if not successful (channel not existent or dead)
+     * @deprecated the returned channel may be used by other threads at the same time, use
+     *             {@link #acquireChannelSftp(Session, int, long)} instead
      */
     public ChannelSftp getChannelSftp(Session session) throws IOException {
-        ChannelSftp channel = null;
         Entry entry = getCacheEntry(session);
-        if (entry != null) {
-            channel = entry.getChannelSftp();
-            if (channel != null && !channel.isConnected()) {
-                entry.releaseChannelSftp();
-                channel = null;
-            }
-        }
-        return channel;
+        return entry == null ? null : entry.getChannelSftp();
     }
 
     /**
-     * attaches a channelSftp to an existing session cache entry
+     * attaches a channelSftp to an existing session cache entry, as an idle channel
      * 
      * @param session
      *            to attach the channel to
      * @param channel
      *            channel to attach
+     * @deprecated use {@link #releaseChannelSftp(Session, ChannelSftp, long)} to give back
+     *             channels obtained with {@link #acquireChannelSftp(Session, int, long)}
      */
     public void attachChannelSftp(Session session, ChannelSftp channel) {
         Entry entry = getCacheEntry(session);
@@ -304,11 +524,28 @@ public final class SshCache {
      *            to store credentials
      * @return session or null if not successful
      */
-    public Session getSession(String host, int port, String username, String userPassword,
-            File pemFile, String pemPassword, File passFile) throws IOException {
+    public Session getSession(String host, int port, String username,
+            String userPassword, File pemFile, String pemPassword, File passFile) throws IOException {
         Checks.checkNotNull(host, "host");
         Checks.checkNotNull(username, "user");
-        Entry entry = getCacheEntry(username, host, port);
+        String key = createCacheKey(username, host, port);
+        Object lock = connectLocks.get(key);
+        if (lock == null) {
+            Object newLock = new Object();
+            lock = connectLocks.putIfAbsent(key, newLock);
+            if (lock == null) {
+                lock = newLock;
+            }
+        }
+        // only the threads connecting to the same host with the same user wait for the connection
+        synchronized (lock) {
+            return getSession(host, port, username, userPassword, pemFile, pemPassword, 
+                passFile, getCacheEntry(username, host, port));
+        }
+    }
+
+    private Session getSession(String host, int port, String username, String userPassword, 
+            File pemFile, String pemPassword, File passFile, Entry entry) throws IOException {
         Session session = null;
         if (entry != null) {
             session = entry.getSession();
@@ -24,10 +24,10 @@ import java.net.URISyntaxException;
 import java.net.URL;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.List;
 import java.util.ListIterator;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.ivy.plugins.repository.AbstractRepository;
 import org.apache.ivy.plugins.repository.RepositoryCopyProgressListener;
@@ -39,7 +39,8 @@ import org.apache.ivy.util.url.ApacheURLLister;
 public class URLRepository extends AbstractRepository {
     private RepositoryCopyProgressListener progress = new RepositoryCopyProgressListener(this);
 
-    private Map resourcesCache = new HashMap();
+    // shared by the threads using this repository
+    private Map resourcesCache = new ConcurrentHashMap();
 
     public Resource getResource(String source) throws IOException {
         Resource res = (Resource) resourcesCache.get(source);
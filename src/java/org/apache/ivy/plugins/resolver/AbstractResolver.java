@@ -29,6 +29,7 @@ import org.apache.ivy.core.RelativeUrlResolver;
 import org.apache.ivy.core.cache.ArtifactOrigin;
 import org.apache.ivy.core.cache.CacheDownloadOptions;
 import org.apache.ivy.core.cache.CacheMetadataOptions;
+import org.apache.ivy.core.cache.DefaultRepositoryCacheManager;
 import org.apache.ivy.core.cache.DownloadListener;
 import org.apache.ivy.core.cache.RepositoryCacheManager;
 import org.apache.ivy.core.cache.ResolutionCacheManager;
@@ -235,6 +236,11 @@ public abstract class AbstractResolver
     }
 
     public LatestStrategy getLatestStrategy() {
+        LatestStrategy override = (LatestStrategy) IvyContext.getContext().peek(
+            getLatestStrategyOverrideKey());
+        if (override != null) {
+            return override;
+        }
         if (latestStrategy == null) {
             initLatestStrategyFromSettings();
         }
@@ -264,6 +270,23 @@ public abstract class AbstractResolver
         this.latestStrategy = latestStrategy;
     }
 
+    /**
+     * Makes this resolver use the given latest strategy in the current context, until
+     * {@link #popLatestStrategy()} is called. The other threads still use the latest strategy
+     * of this resolver.
+     */
+    void pushLatestStrategy(LatestStrategy latestStrategy) {
+        IvyContext.getContext().push(getLatestStrategyOverrideKey(), latestStrategy);
+    }
+
+    void popLatestStrategy() {
+        IvyContext.getContext().pop(getLatestStrategyOverrideKey());
+    }
+
+    private String getLatestStrategyOverrideKey() {
+        return getName() + ".latest";
+    }
+
     public void setLatest(String strategyName) {
         latestStrategyName = strategyName;
     }
@@ -384,6 +407,16 @@ public abstract class AbstractResolver
         checkmodified = Boolean.valueOf(check);
     }
     
+    /**
+     * Returns the cache manager recording the modules and artifacts not found by this resolver,
+     * or <code>null</code> if the cache manager used does not support it.
+     */
+    protected DefaultRepositoryCacheManager getNotFoundCache() {
+        RepositoryCacheManager cacheManager = getRepositoryCacheManager();
+        return cacheManager instanceof DefaultRepositoryCacheManager 
+            ? (DefaultRepositoryCacheManager) cacheManager : null;
+    }
+
     public RepositoryCacheManager getRepositoryCacheManager() {
         if (repositoryCacheManager == null) {
             initRepositoryCacheManagerFromSettings();
@@ -34,11 +34,14 @@ import java.util.List;
 import java.util.ListIterator;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.apache.ivy.core.IvyContext;
 import org.apache.ivy.core.IvyPatternHelper;
 import org.apache.ivy.core.LogOptions;
 import org.apache.ivy.core.cache.ArtifactOrigin;
+import org.apache.ivy.core.cache.DefaultRepositoryCacheManager;
 import org.apache.ivy.core.cache.ModuleDescriptorWriter;
 import org.apache.ivy.core.cache.RepositoryCacheManager;
 import org.apache.ivy.core.module.descriptor.Artifact;
@@ -136,9 +139,12 @@ public abstract class BasicResolver extends AbstractResolver {
      */
     private boolean envDependent = true;
 
-    private List ivyattempts = new ArrayList();
-
-    private Map artattempts = new HashMap();
+    // the attempts made in the current thread when no resolve is in progress
+    private final ThreadLocal/* <Attempts> */localAttempts = new ThreadLocal() {
+        protected Object initialValue() {
+            return new Attempts();
+        }
+    };
 
     private boolean checkconsistency = true;
 
@@ -214,7 +220,7 @@ public abstract class BasicResolver extends AbstractResolver {
                             + " (resolved by " + rmr.getResolver().getName()
                             + "): but we are in force mode, let's try to find one ourself");
                 } else {
-                    Message.verbose("\t" + getName() + ": revision in cache: " + systemMrid);
+                    Message.verbose("\t{}: revision in cache: {}", getName(), systemMrid);
                     return checkLatest(systemDd, checkForcedResolvedModuleRevision(rmr), data);
                 }
             }
@@ -225,7 +231,7 @@ public abstract class BasicResolver extends AbstractResolver {
 
             checkInterrupted();
 
-            ResolvedResource ivyRef = findIvyFileRef(nsDd, data);
+            ResolvedResource ivyRef = findIvyFileRefOrCachedMiss(nsDd, data, systemMrid);
             checkInterrupted();
 
             // get module descriptor
@@ -507,9 +513,9 @@ public abstract class BasicResolver extends AbstractResolver {
             Message.warn("no module descriptor parser available for " + mdRef.getResource());
             return null;
         }
-        Message.verbose("\t" + getName() + ": found md file for " + mrid);
-        Message.verbose("\t\t=> " + mdRef);
-        Message.debug("\tparser = " + parser);
+        Message.verbose("\t{}: found md file for {}", getName(), mrid);
+        Message.verbose("\t\t=> {}", mdRef);
+        Message.debug("\tparser = {}", parser);
 
         ModuleRevisionId resolvedMrid = mrid;
 
@@ -673,7 +679,7 @@ public abstract class BasicResolver extends AbstractResolver {
             // But checking for existence is most of the time more costly than checking
             // name, blacklisting and first level version matching
             if (filterNames(new ArrayList(Collections.singleton(rres.getRevision()))).isEmpty()) {
-                Message.debug("\t" + name + ": filtered by name: " + rres);
+                Message.debug("\t{}: filtered by name: {}", name, rres);
                 continue;
             }
             ModuleRevisionId foundMrid = ModuleRevisionId.newInstance(mrid, rres.getRevision());
@@ -681,45 +687,44 @@ public abstract class BasicResolver extends AbstractResolver {
             ResolveData data = context.getResolveData();
             if (data != null && data.getReport() != null
                     && data.isBlacklisted(data.getReport().getConfiguration(), foundMrid)) {
-                Message.debug("\t" + name + ": blacklisted: " + rres);
+                Message.debug("\t{}: blacklisted: {}", name, rres);
                 rejected.add(rres.getRevision() + " (blacklisted)");
                 foundBlacklisted.add(foundMrid);
                 continue;
             }
 
             if (!versionMatcher.accept(mrid, foundMrid)) {
-                Message.debug("\t" + name + ": rejected by version matcher: " + rres);
+                Message.debug("\t{}: rejected by version matcher: {}", name, rres);
                 rejected.add(rres.getRevision());
                 continue;
             }
             if (rres.getResource() != null && !rres.getResource().exists()) {
-                Message.debug("\t" + name + ": unreachable: " + rres + "; res="
-                        + rres.getResource());
+                Message.debug("\t{}: unreachable: {}; res={}", name, rres, rres.getResource());
                 rejected.add(rres.getRevision() + " (unreachable)");
                 continue;
             }
             if ((date != null && rres.getLastModified() > date.getTime())) {
-                Message.verbose("\t" + name + ": too young: " + rres);
+                Message.verbose("\t{}: too young: {}", name, rres);
                 rejected.add(rres.getRevision() + " (" + rres.getLastModified() + ")");
                 continue;
             }
             if (versionMatcher.needModuleDescriptor(mrid, foundMrid)) {
                 ResolvedResource r = rmdparser.parse(rres.getResource(), rres.getRevision());
                 if (r == null) {
-                    Message.debug("\t" + name + ": impossible to get module descriptor resource: "
-                            + rres);
+                    Message.debug("\t{}: impossible to get module descriptor resource: {}", name,
+                        rres);
                     rejected.add(rres.getRevision() + " (no or bad MD)");
                     continue;
                 }
                 ModuleDescriptor md = ((MDResolvedResource) r).getResolvedModuleRevision()
                         .getDescriptor();
                 if (md.isDefault()) {
-                    Message.debug("\t" + name + ": default md rejected by version matcher"
-                            + "requiring module descriptor: " + rres);
+                    Message.debug("\t{}: default md rejected by version matcher"
+                            + "requiring module descriptor: {}", name, rres);
                     rejected.add(rres.getRevision() + " (MD)");
                     continue;
                 } else if (!versionMatcher.accept(mrid, md)) {
-                    Message.debug("\t" + name + ": md rejected by version matcher: " + rres);
+                    Message.debug("\t{}: md rejected by version matcher: {}", name, rres);
                     rejected.add(rres.getRevision() + " (MD)");
                     continue;
                 } else {
@@ -763,24 +768,36 @@ public abstract class BasicResolver extends AbstractResolver {
         return names;
     }
 
+    /**
+     * Returns the attempts made by this resolver for the resolve in progress, or for the current
+     * thread if no resolve is in progress, so that several resolves can use this resolver at the
+     * same time.
+     */
+    private Attempts getAttempts() {
+        ResolveData data = IvyContext.getContext().getResolveData();
+        if (data == null) {
+            return (Attempts) localAttempts.get();
+        }
+        Attempts attempts = (Attempts) data.getState(this);
+        if (attempts == null) {
+            attempts = (Attempts) data.putStateIfAbsent(this, new Attempts());
+        }
+        return attempts;
+    }
+
     protected void clearIvyAttempts() {
-        ivyattempts.clear();
+        getAttempts().ivy.clear();
         clearArtifactAttempts();
     }
 
     protected void logIvyAttempt(String attempt) {
-        ivyattempts.add(attempt);
-        Message.verbose("\t\ttried " + attempt);
+        getAttempts().ivy.add(attempt);
+        Message.verbose("\t\ttried {}", attempt);
     }
 
     protected void logArtifactAttempt(Artifact art, String attempt) {
-        List attempts = (List) artattempts.get(art);
-        if (attempts == null) {
-            attempts = new ArrayList();
-            artattempts.put(art, attempts);
-        }
-        attempts.add(attempt);
-        Message.verbose("\t\ttried " + attempt);
+        getAttempts().getArtifactAttempts(art).add(attempt);
+        Message.verbose("\t\ttried {}", attempt);
     }
 
     protected void logAttempt(String attempt) {
@@ -794,14 +811,16 @@ public abstract class BasicResolver extends AbstractResolver {
 
     public void reportFailure() {
         Message.warn("==== " + getName() + ": tried");
-        for (ListIterator iter = ivyattempts.listIterator(); iter.hasNext();) {
+        Attempts all = getAttempts();
+        for (ListIterator iter = Attempts.copy(all.ivy).listIterator(); iter.hasNext();) {
             String m = (String) iter.next();
             Message.warn("  " + m);
         }
-        for (Iterator iter = artattempts.keySet().iterator(); iter.hasNext();) {
+        for (Iterator iter = all.artifacts.keySet().iterator(); iter.hasNext();) {
             Artifact art = (Artifact) iter.next();
-            List attempts = (List) artattempts.get(art);
+            List attempts = (List) all.artifacts.get(art);
             if (attempts != null) {
+                attempts = Attempts.copy(attempts);
                 Message.warn("  -- artifact " + art + ":");
                 for (ListIterator iterator = attempts.listIterator(); iterator.hasNext();) {
                     String m = (String) iterator.next();
@@ -813,8 +832,9 @@ public abstract class BasicResolver extends AbstractResolver {
 
     public void reportFailure(Artifact art) {
         Message.warn("==== " + getName() + ": tried");
-        List attempts = (List) artattempts.get(art);
+        List attempts = (List) getAttempts().artifacts.get(art);
         if (attempts != null) {
+            attempts = Attempts.copy(attempts);
             for (ListIterator iter = attempts.listIterator(); iter.hasNext();) {
                 String m = (String) iter.next();
                 Message.warn("  " + m);
@@ -852,7 +872,7 @@ public abstract class BasicResolver extends AbstractResolver {
     }
 
     protected void clearArtifactAttempts() {
-        artattempts.clear();
+        getAttempts().artifacts.clear();
     }
 
     public ArtifactDownloadReport download(final ArtifactOrigin origin, DownloadOptions options) {
@@ -1025,13 +1045,57 @@ public abstract class BasicResolver extends AbstractResolver {
         }
     }
 
+    /**
+     * Looks for the ivy file of the given dependency, unless this resolver did not find it
+     * recently according to the not found cache.
+     */
+    private ResolvedResource findIvyFileRefOrCachedMiss(DependencyDescriptor nsDd, 
+            ResolveData data, ModuleRevisionId systemMrid) {
+        DefaultRepositoryCacheManager notFoundCache = getNotFoundCache();
+        if (notFoundCache == null || data.getOptions().isRefresh()) {
+            return findIvyFileRef(nsDd, data);
+        }
+        if (notFoundCache.isModuleNotFound(getName(), systemMrid)) {
+            Message.verbose("\t" + getName() + ": ivy file recently not found for " + systemMrid 
+                + ": not looking for it again");
+            return null;
+        }
+        ResolvedResource ivyRef = findIvyFileRef(nsDd, data);
+        if (ivyRef == null) {
+            notFoundCache.saveModuleNotFound(getName(), systemMrid);
+        }
+        return ivyRef;
+    }
+
+    /**
+     * Looks for the given artifact, unless this resolver did not find it recently according to
+     * the not found cache.
+     */
+    private ResolvedResource findArtifactRefOrCachedMiss(Artifact artifact, Date date) {
+        DefaultRepositoryCacheManager notFoundCache = getNotFoundCache();
+        ResolveData data = IvyContext.getContext().getResolveData();
+        if (notFoundCache == null || (data != null && data.getOptions().isRefresh())) {
+            return findArtifactRef(artifact, date);
+        }
+        if (notFoundCache.isArtifactNotFound(getName(), artifact)) {
+            Message.verbose("\t" + getName() + ": " + artifact 
+                + " recently not found: not looking for it again");
+            return null;
+        }
+        ResolvedResource ret = findArtifactRef(artifact, date);
+        if (ret == null) {
+            notFoundCache.saveArtifactNotFound(getName(), artifact);
+        }
+        return ret;
+    }
+
     protected ResolvedResource getArtifactRef(Artifact artifact, Date date) {
         IvyContext.getContext().set(getName() + ".artifact", artifact);
         try {
-            ResolvedResource ret = findArtifactRef(artifact, date);
+            ResolvedResource ret = findArtifactRefOrCachedMiss(artifact, date);
             if (ret == null && artifact.getUrl() != null) {
                 URL url = artifact.getUrl();
-                Message.verbose("\tusing url for " + artifact + ": " + url);
+                Message.verbose("\tusing url for {}: {}", artifact, url);
                 logArtifactAttempt(artifact, url.toExternalForm());
                 Resource resource;
                 if ("file".equals(url.getProtocol())) {
@@ -1122,6 +1186,34 @@ public abstract class BasicResolver extends AbstractResolver {
         this.checksums = checksums;
     }
 
+    /**
+     * The locations tried by a resolver, reported when it fails to find a module or an artifact.
+     */
+    private static final class Attempts {
+        private final List/* <String> */ivy = Collections.synchronizedList(new ArrayList());
+
+        private final ConcurrentMap/* <Artifact, List<String>> */artifacts =
+            new ConcurrentHashMap();
+
+        List getArtifactAttempts(Artifact art) {
+            List attempts = (List) artifacts.get(art);
+            if (attempts == null) {
+                List newAttempts = Collections.synchronizedList(new ArrayList());
+                attempts = (List) artifacts.putIfAbsent(art, newAttempts);
+                if (attempts == null) {
+                    attempts = newAttempts;
+                }
+            }
+            return attempts;
+        }
+
+        static List copy(List attempts) {
+            synchronized (attempts) {
+                return new ArrayList(attempts);
+            }
+        }
+    }
+
     private final ArtifactResourceResolver artifactResourceResolver = new ArtifactResourceResolver() {
         public ResolvedResource resolve(Artifact artifact) {
             artifact = fromSystem(artifact);
@@ -28,7 +28,16 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ivy.core.IvyContext;
 import org.apache.ivy.core.cache.ArtifactOrigin;
 import org.apache.ivy.core.module.descriptor.Artifact;
 import org.apache.ivy.core.module.descriptor.DependencyDescriptor;
@@ -67,12 +76,22 @@ public class ChainResolver extends AbstractResolver {
 
     }
 
+    private static final int DEFAULT_PARALLEL_THREADS = 4;
+
+    private static final long THREAD_KEEP_ALIVE_SECONDS = 30;
+
     private boolean returnFirst = false;
 
     private List chain = new ArrayList();
 
     private boolean dual;
 
+    private boolean parallel = false;
+
+    private int parallelThreads = DEFAULT_PARALLEL_THREADS;
+
+    private ExecutorService executor;
+
     public void add(DependencyResolver resolver) {
         chain.add(resolver);
     }
@@ -95,26 +114,36 @@ public class ChainResolver extends AbstractResolver {
             }
         }
         
-        for (Iterator iter = chain.iterator(); iter.hasNext();) {
-            DependencyResolver resolver = (DependencyResolver) iter.next();
-            LatestStrategy oldLatest = setLatestIfRequired(resolver, getLatestStrategy());
-            try {
-                ResolvedModuleRevision previouslyResolved = mr;
-                data.setCurrentResolvedModuleRevision(previouslyResolved);
-                mr = resolver.getDependency(dd, data);
-                if (mr != previouslyResolved && isReturnFirst()) {
-                    mr = forcedRevision(mr);
-                }
-            } catch (Exception ex) {
-                Message.verbose("problem occurred while resolving " + dd + " with " + resolver
-                        + ": " + StringUtils.getStackTrace(ex));
-                errors.add(ex);
-            } finally {
-                if (oldLatest != null) {
-                    setLatest(resolver, oldLatest);
+        if (isParallel() && chain.size() > 1 
+                && getSettings().getVersionMatcher().isDynamic(dd.getDependencyRevisionId())) {
+            mr = getDependencyInParallel(dd, data, mr, errors);
+        } else {
+            for (Iterator iter = chain.iterator(); iter.hasNext();) {
+                DependencyResolver resolver = (DependencyResolver) iter.next();
+                LatestStrategy oldLatest = setLatestIfRequired(resolver, getLatestStrategy());
+                long start = System.currentTimeMillis();
+                try {
+                    ResolvedModuleRevision previouslyResolved = mr;
+                    data.setCurrentResolvedModuleRevision(previouslyResolved);
+                    mr = resolver.getDependency(dd, data);
+                    if (mr != previouslyResolved && isReturnFirst()) {
+                        mr = forcedRevision(mr);
+                    }
+                } catch (Exception ex) {
+                    if (Message.isVerboseEnabled()) {
+                        Message.verbose("problem occurred while resolving " + dd + " with "
+                                + resolver + ": " + StringUtils.getStackTrace(ex));
+                    }
+                    errors.add(ex);
+                } finally {
+                    data.getMetrics().addResolverTime(resolver.getName(), 
+                        System.currentTimeMillis() - start);
+                    if (oldLatest != null) {
+                        restoreLatest(resolver, oldLatest);
+                    }
                 }
+                checkInterrupted();
             }
-            checkInterrupted();
         }
         if (mr == null && !errors.isEmpty()) {
             if (errors.size() == 1) {
@@ -144,6 +173,114 @@ public class ChainResolver extends AbstractResolver {
         return resolvedRevision(mr);
     }
 
+    /**
+     * Queries all the resolvers of the chain at the same time, and then merges their answers in
+     * the chain order, as if they had been queried one after the other.
+     */
+    private ResolvedModuleRevision getDependencyInParallel(final DependencyDescriptor dd,
+            final ResolveData data, final ResolvedModuleRevision previouslyResolved, List errors) 
+            throws ParseException {
+        List futures = new ArrayList(chain.size());
+        for (Iterator iter = chain.iterator(); iter.hasNext();) {
+            final DependencyResolver resolver = (DependencyResolver) iter.next();
+            final IvyContext context = new IvyContext(IvyContext.getContext());
+            futures.add(getExecutor().submit(new Callable() {
+                public Object call() throws Exception {
+                    IvyContext.pushContext(context);
+                    LatestStrategy oldLatest = setLatestIfRequired(resolver, getLatestStrategy());
+                    long start = System.currentTimeMillis();
+                    try {
+                        ResolveData resolverData = new ResolveData(data, data.isValidate());
+                        resolverData.setCurrentResolvedModuleRevision(previouslyResolved);
+                        return resolver.getDependency(dd, resolverData);
+                    } finally {
+                        data.getMetrics().addResolverTime(resolver.getName(), 
+                            System.currentTimeMillis() - start);
+                        if (oldLatest != null) {
+                            restoreLatest(resolver, oldLatest);
+                        }
+                        IvyContext.popContext();
+                    }
+                }
+            }));
+        }
+
+        ResolvedModuleRevision mr = previouslyResolved;
+        try {
+            for (int i = 0; i < futures.size(); i++) {
+                DependencyResolver resolver = (DependencyResolver) chain.get(i);
+                ResolvedModuleRevision found;
+                try {
+                    found = (ResolvedModuleRevision) ((Future) futures.get(i)).get();
+                } catch (ExecutionException ex) {
+                    Throwable cause = ex.getCause();
+                    Exception error = cause instanceof Exception 
+                        ? (Exception) cause : new RuntimeException(cause.toString(), cause);
+                    if (Message.isVerboseEnabled()) {
+                        Message.verbose("problem occurred while resolving " + dd + " with "
+                                + resolver + ": " + StringUtils.getStackTrace(error));
+                    }
+                    errors.add(error);
+                    continue;
+                }
+                if (found == null || found == previouslyResolved) {
+                    continue;
+                }
+                if (isReturnFirst()) {
+                    // the answer of the following resolvers is not needed
+                    mr = forcedRevision(found);
+                    break;
+                }
+                mr = keepLatest(found, mr, data);
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } finally {
+            for (Iterator iter = futures.iterator(); iter.hasNext();) {
+                ((Future) iter.next()).cancel(true);
+            }
+        }
+        checkInterrupted();
+        if (mr != previouslyResolved) {
+            // each resolver only saved its own answer, make sure the kept one is the last saved
+            saveModuleRevisionIfNeeded(dd, mr);
+        }
+        return mr;
+    }
+
+    /**
+     * Returns the module revision to keep between the given ones, using the same rules as the
+     * resolvers use when they are queried in sequence.
+     */
+    private ResolvedModuleRevision keepLatest(ResolvedModuleRevision newModuleFound,
+            ResolvedModuleRevision previousModuleFound, ResolveData data) {
+        if (previousModuleFound == null
+                || isAfter(newModuleFound, previousModuleFound, data.getDate())
+                || (!newModuleFound.getDescriptor().isDefault() 
+                        && previousModuleFound.getDescriptor().isDefault())) {
+            return newModuleFound;
+        }
+        return previousModuleFound;
+    }
+
+    private synchronized ExecutorService getExecutor() {
+        if (executor == null) {
+            ThreadPoolExecutor pool = new ThreadPoolExecutor(parallelThreads, parallelThreads,
+                    THREAD_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS, new LinkedBlockingQueue(),
+                    new ThreadFactory() {
+                        public Thread newThread(Runnable r) {
+                            Thread thread = new Thread(r, "ivy chain " + getName());
+                            thread.setDaemon(true);
+                            return thread;
+                        }
+                    });
+            // idle threads are released, there is no need to shut the pool down
+            pool.allowCoreThreadTimeOut(true);
+            executor = pool;
+        }
+        return executor;
+    }
+
     private ResolvedModuleRevision resolvedRevision(ResolvedModuleRevision mr) {
         if (isDual() && mr != null) {
             return new ResolvedModuleRevision(
@@ -162,10 +299,23 @@ public class ChainResolver extends AbstractResolver {
             rmr.getDescriptor(), rmr.getReport(), true);
     }
 
+    /**
+     * Makes the given resolver use the given latest strategy if it has one of its own, and returns
+     * what {@link #restoreLatest(DependencyResolver, LatestStrategy)} needs to undo it, or null if
+     * nothing has been changed.
+     * <p>
+     * The resolvers extending {@link AbstractResolver} only use it in the current context, so that
+     * the resolves in progress in other threads are not affected.
+     * </p>
+     */
     private LatestStrategy setLatestIfRequired(DependencyResolver resolver,
             LatestStrategy latestStrategy) {
         String latestName = getLatestStrategyName(resolver);
         if (latestName != null && !"default".equals(latestName)) {
+            if (resolver instanceof AbstractResolver) {
+                ((AbstractResolver) resolver).pushLatestStrategy(latestStrategy);
+                return latestStrategy;
+            }
             LatestStrategy oldLatest = getLatest(resolver);
             setLatest(resolver, latestStrategy);
             return oldLatest;
@@ -174,6 +324,14 @@ public class ChainResolver extends AbstractResolver {
         }
     }
 
+    private static void restoreLatest(DependencyResolver resolver, LatestStrategy oldLatest) {
+        if (resolver instanceof AbstractResolver) {
+            ((AbstractResolver) resolver).popLatestStrategy();
+        } else {
+            setLatest(resolver, oldLatest);
+        }
+    }
+
     public ResolvedResource findIvyFileRef(DependencyDescriptor dd, ResolveData data) {
         for (Iterator iter = chain.iterator(); iter.hasNext();) {
             DependencyResolver resolver = (DependencyResolver) iter.next();
@@ -272,10 +430,40 @@ public class ChainResolver extends AbstractResolver {
         this.returnFirst = returnFirst;
     }
 
+    /**
+     * Returns <code>true</code> if the resolvers of this chain are queried at the same time when
+     * resolving a dynamic revision.
+     */
+    public boolean isParallel() {
+        return parallel;
+    }
+
+    public void setParallel(boolean parallel) {
+        this.parallel = parallel;
+    }
+
+    public int getParallelThreads() {
+        return parallelThreads;
+    }
+
+    /**
+     * Sets the maximum number of resolvers of this chain queried at the same time in parallel
+     * mode.
+     */
+    public synchronized void setParallelThreads(int parallelThreads) {
+        if (parallelThreads < 1) {
+            throw new IllegalArgumentException(
+                "invalid number of parallel threads for " + getName() + ": " + parallelThreads);
+        }
+        this.parallelThreads = parallelThreads;
+        executor = null;
+    }
+
     public void dumpSettings() {
         Message.verbose("\t" + getName() + " [chain] " + chain);
         Message.debug("\t\treturn first: " + isReturnFirst());
         Message.debug("\t\tdual: " + isDual());
+        Message.debug("\t\tparallel: " + isParallel());
         for (Iterator iter = chain.iterator(); iter.hasNext();) {
             DependencyResolver r = (DependencyResolver) iter.next();
             Message.debug("\t\t-> " + r.getName());
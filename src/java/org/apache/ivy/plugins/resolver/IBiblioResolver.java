@@ -26,13 +26,17 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
 import javax.xml.parsers.ParserConfigurationException;
 
+import org.apache.ivy.core.IvyContext;
 import org.apache.ivy.core.IvyPatternHelper;
 import org.apache.ivy.core.cache.ArtifactOrigin;
+import org.apache.ivy.core.cache.DefaultRepositoryCacheManager;
+import org.apache.ivy.core.cache.RepositoryCacheManager;
 import org.apache.ivy.core.module.descriptor.Artifact;
 import org.apache.ivy.core.module.descriptor.DefaultArtifact;
 import org.apache.ivy.core.module.descriptor.DependencyDescriptor;
@@ -70,6 +74,8 @@ public class IBiblioResolver extends URLResolver {
     public static final String DEFAULT_ROOT = "https://www.ibiblio.org/maven/";
     public static final String DEFAULT_M2_ROOT = "https://repo1.maven.org/maven2/";
 
+    private static final int MAX_CACHED_METADATA = 1000;
+
     private String root = null;
 
     private String pattern = null;
@@ -80,6 +86,14 @@ public class IBiblioResolver extends URLResolver {
     // use maven-metadata.xml is exists to list revisions
     private boolean useMavenMetadata = true;
 
+    // parsed maven-metadata.xml files by location
+    private final Map/*<String,MavenMetadata>*/ mavenMetadataCache = new LinkedHashMap(
+            MAX_CACHED_METADATA, 0.75f, true) {
+        protected boolean removeEldestEntry(Map.Entry eldest) {
+            return size() > MAX_CACHED_METADATA;
+        }
+    };
+
     public IBiblioResolver() {
         // SNAPSHOT revisions are changing revisions
         setChangingMatcher(PatternMatcher.REGEXP);
@@ -165,29 +179,14 @@ public class IBiblioResolver extends URLResolver {
             try {
                 String metadataLocation = IvyPatternHelper.substitute(
                     root + "[organisation]/[module]/[revision]/maven-metadata.xml", mrid);
-                Resource metadata = getRepository().getResource(metadataLocation);
-                if (metadata.exists()) {
-                    metadataStream = metadata.openStream();
-                    final StringBuffer timestamp = new StringBuffer();
-                    final StringBuffer buildNumer = new StringBuffer();
-                    XMLHelper.parse(metadataStream, null, new ContextualSAXHandler() {
-                        public void endElement(String uri, String localName, String qName) 
-                                throws SAXException {
-                            if ("metadata/versioning/snapshot/timestamp".equals(getContext())) {
-                                timestamp.append(getText());
-                            }
-                            if ("metadata/versioning/snapshot/buildNumber"
-                                    .equals(getContext())) {
-                                buildNumer.append(getText());
-                            }
-                            super.endElement(uri, localName, qName);
-                        }
-                    }, null);
-                    if (timestamp.length() > 0) {
+                MavenMetadata metadata = getMavenMetadata(getRepository(), metadataLocation, mrid);
+                if (metadata != null) {
+                    if (metadata.snapshotTimestamp != null) {
                         // we have found a timestamp, so this is a snapshot unique version
                         String rev = mrid.getRevision();
                         rev = rev.substring(0, rev.length() - "SNAPSHOT".length());
-                        rev = rev + timestamp.toString() + "-" + buildNumer.toString();
+                        rev = rev + metadata.snapshotTimestamp + "-" 
+                            + metadata.snapshotBuildNumber;
                         
                         return rev;
                     }
@@ -213,12 +212,10 @@ public class IBiblioResolver extends URLResolver {
                             return mrid.getRevision();
                         }
                     } else {
-                        Message.verbose("\tmaven-metadata and maven-metadata-local not available: " + metadata);
+                        Message.verbose("\tmaven-metadata and maven-metadata-local not available: " 
+                            + metadataLocation);
                     }
                 }
-                else {
-                    Message.verbose("\tmaven-metadata not available: " + metadata);
-                }
             } catch (IOException e) {
                 Message.verbose(
                     "impossible to access maven metadata file, ignored: " + e.getMessage());
@@ -379,7 +376,8 @@ public class IBiblioResolver extends URLResolver {
                 String metadataLocation = pattern.substring(0, pattern
                     .lastIndexOf(partiallyResolvedM2PerModulePattern))
                     + "maven-metadata.xml";
-                List revs = listRevisionsWithMavenMetadata(getRepository(), metadataLocation);
+                List revs = listRevisionsWithMavenMetadata(
+                    getRepository(), metadataLocation, null);
                 if (revs != null) {
                     return (String[]) revs.toArray(new String[revs.size()]);
                 }
@@ -418,7 +416,7 @@ public class IBiblioResolver extends URLResolver {
             Repository repository, ModuleRevisionId mrid, String pattern, Artifact artifact) {
         if (shouldUseMavenMetadata(pattern)) {
             List revs = listRevisionsWithMavenMetadata(
-                repository, mrid.getModuleId().getAttributes());
+                repository, mrid.getModuleId().getAttributes(), mrid);
             if (revs != null) {
                 Message.debug("\tfound revs: " + revs);
                 List rres = new ArrayList();
@@ -457,34 +455,88 @@ public class IBiblioResolver extends URLResolver {
         }
     }
 
-    private List listRevisionsWithMavenMetadata(Repository repository, Map tokenValues) {
+    private List listRevisionsWithMavenMetadata(Repository repository, Map tokenValues, 
+            ModuleRevisionId mrid) {
         String metadataLocation = IvyPatternHelper.substituteTokens(
             root + "[organisation]/[module]/maven-metadata.xml", tokenValues);
-        return listRevisionsWithMavenMetadata(repository, metadataLocation);
+        return listRevisionsWithMavenMetadata(repository, metadataLocation, mrid);
     }
 
-    private List listRevisionsWithMavenMetadata(Repository repository, String metadataLocation) {
-        List revs = null;
+    private List listRevisionsWithMavenMetadata(Repository repository, String metadataLocation,
+            ModuleRevisionId mrid) {
+        MavenMetadata metadata = getMavenMetadata(repository, metadataLocation, mrid);
+        if (metadata == null) {
+            return null;
+        }
+        Message.verbose("\tlisting revisions from maven-metadata: " + metadataLocation);
+        return new ArrayList(metadata.versions);
+    }
+
+    /**
+     * Returns the parsed maven metadata file found at the given location, or <code>null</code>
+     * if it is not available.
+     * <p>
+     * Parsed metadata files are kept by this resolver, and used without checking the repository
+     * during the TTL of the given module revision. Once this TTL expired, the metadata file is
+     * downloaded and parsed again only if its last modification date or size changed. The
+     * repository is also checked during the TTL when the cached module descriptor would be: on a
+     * refresh resolve, and for a changing or checkmodified dependency.
+     * </p>
+     */
+    private MavenMetadata getMavenMetadata(Repository repository, String metadataLocation,
+            ModuleRevisionId mrid) {
+        long now = System.currentTimeMillis();
+        MavenMetadata cached;
+        synchronized (mavenMetadataCache) {
+            cached = (MavenMetadata) mavenMetadataCache.get(metadataLocation);
+        }
+        if (cached != null && cached.isFresh(getMavenMetadataTTL(mrid), now)
+                && !isMavenMetadataCheckRequired()) {
+            Message.debug("\tusing cached maven-metadata: " + metadataLocation);
+            return cached.exists ? cached : null;
+        }
+
         InputStream metadataStream = null;
         try {
             Resource metadata = repository.getResource(metadataLocation);
-            if (metadata.exists()) {
-                Message.verbose("\tlisting revisions from maven-metadata: " + metadata);
-                final List metadataRevs = new ArrayList();
+            if (cached != null) {
+                // make sure we don't get the status cached by the repository
+                metadata = metadata.clone(metadataLocation);
+            }
+            MavenMetadata result;
+            if (!metadata.exists()) {
+                Message.verbose("\tmaven-metadata not available: " + metadata);
+                result = new MavenMetadata(now);
+            } else if (cached != null && cached.isSameResource(metadata)) {
+                Message.debug("\tmaven-metadata not modified: " + metadata);
+                result = new MavenMetadata(cached, now);
+            } else {
                 metadataStream = metadata.openStream();
+                final List versions = new ArrayList();
+                final StringBuffer timestamp = new StringBuffer();
+                final StringBuffer buildNumber = new StringBuffer();
                 XMLHelper.parse(metadataStream, null, new ContextualSAXHandler() {
                     public void endElement(String uri, String localName, String qName) 
                             throws SAXException {
                         if ("metadata/versioning/versions/version".equals(getContext())) {
-                            metadataRevs.add(getText().trim());
+                            versions.add(getText().trim());
+                        }
+                        if ("metadata/versioning/snapshot/timestamp".equals(getContext())) {
+                            timestamp.append(getText());
+                        }
+                        if ("metadata/versioning/snapshot/buildNumber".equals(getContext())) {
+                            buildNumber.append(getText());
                         }
                         super.endElement(uri, localName, qName);
                     }
                 }, null);
-                revs = metadataRevs;
-            } else {
-                Message.verbose("\tmaven-metadata not available: " + metadata);
+                result = new MavenMetadata(metadata, versions, timestamp.toString(), 
+                    buildNumber.toString(), now);
             }
+            synchronized (mavenMetadataCache) {
+                mavenMetadataCache.put(metadataLocation, result);
+            }
+            return result.exists ? result : null;
         } catch (IOException e) {
             Message.verbose(
                 "impossible to access maven metadata file, ignored: " + e.getMessage());
@@ -503,13 +555,53 @@ public class IBiblioResolver extends URLResolver {
                 }
             }
         }
-        return revs;
+        return null;
+    }
+
+    /**
+     * Returns <code>true</code> if the parsed maven metadata files must be checked again in the
+     * repository for the dependency being resolved, even during their TTL: on a refresh resolve,
+     * or when the dependency is checked for modification or changing.
+     */
+    private boolean isMavenMetadataCheckRequired() {
+        IvyContext context = IvyContext.getContext();
+        ResolveData data = context.getResolveData();
+        if (data == null) {
+            return false;
+        }
+        DependencyDescriptor dd = context.getDependencyDescriptor();
+        RepositoryCacheManager cacheManager = getRepositoryCacheManager();
+        if (dd == null || !(cacheManager instanceof DefaultRepositoryCacheManager)) {
+            return data.getOptions().isRefresh();
+        }
+        return ((DefaultRepositoryCacheManager) cacheManager).isRepositoryCheckRequired(dd,
+            dd.getDependencyRevisionId(), getCacheOptions(data));
+    }
+
+    private long getMavenMetadataTTL(ModuleRevisionId mrid) {
+        RepositoryCacheManager cacheManager = getRepositoryCacheManager();
+        if (!(cacheManager instanceof DefaultRepositoryCacheManager)) {
+            return 0;
+        }
+        DefaultRepositoryCacheManager defaultCacheManager = 
+            (DefaultRepositoryCacheManager) cacheManager;
+        return mrid == null ? defaultCacheManager.getDefaultTTL() 
+            : defaultCacheManager.getTTL(mrid);
+    }
+
+    /**
+     * Forgets all the maven metadata files parsed by this resolver.
+     */
+    public void clearMavenMetadataCache() {
+        synchronized (mavenMetadataCache) {
+            mavenMetadataCache.clear();
+        }
     }
     
     protected void findTokenValues(Collection names, List patterns, Map tokenValues, String token) {
         if (IvyPatternHelper.REVISION_KEY.equals(token)) {
             if (shouldUseMavenMetadata(getWholePattern())) {
-                List revs = listRevisionsWithMavenMetadata(getRepository(), tokenValues);
+                List revs = listRevisionsWithMavenMetadata(getRepository(), tokenValues, null);
                 if (revs != null) {
                     names.addAll(filterNames(revs));
                     return;
@@ -583,4 +675,72 @@ public class IBiblioResolver extends URLResolver {
         Message.debug("\t\tusepoms: " + usepoms);
         Message.debug("\t\tuseMavenMetadata: " + useMavenMetadata);
     }
+
+    /**
+     * The information used by this resolver from a maven-metadata.xml file.
+     */
+    private static final class MavenMetadata {
+        private final boolean exists;
+
+        private final long lastModified;
+
+        private final long contentLength;
+
+        private final List/*<String>*/ versions;
+
+        private final String snapshotTimestamp;
+
+        private final String snapshotBuildNumber;
+
+        private final long checked;
+
+        /**
+         * Records that the metadata file is not available.
+         */
+        public MavenMetadata(long checked) {
+            this.exists = false;
+            this.lastModified = 0;
+            this.contentLength = -1;
+            this.versions = Collections.EMPTY_LIST;
+            this.snapshotTimestamp = null;
+            this.snapshotBuildNumber = null;
+            this.checked = checked;
+        }
+
+        public MavenMetadata(Resource metadata, List versions, String snapshotTimestamp,
+                String snapshotBuildNumber, long checked) {
+            this.exists = true;
+            this.lastModified = metadata.getLastModified();
+            this.contentLength = metadata.getContentLength();
+            this.versions = Collections.unmodifiableList(versions);
+            this.snapshotTimestamp = snapshotTimestamp.length() == 0 ? null : snapshotTimestamp;
+            this.snapshotBuildNumber = snapshotBuildNumber;
+            this.checked = checked;
+        }
+
+        /**
+         * Same metadata, checked again at the given time.
+         */
+        public MavenMetadata(MavenMetadata metadata, long checked) {
+            this.exists = metadata.exists;
+            this.lastModified = metadata.lastModified;
+            this.contentLength = metadata.contentLength;
+            this.versions = metadata.versions;
+            this.snapshotTimestamp = metadata.snapshotTimestamp;
+            this.snapshotBuildNumber = metadata.snapshotBuildNumber;
+            this.checked = checked;
+        }
+
+        public boolean isFresh(long ttl, long now) {
+            long expiration = checked + ttl;
+            // negative expiration means that Long.MAX_VALUE has been exceeded
+            return ttl > 0 && (expiration < 0 || now <= expiration);
+        }
+
+        public boolean isSameResource(Resource metadata) {
+            return exists && lastModified > 0 
+                && lastModified == metadata.getLastModified()
+                && contentLength == metadata.getContentLength();
+        }
+    }
 }
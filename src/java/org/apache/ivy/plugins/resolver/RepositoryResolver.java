@@ -30,6 +30,7 @@ import java.util.List;
 import java.util.Map;
 
 import org.apache.ivy.core.IvyPatternHelper;
+import org.apache.ivy.core.cache.DefaultRepositoryCacheManager;
 import org.apache.ivy.core.event.EventManager;
 import org.apache.ivy.core.module.descriptor.Artifact;
 import org.apache.ivy.core.module.descriptor.DefaultArtifact;
@@ -214,6 +215,10 @@ public class RepositoryResolver extends AbstractPatternsBasedResolver {
         String dest = getDestination(destPattern, artifact, mrid);
 
         put(artifact, src, dest, overwrite);
+        DefaultRepositoryCacheManager notFoundCache = getNotFoundCache();
+        if (notFoundCache != null) {
+            notFoundCache.clearNotFound(getName(), artifact.getModuleRevisionId());
+        }
         Message.info("\tpublished " + artifact.getName() + " to " + hidePassword(repository.standardize(dest)));
     }
 
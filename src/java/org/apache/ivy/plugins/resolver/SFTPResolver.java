@@ -38,4 +38,28 @@ public class SFTPResolver extends AbstractSshBasedResolver {
     public SFTPRepository getSFTPRepository() {
         return (SFTPRepository) getRepository();
     }
+
+    /**
+     * Sets the maximum number of sftp channels opened at the same time on a connection, 0 or less
+     * for no limit. Defaults to 4.
+     */
+    public void setMaxChannels(int maxChannels) {
+        getSFTPRepository().setMaxChannels(maxChannels);
+    }
+
+    /**
+     * Sets the number of milliseconds after which an unused sftp channel is closed, -1 to keep
+     * unused channels open until the end of the resolve. Defaults to 60000.
+     */
+    public void setChannelIdleTimeout(long channelIdleTimeout) {
+        getSFTPRepository().setChannelIdleTimeout(channelIdleTimeout);
+    }
+
+    /**
+     * Sets the maximum number of milliseconds to wait for an sftp channel to be released when
+     * maxChannels channels are in use, 0 or less to wait without limit. Defaults to 600000.
+     */
+    public void setChannelWaitTimeout(long channelWaitTimeout) {
+        getSFTPRepository().setChannelWaitTimeout(channelWaitTimeout);
+    }
 }
@@ -54,12 +54,16 @@ public class PackagerCacheEntry {
 
     private boolean built;
 
+    /** the directory containing the built artifacts, the work directory or a stored result */
+    private File resultDir;
+
     // CheckStyle:ParameterNumber OFF
     public PackagerCacheEntry(ModuleRevisionId mr, File rootDir,
       File resourceCache, String resourceURL, boolean validate,
       boolean preserve, boolean restricted, boolean verbose, boolean quiet) {
         this.mr = mr;
         this.dir = getSubdir(rootDir, this.mr);
+        this.resultDir = this.dir;
         this.resourceCache = resourceCache;
         this.resourceURL = resourceURL;
         this.validate = validate;
@@ -82,7 +86,26 @@ public class PackagerCacheEntry {
      * @throws IllegalStateException
      *             if this entry has already been built
      */
-    public synchronized void build(Resource packagerResource, Map properties) throws IOException {
+    public void build(Resource packagerResource, Map properties) throws IOException {
+        build(packagerResource, properties, null);
+    }
+
+    /**
+     * Attempt to build this entry, or reuse the result of a previous build from the given store.
+     * 
+     * @param packagerResource
+     *            packager metadata resource
+     * @param properties
+     *            a map of properties to pass to the child Ant build responsible for dependency
+     *            packaging
+     * @param store
+     *            the store of the build results, <code>null</code> to always build
+     * 
+     * @throws IllegalStateException
+     *             if this entry has already been built
+     */
+    public synchronized void build(Resource packagerResource, Map properties,
+            PackagerResultStore store) throws IOException {
         // Sanity check
         if (this.built) {
             throw new IllegalStateException("build in directory `"
@@ -105,6 +128,23 @@ public class PackagerCacheEntry {
         InputStream packagerXML = packagerResource.openStream();
         saveFile("packager.xml", packagerXML);
 
+        // Reuse the result of the same build if it has been stored
+        String key = null;
+        if (store != null) {
+            key = store.getKey(this.mr, new File(this.dir, "packager.xml"), properties,
+                this.restricted);
+            File stored = store.get(key);
+            if (stored != null) {
+                Message.verbose("using stored packager build result " + stored + " for " + mr);
+                this.resultDir = stored;
+                this.built = true;
+                if (!this.preserve) {
+                    FileUtil.forceDelete(this.dir);
+                }
+                return;
+            }
+        }
+
         // Write packager XSLT
         saveFile("packager.xsl");
 
@@ -158,6 +198,17 @@ public class PackagerCacheEntry {
         Message.verbose("performing packager resolver build in " + this.dir);
         try {
             project.executeTarget("build");
+            if (store != null) {
+                try {
+                    this.resultDir = store.put(key, this.dir);
+                    if (!this.preserve) {
+                        FileUtil.forceDelete(this.dir);
+                    }
+                } catch (IOException e) {
+                    // the artifacts can still be used from the work directory
+                    Message.warn("can't store packager build result of " + mr + ": " + e);
+                }
+            }
             this.built = true;
         } catch (BuildException e) {
             e.printStackTrace(System.out);
@@ -179,17 +230,18 @@ public class PackagerCacheEntry {
      * @throws IllegalStateException if this entry's built has not
      *  (yet) completed successfully
      */
-    public ResolvedResource getBuiltArtifact(Artifact artifact) {
+    public synchronized ResolvedResource getBuiltArtifact(Artifact artifact) {
         if (!this.built) {
             throw new IllegalStateException("build in directory `" + this.dir
               + "' has not yet successfully completed");
         }
         return new ResolvedResource(
-          new BuiltFileResource(this.dir, artifact), this.mr.getRevision());
+          new BuiltFileResource(this.resultDir, artifact), this.mr.getRevision());
     }
 
     public synchronized boolean cleanup() {
         this.built = false;
+        this.resultDir = this.dir;
         return FileUtil.forceDelete(this.dir);
     }
 
@@ -21,10 +21,11 @@ import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Date;
-import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.apache.ivy.core.module.descriptor.Artifact;
 import org.apache.ivy.core.module.descriptor.DefaultArtifact;
@@ -41,6 +42,12 @@ import org.apache.ivy.util.Message;
  * The resolver is configured with a base URL, from which the "ivy.xml"
  * and "packager.xml" files are resolved. The latter file contains
  * instructions describing how to build the actual artifacts.
+ *
+ * <p>
+ * The modules are built independently: a module is built by one thread at a time, while the
+ * other modules can be built at the same time. If a result store is set, the built artifacts are
+ * kept in it, and reused by the next builds of the same packaging instructions, including in
+ * other JVMs.
  */
 public class PackagerResolver extends URLResolver {
 
@@ -48,10 +55,12 @@ public class PackagerResolver extends URLResolver {
     private static final String PACKAGER_ARTIFACT_TYPE = "packager";
     private static final String PACKAGER_ARTIFACT_EXT = "xml";
 
-    private final HashMap/*<ModuleRevisionId, PackagerCacheEntry>*/ packagerCache = new HashMap();
+    private final ConcurrentMap/*<ModuleRevisionId, PackagerCacheEntry>*/ packagerCache =
+        new ConcurrentHashMap();
 
     private File buildRoot;
     private File resourceCache;
+    private PackagerResultStore resultStore;
     private String resourceURL;
     private Map/*<String,String>*/ properties = new LinkedHashMap();
     
@@ -111,6 +120,22 @@ public class PackagerResolver extends URLResolver {
         return resourceCache;
     }
 
+    /**
+     * Set the directory in which the built artifacts are stored, to be reused by the next builds
+     * of the same packaging instructions. Default is none, the artifacts are built again by each
+     * JVM.
+     */
+    public void setResultStore(File resultStore) {
+        this.resultStore = resultStore == null ? null : new PackagerResultStore(resultStore);
+    }
+
+    /**
+     * Get the directory in which the built artifacts are stored, if any.
+     */
+    public File getResultStore() {
+        return resultStore == null ? null : resultStore.getRoot();
+    }
+
     /**
      * Set base resource override URL pattern.
      */
@@ -196,7 +221,7 @@ public class PackagerResolver extends URLResolver {
     }
 
     // @Override
-    public synchronized ResolvedResource findArtifactRef(Artifact artifact, Date date) {
+    public ResolvedResource findArtifactRef(Artifact artifact, Date date) {
 
         // For our special packager.xml file, defer to superclass
         if (PACKAGER_ARTIFACT_NAME.equals(artifact.getName())
@@ -205,33 +230,34 @@ public class PackagerResolver extends URLResolver {
             return super.findArtifactRef(artifact, date);
         }
 
-        // Check the cache
+        // Get the cache entry, which is the lock of the module
         ModuleRevisionId mr = artifact.getModuleRevisionId();
         PackagerCacheEntry entry = (PackagerCacheEntry) packagerCache.get(mr);
-
-        // Ignore invalid entries
-        if (entry != null && !entry.isBuilt()) {
-            packagerCache.remove(mr);
-            entry.cleanup();
-            entry = null;
-        }
-
-        // Build the artifacts (if not done already)
         if (entry == null) {
-            ResolvedResource packager = findArtifactRef(new DefaultArtifact(mr, null,
-              PACKAGER_ARTIFACT_NAME, PACKAGER_ARTIFACT_TYPE, PACKAGER_ARTIFACT_EXT), date);
-            if (packager == null) {
-                return null;
+            PackagerCacheEntry newEntry = new PackagerCacheEntry(mr, this.buildRoot,
+              this.resourceCache, this.resourceURL, this.validate, this.preserve,
+              this.restricted, this.verbose, this.quiet);
+            entry = (PackagerCacheEntry) packagerCache.putIfAbsent(mr, newEntry);
+            if (entry == null) {
+                entry = newEntry;
             }
-            entry = new PackagerCacheEntry(mr, this.buildRoot, this.resourceCache,
-              this.resourceURL, this.validate, this.preserve, this.restricted,
-              this.verbose, this.quiet);
-            try {
-                entry.build(packager.getResource(), properties);
-            } catch (IOException e) {
-                throw new RuntimeException("can't build artifact " + artifact, e);
+        }
+
+        // Build the artifacts (if not done already, or if the previous build failed)
+        synchronized (entry) {
+            if (!entry.isBuilt()) {
+                ResolvedResource packager = findArtifactRef(new DefaultArtifact(mr, null,
+                  PACKAGER_ARTIFACT_NAME, PACKAGER_ARTIFACT_TYPE, PACKAGER_ARTIFACT_EXT), date);
+                if (packager == null) {
+                    packagerCache.remove(mr, entry);
+                    return null;
+                }
+                try {
+                    entry.build(packager.getResource(), properties, resultStore);
+                } catch (IOException e) {
+                    throw new RuntimeException("can't build artifact " + artifact, e);
+                }
             }
-            packagerCache.put(mr, entry);
         }
 
         // Return reference to desired artifact
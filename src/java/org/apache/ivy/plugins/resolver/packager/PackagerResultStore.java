@@ -0,0 +1,192 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.ivy.plugins.resolver.packager;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.apache.ivy.core.module.id.ModuleRevisionId;
+import org.apache.ivy.util.ChecksumHelper;
+import org.apache.ivy.util.FileUtil;
+import org.apache.ivy.util.Message;
+
+/**
+ * A persistent store of the artifacts built by a {@link PackagerResolver}, shared by all the
+ * resolvers and JVMs using the same directory.
+ * <p>
+ * The built artifacts are stored under a key which is the SHA-1 digest of everything the build
+ * depends on: the module revision id, the packaging instructions, which include the SHA-1
+ * checksums of all the downloaded resources, the build files bundled with Ivy, the properties
+ * passed to the build and the restricted mode. Since the key changes whenever one of them
+ * changes, a stored result is never stale, and is never updated once stored.
+ * </p>
+ * <p>
+ * The results are first copied to a temporary directory, which is then renamed to the key, so the
+ * other JVMs never see a partially stored result.
+ * </p>
+ */
+public class PackagerResultStore {
+    private static final String[] BUILD_FILES = {"build.xml", "packager.xsl", "packager-1.0.xsd"};
+
+    private static final int BUFFER_SIZE = 4096;
+
+    private final File root;
+
+    public PackagerResultStore(File root) {
+        this.root = root;
+    }
+
+    /**
+     * Returns the directory in which the results are stored.
+     */
+    public File getRoot() {
+        return root;
+    }
+
+    /**
+     * Computes the key under which the result of a build is stored.
+     *
+     * @param mr
+     *            the module revision id of the module being built
+     * @param packagerXML
+     *            the packaging instructions of the module
+     * @param properties
+     *            the properties passed to the build, may be <code>null</code>
+     * @param restricted
+     *            true if the build is done in restricted mode
+     * @return the key of the build result
+     */
+    public String getKey(ModuleRevisionId mr, File packagerXML, Map properties, boolean restricted)
+            throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-1 is not available: " + e);
+        }
+        update(digest, mr.getOrganisation());
+        update(digest, mr.getName());
+        update(digest, mr.getBranch());
+        update(digest, mr.getRevision());
+        update(digest, String.valueOf(restricted));
+        if (properties != null) {
+            // sorted, so that the key does not depend on the order of the properties
+            for (Iterator it = new TreeMap(properties).entrySet().iterator(); it.hasNext();) {
+                Map.Entry entry = (Map.Entry) it.next();
+                update(digest, (String) entry.getKey());
+                update(digest, (String) entry.getValue());
+            }
+        }
+        update(digest, new FileInputStream(packagerXML));
+        for (int i = 0; i < BUILD_FILES.length; i++) {
+            InputStream input = PackagerResultStore.class.getResourceAsStream(BUILD_FILES[i]);
+            if (input == null) {
+                throw new IOException("can't find resource `" + BUILD_FILES[i] + "'");
+            }
+            update(digest, input);
+        }
+        return ChecksumHelper.byteArrayToHexString(digest.digest());
+    }
+
+    /**
+     * Returns the directory in which the result stored under the given key has been stored, or
+     * <code>null</code> if no result is stored under this key.
+     */
+    public File get(String key) {
+        File dir = new File(root, key);
+        return dir.isDirectory() ? dir : null;
+    }
+
+    /**
+     * Stores the artifacts built in the given directory under the given key, unless another build
+     * stored them first.
+     *
+     * @param key
+     *            the key of the build result
+     * @param buildDir
+     *            the directory in which the build has been done
+     * @return the directory in which the result is stored
+     */
+    public File put(String key, File buildDir) throws IOException {
+        File dir = new File(root, key);
+        if (dir.isDirectory()) {
+            return dir;
+        }
+        File tmp = new File(root, key + "." + System.currentTimeMillis() + "-"
+                + Thread.currentThread().getId() + ".part");
+        try {
+            copyDir(new File(buildDir, "artifacts"), new File(tmp, "artifacts"));
+            if (!tmp.renameTo(dir) && !dir.isDirectory()) {
+                throw new IOException("can't store build result in `" + dir + "'");
+            }
+        } finally {
+            // still there if another build stored the same result first
+            FileUtil.forceDelete(tmp);
+        }
+        Message.verbose("stored packager build result in " + dir);
+        return dir;
+    }
+
+    private static void copyDir(File src, File dest) throws IOException {
+        if (!dest.isDirectory() && !dest.mkdirs()) {
+            throw new IOException("can't create directory `" + dest + "'");
+        }
+        File[] files = src.listFiles();
+        if (files == null) {
+            return;
+        }
+        for (int i = 0; i < files.length; i++) {
+            File target = new File(dest, files[i].getName());
+            if (files[i].isDirectory()) {
+                copyDir(files[i], target);
+            } else {
+                FileUtil.copy(files[i], target, null, true);
+            }
+        }
+    }
+
+    private static void update(MessageDigest digest, String value)
+            throws UnsupportedEncodingException {
+        if (value != null) {
+            digest.update(value.getBytes("UTF-8"));
+        }
+        // separates the values, so that different splits give different keys
+        digest.update((byte) 0);
+    }
+
+    private static void update(MessageDigest digest, InputStream input) throws IOException {
+        try {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            int c;
+            while ((c = input.read(buffer)) != -1) {
+                digest.update(buffer, 0, c);
+            }
+        } finally {
+            input.close();
+        }
+        digest.update((byte) 0);
+    }
+}
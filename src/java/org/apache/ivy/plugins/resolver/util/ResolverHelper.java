@@ -60,10 +60,10 @@ public final class ResolverHelper {
             String root = slashIndex == -1 ? "" : pattern.substring(0, slashIndex);
 
             try {
-                Message.debug("\tusing " + rep + " to list all in " + root);
+                Message.debug("\tusing {} to list all in {}", rep, root);
                 List all = rep.list(root);
                 if (all != null) {
-                    Message.debug("\t\tfound " + all.size() + " urls");
+                    Message.debug("\t\tfound {} urls", new Integer(all.size()));
                     List ret = new ArrayList(all.size());
                     int endNameIndex = pattern.indexOf(fileSep, slashIndex + 1);
                     String namePattern;
@@ -83,7 +83,7 @@ public final class ResolverHelper {
                             ret.add(value);
                         }
                     }
-                    Message.debug("\t\t" + ret.size() + " matched " + pattern);
+                    Message.debug("\t\t{} matched {}", new Integer(ret.size()), pattern);
                     return (String[]) ret.toArray(new String[ret.size()]);
                 } else {
                     return null;
@@ -104,10 +104,10 @@ public final class ResolverHelper {
     public static String[] listAll(Repository rep, String parent) {
         try {
             String fileSep = rep.getFileSeparator();
-            Message.debug("\tusing " + rep + " to list all in " + parent);
+            Message.debug("\tusing {} to list all in {}", rep, parent);
             List all = rep.list(parent);
             if (all != null) {
-                Message.debug("\t\tfound " + all.size() + " resources");
+                Message.debug("\t\tfound {} resources", new Integer(all.size()));
                 List names = new ArrayList(all.size());
                 for (Iterator iter = all.iterator(); iter.hasNext();) {
                     String path = (String) iter.next();
@@ -139,12 +139,12 @@ public final class ResolverHelper {
         String partiallyResolvedPattern = IvyPatternHelper.substitute(pattern, ModuleRevisionId
                 .newInstance(mrid, IvyPatternHelper.getTokenString(IvyPatternHelper.REVISION_KEY)),
             artifact);
-        Message.debug("\tlisting all in " + partiallyResolvedPattern);
+        Message.debug("\tlisting all in {}", partiallyResolvedPattern);
 
         String[] revs = listTokenValues(rep, partiallyResolvedPattern,
             IvyPatternHelper.REVISION_KEY);
         if (revs != null) {
-            Message.debug("\tfound revs: " + Arrays.asList(revs));
+            Message.debug("\tfound revs: {}", Arrays.asList(revs));
             List ret = new ArrayList(revs.length);
             for (int i = 0; i < revs.length; i++) {
                 String rres = IvyPatternHelper.substituteToken(partiallyResolvedPattern,
@@ -163,7 +163,7 @@ public final class ResolverHelper {
                 }
             }
             if (revs.length != ret.size()) {
-                Message.debug("\tfound resolved res: " + ret);
+                Message.debug("\tfound resolved res: {}", ret);
             }
             return (ResolvedResource[]) ret.toArray(new ResolvedResource[ret.size()]);
         } else if (partiallyResolvedPattern.indexOf(
@@ -277,9 +277,9 @@ public final class ResolverHelper {
                 String root = slashIndex == -1 ? "" : pattern.substring(0, slashIndex);
 
                 try {
-                    Message.debug("\tusing " + lister + " to list all in " + root);
+                    Message.debug("\tusing {} to list all in {}", lister, root);
                     List all = lister.listAll(new URL(root));
-                    Message.debug("\t\tfound " + all.size() + " urls");
+                    Message.debug("\t\tfound {} urls", new Integer(all.size()));
                     List ret = new ArrayList(all.size());
                     int endNameIndex = pattern.indexOf('/', slashIndex + 1);
                     String namePattern;
@@ -301,7 +301,7 @@ public final class ResolverHelper {
                             ret.add(value);
                         }
                     }
-                    Message.debug("\t\t" + ret.size() + " matched " + pattern);
+                    Message.debug("\t\t{} matched {}", new Integer(ret.size()), pattern);
                     return (String[]) ret.toArray(new String[ret.size()]);
                 } catch (Exception e) {
                     Message.warn("problem while listing files in " + root + ": " + e.getClass()
@@ -320,9 +320,9 @@ public final class ResolverHelper {
     public static String[] listAll(URLLister lister, URL root) {
         try {
             if (lister.accept(root.toExternalForm())) {
-                Message.debug("\tusing " + lister + " to list all in " + root);
+                Message.debug("\tusing {} to list all in {}", lister, root);
                 List all = lister.listAll(root);
-                Message.debug("\t\tfound " + all.size() + " urls");
+                Message.debug("\t\tfound {} urls", new Integer(all.size()));
                 List names = new ArrayList(all.size());
                 for (Iterator iter = all.iterator(); iter.hasNext();) {
                     URL dir = (URL) iter.next();
@@ -17,21 +17,39 @@
  */
 package org.apache.ivy.util;
 
-import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  * An abstract base class to ease {@link MessageLogger} implementation.
  */
 public abstract class AbstractMessageLogger implements MessageLogger {
-    private List problems = new ArrayList();
+    // the same logger may be used by several threads
+    private List problems = new CopyOnWriteArrayList();
 
-    private List warns = new ArrayList();
+    private List warns = new CopyOnWriteArrayList();
 
-    private List errors = new ArrayList();
+    private List errors = new CopyOnWriteArrayList();
 
     private boolean showProgress = true;
-    
+
+    /**
+     * Indicates if the messages of the given level are logged by this logger, so that the
+     * messages it would discard do not even have to be built.
+     * <p>
+     * This implementation returns <code>true</code>, the loggers which know their level should
+     * override it.
+     * </p>
+     * 
+     * @param level
+     *            the level of the messages, one of the Message.MSG_* constants
+     * @return <code>false</code> if the messages of this level are discarded
+     * @see Message#isDebugEnabled()
+     */
+    public boolean isEnabled(int level) {
+        return true;
+    }
+
     /* (non-Javadoc)
      * @see org.apache.ivy.util.MessageLogger#debug(java.lang.String)
      */
@@ -0,0 +1,264 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.ivy.util;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * A logger which buffers the messages and hands them to another logger in a background thread,
+ * so that the threads logging them do not wait for the output.
+ * <p>
+ * Each message is kept as an {@link Entry}, recording its level, time and thread, which is
+ * written to the delegate logger by {@link #write(Entry)}. Subclasses can override this method to
+ * write the entries in a structured form instead.
+ * </p>
+ * <p>
+ * The messages are written in the order they have been logged. When the buffer is full, the
+ * logging threads wait for some room, so no message is lost. {@link #flush()} waits until all the
+ * buffered messages are written, and {@link #close()} stops the background thread, after which
+ * the messages are written directly.
+ * </p>
+ */
+public class AsyncMessageLogger extends AbstractMessageLogger {
+    /**
+     * A message logged with {@link AsyncMessageLogger}.
+     */
+    public static final class Entry {
+        /** A message logged with {@link MessageLogger#log(String, int)}. */
+        public static final int LOG = 0;
+
+        /** A message logged with {@link MessageLogger#rawlog(String, int)}. */
+        public static final int RAW = 1;
+
+        /** A progress notification. */
+        public static final int PROGRESS = 2;
+
+        /** The end of a progress, with an optional message. */
+        public static final int END_PROGRESS = 3;
+
+        private final int type;
+
+        private final int level;
+
+        private final String message;
+
+        private final long time = System.currentTimeMillis();
+
+        private final String thread = Thread.currentThread().getName();
+
+        Entry(int type, int level, String message) {
+            this.type = type;
+            this.level = level;
+            this.message = message;
+        }
+
+        public int getType() {
+            return type;
+        }
+
+        /**
+         * @return the level of the message, one of the Message.MSG_* constants
+         */
+        public int getLevel() {
+            return level;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+
+        /**
+         * @return the time at which the message was logged
+         */
+        public long getTime() {
+            return time;
+        }
+
+        /**
+         * @return the name of the thread which logged the message
+         */
+        public String getThread() {
+            return thread;
+        }
+
+        public String toString() {
+            return time + " [" + thread + "] " + level + " " + message;
+        }
+    }
+
+    private static final int DEFAULT_CAPACITY = 1024;
+
+    private final MessageLogger delegate;
+
+    private final BlockingQueue/* <Object> */queue;
+
+    private final Thread writer;
+
+    private volatile boolean closed = false;
+
+    public AsyncMessageLogger(MessageLogger delegate) {
+        this(delegate, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param delegate
+     *            the logger to which the messages are written
+     * @param capacity
+     *            the maximum number of messages waiting to be written
+     */
+    public AsyncMessageLogger(MessageLogger delegate, int capacity) {
+        Checks.checkNotNull(delegate, "delegate");
+        this.delegate = delegate;
+        this.queue = new ArrayBlockingQueue(capacity);
+        writer = new Thread("ivy-async-logger") {
+            public void run() {
+                writeEntries();
+            }
+        };
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    public MessageLogger getDelegate() {
+        return delegate;
+    }
+
+    public boolean isEnabled(int level) {
+        return MessageLoggerHelper.isEnabled(delegate, level);
+    }
+
+    public void log(String msg, int level) {
+        if (isEnabled(level)) {
+            enqueue(new Entry(Entry.LOG, level, msg));
+        }
+    }
+
+    public void rawlog(String msg, int level) {
+        if (isEnabled(level)) {
+            enqueue(new Entry(Entry.RAW, level, msg));
+        }
+    }
+
+    protected void doProgress() {
+        enqueue(new Entry(Entry.PROGRESS, Message.MSG_INFO, null));
+    }
+
+    protected void doEndProgress(String msg) {
+        enqueue(new Entry(Entry.END_PROGRESS, Message.MSG_INFO, msg));
+    }
+
+    /**
+     * Writes an entry to the delegate logger. This is called by the background thread, in the
+     * order in which the entries have been logged.
+     */
+    protected void write(Entry entry) {
+        switch (entry.getType()) {
+            case Entry.LOG:
+                delegate.log(entry.getMessage(), entry.getLevel());
+                break;
+            case Entry.RAW:
+                delegate.rawlog(entry.getMessage(), entry.getLevel());
+                break;
+            case Entry.PROGRESS:
+                delegate.progress();
+                break;
+            default:
+                if (entry.getMessage() == null) {
+                    delegate.endProgress();
+                } else {
+                    delegate.endProgress(entry.getMessage());
+                }
+                break;
+        }
+    }
+
+    /**
+     * Waits until all the messages logged so far have been written.
+     */
+    public void flush() {
+        if (closed) {
+            return;
+        }
+        CountDownLatch written = new CountDownLatch(1);
+        try {
+            queue.put(written);
+            written.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Writes the pending messages and stops the background thread.
+     */
+    public void close() {
+        flush();
+        closed = true;
+        writer.interrupt();
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // the messages logged while closing
+        Object o;
+        while ((o = queue.poll()) != null) {
+            if (o instanceof Entry) {
+                write((Entry) o);
+            } else {
+                ((CountDownLatch) o).countDown();
+            }
+        }
+    }
+
+    private void enqueue(Entry entry) {
+        if (closed) {
+            write(entry);
+            return;
+        }
+        try {
+            queue.put(entry);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            write(entry);
+        }
+    }
+
+    private void writeEntries() {
+        while (!closed) {
+            Object o;
+            try {
+                o = queue.take();
+            } catch (InterruptedException e) {
+                break;
+            }
+            if (o instanceof CountDownLatch) {
+                ((CountDownLatch) o).countDown();
+                continue;
+            }
+            try {
+                write((Entry) o);
+            } catch (RuntimeException e) {
+                // the logger thread must survive a failing delegate
+                e.printStackTrace();
+            }
+        }
+    }
+}
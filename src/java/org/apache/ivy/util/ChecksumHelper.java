@@ -52,8 +52,26 @@ public final class ChecksumHelper {
      *             if an IO problem occur whle reading files or if the checksum is not compliant
      */
     public static void check(File dest, File checksumFile, String algorithm) throws IOException {
-        String csFileContent = FileUtil.readEntirely(
-            new BufferedReader(new FileReader(checksumFile))).trim().toLowerCase(Locale.US);
+        String expected = readChecksum(FileUtil.readEntirely(
+            new BufferedReader(new FileReader(checksumFile))));
+        
+        String computed = computeAsString(dest, algorithm).trim().toLowerCase(Locale.US);
+        if (!expected.equals(computed)) {
+            throw new IOException("invalid " + algorithm + ": expected=" + expected + " computed="
+                    + computed);
+        }
+    }
+
+    /**
+     * Extracts the checksum from the content of a checksum file, supporting the various formats
+     * found in the repositories.
+     * 
+     * @param csFileContent
+     *            the content of the checksum file
+     * @return the checksum, in lower case
+     */
+    public static String readChecksum(String csFileContent) {
+        csFileContent = csFileContent.trim().toLowerCase(Locale.US);
         String expected;
         if (csFileContent.indexOf(' ') > -1
                 && (csFileContent.startsWith("md") || csFileContent.startsWith("sha"))) {
@@ -80,21 +98,25 @@ public final class ChecksumHelper {
                 expected = csFileContent;
             }
         }
-        
-        String computed = computeAsString(dest, algorithm).trim().toLowerCase(Locale.US);
-        if (!expected.equals(computed)) {
-            throw new IOException("invalid " + algorithm + ": expected=" + expected + " computed="
-                    + computed);
-        }
+        return expected;
     }
 
     public static String computeAsString(File f, String algorithm) throws IOException {
         return byteArrayToHexString(compute(f, algorithm));
     }
 
+    /**
+     * Computes the checksum of the content of the given stream, which is closed once read.
+     */
+    public static String computeAsString(InputStream is, String algorithm) throws IOException {
+        return byteArrayToHexString(compute(is, algorithm));
+    }
+
     private static byte[] compute(File f, String algorithm) throws IOException {
-        InputStream is = new FileInputStream(f);
+        return compute(new FileInputStream(f), algorithm);
+    }
 
+    private static byte[] compute(InputStream is, String algorithm) throws IOException {
         try {
             MessageDigest md = getMessageDigest(algorithm);
             md.reset();
@@ -18,6 +18,7 @@
 package org.apache.ivy.util;
 
 import java.io.File;
+import java.lang.ref.SoftReference;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
@@ -29,6 +30,7 @@ import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Stack;
+import java.util.WeakHashMap;
 
 import org.apache.ivy.core.IvyPatternHelper;
 
@@ -295,10 +297,16 @@ public class Configurator {
         }
     }
 
-    private static class ObjectDescriptor {
-        private Object obj;
-
-        private String objName;
+    /**
+     * The configuration methods of a class, as found by introspection. Introspecting a class is
+     * costly, so the result is shared by all the instances of the class ever configured, even by
+     * different Configurator instances.
+     */
+    private static final class ClassDescriptor {
+        // values are soft references: the methods they hold refer to their class, which would
+        // otherwise prevent the weak keys from ever being collected
+        private static final Map/*<Class,SoftReference<ClassDescriptor>>*/ DESCRIPTORS = 
+            new WeakHashMap();
 
         private Map createMethods = new HashMap();
 
@@ -312,10 +320,20 @@ public class Configurator {
 
         private Map typeAddConfiguredMethods = new HashMap();
 
-        public ObjectDescriptor(Object object, String objName) {
-            obj = object;
-            this.objName = objName;
-            Method[] methods = object.getClass().getMethods();
+        static ClassDescriptor forClass(Class clazz) {
+            synchronized (DESCRIPTORS) {
+                SoftReference ref = (SoftReference) DESCRIPTORS.get(clazz);
+                ClassDescriptor descriptor = ref == null ? null : (ClassDescriptor) ref.get();
+                if (descriptor == null) {
+                    descriptor = new ClassDescriptor(clazz);
+                    DESCRIPTORS.put(clazz, new SoftReference(descriptor));
+                }
+                return descriptor;
+            }
+        }
+
+        private ClassDescriptor(Class clazz) {
+            Method[] methods = clazz.getMethods();
             for (int i = 0; i < methods.length; i++) {
                 Method m = methods[i];
                 if (m.getName().startsWith("create") && m.getParameterTypes().length == 0
@@ -355,15 +373,15 @@ public class Configurator {
             }
         }
 
-        public void addCreateMethod(String name, Method m) {
+        private void addCreateMethod(String name, Method m) {
             createMethods.put(name, m);
         }
 
-        public void addAddMethod(String name, Method m) {
+        private void addAddMethod(String name, Method m) {
             addMethods.put(name, m);
         }
 
-        public void addAddConfiguredMethod(String name, Method m) {
+        private void addAddConfiguredMethod(String name, Method m) {
             addConfiguredMethods.put(name, m);
         }
 
@@ -375,7 +393,7 @@ public class Configurator {
             typeAddConfiguredMethods.put(m.getParameterTypes()[0], m);
         }
 
-        public void addSetMethod(String name, Method m) {
+        private void addSetMethod(String name, Method m) {
             Method current = (Method) setMethods.get(name);
             if (current != null && current.getParameterTypes()[0] == String.class) {
                 // setter methods with String attribute take precedence 
@@ -383,29 +401,43 @@ public class Configurator {
             }
             setMethods.put(name, m);
         }
+    }
+
+    private static class ObjectDescriptor {
+        private Object obj;
+
+        private String objName;
+
+        private ClassDescriptor classDescriptor;
+
+        public ObjectDescriptor(Object object, String objName) {
+            obj = object;
+            this.objName = objName;
+            classDescriptor = ClassDescriptor.forClass(object.getClass());
+        }
 
         public Object getObject() {
             return obj;
         }
 
         public Method getCreateMethod(String name) {
-            return (Method) createMethods.get(name);
+            return (Method) classDescriptor.createMethods.get(name);
         }
 
         public Method getAddMethod(String name) {
-            return (Method) addMethods.get(name);
+            return (Method) classDescriptor.addMethods.get(name);
         }
 
         public Method getAddConfiguredMethod(String name) {
-            return (Method) addConfiguredMethods.get(name);
+            return (Method) classDescriptor.addConfiguredMethods.get(name);
         }
 
         public Method getAddMethod(Class type) {
-            return getTypeMatchingMethod(type, typeAddMethods);
+            return getTypeMatchingMethod(type, classDescriptor.typeAddMethods);
         }
 
         public Method getAddConfiguredMethod(Class type) {
-            return getTypeMatchingMethod(type, typeAddConfiguredMethods);
+            return getTypeMatchingMethod(type, classDescriptor.typeAddConfiguredMethods);
         }
 
         private Method getTypeMatchingMethod(Class type, Map typeMethods) {
@@ -423,7 +455,7 @@ public class Configurator {
         }
 
         public Method getSetMethod(String name) {
-            return (Method) setMethods.get(name);
+            return (Method) classDescriptor.setMethods.get(name);
         }
 
         public String getObjectName() {
@@ -17,32 +17,54 @@
  */
 package org.apache.ivy.util;
 
+import java.io.PrintStream;
+
 public class DefaultMessageLogger extends AbstractMessageLogger {
     private int level = Message.MSG_INFO;
 
+    private PrintStream out;
+
     /**
      * @param level
      */
     public DefaultMessageLogger(int level) {
+        this(level, System.out);
+    }
+
+    /**
+     * Creates a logger writing the messages of the given level or lower to the given stream
+     * instead of the standard output.
+     * 
+     * @param level
+     *            the maximum level of the messages to log
+     * @param out
+     *            the stream to which messages should be written
+     */
+    public DefaultMessageLogger(int level, PrintStream out) {
         this.level = level;
+        this.out = out;
     }
 
     public void log(String msg, int level) {
         if (level <= this.level) {
-            System.out.println(msg);
+            out.println(msg);
         }
     }
 
+    public boolean isEnabled(int level) {
+        return level <= this.level;
+    }
+
     public void rawlog(String msg, int level) {
         log(msg, level);
     }
 
     public void doProgress() {
-        System.out.print(".");
+        out.print(".");
     }
 
     public void doEndProgress(String msg) {
-        System.out.println(msg);
+        out.println(msg);
     }
 
     public int getLevel() {
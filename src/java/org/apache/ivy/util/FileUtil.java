@@ -322,6 +322,36 @@ public final class FileUtil {
         return file.delete();
     }
 
+    /**
+     * Returns a new temporary file, in the directory of the given file, in which its content can
+     * be written before being moved to it with {@link #replace(File, File)}.
+     */
+    public static File newTempFile(File file) throws IOException {
+        File dir = file.getAbsoluteFile().getParentFile();
+        dir.mkdirs();
+        return File.createTempFile(file.getName() + ".", ".part", dir);
+    }
+
+    /**
+     * Moves the given file to the destination, replacing it if it exists. Where the platform
+     * allows it, the destination is replaced atomically, so that the threads and processes reading
+     * it concurrently get either its previous or its new content, and never a partial one.
+     * 
+     * @throws IOException
+     *             if the file could not be moved, in which case it is deleted
+     */
+    public static void replace(File src, File dest) throws IOException {
+        if (src.renameTo(dest)) {
+            return;
+        }
+        // some platforms cannot rename over an existing file
+        dest.delete();
+        if (!src.renameTo(dest)) {
+            src.delete();
+            throw new IOException("impossible to move " + src + " to " + dest);
+        }
+    }
+
     /**
      * Returns a list of Files composed of all directories being parent of file and child of root +
      * file and root themselves. Example: getPathFiles(new File("test"), new
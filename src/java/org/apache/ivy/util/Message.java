@@ -85,14 +85,68 @@ public final class Message {
         }
     }
 
+    /**
+     * Indicates if the debug messages are logged by the current logger.
+     * <p>
+     * The messages which are expensive to build should be guarded by this test, or logged with
+     * one of the parameterized methods, which only format them when they are logged.
+     * </p>
+     */
+    public static boolean isDebugEnabled() {
+        return isEnabled(MSG_DEBUG);
+    }
+
+    /**
+     * Indicates if the verbose messages are logged by the current logger.
+     */
+    public static boolean isVerboseEnabled() {
+        return isEnabled(MSG_VERBOSE);
+    }
+
+    public static boolean isEnabled(int logLevel) {
+        return MessageLoggerHelper.isEnabled(getLogger(), logLevel);
+    }
+
     public static void debug(String msg) {
         getLogger().debug(msg);
     }
 
+    /**
+     * Logs a debug message, built by replacing the <code>{}</code> in the given pattern by the
+     * given argument only if debug messages are logged.
+     */
+    public static void debug(String pattern, Object arg) {
+        log(MSG_DEBUG, pattern, new Object[] {arg});
+    }
+
+    public static void debug(String pattern, Object arg1, Object arg2) {
+        log(MSG_DEBUG, pattern, new Object[] {arg1, arg2});
+    }
+
+    public static void debug(String pattern, Object arg1, Object arg2, Object arg3) {
+        log(MSG_DEBUG, pattern, new Object[] {arg1, arg2, arg3});
+    }
+
     public static void verbose(String msg) {
         getLogger().verbose(msg);
     }
 
+    /**
+     * Logs a verbose message, built by replacing the <code>{}</code> in the given pattern by the
+     * given argument only if verbose messages are logged.
+     */
+    public static void verbose(String pattern, Object arg) {
+        log(MSG_VERBOSE, pattern, new Object[] {arg});
+    }
+
+    public static void verbose(String pattern, Object arg1, Object arg2) {
+        log(MSG_VERBOSE, pattern, new Object[] {arg1, arg2});
+    }
+
+    public static void verbose(String pattern, Object arg1, Object arg2, Object arg3) {
+        log(MSG_VERBOSE, pattern, new Object[] {arg1, arg2, arg3});
+    }
+
     public static void info(String msg) {
         getLogger().info(msg);
     }
@@ -135,6 +189,24 @@ public final class Message {
         }
     }
 
+    /**
+     * Logs a message at the given level, formatted with
+     * {@link MessageLoggerHelper#format(String, Object[])} only if this level is logged.
+     */
+    public static void log(int logLevel, String pattern, Object[] args) {
+        MessageLogger logger = getLogger();
+        if (MessageLoggerHelper.isEnabled(logger, logLevel)) {
+            String msg = MessageLoggerHelper.format(pattern, args);
+            if (logLevel == MSG_DEBUG) {
+                logger.debug(msg);
+            } else if (logLevel == MSG_VERBOSE) {
+                logger.verbose(msg);
+            } else {
+                log(logLevel, msg);
+            }
+        }
+    }
+
     public static List getProblems() {
         return getLogger().getProblems();
     }
@@ -17,10 +17,10 @@
  */
 package org.apache.ivy.util;
 
-import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Stack;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  * A {@link MessageLogger} implementation delegating the work to the current top logger on a stack.
@@ -32,17 +32,24 @@ import java.util.Stack;
  * {@link #pushLogger(MessageLogger)} should be called to delegate to a new logger, and
  * {@link #popLogger()} should be called when the context of this logger is finished.
  * </p>
+ * <p>
+ * The problems are collected by the engine, which is shared by all the threads using the same
+ * Ivy instance: they can report them concurrently.
+ * </p>
  */
 public class MessageLoggerEngine implements MessageLogger {
     private final Stack/*<MessageLogger>*/ loggerStack = new Stack();
+
+    // the top of the stack, kept apart to avoid synchronizing on the stack for each message
+    private volatile MessageLogger currentLogger = null;
     
     private MessageLogger defaultLogger = null;
 
-    private List problems = new ArrayList();
+    private List problems = new CopyOnWriteArrayList();
 
-    private List warns = new ArrayList();
+    private List warns = new CopyOnWriteArrayList();
 
-    private List errors = new ArrayList();
+    private List errors = new CopyOnWriteArrayList();
     
     public MessageLoggerEngine() {
     }
@@ -66,7 +73,10 @@ public class MessageLoggerEngine implements MessageLogger {
      */
     public void pushLogger(MessageLogger logger) {
         Checks.checkNotNull(logger, "logger");
-        loggerStack.push(logger);
+        synchronized (loggerStack) {
+            loggerStack.push(logger);
+            currentLogger = logger;
+        }
     }
     
     /**
@@ -76,8 +86,11 @@ public class MessageLoggerEngine implements MessageLogger {
      * </p>
      */
     public void popLogger() {
-        if (!loggerStack.isEmpty()) {
-            loggerStack.pop();
+        synchronized (loggerStack) {
+            if (!loggerStack.isEmpty()) {
+                loggerStack.pop();
+            }
+            currentLogger = loggerStack.isEmpty() ? null : (MessageLogger) loggerStack.peek();
         }
     }
 
@@ -86,10 +99,17 @@ public class MessageLoggerEngine implements MessageLogger {
      * @return the current logger, or the default one if there is no logger in the stack
      */
     public MessageLogger peekLogger() {
-        if (loggerStack.isEmpty()) {
-            return getDefaultLogger();
-        }
-        return (MessageLogger) loggerStack.peek();
+        MessageLogger logger = currentLogger;
+        return logger == null ? getDefaultLogger() : logger;
+    }
+
+    /**
+     * Indicates if the current logger logs the messages of the given level.
+     * 
+     * @see AbstractMessageLogger#isEnabled(int)
+     */
+    public boolean isEnabled(int level) {
+        return MessageLoggerHelper.isEnabled(peekLogger(), level);
     }
 
     private MessageLogger getDefaultLogger() {
@@ -130,9 +150,11 @@ public class MessageLoggerEngine implements MessageLogger {
     
     public void clearProblems() {
         getDefaultLogger().clearProblems();
-        for (Iterator iter = loggerStack.iterator(); iter.hasNext();) {
-            MessageLogger l = (MessageLogger) iter.next();
-            l.clearProblems();
+        synchronized (loggerStack) {
+            for (Iterator iter = loggerStack.iterator(); iter.hasNext();) {
+                MessageLogger l = (MessageLogger) iter.next();
+                l.clearProblems();
+            }
         }
         problems.clear();
         errors.clear();
@@ -142,9 +164,11 @@ public class MessageLoggerEngine implements MessageLogger {
     public void setShowProgress(boolean progress) {
         getDefaultLogger().setShowProgress(progress);
         // updates all loggers in the stack
-        for (Iterator iter = loggerStack.iterator(); iter.hasNext();) {
-            MessageLogger l = (MessageLogger) iter.next();
-            l.setShowProgress(progress);
+        synchronized (loggerStack) {
+            for (Iterator iter = loggerStack.iterator(); iter.hasNext();) {
+                MessageLogger l = (MessageLogger) iter.next();
+                l.setShowProgress(progress);
+            }
         }
     }
     
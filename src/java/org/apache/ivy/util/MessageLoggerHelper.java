@@ -50,6 +50,39 @@ public final class MessageLoggerHelper {
         }
     }
 
+    /**
+     * Indicates if the given logger logs the messages of the given level. Only the loggers
+     * extending {@link AbstractMessageLogger} and the {@link MessageLoggerEngine} can tell, the
+     * other loggers are considered to log everything.
+     */
+    public static boolean isEnabled(MessageLogger logger, int level) {
+        if (logger instanceof AbstractMessageLogger) {
+            return ((AbstractMessageLogger) logger).isEnabled(level);
+        } else if (logger instanceof MessageLoggerEngine) {
+            return ((MessageLoggerEngine) logger).isEnabled(level);
+        }
+        return true;
+    }
+
+    /**
+     * Formats a message by replacing each <code>{}</code> in the given pattern by the next
+     * argument. The extra placeholders are left as is, and the extra arguments are ignored.
+     */
+    public static String format(String pattern, Object[] args) {
+        StringBuffer sb = new StringBuffer(pattern.length() + 16 * args.length);
+        int start = 0;
+        for (int i = 0; i < args.length; i++) {
+            int index = pattern.indexOf("{}", start);
+            if (index == -1) {
+                break;
+            }
+            sb.append(pattern.substring(start, index)).append(args[i]);
+            start = index + 2;
+        }
+        sb.append(pattern.substring(start));
+        return sb.toString();
+    }
+
     private MessageLoggerHelper() {
     }
 }
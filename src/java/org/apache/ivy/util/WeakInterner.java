@@ -0,0 +1,167 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.ivy.util;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A table of canonical instances, which does not prevent them from being garbage collected.
+ * <p>
+ * {@link #intern(Object)} returns the instance equal to the given object which has been interned
+ * first, as long as it is still referenced elsewhere, like {@link String#intern()} does. Unlike a
+ * synchronized {@link java.util.WeakHashMap}, the lookups do not lock anything, and only
+ * allocate a small lookup key when the instance is already interned, so it can be used
+ * concurrently by several threads.
+ * </p>
+ * <p>
+ * The interned objects must be immutable, at least as far as their <code>equals</code> and
+ * <code>hashCode</code> are concerned.
+ * </p>
+ */
+public final class WeakInterner {
+    private final ConcurrentMap/* <Key, InternedKey> */table = new ConcurrentHashMap();
+
+    private final ReferenceQueue queue = new ReferenceQueue();
+
+    private final AtomicLong hits = new AtomicLong();
+
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * Returns the canonical instance equal to the given object, which is the given object itself
+     * if no equal object is interned.
+     *
+     * @param o
+     *            the object to intern, must not be <code>null</code>
+     * @return the canonical instance equal to o
+     */
+    public Object intern(Object o) {
+        expunge();
+        InternedKey interned = (InternedKey) table.get(new LookupKey(o));
+        while (true) {
+            if (interned != null) {
+                Object canonical = interned.get();
+                if (canonical != null) {
+                    hits.incrementAndGet();
+                    return canonical;
+                }
+                // collected but not expunged yet
+                table.remove(interned, interned);
+            }
+            InternedKey key = new InternedKey(o, queue);
+            interned = (InternedKey) table.putIfAbsent(key, key);
+            if (interned == null) {
+                misses.incrementAndGet();
+                return o;
+            }
+        }
+    }
+
+    /**
+     * Returns the number of interned instances, including the ones collected since the last
+     * {@link #intern(Object)}.
+     */
+    public int size() {
+        return table.size();
+    }
+
+    /**
+     * Returns the number of interned objects for which an equal instance was already interned.
+     */
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    /**
+     * Returns the number of interned objects which have become the canonical instance.
+     */
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    private void expunge() {
+        Reference ref;
+        while ((ref = queue.poll()) != null) {
+            table.remove(ref, ref);
+        }
+    }
+
+    private interface Key {
+        Object referent();
+    }
+
+    private static boolean equals(Key key, int hash, Object o) {
+        if (o == key) {
+            return true;
+        }
+        if (!(o instanceof Key) || o.hashCode() != hash) {
+            return false;
+        }
+        Object referent = key.referent();
+        return referent != null && referent.equals(((Key) o).referent());
+    }
+
+    private static final class InternedKey extends WeakReference implements Key {
+        private final int hash;
+
+        InternedKey(Object o, ReferenceQueue queue) {
+            super(o, queue);
+            hash = o.hashCode();
+        }
+
+        public Object referent() {
+            return get();
+        }
+
+        public boolean equals(Object o) {
+            return WeakInterner.equals(this, hash, o);
+        }
+
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    private static final class LookupKey implements Key {
+        private final Object o;
+
+        private final int hash;
+
+        LookupKey(Object o) {
+            this.o = o;
+            hash = o.hashCode();
+        }
+
+        public Object referent() {
+            return o;
+        }
+
+        public boolean equals(Object o) {
+            return WeakInterner.equals(this, hash, o);
+        }
+
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
@@ -22,12 +22,18 @@ import java.io.InputStream;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URL;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.Map;
 
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
 import javax.xml.parsers.SAXParser;
 import javax.xml.parsers.SAXParserFactory;
+import javax.xml.transform.stream.StreamSource;
+import javax.xml.validation.Schema;
+import javax.xml.validation.SchemaFactory;
 
 import org.apache.ivy.plugins.repository.Resource;
 import org.apache.ivy.util.url.URLHandlerRegistry;
@@ -52,31 +58,181 @@ public abstract class XMLHelper {
 
     static final String W3C_XML_SCHEMA = "http://www.w3.org/2001/XMLSchema";
 
-    private static boolean canUseSchemaValidation = true;
+    /**
+     * The maximum number of idle parsers kept for each parser configuration.
+     */
+    private static final int MAX_IDLE_PARSERS = 8;
+
+    private static volatile boolean canUseSchemaValidation = true;
     
-    private static SAXParser newSAXParser(URL schema, InputStream schemaStream)
-            throws ParserConfigurationException, SAXException {
-        SAXParserFactory parserFactory = SAXParserFactory.newInstance();
-        parserFactory.setNamespaceAware(true);
-        parserFactory.setValidating(canUseSchemaValidation && (schema != null));
-        SAXParser parser = parserFactory.newSAXParser();
-        
+    /** parser pools by configuration key, guarded by itself */
+    private static final Map/*<String, ParserPool>*/ PARSER_POOLS = new HashMap();
+
+    /** compiled schemas by schema url, guarded by itself */
+    private static final Map/*<String, Schema>*/ SCHEMAS = new HashMap();
+    
+    private static long parserAcquisitions = 0;
+
+    private static long parserCreations = 0;
+
+    private static long parserAcquisitionTime = 0;
+    
+    /**
+     * A pool of identically configured {@link SAXParser}s, sharing a single factory.
+     * <p>
+     * Parsers are reset before being returned to the pool, which restores the configuration
+     * given by the factory, including the schema to validate against if any. When the JAXP
+     * implementation doesn't support precompiled schemas, the schema is instead given to each
+     * parser through the JAXP schema properties.
+     * </p>
+     */
+    private static final class ParserPool {
+        private final SAXParserFactory factory;
+
+        /** the schema to set on each parser, if the factory can't do it itself */
+        private final URL schemaProperty;
+
+        private final LinkedList/*<SAXParser>*/ idle = new LinkedList();
+
+        ParserPool(SAXParserFactory factory, URL schemaProperty) {
+            this.factory = factory;
+            this.schemaProperty = schemaProperty;
+        }
+
+        SAXParser acquire() throws ParserConfigurationException, SAXException {
+            long start = System.nanoTime();
+            SAXParser parser = null;
+            synchronized (this) {
+                if (!idle.isEmpty()) {
+                    parser = (SAXParser) idle.removeLast();
+                }
+            }
+            boolean created = false;
+            if (parser == null) {
+                synchronized (factory) {
+                    parser = factory.newSAXParser();
+                }
+                created = true;
+            }
+            recordAcquisition(System.nanoTime() - start, created);
+            return parser;
+        }
+
+        void release(SAXParser parser) {
+            try {
+                parser.reset();
+            } catch (UnsupportedOperationException e) {
+                // this parser can't be reused
+                return;
+            }
+            synchronized (this) {
+                if (idle.size() < MAX_IDLE_PARSERS) {
+                    idle.add(parser);
+                }
+            }
+        }
+    }
+
+    private static synchronized void recordAcquisition(long time, boolean created) {
+        parserAcquisitions++;
+        parserAcquisitionTime += time;
+        if (created) {
+            parserCreations++;
+        }
+    }
+
+    /**
+     * @return the number of SAX parsers acquired to parse xml documents since the class has been
+     *         loaded.
+     */
+    public static synchronized long getParserAcquisitionCount() {
+        return parserAcquisitions;
+    }
+
+    /**
+     * @return the number of SAX parsers which had to be created because no idle parser was
+     *         available in the pool.
+     */
+    public static synchronized long getParserCreationCount() {
+        return parserCreations;
+    }
+
+    /**
+     * @return the total time spent acquiring SAX parsers, in nanoseconds.
+     */
+    public static synchronized long getParserAcquisitionTime() {
+        return parserAcquisitionTime;
+    }
+
+    private static ParserPool getParserPool(URL schema, boolean namespaceAware) 
+            throws ParserConfigurationException, SAXException, IOException {
+        Schema compiledSchema = null;
         if (canUseSchemaValidation && (schema != null)) {
+            compiledSchema = getSchema(schema);
+        }
+        String key = (namespaceAware ? "ns|" : "|") 
+            + (compiledSchema == null ? "" : schema.toExternalForm());
+        synchronized (PARSER_POOLS) {
+            ParserPool pool = (ParserPool) PARSER_POOLS.get(key);
+            if (pool == null) {
+                SAXParserFactory parserFactory = SAXParserFactory.newInstance();
+                parserFactory.setNamespaceAware(namespaceAware);
+                parserFactory.setValidating(false);
+                if (namespaceAware) {
+                    parserFactory.setFeature(XML_NAMESPACE_PREFIXES, true);
+                }
+                URL schemaProperty = null;
+                if (compiledSchema != null) {
+                    try {
+                        parserFactory.setSchema(compiledSchema);
+                    } catch (UnsupportedOperationException ex) {
+                        // old JAXP implementation, schema will be set on each parser
+                        parserFactory.setValidating(true);
+                        schemaProperty = schema;
+                    }
+                }
+                pool = new ParserPool(parserFactory, schemaProperty);
+                PARSER_POOLS.put(key, pool);
+            }
+            return pool;
+        }
+    }
+
+    /**
+     * Returns the compiled schema located at the given url, loading it only the first time it is
+     * requested. Returns <code>null</code> if schema validation is not supported.
+     */
+    private static Schema getSchema(URL schema) throws SAXException, IOException {
+        String key = schema.toExternalForm();
+        synchronized (SCHEMAS) {
+            Schema compiledSchema = (Schema) SCHEMAS.get(key);
+            if (compiledSchema != null) {
+                return compiledSchema;
+            }
+            SchemaFactory schemaFactory;
             try {
-                parser.setProperty(JAXP_SCHEMA_LANGUAGE, W3C_XML_SCHEMA);
-                parser.setProperty(JAXP_SCHEMA_SOURCE, schemaStream);
-            } catch (SAXNotRecognizedException ex) {
+                schemaFactory = SchemaFactory.newInstance(W3C_XML_SCHEMA);
+            } catch (IllegalArgumentException ex) {
                 System.err.println(
-                    "WARNING: problem while setting JAXP validating property on SAXParser... "
+                    "WARNING: no W3C XML Schema support available... "
                     + "XML validation will not be done: " + ex.getMessage());
                 canUseSchemaValidation = false;
-                parserFactory.setValidating(false);
-                parser = parserFactory.newSAXParser();
+                return null;
+            }
+            InputStream schemaStream = URLHandlerRegistry.getDefault().openStream(schema);
+            try {
+                compiledSchema = schemaFactory.newSchema(
+                    new StreamSource(schemaStream, toSystemId(schema)));
+            } finally {
+                try {
+                    schemaStream.close();
+                } catch (IOException ex) {
+                    // ignored
+                }
             }
+            SCHEMAS.put(key, compiledSchema);
+            return compiledSchema;
         }
-        
-        parser.getXMLReader().setFeature(XML_NAMESPACE_PREFIXES, true);
-        return parser;
     }
 
     /**
@@ -125,13 +281,39 @@ public abstract class XMLHelper {
     public static void parse(
             InputSource xmlStream, URL schema, DefaultHandler handler, LexicalHandler lHandler)
             throws SAXException, IOException, ParserConfigurationException {
+        parse(xmlStream, schema, handler, lHandler, true);
+    }
+
+    /**
+     * Parses the given source with a non validating parser which isn't namespace aware, like the
+     * default JAXP parser.
+     */
+    public static void parseWithoutNamespaces(InputSource xmlStream, DefaultHandler handler)
+            throws SAXException, IOException, ParserConfigurationException {
+        parse(xmlStream, null, handler, null, false);
+    }
+
+    private static void parse(InputSource xmlStream, URL schema, DefaultHandler handler,
+            LexicalHandler lHandler, boolean namespaceAware)
+            throws SAXException, IOException, ParserConfigurationException {
+        ParserPool pool = getParserPool(schema, namespaceAware);
+        SAXParser parser = pool.acquire();
         InputStream schemaStream = null;
         try {
-            if (schema != null) {
-                schemaStream = URLHandlerRegistry.getDefault().openStream(schema);
+            if (pool.schemaProperty != null) {
+                schemaStream = URLHandlerRegistry.getDefault().openStream(pool.schemaProperty);
+                try {
+                    parser.setProperty(JAXP_SCHEMA_LANGUAGE, W3C_XML_SCHEMA);
+                    parser.setProperty(JAXP_SCHEMA_SOURCE, schemaStream);
+                } catch (SAXNotRecognizedException ex) {
+                    System.err.println(
+                        "WARNING: problem while setting JAXP validating property on SAXParser... "
+                        + "XML validation will not be done: " + ex.getMessage());
+                    canUseSchemaValidation = false;
+                    parse(xmlStream, null, handler, lHandler, namespaceAware);
+                    return;
+                }
             }
-            SAXParser parser = XMLHelper.newSAXParser(schema, schemaStream);
-
             if (lHandler != null) {
                 try {
                     parser.setProperty("http://xml.org/sax/properties/lexical-handler", lHandler);
@@ -152,6 +334,7 @@ public abstract class XMLHelper {
                     // ignored
                 }
             }
+            pool.release(parser);
         }
     }
 
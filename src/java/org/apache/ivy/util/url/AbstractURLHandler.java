@@ -31,6 +31,8 @@ import java.util.zip.GZIPInputStream;
 import java.util.zip.Inflater;
 import java.util.zip.InflaterInputStream;
 
+import org.apache.ivy.core.report.ResolveMetrics;
+
 public abstract class AbstractURLHandler implements URLHandler {
     
     private static final Pattern ESCAPE_PATTERN = Pattern.compile("%25([0-9a-fA-F][0-9a-fA-F])");
@@ -92,6 +94,21 @@ public abstract class AbstractURLHandler implements URLHandler {
         return requestMethod;
     }
     
+    /**
+     * Counts an HTTP request, and the bytes it has downloaded, in the
+     * {@link ResolveMetrics metrics} of the resolve in progress, if any.
+     */
+    protected void countRequest(URL url, long bytes) {
+        if (!"http".equals(url.getProtocol()) && !"https".equals(url.getProtocol())) {
+            return;
+        }
+        ResolveMetrics metrics = ResolveMetrics.current();
+        if (metrics != null) {
+            metrics.increment(ResolveMetrics.HTTP_REQUESTS);
+            metrics.add(ResolveMetrics.HTTP_BYTES, Math.max(bytes, 0));
+        }
+    }
+
     protected String normalizeToString(URL url) throws IOException {
         if (!"http".equals(url.getProtocol()) && !"https".equals(url.getProtocol())) {
             return url.toExternalForm();
@@ -68,7 +68,9 @@ public class BasicURLHandler extends AbstractURLHandler {
         try {
             url = normalizeToURL(url);
             con = url.openConnection();
+            IvyAuthenticator.useContextAuthenticator(con);
             con.setRequestProperty("User-Agent", "Apache Ivy/" + Ivy.getIvyVersion());
+            countRequest(url, 0);
             if (con instanceof HttpURLConnection) {
                 HttpURLConnection httpCon = (HttpURLConnection) con;
                 if (getRequestMethod() == URLHandler.REQUEST_METHOD_HEAD) {
@@ -162,6 +164,7 @@ public class BasicURLHandler extends AbstractURLHandler {
         try {
             url = normalizeToURL(url);
             conn = url.openConnection();
+            IvyAuthenticator.useContextAuthenticator(conn);
             conn.setRequestProperty("User-Agent", "Apache Ivy/" + Ivy.getIvyVersion());
             conn.setRequestProperty("Accept-Encoding", "gzip,deflate");
             conn.setRequestProperty("Accept", "application/octet-stream, application/json, application/xml, */*");
@@ -182,6 +185,7 @@ public class BasicURLHandler extends AbstractURLHandler {
             while ((len = inStream.read(buffer)) > 0) {
                 outStream.write(buffer, 0, len);
             }
+            countRequest(url, outStream.size());
             return new ByteArrayInputStream(outStream.toByteArray());
         } finally {
             disconnect(conn);
@@ -198,6 +202,7 @@ public class BasicURLHandler extends AbstractURLHandler {
         try {
             src = normalizeToURL(src);
             srcConn = src.openConnection();
+            IvyAuthenticator.useContextAuthenticator(srcConn);
             srcConn.setRequestProperty("User-Agent", "Apache Ivy/" + Ivy.getIvyVersion());
             srcConn.setRequestProperty("Accept-Encoding", "gzip,deflate");
             srcConn.setRequestProperty("Accept", "application/octet-stream, application/json, application/xml, */*");
@@ -208,6 +213,7 @@ public class BasicURLHandler extends AbstractURLHandler {
                    String location = httpCon.getHeaderField("Location");
                     location = URLDecoder.decode(location, "UTF-8");
                     URL next = new URL(location); 
+                    countRequest(src, 0);
                     download(next,dest,l);
                     disconnect(srcConn);
                     return;
@@ -224,6 +230,7 @@ public class BasicURLHandler extends AbstractURLHandler {
             InputStream inStream = getDecodingInputStream(srcConn.getContentEncoding(),
                                                           srcConn.getInputStream());
             FileUtil.copy(inStream, dest, l);
+            countRequest(src, dest.length());
 
             // check content length only if content was not encoded
             if (srcConn.getContentEncoding() == null) {
@@ -259,6 +266,7 @@ public class BasicURLHandler extends AbstractURLHandler {
         try {
             dest = normalizeToURL(dest);
             conn = (HttpURLConnection) dest.openConnection();
+            IvyAuthenticator.useContextAuthenticator(conn);
             conn.setDoOutput(true);
             conn.setRequestMethod("PUT");
             conn.setRequestProperty("User-Agent", "Apache Ivy/" + Ivy.getIvyVersion());
@@ -17,11 +17,14 @@
  */
 package org.apache.ivy.util.url;
 
+import java.net.Authenticator;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.Map;
 import java.util.Set;
 
+import org.apache.ivy.core.IvyContext;
 import org.apache.ivy.util.Credentials;
 import org.apache.ivy.util.Message;
 
@@ -35,6 +38,11 @@ public final class CredentialsStore {
     private static final Map KEYRING = new HashMap();
     private static final Set SECURED_HOSTS = new HashSet();
 
+    /**
+     * The key under which the credentials only used in an {@link IvyContext} are kept.
+     */
+    private static final String CONTEXT_KEYRING = "ivy.credentials";
+
     public static final CredentialsStore INSTANCE = new CredentialsStore();
 
     private CredentialsStore() {
@@ -50,14 +58,108 @@ public final class CredentialsStore {
         SECURED_HOSTS.add(host);
     }
 
+    /**
+     * Adds credentials which are only used by the operations done in the current
+     * {@link IvyContext} and in the copies of this context made afterwards, until
+     * {@link #clearContextCredentials()} is called. They take precedence over the credentials
+     * added with {@link #addCredentials(String, String, String, String)}.
+     */
+    public void addContextCredentials(String realm, String host, String userName, String passwd) {
+        if (userName == null) {
+            return;
+        }
+        IvyContext context = IvyContext.getContext();
+        ContextKeyring keyring = (ContextKeyring) context.peek(CONTEXT_KEYRING);
+        if (keyring == null) {
+            keyring = new ContextKeyring();
+            context.push(CONTEXT_KEYRING, keyring);
+        }
+        Credentials c = new Credentials(realm, host, userName, passwd);
+        Message.debug("context credentials added: " + c);
+        synchronized (keyring) {
+            keyring.credentials.put(c.getKey(), c);
+        }
+    }
+
+    /**
+     * Indicates if credentials have been added to the current {@link IvyContext}. The HTTP
+     * clients shared by the whole JVM must not keep such credentials once they have used them.
+     */
+    public boolean hasContextCredentials() {
+        return IvyContext.getContext().peek(CONTEXT_KEYRING) != null;
+    }
+
+    /**
+     * Returns the authenticator to use for the JDK connections made in the current context, or
+     * <code>null</code> if no credentials have been added to the context. The JDK caches the
+     * credentials by authenticator, so that the ones given to this authenticator are not reused
+     * by the connections made in the other contexts.
+     */
+    Authenticator getContextAuthenticator() {
+        ContextKeyring keyring = (ContextKeyring) IvyContext.getContext().peek(CONTEXT_KEYRING);
+        if (keyring == null) {
+            return null;
+        }
+        synchronized (keyring) {
+            if (keyring.authenticator == null) {
+                keyring.authenticator = IvyAuthenticator.newContextAuthenticator();
+            }
+            return keyring.authenticator;
+        }
+    }
+
+    /**
+     * Removes the credentials added to the current {@link IvyContext}.
+     */
+    public void clearContextCredentials() {
+        IvyContext context = IvyContext.getContext();
+        ContextKeyring keyring;
+        while ((keyring = (ContextKeyring) context.pop(CONTEXT_KEYRING)) != null) {
+            synchronized (keyring) {
+                keyring.credentials.clear();
+                keyring.authenticator = null;
+            }
+        }
+    }
+
     public Credentials getCredentials(String realm, String host) {
         String key = Credentials.buildKey(realm, host);
         Message.debug("try to get credentials for: " + key);
+        ContextKeyring keyring = (ContextKeyring) IvyContext.getContext().peek(CONTEXT_KEYRING);
+        if (keyring != null) {
+            synchronized (keyring) {
+                Credentials c = (Credentials) keyring.credentials.get(key);
+                if (c != null) {
+                    return c;
+                }
+            }
+        }
         return (Credentials) KEYRING.get(key);
     }
     
     public boolean hasCredentials(String host) {
+        ContextKeyring keyring = (ContextKeyring) IvyContext.getContext().peek(CONTEXT_KEYRING);
+        if (keyring != null) {
+            synchronized (keyring) {
+                for (Iterator it = keyring.credentials.values().iterator(); it.hasNext();) {
+                    Credentials c = (Credentials) it.next();
+                    if (host == null ? c.getHost() == null : host.equals(c.getHost())) {
+                        return true;
+                    }
+                }
+            }
+        }
         return SECURED_HOSTS.contains(host);
     }
 
+    /**
+     * The credentials added to an {@link IvyContext}, with the authenticator used by the JDK
+     * connections made in this context.
+     */
+    private static final class ContextKeyring {
+        private final Map/* <String, Credentials> */credentials = new HashMap();
+
+        private Authenticator authenticator;
+    }
+
 }
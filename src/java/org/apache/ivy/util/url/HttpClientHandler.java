@@ -34,7 +34,9 @@ import org.apache.commons.httpclient.Credentials;
 import org.apache.commons.httpclient.Header;
 import org.apache.commons.httpclient.HttpClient;
 import org.apache.commons.httpclient.HttpException;
+import org.apache.commons.httpclient.HttpMethod;
 import org.apache.commons.httpclient.HttpMethodBase;
+import org.apache.commons.httpclient.HttpState;
 import org.apache.commons.httpclient.HttpStatus;
 import org.apache.commons.httpclient.MultiThreadedHttpConnectionManager;
 import org.apache.commons.httpclient.NTCredentials;
@@ -96,6 +98,7 @@ public class HttpClientHandler extends AbstractURLHandler {
 
     public InputStream openStream(URL url) throws IOException {
         GetMethod get = doGet(url, 0);
+        countRequest(url, getResponseContentLength(get));
         if (!checkStatusCode(url, get)) {
             get.releaseConnection();
             throw new IOException("The HTTP response code for " + url
@@ -120,6 +123,7 @@ public class HttpClientHandler extends AbstractURLHandler {
             InputStream is = getDecodingInputStream(encoding == null ? null : encoding.getValue(),
                                                     get.getResponseBodyAsStream());
             FileUtil.copy(is, dest, l);
+            countRequest(src, dest.length());
             dest.setLastModified(getLastModified(get));
         } finally {
             get.releaseConnection();
@@ -133,7 +137,7 @@ public class HttpClientHandler extends AbstractURLHandler {
         put.setDoAuthentication(useAuthentication(dest) || useProxyAuthentication());
         try {
             put.setRequestEntity(new FileRequestEntity(src));
-            int statusCode = client.executeMethod(put);
+            int statusCode = executeMethod(client, put);
             validatePutStatusCode(dest, statusCode, null);
         } finally {
             put.releaseConnection();
@@ -152,6 +156,7 @@ public class HttpClientHandler extends AbstractURLHandler {
             } else {
                 method = doGet(url, timeout);
             }
+            countRequest(url, 0);
             if (checkStatusCode(url, method)) {
                 String contentType = method.getResponseHeader("content-type").getValue();
                 String bodyCharset = BasicURLHandler.getCharSetFromContentType(contentType);
@@ -253,7 +258,7 @@ public class HttpClientHandler extends AbstractURLHandler {
         GetMethod get = new GetMethod(normalizeToString(url));
         get.setDoAuthentication(useAuthentication(url) || useProxyAuthentication());
         get.setRequestHeader("Accept-Encoding", "gzip,deflate");
-        client.executeMethod(get);
+        executeMethod(client, get);
         return get;
     }
 
@@ -263,10 +268,27 @@ public class HttpClientHandler extends AbstractURLHandler {
 
         HeadMethod head = new HeadMethod(normalizeToString(url));
         head.setDoAuthentication(useAuthentication(url) || useProxyAuthentication());
-        client.executeMethod(head);
+        executeMethod(client, head);
         return head;
     }
 
+    /**
+     * Executes the given method. When credentials have been added to the current context only,
+     * the method is executed with a state of its own: the state of the client is shared by the
+     * whole JVM, and would otherwise keep these credentials for the other contexts.
+     */
+    private int executeMethod(HttpClient client, HttpMethod method) throws IOException {
+        if (!CredentialsStore.INSTANCE.hasContextCredentials()) {
+            return client.executeMethod(method);
+        }
+        HttpState state = new HttpState();
+        if (useProxy() && useProxyAuthentication()) {
+            state.setProxyCredentials(new AuthScope(proxyHost, proxyPort, AuthScope.ANY_REALM),
+                createCredentials(proxyUserName, proxyPasswd));
+        }
+        return client.executeMethod(null, method, state);
+    }
+
     private HttpClient getClient() {
         if (httpClient == null) {
             final MultiThreadedHttpConnectionManager connManager = 
@@ -21,7 +21,9 @@ import java.lang.reflect.Field;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.net.Authenticator;
+import java.net.HttpURLConnection;
 import java.net.PasswordAuthentication;
+import java.net.URLConnection;
 
 import org.apache.ivy.util.Credentials;
 import org.apache.ivy.util.Message;
@@ -34,6 +36,8 @@ public final class IvyAuthenticator extends Authenticator {
     private Authenticator original;
     
     private static boolean securityWarningLogged = false;
+
+    private static boolean contextWarningLogged = false;
     
     /**
      * Private c'tor to prevent instantiation.
@@ -66,6 +70,45 @@ public final class IvyAuthenticator extends Authenticator {
         }
     }
 
+    /**
+     * Returns a new authenticator for the connections of an {@link org.apache.ivy.core.IvyContext}
+     * having credentials of its own.
+     */
+    static Authenticator newContextAuthenticator() {
+        return new IvyAuthenticator(null);
+    }
+
+    /**
+     * Makes the given connection use the authenticator of the current context, if credentials
+     * have been added to the context, so that the JDK does not cache them for the connections of
+     * the other contexts. This requires Java 9: on older JVMs the default authenticator is used,
+     * and the JDK keeps the credentials it got for the whole JVM.
+     */
+    public static void useContextAuthenticator(URLConnection con) {
+        if (!(con instanceof HttpURLConnection)) {
+            return;
+        }
+        Authenticator authenticator = CredentialsStore.INSTANCE.getContextAuthenticator();
+        if (authenticator == null) {
+            return;
+        }
+        try {
+            Method m = HttpURLConnection.class.getMethod("setAuthenticator",
+                new Class[] {Authenticator.class});
+            m.invoke(con, new Object[] {authenticator});
+        } catch (NoSuchMethodException e) {
+            if (!contextWarningLogged) {
+                contextWarningLogged = true;
+                Message.verbose("the credentials of the context are cached by the JVM: "
+                        + "Java 9 is required to scope them");
+            }
+        } catch (IllegalAccessException e) {
+            handleReflectionException(e);
+        } catch (InvocationTargetException e) {
+            handleReflectionException(e);
+        }
+    }
+
     // API ******************************************************************
 
     // Overriding Authenticator *********************************************
@@ -207,7 +250,7 @@ public final class IvyAuthenticator extends Authenticator {
     }
 
     private static void handleReflectionException(final Throwable t) {
-        Message.debug("Error occurred while getting the original authenticator: " + t.getMessage());
+        Message.debug("Error occurred while accessing the authenticator: " + t.getMessage());
     }
 
     private static boolean isJavaVersion9Plus() { return getJavaVersion() > 8; }
@@ -17,11 +17,18 @@
  */
 package org.apache.ivy;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
 
 import org.apache.ivy.util.CacheCleaner;
+import org.apache.ivy.util.FileUtil;
 import org.apache.ivy.util.cli.CommandLine;
 import org.apache.ivy.util.cli.ParseException;
+import org.apache.ivy.util.url.BasicAuthHttpServer;
+import org.apache.ivy.util.url.CredentialsStore;
 
 import junit.framework.TestCase;
 
@@ -68,6 +75,149 @@ public class MainTest extends TestCase {
         assertTrue(new File("build/cache/org1/mod1.2/ivy-2.0.xml").exists());
     }
     
+    public void testDaemon() throws Exception {
+        File tokenDir = new File("build/test/daemon");
+        IvyDaemon daemon = new IvyDaemon(0, tokenDir);
+        Thread server = serve(daemon);
+        String token = IvyDaemon.readToken(tokenDir, daemon.getPort());
+        try {
+            assertEquals(daemon.getToken(), token);
+            String[] args = new String[] {
+                    "-settings", "test/repositories/ivysettings.xml",
+                    "-ivy", "test/repositories/1/org1/mod1.1/ivys/ivy-1.0.xml"
+            };
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            assertEquals(0, IvyDaemon.send(daemon.getPort(), token, args, 
+                new PrintStream(output)));
+            assertTrue(new File("build/cache/org1/mod1.2/ivy-2.0.xml").exists());
+            assertTrue(output.toString().indexOf("org1#mod1.1;1.0") != -1);
+
+            // the second command line reuses the instance configured by the first one
+            assertEquals(0, IvyDaemon.send(daemon.getPort(), token, args, 
+                new PrintStream(output)));
+            assertEquals(1, daemon.getInstanceCount());
+
+            assertEquals(1, IvyDaemon.send(daemon.getPort(), token, new String[] {
+                    "-settings", "test/repositories/ivysettings.xml",
+                    "-ivy", "test/repositories/1/org1/mod1.1/ivys/unknown.xml"
+            }, new PrintStream(new ByteArrayOutputStream())));
+        } finally {
+            IvyDaemon.requestStop(daemon.getPort(), token);
+            server.join();
+        }
+        assertFalse(IvyDaemon.getTokenFile(tokenDir, daemon.getPort()).exists());
+    }
+
+    public void testDaemonRejectsInvalidToken() throws Exception {
+        File tokenDir = new File("build/test/daemon");
+        IvyDaemon daemon = new IvyDaemon(0, tokenDir);
+        Thread server = serve(daemon);
+        try {
+            File tokenFile = IvyDaemon.getTokenFile(tokenDir, daemon.getPort());
+            assertTrue(tokenFile.canRead());
+            try {
+                IvyDaemon.send(daemon.getPort(), "invalid", new String[] {
+                        "-settings", "test/repositories/ivysettings.xml",
+                        "-ivy", "test/repositories/1/org1/mod1.1/ivys/ivy-1.0.xml"
+                }, new PrintStream(new ByteArrayOutputStream()));
+                fail("a command line with an invalid token should be rejected");
+            } catch (IOException e) {
+                assertTrue(e.getMessage(), e.getMessage().indexOf("invalid token") != -1);
+            }
+            try {
+                IvyDaemon.requestStop(daemon.getPort(), "invalid");
+                fail("a stop request with an invalid token should be rejected");
+            } catch (IOException e) {
+                assertTrue(e.getMessage(), e.getMessage().indexOf("invalid token") != -1);
+            }
+            assertEquals(0, daemon.getInstanceCount());
+            assertTrue(server.isAlive());
+        } finally {
+            IvyDaemon.requestStop(daemon.getPort(), daemon.getToken());
+            server.join();
+        }
+    }
+
+    public void testDaemonCredentialsAreScopedToTheCommandLine() throws Exception {
+        File tokenDir = new File("build/test/daemon");
+        IvyDaemon daemon = new IvyDaemon(0, tokenDir);
+        Thread server = serve(daemon);
+        try {
+            assertEquals(0, IvyDaemon.send(daemon.getPort(), daemon.getToken(), new String[] {
+                    "-settings", "test/repositories/ivysettings.xml",
+                    "-ivy", "test/repositories/1/org1/mod1.1/ivys/ivy-1.0.xml",
+                    "-realm", "daemon-realm", "-host", "daemon-host",
+                    "-username", "user", "-passwd", "secret"
+            }, new PrintStream(new ByteArrayOutputStream())));
+            assertNull(CredentialsStore.INSTANCE.getCredentials("daemon-realm", "daemon-host"));
+            assertFalse(CredentialsStore.INSTANCE.hasCredentials("daemon-host"));
+        } finally {
+            IvyDaemon.requestStop(daemon.getPort(), daemon.getToken());
+            server.join();
+        }
+    }
+
+    public void testDaemonDoesNotAuthenticateAClientWithTheCredentialsOfAnother()
+            throws Exception {
+        File dir = new File("build/test/daemon-http");
+        BasicAuthHttpServer http = new BasicAuthHttpServer(new File("."), "user", "secret");
+        File tokenDir = new File("build/test/daemon");
+        IvyDaemon daemon = new IvyDaemon(0, tokenDir);
+        Thread server = serve(daemon);
+        try {
+            String repo = http.getURL("test/repositories/1/[organisation]/[module]");
+            write(new File(dir, "protected.xml"), "<ivysettings>"
+                    + "<settings defaultResolver=\"http\"/>"
+                    + "<resolvers><url name=\"http\">"
+                    + "<ivy pattern=\"" + repo + "/ivys/ivy-[revision].xml\"/>"
+                    + "<artifact pattern=\"" + repo + "/[type]s/[artifact]-[revision].[ext]\"/>"
+                    + "</url></resolvers></ivysettings>");
+            write(new File(dir, "including.xml"), "<ivysettings><include url=\""
+                    + http.getURL("build/test/daemon-http/protected.xml") + "\"/></ivysettings>");
+
+            // the credentials are required to load the settings, before resolving
+            assertEquals(0, IvyDaemon.send(daemon.getPort(), daemon.getToken(), new String[] {
+                    "-settings", new File(dir, "including.xml").getPath(),
+                    "-cache", new File(dir, "cache1").getPath(),
+                    "-ivy", "test/repositories/1/org1/mod1.1/ivys/ivy-1.0.xml",
+                    "-realm", BasicAuthHttpServer.REALM, "-host", BasicAuthHttpServer.HOST,
+                    "-username", "user", "-passwd", "secret"
+            }, new PrintStream(new ByteArrayOutputStream())));
+            int authenticatedRequests = http.getAuthenticatedRequestCount();
+            assertTrue(authenticatedRequests > 0);
+
+            assertEquals(1, IvyDaemon.send(daemon.getPort(), daemon.getToken(), new String[] {
+                    "-settings", new File(dir, "protected.xml").getPath(),
+                    "-cache", new File(dir, "cache2").getPath(),
+                    "-ivy", "test/repositories/1/org1/mod1.1/ivys/ivy-1.0.xml"
+            }, new PrintStream(new ByteArrayOutputStream())));
+            assertEquals(authenticatedRequests, http.getAuthenticatedRequestCount());
+        } finally {
+            IvyDaemon.requestStop(daemon.getPort(), daemon.getToken());
+            server.join();
+            http.stop();
+            CacheCleaner.deleteDir(dir);
+        }
+    }
+
+    private static void write(File file, String content) throws IOException {
+        FileUtil.copy(new ByteArrayInputStream(content.getBytes("UTF-8")), file, null);
+    }
+
+    private static Thread serve(final IvyDaemon daemon) {
+        Thread server = new Thread(new Runnable() {
+            public void run() {
+                try {
+                    daemon.serve();
+                } catch (IOException e) {
+                    // the test will fail when sending command lines
+                }
+            }
+        });
+        server.start();
+        return server;
+    }
+
     public void testResolveSimpleWithConfs() throws Exception {
         run(new String[] {
                 "-settings", "test/repositories/ivysettings.xml",
@@ -25,7 +25,9 @@ import junit.framework.TestCase;
 import org.apache.ivy.Ivy;
 import org.apache.ivy.TestHelper;
 import org.apache.ivy.core.module.id.ModuleRevisionId;
+import org.apache.ivy.core.report.ResolveMetrics;
 import org.apache.ivy.core.report.ResolveReport;
+import org.apache.ivy.util.FileUtil;
 import org.apache.tools.ant.BuildException;
 import org.apache.tools.ant.Project;
 import org.apache.tools.ant.taskdefs.Delete;
@@ -93,6 +95,39 @@ public class IvyResolveTest extends TestCase {
         assertTrue(getArchiveFileInCache("org1", "mod1.2", "2.0", "mod1.2", "jar", "jar").exists());
     }
     
+    public void testMetrics() throws Exception {
+        // depends on org="org1" name="mod1.2" rev="2.0"
+        File metricsFile = new File(cache, "metrics.json");
+        resolve.setFile(new File("test/java/org/apache/ivy/ant/ivy-simple.xml"));
+        resolve.setMetricsFile(metricsFile);
+        resolve.setMetricsProperty("metrics");
+        resolve.execute();
+
+        ResolveMetrics metrics = resolve.getMetrics();
+        assertNotNull(metrics);
+        // the chain and its resolvers each look in the cache
+        assertTrue(metrics.getCount(ResolveMetrics.CACHE_METADATA_MISS) > 0);
+        assertEquals(0, metrics.getCount(ResolveMetrics.CACHE_METADATA_HIT));
+        assertEquals(1, metrics.getCount(ResolveMetrics.CACHE_ARTIFACT_MISS));
+        assertTrue(metrics.getResolverTimes().containsKey("test"));
+        assertEquals("1", resolve.getProject().getProperty("metrics.cache.artifact.miss"));
+        assertNotNull(resolve.getProject().getProperty("metrics.phase.metadata"));
+
+        String json = FileUtil.readEntirely(metricsFile);
+        assertTrue(json, json.indexOf("\"cache.artifact.miss\": 1") != -1);
+        File xmlReport = getIvy().getResolutionCacheManager()
+                .getConfigurationResolveReportInCache("apache-resolve-simple", "default");
+        String xml = FileUtil.readEntirely(xmlReport);
+        assertTrue(xml.indexOf("<counter name=\"cache.artifact.miss\" value=\"1\"/>") != -1);
+
+        // everything is in the cache the second time
+        resolve.execute();
+        metrics = resolve.getMetrics();
+        assertTrue(metrics.getCount(ResolveMetrics.CACHE_METADATA_HIT) > 0);
+        assertEquals(1, metrics.getCount(ResolveMetrics.CACHE_ARTIFACT_HIT));
+        assertEquals(0, metrics.getCount(ResolveMetrics.CACHE_ARTIFACT_MISS));
+    }
+
     public void testResolveWithoutIvyFile() throws Exception {
         // IVY-630
         resolve.getProject().setProperty("ivy.settings.file", "test/repositories/IVY-630/ivysettings.xml");
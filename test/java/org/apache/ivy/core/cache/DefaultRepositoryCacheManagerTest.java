@@ -72,6 +72,39 @@ public class DefaultRepositoryCacheManagerTest extends TestCase {
         assertTrue(ArtifactOrigin.isUnknown(found));
     }
 
+    public void testNotFound() throws Exception {
+        ModuleRevisionId mrid = artifact.getModuleRevisionId();
+        cacheManager.saveModuleNotFound("resolver", mrid);
+        cacheManager.saveArtifactNotFound("resolver", artifact);
+        // the not found cache is disabled by default
+        assertFalse(cacheManager.isModuleNotFound("resolver", mrid));
+        assertFalse(cacheManager.isArtifactNotFound("resolver", artifact));
+
+        cacheManager.setNotFoundTTL("1h");
+        cacheManager.saveModuleNotFound("resolver", mrid);
+        cacheManager.saveArtifactNotFound("resolver", artifact);
+        assertTrue(cacheManager.isModuleNotFound("resolver", mrid));
+        assertTrue(cacheManager.isArtifactNotFound("resolver", artifact));
+        assertFalse(cacheManager.isModuleNotFound("other", mrid));
+        assertFalse(cacheManager.isArtifactNotFound("resolver", 
+            createArtifact("org", "module", "rev", "name", "type2", "ext")));
+
+        // publishing with another resolver does not change what this one found
+        cacheManager.clearNotFound("other", mrid);
+        assertTrue(cacheManager.isModuleNotFound("resolver", mrid));
+
+        cacheManager.clearNotFound("resolver", mrid);
+        assertFalse(cacheManager.isModuleNotFound("resolver", mrid));
+        assertFalse(cacheManager.isArtifactNotFound("resolver", artifact));
+        // other cached data is kept
+        assertEquals(origin, cacheManager.getSavedArtifactOrigin(artifact));
+
+        cacheManager.saveModuleNotFound("resolver", mrid);
+        cacheManager.setNotFoundTTL(1);
+        Thread.sleep(20);
+        assertFalse(cacheManager.isModuleNotFound("resolver", mrid));
+    }
+
     public void testUniqueness() {
         cacheManager.saveArtifactOrigin(artifact, origin);
 
@@ -0,0 +1,121 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.ivy.core.cache;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.Collections;
+
+import junit.framework.TestCase;
+
+import org.apache.ivy.core.module.descriptor.ModuleDescriptor;
+import org.apache.ivy.core.settings.IvySettings;
+import org.apache.ivy.plugins.parser.xml.XmlModuleDescriptorParser;
+import org.apache.ivy.plugins.parser.xml.XmlModuleDescriptorWriter;
+import org.apache.ivy.util.FileUtil;
+
+public class ModuleDescriptorSnapshotTest extends TestCase {
+    private IvySettings settings;
+
+    private File dir;
+
+    protected void setUp() throws Exception {
+        settings = new IvySettings();
+        dir = File.createTempFile("ivysnapshot", ".dir");
+        dir.delete();
+        dir.mkdirs();
+    }
+
+    protected void tearDown() throws Exception {
+        FileUtil.forceDelete(dir);
+    }
+
+    public void testSnapshotGivesSameDescriptor() throws Exception {
+        // conflict managers are not supported by snapshots, remove them from the full test file
+        String content = FileUtil.readEntirely(
+            new File("test/java/org/apache/ivy/plugins/parser/xml/test.xml"));
+        content = content.replaceAll("<conflict [^>]*>", "");
+        File ivyFile = new File(dir, "ivy.xml");
+        write(ivyFile, content);
+
+        ModuleDescriptor md = XmlModuleDescriptorParser.getInstance().parseDescriptor(
+            settings, ivyFile.toURI().toURL(), true);
+        File snapshot = new File(dir, "ivy.xml.compact");
+        assertTrue(ModuleDescriptorSnapshot.store(
+            snapshot, ivyFile, md, Collections.EMPTY_MAP, true));
+
+        ModuleDescriptor loaded = ModuleDescriptorSnapshot.load(snapshot, ivyFile, settings, true);
+        assertNotNull(loaded);
+        assertEquals(md.getModuleRevisionId(), loaded.getModuleRevisionId());
+        assertEquals(md.getResolvedPublicationDate(), loaded.getResolvedPublicationDate());
+        assertEquals(toXml(md, "expected.xml"), toXml(loaded, "actual.xml"));
+    }
+
+    public void testSnapshotIgnoredWhenIvyFileChanges() throws Exception {
+        File ivyFile = new File(dir, "ivy.xml");
+        write(ivyFile, "<ivy-module version=\"2.0\"><info organisation=\"org\" module=\"mod\" "
+            + "revision=\"1.0\"/></ivy-module>");
+        ModuleDescriptor md = XmlModuleDescriptorParser.getInstance().parseDescriptor(
+            settings, ivyFile.toURI().toURL(), false);
+        File snapshot = new File(dir, "ivy.xml.compact");
+        assertTrue(ModuleDescriptorSnapshot.store(
+            snapshot, ivyFile, md, Collections.EMPTY_MAP, false));
+        assertNotNull(ModuleDescriptorSnapshot.load(snapshot, ivyFile, settings, false));
+
+        // not validated when stored
+        assertNull(ModuleDescriptorSnapshot.load(snapshot, ivyFile, settings, true));
+
+        ivyFile.setLastModified(ivyFile.lastModified() - 10000);
+        assertNull(ModuleDescriptorSnapshot.load(snapshot, ivyFile, settings, false));
+    }
+
+    public void testSnapshotIgnoredWhenVariableChanges() throws Exception {
+        settings.setVariable("myrev", "1.0");
+        File ivyFile = new File(dir, "ivy.xml");
+        write(ivyFile, "<ivy-module version=\"2.0\"><info organisation=\"org\" module=\"mod\" "
+            + "revision=\"${myrev}\"/></ivy-module>");
+        ParserSettingsMonitor monitor = new ParserSettingsMonitor(settings);
+        ModuleDescriptor md = XmlModuleDescriptorParser.getInstance().parseDescriptor(
+            monitor.getMonitoredSettings(), ivyFile.toURI().toURL(), false);
+        File snapshot = new File(dir, "ivy.xml.compact");
+        assertTrue(ModuleDescriptorSnapshot.store(
+            snapshot, ivyFile, md, monitor.getSubstitutes(), false));
+
+        assertEquals("1.0", ModuleDescriptorSnapshot.load(snapshot, ivyFile, settings, false)
+                .getRevision());
+
+        settings.setVariable("myrev", "2.0");
+        assertNull(ModuleDescriptorSnapshot.load(snapshot, ivyFile, settings, false));
+    }
+
+    private String toXml(ModuleDescriptor md, String name) throws IOException {
+        File f = new File(dir, name);
+        XmlModuleDescriptorWriter.write(md, f);
+        return FileUtil.readEntirely(f);
+    }
+
+    private void write(File f, String content) throws IOException {
+        FileWriter writer = new FileWriter(f);
+        try {
+            writer.write(content);
+        } finally {
+            writer.close();
+        }
+    }
+}
@@ -21,11 +21,19 @@ import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileReader;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
 
 import junit.framework.TestCase;
 
+import org.apache.ivy.Ivy;
 import org.apache.ivy.ant.IvyDeliver;
 import org.apache.ivy.ant.IvyResolve;
+import org.apache.ivy.core.module.descriptor.ModuleDescriptor;
+import org.apache.ivy.core.module.id.ModuleRevisionId;
+import org.apache.ivy.core.resolve.ResolveOptions;
 import org.apache.ivy.util.FileUtil;
 import org.apache.tools.ant.Project;
 
@@ -76,6 +84,54 @@ public class DeliverTest extends TestCase {
         assertTrue(deliverContent.indexOf("name=\"b\" rev=\"1.5\"") >= 0);
     }
 
+    public void testDeliverSeveralModules() throws Exception {
+        Ivy ivy = Ivy.newInstance();
+        ivy.configure(new File("test/repositories/ivysettings.xml"));
+        String[] files = new String[] {"ivy-latest.xml", "ivy-simple.xml", "ivy-simple2.xml"};
+        Collection mrids = new ArrayList();
+        for (int i = 0; i < files.length; i++) {
+            File ivyFile = new File("test/java/org/apache/ivy/ant/" + files[i]);
+            mrids.add(ivy.resolve(ivyFile.toURI().toURL(), new ResolveOptions())
+                    .getModuleDescriptor().getModuleRevisionId());
+        }
+
+        final int[] calls = new int[1];
+        final PublishingDependencyRevisionResolver pdrResolver = 
+            new PublishingDependencyRevisionResolver() {
+                public String resolve(ModuleDescriptor published, String publishedStatus,
+                        ModuleRevisionId depMrid, String status) {
+                    synchronized (calls) {
+                        calls[0]++;
+                    }
+                    return depMrid.getRevision();
+                }
+            };
+        DeliverOptions options = DeliverOptions.newInstance(ivy.getSettings()).setThreads(2);
+        options.setPdrResolver(pdrResolver);
+        Map delivered = ivy.deliver(mrids, "3.0",
+            deliverDir.getAbsolutePath() + "/[module]-[revision].xml", options);
+
+        assertEquals(new ArrayList(mrids), new ArrayList(delivered.keySet()));
+        for (Iterator it = delivered.values().iterator(); it.hasNext();) {
+            File ivyFile = (File) it.next();
+            assertTrue(ivyFile.exists());
+            assertTrue(ivyFile.getName().endsWith("-3.0.xml"));
+        }
+        assertTrue(readFile(deliverDir.getAbsolutePath() + "/resolve-latest-3.0.xml")
+                .indexOf("name=\"mod1.2\" rev=\"2.2\"") >= 0);
+        assertTrue(readFile(deliverDir.getAbsolutePath() + "/resolve-simple2-3.0.xml")
+                .indexOf("name=\"mod1.2\" rev=\"2.1\"") >= 0);
+        assertEquals(3, calls[0]);
+
+        // the revisions are resolved once, whatever the module being delivered
+        PublishingDependencyRevisionResolver caching = new CachingPublishingDRResolver(
+                pdrResolver);
+        ModuleRevisionId dep = ModuleRevisionId.newInstance("org1", "mod1.2", "2.0");
+        assertEquals("2.0", caching.resolve(null, "release", dep, "release"));
+        assertEquals("2.0", caching.resolve(null, "release", dep, "release"));
+        assertEquals(4, calls[0]);
+    }
+
     private void resolve(File ivyFile) {
         IvyResolve ivyResolve = new IvyResolve();
         ivyResolve.setProject(ivyDeliver.getProject());
@@ -18,6 +18,8 @@
 package org.apache.ivy.core.install;
 
 import java.io.File;
+import java.io.FileWriter;
+import java.util.Arrays;
 
 import junit.framework.TestCase;
 
@@ -161,6 +163,99 @@ public class InstallTest extends TestCase {
         assertTrue(new File("build/test/install/org1/mod1.4/ivy-1.0.1.xml").exists());
     }
 
+    public void testBulkInstall() throws Exception {
+        Ivy ivy = Ivy.newInstance();
+        ivy.configure(new File("test/repositories/ivysettings.xml"));
+
+        BulkInstallReport report = ivy.bulkInstall(ModuleRevisionId.newInstance("org1", "mod1.1",
+            "\\d\\.\\d"), "1", "install",
+            new InstallOptions().setMatcherName(PatternMatcher.REGEXP));
+
+        assertFalse(report.getFailures().toString(), report.hasError());
+        assertEquals(3, report.getInstalled().size());
+        assertTrue(new File("build/test/install/org1/mod1.1/ivy-1.0.xml").exists());
+        assertTrue(new File("build/test/install/org1/mod1.1/mod1.1-1.0.jar").exists());
+        assertTrue(new File("build/test/install/org1/mod1.1/ivy-1.1.xml").exists());
+        assertTrue(new File("build/test/install/org1/mod1.1/mod1.1-1.1.jar").exists());
+        assertTrue(new File("build/test/install/org1/mod1.1/ivy-2.0.xml").exists());
+        assertTrue(new File("build/test/install/org1/mod1.1/mod1.1-2.0.jar").exists());
+
+        // everything is already installed
+        report = ivy.bulkInstall(ModuleRevisionId.newInstance("org1", "mod1.1", "\\d\\.\\d"),
+            "1", "install", new InstallOptions().setMatcherName(PatternMatcher.REGEXP));
+        assertFalse(report.hasError());
+        assertEquals(0, report.getInstalled().size());
+        assertEquals(3, report.getUpToDate().size());
+    }
+
+    public void testBulkInstallTransactional() throws Exception {
+        Ivy ivy = Ivy.newInstance();
+        ivy.configure(new File("test/repositories/ivysettings.xml"));
+
+        // the transactional resolver publishes each module in its own [revision] directory, with a
+        // transaction which is only valid for one module at a time
+        BulkInstallReport report = ivy.bulkInstall(ModuleRevisionId.newInstance("org1", "mod1.1",
+            "\\d\\.\\d"), "1", "transactional",
+            new InstallOptions().setMatcherName(PatternMatcher.REGEXP).setThreads(3));
+
+        assertFalse(report.getFailures().toString(), report.hasError());
+        assertEquals(3, report.getInstalled().size());
+        String[] revisions = new String[] {"1.0", "1.1", "2.0"};
+        for (int i = 0; i < revisions.length; i++) {
+            File dir = new File("build/test/transactional/org1/mod1.1/" + revisions[i]);
+            assertTrue(new File(dir, "ivy-" + revisions[i] + ".xml").exists());
+            assertTrue(new File(dir, "mod1.1-" + revisions[i] + ".jar").exists());
+        }
+        String[] files = new File("build/test/transactional/org1/mod1.1").list();
+        Arrays.sort(files);
+        assertEquals("temporary transaction directories left: " + Arrays.asList(files),
+            Arrays.asList(revisions), Arrays.asList(files));
+    }
+
+    public void testBulkInstallFailure() throws Exception {
+        Ivy ivy = Ivy.newInstance();
+        ivy.configure(new File("test/repositories/ivysettings.xml"));
+
+        // the jar of mod1.1 1.0.1 is missing, the other revisions are installed anyway
+        BulkInstallReport report = ivy.bulkInstall(ModuleRevisionId.newInstance("org1", "mod1.1",
+            "*"), "1", "install", new InstallOptions().setMatcherName(PatternMatcher.GLOB));
+
+        assertTrue(report.hasError());
+        assertEquals(1, report.getFailures().size());
+        assertTrue(report.getFailures().containsKey(
+            ModuleRevisionId.newInstance("org1", "mod1.1", "1.0.1")));
+        assertEquals(3, report.getInstalled().size());
+        assertTrue(new File("build/test/install/org1/mod1.1/mod1.1-1.0.jar").exists());
+        assertTrue(new File("build/test/install/org1/mod1.1/mod1.1-2.0.jar").exists());
+        assertFalse(new File("build/test/install/org1/mod1.1/ivy-1.0.1.xml").exists());
+        // not transitive
+        assertFalse(new File("build/test/install/org1/mod1.2").exists());
+    }
+
+    public void testBulkInstallResume() throws Exception {
+        Ivy ivy = Ivy.newInstance();
+        ivy.configure(new File("test/repositories/ivysettings.xml"));
+
+        File checkpoint = new File("build/test/install/checkpoint");
+        checkpoint.getParentFile().mkdirs();
+        FileWriter writer = new FileWriter(checkpoint);
+        writer.write(ModuleRevisionId.newInstance("org1", "mod1.1", "1.0").encodeToString());
+        writer.write("\n");
+        writer.close();
+
+        BulkInstallReport report = ivy.bulkInstall(ModuleRevisionId.newInstance("org1", "mod1.1",
+            "\\d\\.\\d"), "1", "install",
+            new InstallOptions().setMatcherName(PatternMatcher.REGEXP)
+                .setThreads(1).setCheckpoint(checkpoint));
+
+        assertFalse(report.hasError());
+        assertEquals(1, report.getResumed().size());
+        assertEquals(2, report.getInstalled().size());
+        assertFalse(new File("build/test/install/org1/mod1.1/ivy-1.0.xml").exists());
+        assertTrue(new File("build/test/install/org1/mod1.1/ivy-1.1.xml").exists());
+        assertFalse("checkpoint not deleted after a complete install", checkpoint.exists());
+    }
+
     private File _cache;
 
     protected void setUp() throws Exception {
@@ -189,5 +284,10 @@ public class InstallTest extends TestCase {
         del.setProject(new Project());
         del.setDir(new File("build/test/install"));
         del.execute();
+
+        del = new Delete();
+        del.setProject(new Project());
+        del.setDir(new File("build/test/transactional"));
+        del.execute();
     }
 }
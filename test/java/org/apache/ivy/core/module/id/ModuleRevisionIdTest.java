@@ -74,4 +74,33 @@ public class ModuleRevisionIdTest extends TestCase {
     private void testParse(String mrid) {
         assertEquals(mrid.trim(), ModuleRevisionId.parse(mrid).toString());
     }
+
+    public void testInternConcurrently() throws Exception {
+        final int count = 200;
+        final ModuleRevisionId[][] interned = new ModuleRevisionId[4][count];
+        Thread[] threads = new Thread[interned.length];
+        for (int t = 0; t < threads.length; t++) {
+            final ModuleRevisionId[] mrids = interned[t];
+            threads[t] = new Thread() {
+                public void run() {
+                    for (int i = 0; i < count; i++) {
+                        mrids[i] = ModuleRevisionId.newInstance("org.intern", "mod" + i, "1.0");
+                    }
+                }
+            };
+            threads[t].start();
+        }
+        for (int t = 0; t < threads.length; t++) {
+            threads[t].join();
+        }
+        for (int i = 0; i < count; i++) {
+            for (int t = 1; t < threads.length; t++) {
+                assertSame(interned[0][i], interned[t][i]);
+            }
+            assertSame(interned[0][i], ModuleRevisionId.intern(new ModuleRevisionId(ModuleId
+                    .newInstance("org.intern", "mod" + i), "1.0")));
+        }
+        assertTrue(ModuleRevisionId.getInterner().size() >= count);
+        assertTrue(ModuleRevisionId.getInterner().getHitCount() >= count * threads.length);
+    }
 }
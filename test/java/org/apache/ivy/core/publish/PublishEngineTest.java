@@ -20,14 +20,20 @@ package org.apache.ivy.core.publish;
 import java.io.File;
 import java.io.IOException;
 import java.text.ParseException;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 
 import junit.framework.TestCase;
 
 import org.apache.ivy.core.event.EventManager;
+import org.apache.ivy.core.event.IvyEvent;
+import org.apache.ivy.core.event.IvyListener;
+import org.apache.ivy.core.event.publish.EndArtifactPublishEvent;
 import org.apache.ivy.core.module.descriptor.Artifact;
 import org.apache.ivy.core.module.descriptor.DefaultDependencyDescriptor;
 import org.apache.ivy.core.module.descriptor.DefaultModuleDescriptor;
+import org.apache.ivy.core.module.descriptor.MDArtifact;
 import org.apache.ivy.core.module.id.ModuleRevisionId;
 import org.apache.ivy.core.resolve.ResolveData;
 import org.apache.ivy.core.resolve.ResolveEngine;
@@ -111,6 +117,126 @@ public class PublishEngineTest extends TestCase {
         }
         resolveAndAssertFound(settings, resolver, "#A;1.0");
     }
+
+    public void testConcurrentPublish() throws Exception {
+        IvySettings settings = new IvySettings();
+        EventManager eventManager = new EventManager();
+        final List durations = new ArrayList();
+        eventManager.addIvyListener(new IvyListener() {
+            public void progress(IvyEvent event) {
+                if (event instanceof EndArtifactPublishEvent) {
+                    synchronized (durations) {
+                        durations.add(event.getAttributes().get("duration"));
+                    }
+                }
+            }
+        });
+        PublishEngine engine = new PublishEngine(settings, eventManager);
+        DefaultModuleDescriptor md = newModuleWithArtifacts(new String[] {"B", "C", "D", "E"});
+        ConcurrentResolver resolver = newConcurrentResolver(settings, null);
+
+        engine.publish(md, 
+            Arrays.asList(new String[] {"build/test/publish/module/[artifact].[ext]"}), 
+            resolver, 
+            new PublishOptions().setSrcIvyPattern("build/test/publish/module/[artifact].[ext]")
+                .setThreads(3));
+
+        assertEquals(6, resolver.published.size());
+        assertEquals("ivy", resolver.published.get(5));
+        assertTrue("artifacts not published concurrently", resolver.maxConcurrent > 1);
+        assertTrue(resolver.maxConcurrent <= 3);
+        assertEquals(6, durations.size());
+        assertFalse(durations.contains(null));
+        resolveAndAssertFound(settings, resolver, "#A;1.0");
+    }
+
+    public void testConcurrentPublishFailure() throws Exception {
+        IvySettings settings = new IvySettings();
+        PublishEngine engine = new PublishEngine(settings, new EventManager());
+        DefaultModuleDescriptor md = newModuleWithArtifacts(new String[] {"B", "C", "D", "E"});
+        ConcurrentResolver resolver = newConcurrentResolver(settings, "C");
+
+        try {
+            engine.publish(md, 
+                Arrays.asList(new String[] {"build/test/publish/module/[artifact].[ext]"}), 
+                resolver, 
+                new PublishOptions().setSrcIvyPattern("build/test/publish/module/[artifact].[ext]")
+                    .setThreads(3));
+            fail("publish should have failed");
+        } catch (IOException e) {
+            assertEquals("publish of C failed", e.getMessage());
+        }
+        assertFalse("ivy file published despite the failure", resolver.published.contains("ivy"));
+        assertEquals(0, resolver.running);
+        resolveAndAssertNotFound(settings, resolver, "#A;1.0", "after failed publish");
+        assertFalse(new File("build/test/publish/repo/A/1.0").exists());
+    }
+
+    private DefaultModuleDescriptor newModuleWithArtifacts(String[] names) throws IOException {
+        DefaultModuleDescriptor md = DefaultModuleDescriptor
+            .newDefaultInstance(ModuleRevisionId.parse("#A;1.0"));
+        FileUtil.copy(
+            new File("test/repositories/1/org1/mod1.1/jars/mod1.1-1.0.jar"), 
+            new File("build/test/publish/module/A.jar"), null);
+        for (int i = 0; i < names.length; i++) {
+            md.addArtifact("default", new MDArtifact(md, names[i], "jar", "jar"));
+            FileUtil.copy(
+                new File("test/repositories/1/org1/mod1.1/jars/mod1.1-1.0.jar"), 
+                new File("build/test/publish/module/" + names[i] + ".jar"), null);
+        }
+        XmlModuleDescriptorWriter.write(md, new File("build/test/publish/module/ivy.xml"));
+        return md;
+    }
+
+    private ConcurrentResolver newConcurrentResolver(IvySettings settings, String failing) {
+        ConcurrentResolver resolver = new ConcurrentResolver(failing);
+        resolver.setName("test");
+        resolver.setSettings(settings);
+        String publishRepoDir = new File("build/test/publish/repo").getAbsolutePath();
+        resolver.addIvyPattern(publishRepoDir + "/[module]/[revision]/[artifact].[ext]");
+        resolver.addArtifactPattern(publishRepoDir + "/[module]/[revision]/[artifact].[ext]");
+        return resolver;
+    }
+
+    /**
+     * A resolver recording the artifacts it publishes, and how many are published at the same
+     * time.
+     */
+    private class ConcurrentResolver extends FileSystemResolver {
+        private final String failing;
+
+        private final List published = new ArrayList();
+
+        private int running = 0;
+
+        private int maxConcurrent = 0;
+
+        ConcurrentResolver(String failing) {
+            this.failing = failing;
+        }
+
+        public void publish(Artifact artifact, File src, boolean overwrite) throws IOException {
+            synchronized (this) {
+                running++;
+                maxConcurrent = Math.max(maxConcurrent, running);
+            }
+            try {
+                sleepSilently(100);
+                if (artifact.getName().equals(failing)) {
+                    throw new IOException("publish of " + failing + " failed");
+                }
+                super.publish(artifact, src, overwrite);
+                synchronized (this) {
+                    published.add(artifact.getName());
+                }
+            } finally {
+                synchronized (this) {
+                    running--;
+                }
+            }
+        }
+    }
+
     private void resolveAndAssertNotFound(
             IvySettings settings, FileSystemResolver resolver, String module, String context)
             throws ParseException {
@@ -0,0 +1,126 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.ivy.core.resolve;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+public class ConfigurationMapTest extends TestCase {
+    private ConfigurationIds ids = new ConfigurationIds();
+
+    public void testPut() {
+        ConfigurationMap map = new ConfigurationMap(ids);
+        assertTrue(map.isEmpty());
+        assertNull(map.put("compile", "1"));
+        assertNull(map.put("runtime", "2"));
+        assertEquals("1", map.put("compile", "3"));
+        assertEquals(2, map.size());
+        assertEquals("3", map.get("compile"));
+        assertEquals("2", map.get("runtime"));
+        assertNull(map.get("test"));
+        assertNull(map.get(null));
+        assertTrue(map.containsKey("runtime"));
+        assertFalse(map.containsKey("test"));
+    }
+
+    public void testRemove() {
+        ConfigurationMap map = new ConfigurationMap(ids);
+        map.put("compile", "1");
+        map.put("runtime", "2");
+        map.put("test", "3");
+        assertEquals("2", map.remove("runtime"));
+        assertNull(map.remove("runtime"));
+        assertNull(map.remove("unknown"));
+        assertEquals(2, map.size());
+        assertEquals("1", map.get("compile"));
+        assertEquals("3", map.get("test"));
+        map.clear();
+        assertTrue(map.isEmpty());
+        assertNull(map.get("compile"));
+    }
+
+    public void testIteration() {
+        ConfigurationMap map = new ConfigurationMap(ids);
+        map.put("test", "1");
+        map.put("compile", "2");
+        map.put("runtime", "3");
+        // the configurations are iterated in the order they have been interned
+        assertEquals(Arrays.asList(new String[] {"test", "compile", "runtime"}), new ArrayList(
+                map.keySet()));
+        assertEquals(Arrays.asList(new String[] {"1", "2", "3"}), new ArrayList(map.values()));
+
+        Iterator it = map.entrySet().iterator();
+        Map.Entry entry = (Map.Entry) it.next();
+        assertEquals("test", entry.getKey());
+        assertEquals("1", entry.setValue("4"));
+        assertEquals("4", map.get("test"));
+        entry = (Map.Entry) it.next();
+        it.remove();
+        try {
+            it.remove();
+            fail("remove twice should fail");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+        assertEquals("runtime", ((Map.Entry) it.next()).getKey());
+        assertFalse(it.hasNext());
+        assertFalse(map.containsKey("compile"));
+        assertEquals(2, map.size());
+    }
+
+    public void testEquality() {
+        ConfigurationMap map = new ConfigurationMap(ids);
+        map.put("compile", "1");
+        map.put("runtime", "2");
+        Map hashMap = new HashMap();
+        hashMap.put("runtime", "2");
+        hashMap.put("compile", "1");
+        assertEquals(hashMap, map);
+        assertEquals(map, hashMap);
+        assertEquals(hashMap.hashCode(), map.hashCode());
+        assertEquals(hashMap.entrySet(), map.entrySet());
+
+        ConfigurationMap other = new ConfigurationMap(new ConfigurationIds());
+        other.put("runtime", "2");
+        other.put("compile", "1");
+        assertEquals(map, other);
+        other.put("compile", "3");
+        assertFalse(map.equals(other));
+    }
+
+    public void testManyConfigurations() {
+        ConfigurationMap map = new ConfigurationMap(ids);
+        for (int i = 199; i >= 0; i--) {
+            map.put("conf" + i, new Integer(i));
+        }
+        assertEquals(200, map.size());
+        for (int i = 0; i < 200; i++) {
+            assertEquals(new Integer(i), map.get("conf" + i));
+        }
+        assertEquals(new Integer(150), map.remove("conf150"));
+        assertFalse(map.containsKey("conf150"));
+        assertEquals(new Integer(151), map.get("conf151"));
+        assertEquals(199, map.size());
+        assertEquals(200, ids.size());
+    }
+}
@@ -0,0 +1,151 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.ivy.core.resolve;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+import junit.framework.TestCase;
+
+import org.apache.ivy.core.settings.IvySettings;
+
+public class ConfigurationSetTest extends TestCase {
+    private ConfigurationIds ids = new ConfigurationIds();
+
+    public void testAdd() {
+        ConfigurationSet set = new ConfigurationSet(ids);
+        assertTrue(set.isEmpty());
+        assertTrue(set.add("compile"));
+        assertTrue(set.add("runtime"));
+        assertFalse(set.add("compile"));
+        assertEquals(2, set.size());
+        assertTrue(set.contains("compile"));
+        assertTrue(set.contains("runtime"));
+        assertFalse(set.contains("test"));
+        assertFalse(set.contains(null));
+        assertFalse(set.contains(new Integer(0)));
+    }
+
+    public void testRemove() {
+        ConfigurationSet set = new ConfigurationSet(ids, Arrays.asList(new String[] {"compile",
+                "runtime", "test"}));
+        assertTrue(set.remove("runtime"));
+        assertFalse(set.remove("runtime"));
+        assertFalse(set.remove("unknown"));
+        assertEquals(new HashSet(Arrays.asList(new String[] {"compile", "test"})), set);
+
+        assertTrue(set.removeAll(Arrays.asList(new String[] {"test", "unknown"})));
+        assertEquals(1, set.size());
+        set.clear();
+        assertTrue(set.isEmpty());
+    }
+
+    public void testIteration() {
+        ConfigurationSet set = new ConfigurationSet(ids);
+        set.add("test");
+        set.add("compile");
+        set.add("runtime");
+        // the configurations are iterated in the order they have been interned
+        assertEquals(Arrays.asList(new String[] {"test", "compile", "runtime"}), new ArrayList(
+                set));
+
+        Iterator it = set.iterator();
+        try {
+            it.remove();
+            fail("remove before next should fail");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+        assertEquals("test", it.next());
+        it.remove();
+        assertEquals("compile", it.next());
+        assertEquals("runtime", it.next());
+        assertFalse(it.hasNext());
+        assertEquals(Arrays.asList(new String[] {"compile", "runtime"}), new ArrayList(set));
+    }
+
+    public void testEquality() {
+        ConfigurationSet set = new ConfigurationSet(ids, Arrays.asList(new String[] {"compile",
+                "runtime"}));
+        Set hashSet = new HashSet(Arrays.asList(new String[] {"runtime", "compile"}));
+        assertEquals(hashSet, set);
+        assertEquals(set, hashSet);
+        assertEquals(hashSet.hashCode(), set.hashCode());
+
+        ConfigurationSet other = new ConfigurationSet(new ConfigurationIds());
+        other.add("runtime");
+        other.add("compile");
+        assertEquals(set, other);
+        other.add("test");
+        assertFalse(set.equals(other));
+    }
+
+    public void testCombineSets() {
+        ConfigurationSet set = new ConfigurationSet(ids, Arrays.asList(new String[] {"a", "b"}));
+        ConfigurationSet same = new ConfigurationSet(ids, Arrays.asList(new String[] {"b", "c"}));
+        assertTrue(set.addAll(same));
+        assertFalse(set.addAll(same));
+        assertEquals(new HashSet(Arrays.asList(new String[] {"a", "b", "c"})), set);
+
+        // sets using other ids are combined by their names
+        ConfigurationIds otherIds = new ConfigurationIds();
+        otherIds.getId("z");
+        ConfigurationSet other = new ConfigurationSet(otherIds, Arrays.asList(new String[] {
+                "c", "d"}));
+        assertTrue(set.addAll(other));
+        assertEquals(new HashSet(Arrays.asList(new String[] {"a", "b", "c", "d"})), set);
+        assertTrue(set.removeAll(other));
+        assertEquals(new HashSet(Arrays.asList(new String[] {"a", "b"})), set);
+        assertTrue(set.removeAll(same));
+        assertEquals(new HashSet(Arrays.asList(new String[] {"a"})), set);
+    }
+
+    public void testManyConfigurations() {
+        ConfigurationSet set = new ConfigurationSet(ids);
+        List confs = new ArrayList();
+        for (int i = 0; i < 200; i++) {
+            confs.add("conf" + i);
+        }
+        assertTrue(set.addAll(confs));
+        assertEquals(200, set.size());
+        assertEquals(confs, new ArrayList(set));
+        assertTrue(set.contains("conf150"));
+        assertTrue(set.remove("conf150"));
+        assertFalse(set.contains("conf150"));
+        assertEquals(199, set.size());
+        assertEquals(200, ids.size());
+    }
+
+    public void testIdsAreScopedToTheResolve() {
+        ResolveData data = new ResolveData(new ResolveEngine(new IvySettings(), null, null),
+                new ResolveOptions());
+        ResolveData copy = new ResolveData(data, false);
+        assertSame(data.getConfigurationIds(), copy.getConfigurationIds());
+
+        ResolveData other = new ResolveData(new ResolveEngine(new IvySettings(), null, null),
+                new ResolveOptions());
+        assertNotSame(data.getConfigurationIds(), other.getConfigurationIds());
+        data.getConfigurationIds().getId("compile");
+        assertEquals(1, data.getConfigurationIds().size());
+        assertEquals(0, other.getConfigurationIds().size());
+    }
+}
@@ -30,6 +30,11 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import javax.xml.parsers.SAXParser;
 import javax.xml.parsers.SAXParserFactory;
@@ -275,6 +280,20 @@ public class ResolveTest extends TestCase {
         assertTrue(getArchiveFileInCache("org1", "mod1.2", "2.0", "mod1.2", "jar", "jar").exists());
     }
 
+    public void testHeapPerNode() throws Exception {
+        // mod1.1 depends on mod1.2
+        ResolveReport report = ivy.resolve(new File(
+                "test/repositories/1/org1/mod1.1/ivys/ivy-1.0.xml").toURL(),
+            getResolveOptions(new String[] {"*"}));
+        assertTrue(report.getHeapPerNode() > 0);
+
+        // estimated from the nodes, it is the same for the same graph
+        ResolveReport other = ivy.resolve(new File(
+                "test/repositories/1/org1/mod1.1/ivys/ivy-1.0.xml").toURL(),
+            getResolveOptions(new String[] {"*"}));
+        assertEquals(report.getHeapPerNode(), other.getHeapPerNode());
+    }
+
     public void testResolveBadStatus() throws Exception {
         // mod1.4 depends on modfailure, modfailure has a bad status
         ResolveReport report = ivy.resolve(new File(
@@ -284,6 +303,54 @@ public class ResolveTest extends TestCase {
         assertTrue(report.hasError());
     }
 
+    public void testConcurrentResolves() throws Exception {
+        // the same Ivy instance is used by several threads resolving modules sharing their
+        // dependencies, with fixed and dynamic revisions, and a failing one
+        final String[] ivyFiles = new String[] {
+                "test/repositories/1/org1/mod1.1/ivys/ivy-1.0.xml",
+                "test/repositories/1/org1/mod1.4/ivys/ivy-1.0.1.xml",
+                "test/repositories/1/org1/mod1.5/ivys/ivy-1.0.2.xml",
+                "test/repositories/1/org1/mod1.4/ivys/ivy-1.1.xml"};
+        final ModuleRevisionId[] expected = new ModuleRevisionId[] {
+                ModuleRevisionId.newInstance("org1", "mod1.2", "2.0"),
+                ModuleRevisionId.newInstance("org1", "mod1.2", "2.2"),
+                ModuleRevisionId.newInstance("org1", "mod1.4", "2.0"),
+                null};
+        int threads = 8;
+        int resolves = 64;
+        final CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List results = new ArrayList();
+            for (int i = 0; i < resolves; i++) {
+                final int index = i;
+                results.add(executor.submit(new Callable() {
+                    public Object call() throws Exception {
+                        start.await();
+                        return ivy.resolve(new File(ivyFiles[index % ivyFiles.length]).toURI()
+                                .toURL(), getResolveOptions(new String[] {"default"})
+                                .setResolveId("concurrent-" + index));
+                    }
+                }));
+            }
+            start.countDown();
+            for (int i = 0; i < resolves; i++) {
+                ResolveReport report = (ResolveReport) ((Future) results.get(i)).get();
+                ModuleRevisionId dependency = expected[i % expected.length];
+                if (dependency == null) {
+                    assertTrue(report.hasError());
+                    assertEquals(1, report.getUnresolvedDependencies().length);
+                } else {
+                    assertFalse(report.getAllProblemMessages().toString(), report.hasError());
+                    assertTrue(report.getConfigurationReport("default").getModuleRevisionIds()
+                            .contains(dependency));
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
     public void testResolveWithXmlEntities() throws Exception {
         Ivy ivy = new Ivy();
         Throwable th = null;
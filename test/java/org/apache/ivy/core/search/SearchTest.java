@@ -20,9 +20,11 @@ package org.apache.ivy.core.search;
 import java.io.File;
 import java.io.IOException;
 import java.text.ParseException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 
 import junit.framework.TestCase;
@@ -31,7 +33,10 @@ import org.apache.ivy.Ivy;
 import org.apache.ivy.core.IvyPatternHelper;
 import org.apache.ivy.core.module.id.ModuleRevisionId;
 import org.apache.ivy.core.settings.IvySettings;
+import org.apache.ivy.plugins.matcher.Matcher;
 import org.apache.ivy.plugins.matcher.PatternMatcher;
+import org.apache.ivy.plugins.resolver.ChainResolver;
+import org.apache.ivy.plugins.resolver.FileSystemResolver;
 import org.apache.ivy.plugins.resolver.IBiblioResolver;
 
 public class SearchTest extends TestCase {
@@ -90,4 +95,198 @@ public class SearchTest extends TestCase {
         assertTrue(qualifiedExtraAttributes.toString(), qualifiedExtraAttributes.keySet().contains("e:att1"));
         assertTrue(qualifiedExtraAttributes.toString(), qualifiedExtraAttributes.keySet().contains("e:att2"));
     }
+
+    public void testListModulesWithIndex() throws ParseException, IOException {
+        Ivy ivy = Ivy.newInstance();
+        ivy.configure(new File("test/repositories/IVY-1128/ivysettings.xml"));
+        IvySettings settings = ivy.getSettings();
+        SearchIndex index = new SearchIndex(60000);
+        ivy.getSearchEngine().setIndex(index);
+        PatternMatcher regexp = settings.getMatcher(PatternMatcher.REGEXP);
+
+        Map extendedAttributes = new HashMap();
+        extendedAttributes.put("e:att1", "extraatt");
+        extendedAttributes.put("e:att2", "extraatt2.*");
+        ModuleRevisionId criteria = ModuleRevisionId.newInstance("test", "a", "*",
+            extendedAttributes);
+        ModuleRevisionId[] mrids = ivy.listModules(criteria, regexp);
+        assertEquals(4, mrids.length);
+        assertEquals(0, index.getHitCount());
+        assertEquals(1, index.getMissCount());
+
+        // the same query is answered by the index
+        assertEquals(new HashSet(Arrays.asList(mrids)), new HashSet(Arrays.asList(ivy
+                .listModules(criteria, regexp))));
+        assertEquals(1, index.getHitCount());
+
+        // as well as a narrower one
+        extendedAttributes.put("e:att2", "extraatt2");
+        criteria = ModuleRevisionId.newInstance("test", "a", "*", extendedAttributes);
+        mrids = ivy.listModules(criteria, regexp);
+        assertEquals(2, mrids.length);
+        for (int i = 0; i < mrids.length; i++) {
+            assertEquals("extraatt2", mrids[i].getExtraAttribute("att2"));
+        }
+        assertEquals(2, index.getHitCount());
+        assertEquals(1, index.getMissCount());
+
+        // the repository is listed again once invalidated
+        ivy.getSearchEngine().invalidate("local");
+        assertEquals(2, ivy.listModules(criteria, regexp).length);
+        assertEquals(2, index.getHitCount());
+        assertEquals(2, index.getMissCount());
+    }
+
+    public void testPersistentIndex() throws ParseException, IOException {
+        Ivy ivy = Ivy.newInstance();
+        ivy.configure(new File("test/repositories/IVY-1128/ivysettings.xml"));
+        PatternMatcher regexp = ivy.getSettings().getMatcher(PatternMatcher.REGEXP);
+        File file = new File("build/test/search/search.index");
+        file.delete();
+        try {
+            SearchIndex index = new SearchIndex(60000, file);
+            ivy.getSearchEngine().setIndex(index);
+            ModuleRevisionId criteria = ModuleRevisionId.newInstance("test", "a", "*");
+            ModuleRevisionId[] mrids = ivy.listModules(criteria, regexp);
+            assertEquals(1, index.getMissCount());
+            assertTrue(file.exists());
+
+            // another index using the same file, as another process would, uses the listings
+            Ivy other = Ivy.newInstance();
+            other.configure(new File("test/repositories/IVY-1128/ivysettings.xml"));
+            SearchIndex otherIndex = new SearchIndex(60000, file);
+            other.getSearchEngine().setIndex(otherIndex);
+            assertEquals(new HashSet(Arrays.asList(mrids)), new HashSet(Arrays.asList(other
+                    .listModules(criteria, regexp))));
+            assertEquals(1, otherIndex.getHitCount());
+            assertEquals(0, otherIndex.getMissCount());
+
+            // and its invalidations are seen by the first one
+            other.getSearchEngine().invalidate("local");
+            assertEquals(mrids.length, ivy.listModules(criteria, regexp).length);
+            assertEquals(2, index.getMissCount());
+        } finally {
+            file.delete();
+        }
+    }
+
+    public void testInvalidateChain() throws ParseException, IOException {
+        Ivy ivy = Ivy.newInstance();
+        ivy.configure(new File("test/repositories/IVY-1128/ivysettings.xml"));
+        IvySettings settings = ivy.getSettings();
+        ChainResolver chain = new ChainResolver();
+        chain.setName("chain");
+        chain.add(settings.getResolver("local"));
+        settings.addResolver(chain);
+        SearchIndex index = new SearchIndex(60000);
+        ivy.getSearchEngine().setIndex(index);
+        PatternMatcher regexp = settings.getMatcher(PatternMatcher.REGEXP);
+
+        ModuleRevisionId criteria = ModuleRevisionId.newInstance("test", "a", "*");
+        int count = ivy.listModules(criteria, regexp).length;
+        assertEquals(2, index.getMissCount());
+        assertEquals(count, ivy.listModules(criteria, regexp).length);
+        assertEquals(2, index.getMissCount());
+
+        // publishing to a member of the chain invalidates the chain too
+        ivy.getSearchEngine().invalidate("local");
+        assertEquals(count, ivy.listModules(criteria, regexp).length);
+        assertEquals(4, index.getMissCount());
+    }
+
+    public void testInvalidateBeforeSearching() throws ParseException, IOException {
+        File file = new File("build/test/search/search.index");
+        file.delete();
+        try {
+            Ivy ivy = newIvyWithIndex(file);
+            PatternMatcher regexp = ivy.getSettings().getMatcher(PatternMatcher.REGEXP);
+            ModuleRevisionId criteria = ModuleRevisionId.newInstance("test", "a", "*");
+            ivy.listModules(criteria, regexp);
+            SearchIndex index = ivy.getSearchEngine().getIndex();
+            assertEquals(1, index.getMissCount());
+
+            // a process publishing without searching first invalidates the index too
+            newIvyWithIndex(file).getSearchEngine().invalidate("local");
+            ivy.listModules(criteria, regexp);
+            assertEquals(2, index.getMissCount());
+        } finally {
+            file.delete();
+        }
+    }
+
+    public void testIndexFileSharedByDifferentRepositories() throws ParseException, IOException {
+        File file = new File("build/test/search/search.index");
+        file.delete();
+        try {
+            Ivy ivy = newIvyWithIndex(file);
+            PatternMatcher regexp = ivy.getSettings().getMatcher(PatternMatcher.REGEXP);
+            ModuleRevisionId criteria = ModuleRevisionId.newInstance("test", "a", "*");
+            assertTrue(ivy.listModules(criteria, regexp).length > 0);
+
+            // other settings giving the same name to another repository do not use the listing
+            Ivy other = Ivy.newInstance();
+            other.getSettings().setVariable(SearchEngine.INDEX_TTL_VARIABLE, "1h");
+            other.getSettings().setVariable(SearchEngine.INDEX_FILE_VARIABLE,
+                file.getAbsolutePath());
+            FileSystemResolver local = new FileSystemResolver();
+            local.setName("local");
+            local.addIvyPattern(new File("test/repositories/1").getAbsolutePath()
+                    + "/[organisation]/[module]/ivys/ivy-[revision].xml");
+            other.getSettings().addResolver(local);
+            assertEquals(0, other.listModules(criteria, regexp).length);
+            assertEquals(1, other.getSearchEngine().getIndex().getMissCount());
+        } finally {
+            file.delete();
+        }
+    }
+
+    public void testMatchersAreGivenToTheResolver() throws ParseException, IOException {
+        Ivy ivy = Ivy.newInstance();
+        ivy.configure(new File("test/repositories/IVY-1128/ivysettings.xml"));
+        IvySettings settings = ivy.getSettings();
+        final List listedCriteria = new ArrayList();
+        FileSystemResolver recording = new FileSystemResolver() {
+            public Map[] listTokenValues(String[] tokens, Map criteria) {
+                listedCriteria.add(criteria);
+                return super.listTokenValues(tokens, criteria);
+            }
+        };
+        recording.setName("recording");
+        FileSystemResolver local = (FileSystemResolver) settings.getResolver("local");
+        recording.addIvyPattern((String) local.getIvyPatterns().get(0));
+        recording.addArtifactPattern((String) local.getArtifactPatterns().get(0));
+        settings.addResolver(recording);
+        SearchIndex index = new SearchIndex(60000);
+        ivy.getSearchEngine().setIndex(index);
+        PatternMatcher glob = settings.getMatcher(PatternMatcher.GLOB);
+
+        ModuleRevisionId criteria = ModuleRevisionId.newInstance("te*", "a", "*");
+        ModuleRevisionId[] mrids = ivy.getSearchEngine().listModules(recording, criteria, glob);
+        assertTrue(mrids.length > 0);
+        assertEquals(1, listedCriteria.size());
+        assertTrue(((Map) listedCriteria.get(0)).get(IvyPatternHelper.ORGANISATION_KEY)
+                instanceof Matcher);
+
+        // the listing only answers the queries using the same patterns
+        assertEquals(mrids.length, ivy.getSearchEngine().listModules(recording, criteria, glob)
+                .length);
+        assertEquals(1, listedCriteria.size());
+        criteria = ModuleRevisionId.newInstance("x*", "a", "*");
+        assertEquals(0, ivy.getSearchEngine().listModules(recording, criteria, glob).length);
+        assertEquals(2, listedCriteria.size());
+
+        // or exact values matching them
+        criteria = ModuleRevisionId.newInstance("test", "a", "*");
+        assertEquals(mrids.length, ivy.getSearchEngine().listModules(recording, criteria, glob)
+                .length);
+        assertEquals(2, listedCriteria.size());
+    }
+
+    private static Ivy newIvyWithIndex(File file) throws ParseException, IOException {
+        Ivy ivy = Ivy.newInstance();
+        ivy.getSettings().setVariable(SearchEngine.INDEX_TTL_VARIABLE, "1h");
+        ivy.getSettings().setVariable(SearchEngine.INDEX_FILE_VARIABLE, file.getAbsolutePath());
+        ivy.configure(new File("test/repositories/IVY-1128/ivysettings.xml"));
+        return ivy;
+    }
 }
@@ -583,6 +583,28 @@ public class XmlSettingsParserTest extends TestCase {
         assertEquals(new File(basedir, "packager/cache"), packager.getResourceCache());
     }
 
+    public void testCompiledSettingsReusedWithOtherVariables() throws Exception {
+        IvySettings settings = new IvySettings();
+        settings.setBaseDir(new File("test/base/dir1"));
+        new XmlSettingsParser(settings).parse(
+            XmlSettingsParserTest.class.getResource("ivysettings-cache.xml"));
+        long hits = SettingsDocumentCache.getHitCount();
+
+        IvySettings settings2 = new IvySettings();
+        settings2.setBaseDir(new File("test/base/dir2"));
+        new XmlSettingsParser(settings2).parse(
+            XmlSettingsParserTest.class.getResource("ivysettings-cache.xml"));
+
+        // the settings file is not parsed again, but variables are substituted again
+        assertTrue(SettingsDocumentCache.getHitCount() > hits);
+        assertEquals(new File("test/base/dir1/mycache").getCanonicalFile(), 
+            ((DefaultRepositoryCacheManager) settings.getRepositoryCacheManager("mycache"))
+                .getBasedir().getCanonicalFile());
+        assertEquals(new File("test/base/dir2/mycache").getCanonicalFile(), 
+            ((DefaultRepositoryCacheManager) settings2.getRepositoryCacheManager("mycache"))
+                .getBasedir().getCanonicalFile());
+    }
+
     public void testBaseDirVariables() throws Exception {
         IvySettings settings = new IvySettings();
         settings.setBaseDir(new File("test/base/dir"));
@@ -228,6 +228,13 @@ public class OBRResolverTest extends TestCase {
         genericTestResolve(jarName, "default", new ModuleRevisionId[] {MRID_TEST_BUNDLE});
     }
 
+    public void testResolveLazy() throws Exception {
+        bundleResolver.setLazy(true);
+        String jarName = "org.apache.ivy.osgi.testbundle.importing.use_3.2.1.jar";
+        genericTestResolve(jarName, "default", new ModuleRevisionId[] {MRID_TEST_BUNDLE_USE,
+                MRID_TEST_BUNDLE_IMPORTING, MRID_TEST_BUNDLE});
+    }
+
     public void testResolveUse() throws Exception {
         String jarName = "org.apache.ivy.osgi.testbundle.use_2.2.2.jar";
         genericTestResolve(jarName, "default", new ModuleRevisionId[] {});
@@ -26,8 +26,10 @@ import org.apache.ivy.osgi.obr.filter.AndFilter;
 import org.apache.ivy.osgi.obr.filter.CompareFilter;
 import org.apache.ivy.osgi.obr.filter.CompareFilter.Operator;
 import org.apache.ivy.osgi.obr.filter.NotFilter;
+import org.apache.ivy.osgi.obr.filter.RequirementFilterCache;
 import org.apache.ivy.osgi.obr.filter.RequirementFilterParser;
 import org.apache.ivy.osgi.obr.xml.RequirementFilter;
+import org.apache.ivy.osgi.util.Version;
 
 public class RequirementFilterTest extends TestCase {
 
@@ -63,6 +65,24 @@ public class RequirementFilterTest extends TestCase {
             "(&     (version>=3.5.0)     (!(version>=4.0.0))     (bundle=org.eclipse.core.runtime)    )");
     }
 
+    public void testInternedFilter() throws Exception {
+        String text = "(&(package=org.acme)(version>=1.2.0)(!(version>=2.0.0)))";
+        RequirementFilter filter = RequirementFilterCache.parse(text);
+        assertEquals(RequirementFilterParser.parse(text), filter);
+        long hits = RequirementFilterCache.getHitCount();
+        assertSame(filter, RequirementFilterCache.parse(text));
+        assertEquals(hits + 1, RequirementFilterCache.getHitCount());
+
+        CompareFilter version = (CompareFilter) ((AndFilter) filter).getSubFilters().get(1);
+        assertEquals(new Version("1.2.0"), version.getRightVersion());
+        assertSame(version.getRightVersion(), version.getRightVersion());
+
+        RequirementFilterCache.clear();
+        RequirementFilter parsedAgain = RequirementFilterCache.parse(text);
+        assertNotSame(filter, parsedAgain);
+        assertEquals(filter, parsedAgain);
+    }
+
     private void assertParseFail(String toParse) {
         try {
             RequirementFilterParser.parse(toParse);
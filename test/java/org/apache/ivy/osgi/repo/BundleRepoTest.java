@@ -23,6 +23,10 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.text.ParseException;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.Set;
 
 import javax.xml.transform.TransformerConfigurationException;
 import javax.xml.transform.sax.SAXTransformerFactory;
@@ -31,10 +35,16 @@ import javax.xml.transform.stream.StreamResult;
 
 import junit.framework.TestCase;
 
+import org.apache.ivy.core.module.descriptor.DefaultModuleDescriptor;
+import org.apache.ivy.core.module.descriptor.ModuleDescriptor;
+import org.apache.ivy.core.module.id.ModuleRevisionId;
 import org.apache.ivy.core.settings.IvySettings;
+import org.apache.ivy.osgi.core.BundleInfo;
 import org.apache.ivy.osgi.core.ExecutionEnvironmentProfileProvider;
 import org.apache.ivy.osgi.obr.xml.OBRXMLParser;
 import org.apache.ivy.osgi.obr.xml.OBRXMLWriter;
+import org.apache.ivy.osgi.util.Version;
+import org.apache.ivy.osgi.util.VersionRange;
 import org.apache.ivy.plugins.repository.file.FileRepository;
 import org.apache.ivy.plugins.resolver.FileSystemResolver;
 import org.apache.tools.ant.BuildException;
@@ -58,6 +68,116 @@ public class BundleRepoTest extends TestCase {
         assertEquals(repo, repo2);
     }
 
+    public void testParallelFS() throws Exception {
+        BundleRepoDescriptor repo = new BundleRepoDescriptor(bundlerepo.toURI(),
+                ExecutionEnvironmentProfileProvider.getInstance());
+        repo.populate(new FSManifestIterable(bundlerepo).iterator());
+
+        File cacheFile = File.createTempFile("ivymanifests", ".cache");
+        cacheFile.delete();
+        try {
+            FSManifestIterable it = new FSManifestIterable(bundlerepo);
+            it.setThreads(4);
+            it.setManifestCache(new ManifestCache(cacheFile));
+            BundleRepoDescriptor repo2 = new BundleRepoDescriptor(bundlerepo.toURI(),
+                    ExecutionEnvironmentProfileProvider.getInstance());
+            repo2.populate(it.iterator());
+            assertEquals(repo.getBundles(), repo2.getBundles());
+            assertEquals(0, it.getManifestCache().getHitCount());
+            it.getManifestCache().save();
+
+            // the second scan only uses the saved manifests
+            ManifestCache manifestCache = new ManifestCache(cacheFile);
+            it.setManifestCache(manifestCache);
+            BundleRepoDescriptor repo3 = new BundleRepoDescriptor(bundlerepo.toURI(),
+                    ExecutionEnvironmentProfileProvider.getInstance());
+            repo3.populate(it.iterator());
+            assertEquals(repo, repo3);
+            assertTrue(manifestCache.getHitCount() > 0);
+        } finally {
+            cacheFile.delete();
+        }
+    }
+
+    public void testLazy() throws Exception {
+        BundleRepoDescriptor repo = OBRXMLParser.parse(bundlerepo.toURI(), new FileInputStream(
+                new File(bundlerepo, "repo.xml")));
+        BundleRepoDescriptor lazy = OBRXMLParser.parse(bundlerepo.toURI(), new FileInputStream(
+                new File(bundlerepo, "repo.xml")), true);
+        assertTrue(lazy instanceof LazyBundleRepoDescriptor);
+        assertEquals(repo.getModules(), lazy.getModules());
+        assertEquals(repo.getModuleByCapbilities(), lazy.getModuleByCapbilities());
+        assertEquals(repo.getBundles(), lazy.getBundles());
+    }
+
+    public void testLazyEquality() throws Exception {
+        BundleRepoDescriptor lazy = OBRXMLParser.parse(bundlerepo.toURI(), new FileInputStream(
+                new File(bundlerepo, "repo.xml")), true);
+        BundleRepoDescriptor lazy2 = OBRXMLParser.parse(bundlerepo.toURI(), new FileInputStream(
+                new File(bundlerepo, "repo.xml")), true);
+        assertEquals(lazy, lazy2);
+        assertEquals(lazy.hashCode(), lazy2.hashCode());
+
+        BundleRepoDescriptor other = OBRXMLParser.parse(new File("test/repositories").toURI(),
+            new FileInputStream(new File(bundlerepo, "repo.xml")), true);
+        assertFalse(lazy.equals(other));
+    }
+
+    public void testLazyAdd() throws Exception {
+        LazyBundleRepoDescriptor lazy = new LazyBundleRepoDescriptor(bundlerepo.toURI(),
+                ExecutionEnvironmentProfileProvider.getInstance());
+        lazy.addBundle(new BundleInfo("org.example.a", new Version("1.0.0")));
+        ModuleDescriptor md = DefaultModuleDescriptor.newBasicInstance(
+            ModuleRevisionId.newInstance("", "org.example.a", "2.0.0"), new Date());
+        lazy.add(BundleInfo.BUNDLE_TYPE, "org.example.a", new Version("2.0.0"), md);
+        lazy.add("service", "org.example.service", md);
+
+        assertEquals(2, lazy.getModules().size());
+        assertTrue(lazy.getModules().contains(md));
+        assertEquals(2, lazy.findModule(BundleInfo.BUNDLE_TYPE, "org.example.a").size());
+        assertEquals(Collections.singleton(md),
+            lazy.findModule(BundleInfo.BUNDLE_TYPE, "org.example.a", new Version("2.0.0")));
+        assertEquals(2, lazy.getCapabilityVersions(BundleInfo.BUNDLE_TYPE, "org.example.a")
+                .size());
+        assertTrue(lazy.getCapabilities().contains("service"));
+        assertEquals(Collections.singleton(md), lazy.findModule("service", "org.example.service"));
+        assertNull(lazy.getBundleInfo(md));
+    }
+
+    public void testFindModuleByRange() throws Exception {
+        RepoDescriptor repo = new RepoDescriptor(bundlerepo.toURI(),
+                ExecutionEnvironmentProfileProvider.getInstance());
+        String[] versions = new String[] {"3.0.0", "1.0.0.v1", "2.0.0", "0.9.0", "1.5.0",
+                "2.0.0.rc1", "1.0.0"};
+        for (int i = 0; i < versions.length; i++) {
+            repo.addBundle(new BundleInfo("org.example.a", new Version(versions[i])));
+        }
+
+        Iterator itVersion = repo.getCapabilityVersions(BundleInfo.BUNDLE_TYPE, "org.example.a")
+                .iterator();
+        assertEquals("0.9.0", itVersion.next().toString());
+        assertEquals("1.0.0", itVersion.next().toString());
+        assertEquals("1.0.0.v1", itVersion.next().toString());
+
+        VersionRange range = new VersionRange("[1.0.0,2.0.0)");
+        Set mds = repo.findModule(BundleInfo.BUNDLE_TYPE, "org.example.a", range);
+        // the candidates contain all the matching modules, and the ones of the end version
+        Iterator itModule = repo.getModules().iterator();
+        while (itModule.hasNext()) {
+            ModuleDescriptor md = (ModuleDescriptor) itModule.next();
+            Version version = new Version(md.getRevision());
+            boolean candidate = range.contains(version)
+                    || version.withoutQualifier().equals(range.getEndVersion());
+            assertEquals(md.getRevision(), candidate, mds.contains(md));
+        }
+
+        assertEquals(1,
+            repo.findModule(BundleInfo.BUNDLE_TYPE, "org.example.a", new Version("1.0.0.v1"))
+                    .size());
+        assertNull(repo.findModule(BundleInfo.BUNDLE_TYPE, "org.example.a", new Version("1.1.0")));
+        assertNull(repo.findModule(BundleInfo.BUNDLE_TYPE, "org.example.b", range));
+    }
+
     public void testFileRepo() throws Exception {
         RepositoryManifestIterable it = new RepositoryManifestIterable(new FileRepository(
                 bundlerepo.getAbsoluteFile()));
@@ -90,6 +210,40 @@ public class BundleRepoTest extends TestCase {
         assertEquals(repo, repo2);
     }
 
+    public void testIndex() throws Exception {
+        File repoXml = new File(bundlerepo, "repo.xml");
+        BundleRepoDescriptor repo = OBRXMLParser.parse(bundlerepo.toURI(), new FileInputStream(
+                repoXml));
+
+        File indexFile = File.createTempFile("ivyosgi", ".idx");
+        try {
+            RepoDescriptorIndex index = new RepoDescriptorIndex(indexFile);
+            index.addSource(repoXml);
+            index.store(repo);
+
+            RepoDescriptor loaded = new RepoDescriptorIndex(indexFile).load(null, null, null);
+            assertNotNull(loaded);
+            assertEquals(repo.getBaseUri(), loaded.getBaseUri());
+            assertEquals(repo.getBundles(), loaded.getBundles());
+            assertEquals(repo.getModules(), loaded.getModules());
+            assertEquals(repo.getModuleByCapbilities(), loaded.getModuleByCapbilities());
+
+            // the index is ignored as soon as its source changes
+            File copy = File.createTempFile("ivyosgi", ".xml");
+            try {
+                index = new RepoDescriptorIndex(indexFile);
+                index.addSource(copy);
+                index.store(repo);
+                copy.setLastModified(copy.lastModified() - 10000);
+                assertNull(new RepoDescriptorIndex(indexFile).load(null, null, null));
+            } finally {
+                copy.delete();
+            }
+        } finally {
+            indexFile.delete();
+        }
+    }
+
     public void testXMLSerialisation() throws SAXException, ParseException, IOException {
         FSManifestIterable it = new FSManifestIterable(bundlerepo);
         BundleRepoDescriptor repo = new BundleRepoDescriptor(bundlerepo.toURI(),
@@ -96,6 +96,26 @@ public class UpdateSiteResolverTest extends TestCase {
         assertEquals(64, modules.length);
     }
 
+    public void testListModulesComposite() throws Exception {
+        int[] threads = new int[] {1, 4};
+        for (int i = 0; i < threads.length; i++) {
+            UpdateSiteResolver composite = new UpdateSiteResolver();
+            composite.setName("composite-" + threads[i]);
+            composite.setUrl(new File("test/test-p2/composite").toURL().toExternalForm());
+            composite.setMetadataThreads(new Integer(threads[i]));
+            composite.setPersistentIndex(false);
+            composite.setSettings(settings);
+            settings.addResolver(composite);
+
+            ModuleEntry[] modules = composite.listModules(new OrganisationEntry(composite,
+                    BundleInfo.BUNDLE_TYPE));
+            assertEquals(3, modules.length);
+            modules = composite.listModules(new OrganisationEntry(composite,
+                    BundleInfo.PACKAGE_TYPE));
+            assertEquals(64, modules.length);
+        }
+    }
+
     private void genericTestResolveDownload(DependencyResolver resolver, ModuleRevisionId mrid)
             throws ParseException {
         ResolvedModuleRevision rmr = resolver.getDependency(new DefaultDependencyDescriptor(mrid,
@@ -0,0 +1,132 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.ivy.plugins.repository.ssh;
+
+import java.io.IOException;
+
+import junit.framework.TestCase;
+
+import org.apache.ivy.Ivy;
+import org.apache.ivy.core.IvyContext;
+
+import com.jcraft.jsch.ChannelSftp;
+import com.jcraft.jsch.JSch;
+import com.jcraft.jsch.Session;
+
+public class SshCacheTest extends TestCase {
+    private static final long IDLE_TIMEOUT = 60000;
+
+    private SshCache cache = SshCache.getInstance();
+
+    private Session session;
+
+    protected void setUp() throws Exception {
+        IvyContext.pushNewContext().setIvy(Ivy.newInstance());
+        // the session is never connected, the channels are given to the pool by the tests
+        session = new JSch().getSession("user", "sshcachetest", 22);
+        cache.setSession("user", "sshcachetest", 22, session);
+    }
+
+    protected void tearDown() throws Exception {
+        cache.clearSession(session);
+        IvyContext.popContext();
+    }
+
+    public void testReleasedChannelIsReused() throws Exception {
+        MockChannel channel = attachAndAcquire();
+        cache.releaseChannelSftp(session, channel, IDLE_TIMEOUT);
+        assertTrue(channel.isConnected());
+        assertSame(channel, cache.acquireChannelSftp(session, 1, IDLE_TIMEOUT, 1000));
+        cache.releaseChannelSftp(session, channel, IDLE_TIMEOUT);
+        assertSame(channel, cache.acquireChannelSftp(session, 1, IDLE_TIMEOUT, 1000));
+    }
+
+    public void testReleaseWithoutIdleTimeoutDisconnects() throws Exception {
+        MockChannel channel = attachAndAcquire();
+        cache.releaseChannelSftp(session, channel, 0);
+        assertFalse(channel.isConnected());
+    }
+
+    public void testDisconnectedChannelIsNotReused() throws Exception {
+        MockChannel channel = attachAndAcquire();
+        channel.disconnect();
+        cache.releaseChannelSftp(session, channel, IDLE_TIMEOUT);
+        try {
+            // a new channel has to be opened, which fails since the session is not connected
+            cache.acquireChannelSftp(session, 1, IDLE_TIMEOUT, 1000);
+            fail("a disconnected channel should not be given back");
+        } catch (IOException e) {
+            // expected
+        }
+        // the failed opening has given its slot back
+        MockChannel other = new MockChannel();
+        cache.attachChannelSftp(session, other);
+        assertSame(other, cache.acquireChannelSftp(session, 1, IDLE_TIMEOUT, 1000));
+    }
+
+    public void testAcquireTimesOutWhenNoChannelIsReleased() throws Exception {
+        attachAndAcquire();
+        long start = System.currentTimeMillis();
+        try {
+            cache.acquireChannelSftp(session, 1, IDLE_TIMEOUT, 200);
+            fail("acquiring a channel should time out when all channels are borrowed");
+        } catch (IOException e) {
+            assertTrue(e.getMessage(), e.getMessage().indexOf("has been released in 200ms") != -1);
+        }
+        assertTrue(System.currentTimeMillis() - start >= 200);
+    }
+
+    public void testReleaseWakesUpWaitingThread() throws Exception {
+        final MockChannel channel = attachAndAcquire();
+        final Object[] acquired = new Object[1];
+        Thread waiting = new Thread() {
+            public void run() {
+                try {
+                    acquired[0] = cache.acquireChannelSftp(session, 1, IDLE_TIMEOUT, 10000);
+                } catch (IOException e) {
+                    acquired[0] = e;
+                }
+            }
+        };
+        waiting.start();
+        Thread.sleep(100);
+        assertNull(acquired[0]);
+        cache.releaseChannelSftp(session, channel, IDLE_TIMEOUT);
+        waiting.join(10000);
+        assertSame(channel, acquired[0]);
+    }
+
+    private MockChannel attachAndAcquire() throws IOException {
+        MockChannel channel = new MockChannel();
+        cache.attachChannelSftp(session, channel);
+        assertSame(channel, cache.acquireChannelSftp(session, 1, IDLE_TIMEOUT, 1000));
+        return channel;
+    }
+
+    private static final class MockChannel extends ChannelSftp {
+        private volatile boolean connected = true;
+
+        public boolean isConnected() {
+            return connected;
+        }
+
+        public void disconnect() {
+            connected = false;
+        }
+    }
+}
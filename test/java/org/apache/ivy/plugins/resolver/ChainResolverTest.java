@@ -192,6 +192,64 @@ public class ChainResolverTest extends AbstractDependencyResolverTest {
         }
     }
 
+    public void testParallelLatestRevisionResolve() throws Exception {
+        ChainResolver chain = new ChainResolver();
+        chain.setName("chain");
+        chain.setSettings(settings);
+        chain.setLatestStrategy(new LatestRevisionStrategy());
+        chain.setParallel(true);
+        chain.setParallelThreads(3);
+        MockResolver[] resolvers = new MockResolver[] {
+                MockResolver.buildMockResolver(settings, "1", true, ModuleRevisionId.newInstance("org",
+                    "mod", "1"), new GregorianCalendar(2005, 1, 20).getTime()),
+                MockResolver.buildMockResolver(settings, "2", false, null),
+                MockResolver.buildMockResolver(settings, "3", true, ModuleRevisionId.newInstance("org",
+                    "mod", "2"), new GregorianCalendar(2005, 1, 25).getTime()),
+                MockResolver.buildMockResolver(settings, "4", false, null),
+                MockResolver.buildMockResolver(settings, "5", true, ModuleRevisionId.newInstance("org",
+                    "mod", "4"), new GregorianCalendar(2005, 1, 22).getTime()), // latest
+                MockResolver.buildMockResolver(settings, "6", true, ModuleRevisionId.newInstance("org",
+                    "mod", "3"), new GregorianCalendar(2005, 1, 18).getTime()),
+                MockResolver.buildMockResolver(settings, "7", false, null)};
+        for (int i = 0; i < resolvers.length; i++) {
+            chain.add(resolvers[i]);
+        }
+
+        DefaultDependencyDescriptor dd = new DefaultDependencyDescriptor(ModuleRevisionId
+                .newInstance("org", "mod", "latest.integration"), false);
+        ResolvedModuleRevision rmr = chain.getDependency(dd, data);
+        assertNotNull(rmr);
+        assertEquals("5", rmr.getResolver().getName());
+        List ddAsList = Arrays.asList(new DependencyDescriptor[] {dd});
+        for (int i = 0; i < resolvers.length; i++) {
+            assertEquals(ddAsList, resolvers[i].askedDeps);
+        }
+    }
+
+    public void testParallelReturnFirst() throws Exception {
+        ChainResolver chain = new ChainResolver();
+        chain.setName("chain");
+        chain.setSettings(settings);
+        chain.setReturnFirst(true);
+        chain.setParallel(true);
+        MockResolver[] resolvers = new MockResolver[] {
+                MockResolver.buildMockResolver(settings, "1", false, null),
+                MockResolver.buildMockResolver(settings, "2", true, new GregorianCalendar(2005, 1, 20)
+                        .getTime()),
+                MockResolver.buildMockResolver(settings, "3", true, new GregorianCalendar(2005, 1, 25)
+                        .getTime())};
+        for (int i = 0; i < resolvers.length; i++) {
+            chain.add(resolvers[i]);
+        }
+
+        DefaultDependencyDescriptor dd = new DefaultDependencyDescriptor(ModuleRevisionId
+                .newInstance("org", "mod", "latest.integration"), false);
+        ResolvedModuleRevision rmr = chain.getDependency(dd, data);
+        assertNotNull(rmr);
+        assertEquals("2", rmr.getResolver().getName());
+        assertTrue(rmr.isForce());
+    }
+
     public void testWithDefault() throws Exception {
         ChainResolver chain = new ChainResolver();
         chain.setName("chain");
@@ -24,6 +24,7 @@ import java.io.IOException;
 import java.util.Date;
 import java.util.GregorianCalendar;
 
+import org.apache.ivy.core.IvyContext;
 import org.apache.ivy.core.cache.DefaultRepositoryCacheManager;
 import org.apache.ivy.core.event.EventManager;
 import org.apache.ivy.core.module.descriptor.Artifact;
@@ -596,6 +597,113 @@ public class FileSystemResolverTest extends AbstractDependencyResolverTest {
         }
     }
 
+    public void testNotFoundCacheClearedByPublish() throws Exception {
+        try {
+            cacheManager.setNotFoundTTL("1h");
+            FileSystemResolver resolver = new FileSystemResolver();
+            resolver.setName("test");
+            resolver.setSettings(settings);
+            // the published ivy file is the one of another module
+            resolver.setCheckconsistency(false);
+
+            resolver.addIvyPattern(settings.getBaseDir() 
+                + "/test/repositories/1/[organisation]/[module]/[revision]/[artifact].[ext]");
+            resolver.addArtifactPattern(settings.getBaseDir() 
+                + "/test/repositories/1/[organisation]/[module]/[type]s/[artifact]-[revision].[ext]");
+
+            ModuleRevisionId mrid = ModuleRevisionId.newInstance("myorg", "mymodule", "myrevision");
+            DefaultDependencyDescriptor dd = new DefaultDependencyDescriptor(mrid, false);
+            assertNull(resolver.getDependency(dd, data));
+            assertTrue(cacheManager.isModuleNotFound("test", mrid));
+
+            Artifact ivyArtifact = new DefaultArtifact(mrid, new Date(), "ivy", "ivy", "xml");
+            resolver.beginPublishTransaction(mrid, false);
+            resolver.publish(ivyArtifact, 
+                new File("test/repositories/1/org1/mod1.1/ivys/ivy-1.0.xml"), false);
+            resolver.commitPublishTransaction();
+
+            assertFalse(cacheManager.isModuleNotFound("test", mrid));
+            assertNotNull(resolver.getDependency(dd, data));
+        } finally {
+            FileUtil.forceDelete(new File("test/repositories/1/myorg"));
+        }
+    }
+
+    public void testNotFoundCacheOfDynamicRevisionClearedByPublish() throws Exception {
+        try {
+            cacheManager.setNotFoundTTL("1h");
+            FileSystemResolver resolver = new FileSystemResolver();
+            resolver.setName("test");
+            resolver.setSettings(settings);
+            // the published ivy file is the one of another module
+            resolver.setCheckconsistency(false);
+
+            resolver.addIvyPattern(settings.getBaseDir() 
+                + "/test/repositories/1/[organisation]/[module]/[revision]/[artifact].[ext]");
+            resolver.addArtifactPattern(settings.getBaseDir() 
+                + "/test/repositories/1/[organisation]/[module]/[type]s/[artifact]-[revision].[ext]");
+
+            ModuleRevisionId latest = ModuleRevisionId.newInstance("myorg", "mymodule",
+                "latest.integration");
+            DefaultDependencyDescriptor dd = new DefaultDependencyDescriptor(latest, false);
+            assertNull(resolver.getDependency(dd, data));
+            assertTrue(cacheManager.isModuleNotFound("test", latest));
+
+            // the miss is recorded under the dynamic revision, which the published one matches
+            ModuleRevisionId mrid = ModuleRevisionId.newInstance("myorg", "mymodule", "myrevision");
+            Artifact ivyArtifact = new DefaultArtifact(mrid, new Date(), "ivy", "ivy", "xml");
+            resolver.beginPublishTransaction(mrid, false);
+            resolver.publish(ivyArtifact, 
+                new File("test/repositories/1/org1/mod1.1/ivys/ivy-1.0.xml"), false);
+            resolver.commitPublishTransaction();
+
+            assertFalse(cacheManager.isModuleNotFound("test", latest));
+            assertNotNull(resolver.getDependency(dd, data));
+        } finally {
+            FileUtil.forceDelete(new File("test/repositories/1/myorg"));
+        }
+    }
+
+    public void testNotFoundCacheBypassedByRefresh() throws Exception {
+        File artifactFile = new File("test/repositories/1/myorg/mymodule/jars/mymodule-1.0.jar");
+        try {
+            cacheManager.setNotFoundTTL("1h");
+            FileSystemResolver resolver = new FileSystemResolver();
+            resolver.setName("test");
+            resolver.setSettings(settings);
+            resolver.addArtifactPattern(settings.getBaseDir() 
+                + "/test/repositories/1/[organisation]/[module]/[type]s/[artifact]-[revision].[ext]");
+
+            Artifact artifact = new DefaultArtifact(ModuleRevisionId.newInstance("myorg",
+                "mymodule", "1.0"), new Date(), "mymodule", "jar", "jar");
+            DownloadReport report = resolver.download(new Artifact[] {artifact},
+                getDownloadOptions());
+            assertEquals(DownloadStatus.FAILED, report.getArtifactReport(artifact)
+                    .getDownloadStatus());
+            assertTrue(cacheManager.isArtifactNotFound("test", artifact));
+
+            FileUtil.copy(new File("test/repositories/1/org1/mod1.1/jars/mod1.1-1.0.jar"),
+                artifactFile, null);
+            report = resolver.download(new Artifact[] {artifact}, getDownloadOptions());
+            assertEquals(DownloadStatus.FAILED, report.getArtifactReport(artifact)
+                    .getDownloadStatus());
+
+            // like the module descriptors, the artifacts are looked up again on refresh
+            ResolveOptions options = new ResolveOptions();
+            options.setRefresh(true);
+            IvyContext.getContext().setResolveData(new ResolveData(engine, options));
+            try {
+                report = resolver.download(new Artifact[] {artifact}, getDownloadOptions());
+            } finally {
+                IvyContext.getContext().setResolveData(null);
+            }
+            assertEquals(DownloadStatus.SUCCESSFUL, report.getArtifactReport(artifact)
+                    .getDownloadStatus());
+        } finally {
+            FileUtil.forceDelete(new File("test/repositories/1/myorg"));
+        }
+    }
+
     public void testPublishOverwrite() throws Exception {
         try {
             FileSystemResolver resolver = new FileSystemResolver();
@@ -18,10 +18,17 @@
 package org.apache.ivy.plugins.resolver;
 
 import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
 import java.net.MalformedURLException;
+import java.util.HashMap;
+import java.util.Map;
 
 import junit.framework.TestCase;
 
+import org.apache.ivy.core.IvyContext;
+import org.apache.ivy.core.IvyPatternHelper;
+import org.apache.ivy.core.cache.DefaultRepositoryCacheManager;
 import org.apache.ivy.core.event.EventManager;
 import org.apache.ivy.core.module.descriptor.DefaultDependencyDescriptor;
 import org.apache.ivy.core.module.id.ModuleRevisionId;
@@ -31,7 +38,9 @@ import org.apache.ivy.core.resolve.ResolveOptions;
 import org.apache.ivy.core.resolve.ResolvedModuleRevision;
 import org.apache.ivy.core.settings.IvySettings;
 import org.apache.ivy.core.sort.SortEngine;
+import org.apache.ivy.plugins.matcher.PatternMatcher;
 import org.apache.ivy.util.CacheCleaner;
+import org.apache.ivy.util.FileUtil;
 
 public class Maven2LocalTest extends TestCase {
     private IvySettings settings;
@@ -86,6 +95,119 @@ public class Maven2LocalTest extends TestCase {
             "org.apache", "test-metadata", "1.2"), m.getId());
     }
 
+    public void testMetadataCached() throws Exception {
+        File repo = new File("build/test/m2metadata");
+        File metadataFile = new File(repo, "org/apache/test-metadata/maven-metadata.xml");
+        FileUtil.copy(new File("test/repositories/m2/org/apache/test-metadata/maven-metadata.xml"),
+            metadataFile, null);
+        try {
+            IBiblioResolver resolver = maven2Resolver();
+            resolver.setRoot(repo.toURI().toURL().toExternalForm());
+            DefaultRepositoryCacheManager cacheManager = 
+                (DefaultRepositoryCacheManager) settings.getDefaultRepositoryCacheManager();
+            cacheManager.setDefaultTTL("eternal");
+
+            Map tokenValues = new HashMap();
+            tokenValues.put(IvyPatternHelper.ORGANISATION_KEY, "org.apache");
+            tokenValues.put(IvyPatternHelper.MODULE_KEY, "test-metadata");
+            assertEquals(2, 
+                resolver.listTokenValues(IvyPatternHelper.REVISION_KEY, tokenValues).length);
+
+            FileWriter writer = new FileWriter(metadataFile);
+            try {
+                writer.write("<metadata><versioning><versions><version>1.0</version>"
+                    + "<version>1.1</version><version>1.2</version>"
+                    + "</versions></versioning></metadata>");
+            } finally {
+                writer.close();
+            }
+            metadataFile.setLastModified(metadataFile.lastModified() + 10000);
+
+            // the parsed metadata is used during the TTL
+            assertEquals(2, 
+                resolver.listTokenValues(IvyPatternHelper.REVISION_KEY, tokenValues).length);
+
+            // and then checked again
+            cacheManager.setDefaultTTL(0);
+            assertEquals(3, 
+                resolver.listTokenValues(IvyPatternHelper.REVISION_KEY, tokenValues).length);
+        } finally {
+            FileUtil.forceDelete(repo);
+        }
+    }
+
+    public void testMetadataCheckedOnRefreshAndForChangingRevisions() throws Exception {
+        File repo = new File("build/test/m2metadata");
+        File source = new File("test/repositories/m2/org/apache/test-metadata");
+        File metadataFile = new File(repo, "org/apache/test-metadata/maven-metadata.xml");
+        FileUtil.copy(new File(source, "maven-metadata.xml"), metadataFile, null);
+        for (int i = 0; i < 3; i++) {
+            String name = "1." + i + "/test-metadata-1." + i + ".pom";
+            FileUtil.copy(new File(source, name), 
+                new File(repo, "org/apache/test-metadata/" + name), null);
+        }
+        try {
+            IBiblioResolver resolver = maven2Resolver();
+            resolver.setRoot(repo.toURI().toURL().toExternalForm());
+            DefaultRepositoryCacheManager cacheManager = 
+                (DefaultRepositoryCacheManager) settings.getDefaultRepositoryCacheManager();
+            cacheManager.setDefaultTTL("eternal");
+
+            DefaultDependencyDescriptor dd = new DefaultDependencyDescriptor(
+                ModuleRevisionId.newInstance(
+                    "org.apache", "test-metadata", "latest.integration"), false);
+            ResolvedModuleRevision m = resolver.getDependency(dd, data);
+            assertEquals(ModuleRevisionId.newInstance(
+                "org.apache", "test-metadata", "1.1"), m.getId());
+
+            writeMetadata(metadataFile, new String[] {"1.0", "1.1", "1.2"});
+
+            // a refresh resolve doesn't trust the parsed metadata
+            m = resolver.getDependency(dd, 
+                new ResolveData(engine, new ResolveOptions().setRefresh(true)));
+            assertEquals(ModuleRevisionId.newInstance(
+                "org.apache", "test-metadata", "1.2"), m.getId());
+
+            writeMetadata(metadataFile, new String[] {"1.0", "1.1", "1.2", "1.3"});
+
+            Map tokenValues = new HashMap();
+            tokenValues.put(IvyPatternHelper.ORGANISATION_KEY, "org.apache");
+            tokenValues.put(IvyPatternHelper.MODULE_KEY, "test-metadata");
+            IvyContext context = IvyContext.pushNewContext();
+            try {
+                context.setResolveData(data);
+                context.setDependencyDescriptor(dd);
+                // the parsed metadata is used during the TTL for a not changing revision
+                assertEquals(3, 
+                    resolver.listTokenValues(IvyPatternHelper.REVISION_KEY, tokenValues).length);
+
+                // but checked again for a changing one
+                resolver.setChangingMatcher(PatternMatcher.REGEXP);
+                resolver.setChangingPattern("latest\\..*");
+                assertEquals(4, 
+                    resolver.listTokenValues(IvyPatternHelper.REVISION_KEY, tokenValues).length);
+            } finally {
+                IvyContext.popContext();
+            }
+        } finally {
+            FileUtil.forceDelete(repo);
+        }
+    }
+
+    private void writeMetadata(File metadataFile, String[] versions) throws IOException {
+        FileWriter writer = new FileWriter(metadataFile);
+        try {
+            writer.write("<metadata><versioning><versions>");
+            for (int i = 0; i < versions.length; i++) {
+                writer.write("<version>" + versions[i] + "</version>");
+            }
+            writer.write("</versions></versioning></metadata>");
+        } finally {
+            writer.close();
+        }
+        metadataFile.setLastModified(metadataFile.lastModified() + 10000);
+    }
+
     private IBiblioResolver maven2Resolver() throws MalformedURLException {
         IBiblioResolver resolver = new IBiblioResolver();
         resolver.setSettings(settings);
@@ -167,6 +167,58 @@ public class PackagerResolverTest extends AbstractDependencyResolverTest {
         }
     }
     
+    public void testResultStore() throws Exception {
+        Locale oldLocale = Locale.getDefault();
+        
+        try {
+            // set the locale to UK as workaround for SUN bug 6240963
+            Locale.setDefault(Locale.UK);
+            File store = new File(workdir, "store");
+            ModuleRevisionId mrid = ModuleRevisionId.newInstance("org", "mod", "1.0");
+            Artifact artifact = new DefaultArtifact(mrid, new Date(), "mod", "jar", "jar");
+
+            // the first build stores its result
+            PackagerResolver resolver = newPackagerResolver(store);
+            DownloadReport report = resolver.download(new Artifact[] {artifact}, downloadOptions());
+            assertEquals(DownloadStatus.SUCCESSFUL, 
+                report.getArtifactReport(artifact).getDownloadStatus());
+            File[] results = store.listFiles();
+            assertEquals(1, results.length);
+            assertTrue(new File(results[0], "artifacts/jars/mod.jar").exists());
+            assertFalse(new File(builddir, "org/mod/1.0").exists());
+
+            // another resolver, with an empty ivy cache, reuses it without building
+            FileUtil.forceDelete(cache);
+            cache.mkdirs();
+            FileUtil.forceDelete(new File(cachedir, "mod-1.0.tar.gz"));
+            resolver = newPackagerResolver(store);
+            report = resolver.download(new Artifact[] {artifact}, downloadOptions());
+            assertEquals(DownloadStatus.SUCCESSFUL, 
+                report.getArtifactReport(artifact).getDownloadStatus());
+            assertFalse(new File(cachedir, "mod-1.0.tar.gz").exists());
+            assertEquals(1, store.listFiles().length);
+        } finally {
+            Locale.setDefault(oldLocale);
+        }
+    }
+
+    private PackagerResolver newPackagerResolver(File store) throws Exception {
+        PackagerResolver resolver = new PackagerResolver();
+        resolver.setSettings(settings);
+        File repoRoot = new File("test/repositories/packager/repo");
+        resolver.addIvyPattern(
+                new File(repoRoot, "[organisation]/[module]/[revision]/ivy.xml").getAbsoluteFile().toURL().toExternalForm());
+        resolver.setPackagerPattern(
+                new File(repoRoot, "[organisation]/[module]/[revision]/packager.xml").getAbsoluteFile().toURL().toExternalForm());
+        resolver.setBuildRoot(builddir);
+        resolver.setResourceCache(cachedir);
+        resolver.setResultStore(store);
+        resolver.setProperty("packager.website.url", 
+            new File("test/repositories/packager/website").getAbsoluteFile().toURL().toExternalForm());
+        resolver.setName("packager");
+        return resolver;
+    }
+    
     public void testZipResourceInclusion() throws Exception {
         Locale oldLocale = Locale.getDefault();
         
@@ -0,0 +1,89 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.ivy.util;
+
+import java.util.Arrays;
+
+import junit.framework.TestCase;
+
+import org.apache.ivy.Ivy;
+import org.apache.ivy.core.IvyContext;
+
+public class MessageTest extends TestCase {
+    private Ivy ivy;
+
+    protected void setUp() throws Exception {
+        ivy = Ivy.newInstance();
+        IvyContext.pushNewContext().setIvy(ivy);
+    }
+
+    protected void tearDown() throws Exception {
+        IvyContext.popContext();
+    }
+
+    public void testFormat() {
+        assertEquals("found 3 urls in /repo", MessageLoggerHelper.format("found {} urls in {}",
+            new Object[] {new Integer(3), "/repo"}));
+        assertEquals("a {} b", MessageLoggerHelper.format("a {} b", new Object[0]));
+        assertEquals("a 1", MessageLoggerHelper.format("a {}", new Object[] {"1", "2"}));
+    }
+
+    public void testDisabledLevelIsNotFormatted() {
+        MockMessageLogger mock = new MockMessageLogger() {
+            public boolean isEnabled(int level) {
+                return level <= Message.MSG_VERBOSE;
+            }
+        };
+        ivy.getLoggerEngine().pushLogger(mock);
+        Object unexpected = new Object() {
+            public String toString() {
+                throw new AssertionError("the debug message should not have been formatted");
+            }
+        };
+
+        assertFalse(Message.isDebugEnabled());
+        assertTrue(Message.isVerboseEnabled());
+        Message.debug("value: {}", unexpected);
+        Message.verbose("value: {}", "visible");
+
+        assertEquals(Arrays.asList(new String[] {Message.MSG_VERBOSE + " value: visible"}), mock
+                .getLogs());
+    }
+
+    public void testAsyncLogger() {
+        MockMessageLogger mock = new MockMessageLogger();
+        AsyncMessageLogger async = new AsyncMessageLogger(mock, 2);
+        for (int i = 0; i < 10; i++) {
+            async.info("message " + i);
+        }
+        async.progress();
+        async.endProgress("done");
+        async.flush();
+
+        assertEquals(10, mock.getLogs().size());
+        for (int i = 0; i < 10; i++) {
+            assertEquals(Message.MSG_INFO + " message " + i, mock.getLogs().get(i));
+        }
+        assertEquals(1, mock.getProgressCalls());
+        assertEquals(Arrays.asList(new String[] {"done"}), mock.getEndProgress());
+
+        async.close();
+        async.info("after close");
+        assertEquals(Message.MSG_INFO + " after close", mock.getLogs().get(10));
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.ivy.util.url;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+
+import org.apache.ivy.util.FileUtil;
+
+import com.sun.net.httpserver.BasicAuthenticator;
+import com.sun.net.httpserver.HttpContext;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * A local http server serving the files of a directory to the clients authenticated with
+ * basic authentication, used to test how the credentials are handled.
+ */
+public class BasicAuthHttpServer {
+    public static final String REALM = "test-realm";
+
+    public static final String HOST = "127.0.0.1";
+
+    private final HttpServer server;
+
+    private int requestCount;
+
+    public BasicAuthHttpServer(final File root, final String username, final String passwd)
+            throws IOException {
+        server = HttpServer.create(new InetSocketAddress(HOST, 0), 0);
+        HttpContext context = server.createContext("/", new HttpHandler() {
+            public void handle(HttpExchange exchange) throws IOException {
+                File file = new File(root, exchange.getRequestURI().getPath());
+                try {
+                    if (!file.isFile()) {
+                        exchange.sendResponseHeaders(404, -1);
+                        return;
+                    }
+                    exchange.getResponseHeaders().add("Content-Type", "application/octet-stream");
+                    if ("HEAD".equals(exchange.getRequestMethod())) {
+                        exchange.getResponseHeaders().add(
+                            "Content-Length", String.valueOf(file.length()));
+                        exchange.sendResponseHeaders(200, -1);
+                    } else {
+                        exchange.sendResponseHeaders(200, file.length());
+                        OutputStream out = exchange.getResponseBody();
+                        FileUtil.copy(file.toURI().toURL().openStream(), out, null);
+                    }
+                } finally {
+                    exchange.close();
+                }
+            }
+        });
+        context.setAuthenticator(new BasicAuthenticator(REALM) {
+            public boolean checkCredentials(String user, String pwd) {
+                synchronized (BasicAuthHttpServer.this) {
+                    requestCount++;
+                }
+                return username.equals(user) && passwd.equals(pwd);
+            }
+        });
+        server.start();
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    public String getURL(String path) {
+        return "http://" + HOST + ":" + getPort() + "/" + path;
+    }
+
+    /**
+     * Returns the number of requests received with credentials, valid or not.
+     */
+    public synchronized int getAuthenticatedRequestCount() {
+        return requestCount;
+    }
+
+    public void stop() {
+        server.stop(0);
+    }
+}
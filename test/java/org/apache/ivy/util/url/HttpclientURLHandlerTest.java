@@ -69,6 +69,32 @@ public class HttpclientURLHandlerTest extends TestCase {
         assertDownloadOK(new URL("http://carsten.codimi.de/gzip.yaws/nh80.pdf?deflate=on"), new File(testDir, "nh80-deflate.pdf"));
     }
     
+    public void testContextCredentialsAreNotReusedByAnotherContext() throws Exception {
+        BasicAuthHttpServer server = new BasicAuthHttpServer(new File("."), "user", "secret");
+        try {
+            URL url = new URL(server.getURL("build.xml"));
+            CredentialsStore.INSTANCE.addContextCredentials(BasicAuthHttpServer.REALM,
+                BasicAuthHttpServer.HOST, "user", "secret");
+            try {
+                assertTrue(handler.isReachable(url));
+            } finally {
+                CredentialsStore.INSTANCE.clearContextCredentials();
+            }
+
+            // the host is secured in this context too, but not for the realm of the server:
+            // the http client must not have kept the credentials of the previous context
+            CredentialsStore.INSTANCE.addContextCredentials("other-realm",
+                BasicAuthHttpServer.HOST, "user", "secret");
+            try {
+                assertFalse(handler.isReachable(url));
+            } finally {
+                CredentialsStore.INSTANCE.clearContextCredentials();
+            }
+        } finally {
+            server.stop();
+        }
+    }
+
     private void assertDownloadOK(URL url, File file) throws Exception {
         handler.download(url, file, null);
         assertTrue(file.exists());        